@@ -0,0 +1,385 @@
+package com.nimbusds.oauth2.sdk;
+
+
+import java.util.*;
+
+import net.jcip.annotations.Immutable;
+
+
+/**
+ * Compact, immutable authorisation scope. The scope values of the
+ * {@link ScopeVocabulary vocabulary} are represented by a bit set in a
+ * single {@code long}, other scope values are kept in an overflow set.
+ * Subset and intersection checks of the registered scope values reduce to
+ * bitwise operations.
+ *
+ * <p>Unlike {@link Scope} the order in which the scope values were added
+ * is not kept. Compact scopes can only be combined with compact scopes of
+ * the same vocabulary.
+ *
+ * <p>Example:
+ *
+ * <pre>
+ * CompactScope granted = vocabulary.compact(tokenScope);
+ * CompactScope required = vocabulary.parse("read write");
+ *
+ * if (granted.containsAll(required)) {
+ *         // authorised
+ * }
+ * </pre>
+ */
+@Immutable
+public final class CompactScope {
+
+
+	/**
+	 * The scope vocabulary.
+	 */
+	private final ScopeVocabulary vocabulary;
+
+
+	/**
+	 * The bit set of the scope values in the vocabulary.
+	 */
+	private final long bits;
+
+
+	/**
+	 * The scope values not in the vocabulary, empty set if none.
+	 */
+	private final Set<Scope.Value> overflow;
+
+
+	/**
+	 * Creates a new compact scope.
+	 *
+	 * @param vocabulary The scope vocabulary. Must not be {@code null}.
+	 * @param bits       The bit set of the scope values in the
+	 *                   vocabulary. Must not have bits set beyond the
+	 *                   vocabulary size.
+	 * @param overflow   The scope values not in the vocabulary,
+	 *                   {@code null} or empty set if none. Values in the
+	 *                   vocabulary are moved to the bit set.
+	 */
+	public CompactScope(final ScopeVocabulary vocabulary,
+			    final long bits,
+			    final Set<Scope.Value> overflow) {
+
+		if (vocabulary == null)
+			throw new IllegalArgumentException("The scope vocabulary must not be null");
+
+		if (vocabulary.size() < ScopeVocabulary.MAX_SIZE && (bits >>> vocabulary.size()) != 0L)
+			throw new IllegalArgumentException("The bit set must not have bits beyond the vocabulary size");
+
+		this.vocabulary = vocabulary;
+
+		if (overflow == null || overflow.isEmpty()) {
+			this.bits = bits;
+			this.overflow = Collections.emptySet();
+			return;
+		}
+
+		// Keep the representation canonical
+		long allBits = bits;
+		Set<Scope.Value> unknown = new LinkedHashSet<>();
+
+		for (Scope.Value value: overflow) {
+
+			int position = vocabulary.indexOf(value.getValue());
+
+			if (position >= 0) {
+				allBits |= 1L << position;
+			} else {
+				unknown.add(value);
+			}
+		}
+
+		this.bits = allBits;
+		this.overflow = unknown.isEmpty() ? Collections.<Scope.Value>emptySet() : Collections.unmodifiableSet(unknown);
+	}
+
+
+	/**
+	 * Returns the scope vocabulary.
+	 *
+	 * @return The scope vocabulary.
+	 */
+	public ScopeVocabulary getVocabulary() {
+
+		return vocabulary;
+	}
+
+
+	/**
+	 * Returns the bit set of the scope values in the vocabulary.
+	 *
+	 * @return The bit set.
+	 */
+	public long getBits() {
+
+		return bits;
+	}
+
+
+	/**
+	 * Returns the scope values not in the vocabulary.
+	 *
+	 * @return The overflow scope values, empty set if none.
+	 */
+	public Set<Scope.Value> getOverflow() {
+
+		return overflow;
+	}
+
+
+	/**
+	 * Returns the number of scope values.
+	 *
+	 * @return The number of scope values.
+	 */
+	public int size() {
+
+		return Long.bitCount(bits) + overflow.size();
+	}
+
+
+	/**
+	 * Returns {@code true} if this scope has no values.
+	 *
+	 * @return {@code true} if empty, else {@code false}.
+	 */
+	public boolean isEmpty() {
+
+		return bits == 0L && overflow.isEmpty();
+	}
+
+
+	/**
+	 * Checks if this scope contains the specified value.
+	 *
+	 * @param value The scope value string. Must not be {@code null}.
+	 *
+	 * @return {@code true} if the value is contained, else {@code false}.
+	 */
+	public boolean contains(final String value) {
+
+		int position = vocabulary.indexOf(value);
+
+		if (position >= 0) {
+			return (bits & (1L << position)) != 0L;
+		}
+
+		return ! overflow.isEmpty() && overflow.contains(new Scope.Value(value));
+	}
+
+
+	/**
+	 * Checks if this scope contains the specified value.
+	 *
+	 * @param value The scope value. Must not be {@code null}.
+	 *
+	 * @return {@code true} if the value is contained, else {@code false}.
+	 */
+	public boolean contains(final Scope.Value value) {
+
+		return contains(value.getValue());
+	}
+
+
+	/**
+	 * Ensures the specified compact scope has the same vocabulary as this
+	 * one.
+	 *
+	 * @param other The other compact scope.
+	 */
+	private void ensureSameVocabulary(final CompactScope other) {
+
+		if (vocabulary != other.vocabulary)
+			throw new IllegalArgumentException("The compact scopes must have the same vocabulary");
+	}
+
+
+	/**
+	 * Checks if this scope contains all values of the specified scope.
+	 *
+	 * @param other The other compact scope, with the same vocabulary.
+	 *              Must not be {@code null}.
+	 *
+	 * @return {@code true} if the other scope is a subset of this scope,
+	 *         else {@code false}.
+	 */
+	public boolean containsAll(final CompactScope other) {
+
+		ensureSameVocabulary(other);
+
+		return (other.bits & ~bits) == 0L && overflow.containsAll(other.overflow);
+	}
+
+
+	/**
+	 * Checks if this scope contains all values of the specified scope.
+	 *
+	 * @param scope The scope. Must not be {@code null}.
+	 *
+	 * @return {@code true} if the other scope is a subset of this scope,
+	 *         else {@code false}.
+	 */
+	public boolean containsAll(final Scope scope) {
+
+		for (Scope.Value value: scope) {
+
+			if (! contains(value.getValue())) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+
+	/**
+	 * Checks if this scope has at least one value in common with the
+	 * specified scope.
+	 *
+	 * @param other The other compact scope, with the same vocabulary.
+	 *              Must not be {@code null}.
+	 *
+	 * @return {@code true} if the scopes intersect, else {@code false}.
+	 */
+	public boolean intersects(final CompactScope other) {
+
+		ensureSameVocabulary(other);
+
+		if ((bits & other.bits) != 0L) {
+			return true;
+		}
+
+		return ! Collections.disjoint(overflow, other.overflow);
+	}
+
+
+	/**
+	 * Returns the intersection of this scope with the specified scope.
+	 *
+	 * @param other The other compact scope, with the same vocabulary.
+	 *              Must not be {@code null}.
+	 *
+	 * @return The intersection.
+	 */
+	public CompactScope intersect(final CompactScope other) {
+
+		ensureSameVocabulary(other);
+
+		Set<Scope.Value> commonOverflow = null;
+
+		if (! overflow.isEmpty() && ! other.overflow.isEmpty()) {
+			commonOverflow = new LinkedHashSet<>(overflow);
+			commonOverflow.retainAll(other.overflow);
+		}
+
+		return new CompactScope(vocabulary, bits & other.bits, commonOverflow);
+	}
+
+
+	/**
+	 * Returns the union of this scope with the specified scope.
+	 *
+	 * @param other The other compact scope, with the same vocabulary.
+	 *              Must not be {@code null}.
+	 *
+	 * @return The union.
+	 */
+	public CompactScope union(final CompactScope other) {
+
+		ensureSameVocabulary(other);
+
+		Set<Scope.Value> allOverflow = new LinkedHashSet<>(overflow);
+		allOverflow.addAll(other.overflow);
+
+		return new CompactScope(vocabulary, bits | other.bits, allOverflow);
+	}
+
+
+	/**
+	 * Returns a new {@link Scope} with the values of this compact scope.
+	 * The values in the vocabulary come first, in bit position order,
+	 * followed by the overflow values.
+	 *
+	 * @return The scope.
+	 */
+	public Scope toScope() {
+
+		Scope scope = new Scope();
+
+		long remaining = bits;
+
+		while (remaining != 0L) {
+			int position = Long.numberOfTrailingZeros(remaining);
+			scope.add(vocabulary.get(position));
+			remaining &= remaining - 1L;
+		}
+
+		scope.addAll(overflow);
+
+		return scope;
+	}
+
+
+	/**
+	 * Returns the compact serialised form of this scope, to be parsed
+	 * with {@link ScopeVocabulary#deserialize}. The bit set is encoded in
+	 * radix 36, followed by the space-delimited overflow values if any.
+	 *
+	 * @return The serialised compact scope.
+	 */
+	public String serialize() {
+
+		String bitsString = Long.toString(bits, Character.MAX_RADIX);
+
+		if (overflow.isEmpty()) {
+			return bitsString;
+		}
+
+		StringBuilder sb = new StringBuilder(bitsString);
+
+		for (Scope.Value value: overflow) {
+			sb.append(' ');
+			sb.append(value.getValue());
+		}
+
+		return sb.toString();
+	}
+
+
+	/**
+	 * Returns the scope string representation of this compact scope.
+	 *
+	 * @return The scope string.
+	 */
+	@Override
+	public String toString() {
+
+		return toScope().toString();
+	}
+
+
+	@Override
+	public boolean equals(final Object object) {
+
+		if (this == object) return true;
+		if (! (object instanceof CompactScope)) return false;
+
+		CompactScope that = (CompactScope) object;
+
+		return vocabulary == that.vocabulary &&
+		       bits == that.bits &&
+		       overflow.equals(that.overflow);
+	}
+
+
+	@Override
+	public int hashCode() {
+
+		return 31 * (int) (bits ^ (bits >>> 32)) + overflow.hashCode();
+	}
+}
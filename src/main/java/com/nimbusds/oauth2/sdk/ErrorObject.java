@@ -56,6 +56,12 @@ public class ErrorObject {
 	private final URI uri;
 
 
+	/**
+	 * The cached JSON object string, {@code null} if not serialised yet.
+	 */
+	private volatile String jsonString;
+
+
 	/**
 	 * Creates a new error with the specified code.
 	 *
@@ -257,6 +263,27 @@ public class ErrorObject {
 	}
 
 
+	/**
+	 * Returns the JSON object string representation of this error object.
+	 * The error object is immutable, so the string is serialised once and
+	 * cached. Error responses with the same error object instance, e.g.
+	 * the standard {@link OAuth2Error#INVALID_CLIENT}, share the string.
+	 *
+	 * @return The JSON object string.
+	 */
+	public String toJSONString() {
+
+		String s = jsonString;
+
+		if (s == null) {
+			s = toJSONObject().toJSONString();
+			jsonString = s;
+		}
+
+		return s;
+	}
+
+
 	/**
 	 * @see #getCode
 	 */
@@ -3,7 +3,9 @@ package com.nimbusds.oauth2.sdk;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import net.jcip.annotations.Immutable;
@@ -66,6 +68,32 @@ public final class GrantType extends Identifier {
 	public static final GrantType SAML2_BEARER = new GrantType("urn:ietf:params:oauth:grant-type:saml2-bearer", false, false, Collections.singleton("assertion"));
 
 
+	/**
+	 * The standard grant types, keyed by value.
+	 */
+	private static final Map<String,GrantType> WELL_KNOWN = createWellKnownValues(
+		AUTHORIZATION_CODE, IMPLICIT, REFRESH_TOKEN, PASSWORD, CLIENT_CREDENTIALS, JWT_BEARER, SAML2_BEARER);
+
+
+	/**
+	 * Creates a map of the specified standard grant types.
+	 *
+	 * @param values The standard grant types.
+	 *
+	 * @return The standard grant types, keyed by value.
+	 */
+	private static Map<String,GrantType> createWellKnownValues(final GrantType ... values) {
+
+		Map<String,GrantType> map = new HashMap<>();
+
+		for (GrantType grantType: values) {
+			map.put(grantType.getValue(), grantType);
+		}
+
+		return Collections.unmodifiableMap(map);
+	}
+
+
 	/**
 	 * The client authentication requirement for this grant type.
 	 */
@@ -164,12 +192,13 @@ public final class GrantType extends Identifier {
 	@Override
 	public boolean equals(final Object object) {
 	
-		return object instanceof GrantType && this.toString().equals(object.toString());
+		return this == object || object instanceof GrantType && this.toString().equals(object.toString());
 	}
 
 
 	/**
-	 * Parses a grant type from the specified string.
+	 * Parses a grant type from the specified string. Returns the
+	 * canonical instance for the standard grant types.
 	 *
 	 * @param value The string to parse.
 	 *
@@ -180,47 +209,18 @@ public final class GrantType extends Identifier {
 	public static GrantType parse(final String value)
 		throws ParseException {
 
-		GrantType grantType;
+		GrantType canonical = WELL_KNOWN.get(value);
+
+		if (canonical != null) {
+			return canonical;
+		}
 
 		try {
-			grantType = new GrantType(value);
+			return new GrantType(value);
 
 		} catch (IllegalArgumentException e) {
 
 			throw new ParseException(e.getMessage());
 		}
-
-		if (grantType.equals(GrantType.AUTHORIZATION_CODE)) {
-
-			return GrantType.AUTHORIZATION_CODE;
-
-		} else if (grantType.equals(GrantType.IMPLICIT)) {
-
-			return GrantType.IMPLICIT;
-
-		} else if (grantType.equals(GrantType.REFRESH_TOKEN)) {
-
-			return GrantType.REFRESH_TOKEN;
-
-		} else if (grantType.equals(GrantType.PASSWORD)) {
-
-			return GrantType.PASSWORD;
-
-		} else if (grantType.equals(GrantType.CLIENT_CREDENTIALS)) {
-
-			return GrantType.CLIENT_CREDENTIALS;
-
-		} else if (grantType.equals(GrantType.JWT_BEARER)) {
-
-			return GrantType.JWT_BEARER;
-
-		} else if (grantType.equals(GrantType.SAML2_BEARER)) {
-
-			return GrantType.SAML2_BEARER;
-
-		} else {
-
-			return grantType;
-		}
 	}
 }
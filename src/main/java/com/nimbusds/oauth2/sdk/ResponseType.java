@@ -2,7 +2,10 @@ package com.nimbusds.oauth2.sdk;
 
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.StringTokenizer;
 
 import net.jcip.annotations.Immutable;
@@ -68,6 +71,15 @@ public class ResponseType extends HashSet<ResponseType.Value> {
 		 */
 		public static final Value TOKEN = new Value("token");
 
+
+		/**
+		 * The shared instances of the well-known response type values.
+		 * The OpenID Connect response type value constants refer to
+		 * the same instances.
+		 */
+		private static final Map<String,Value> WELL_KNOWN = createWellKnownValues(
+			CODE, TOKEN, new Value("id_token"), new Value("none"));
+
 		
 		/**
 		 * Creates a new response type value.
@@ -79,12 +91,56 @@ public class ResponseType extends HashSet<ResponseType.Value> {
 
 			super(value);
 		}
+
+
+		/**
+		 * Creates a map of the specified well-known response type
+		 * values.
+		 *
+		 * @param values The response type values.
+		 *
+		 * @return The response type values, keyed by string.
+		 */
+		private static Map<String,Value> createWellKnownValues(final Value ... values) {
+
+			Map<String,Value> map = new HashMap<>();
+
+			for (Value v: values) {
+				map.put(v.getValue(), v);
+			}
+
+			return Collections.unmodifiableMap(map);
+		}
+
+
+		/**
+		 * Parses a response type value from the specified string.
+		 * Returns a shared instance if the response type value is
+		 * well-known, such as a standard OpenID Connect response type
+		 * value.
+		 *
+		 * @param value The response type value string. Must not be
+		 *              {@code null} or empty string.
+		 *
+		 * @return The response type value.
+		 */
+		public static Value parse(final String value) {
+
+			Value canonical = WELL_KNOWN.get(value);
+
+			if (canonical != null) {
+				return canonical;
+			}
+
+			return new Value(value);
+		}
 		
 		
 		@Override
 		public boolean equals(final Object object) {
 
-			return object instanceof Value &&
+			return this == object ||
+			       object instanceof Value &&
 			       this.toString().equals(object.toString());
 		}
 	}
@@ -120,7 +176,7 @@ public class ResponseType extends HashSet<ResponseType.Value> {
 	public ResponseType(final String ... values) {
 
 		for (String v: values)
-			add(new Value(v));
+			add(Value.parse(v));
 	}
 
 
@@ -169,7 +225,7 @@ public class ResponseType extends HashSet<ResponseType.Value> {
 		StringTokenizer st = new StringTokenizer(s, " ");
 
 		while (st.hasMoreTokens())
-			rt.add(new ResponseType.Value(st.nextToken()));
+			rt.add(ResponseType.Value.parse(st.nextToken()));
 		
 		return rt;
 	}
@@ -207,7 +263,7 @@ public class ResponseType extends HashSet<ResponseType.Value> {
 	 */
 	public boolean contains(final String value) {
 
-		return contains(new Value(value));
+		return contains(Value.parse(value));
 	}
 	
 	
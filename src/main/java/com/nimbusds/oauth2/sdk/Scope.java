@@ -22,6 +22,13 @@ import com.nimbusds.oauth2.sdk.id.Identifier;
  * scope.add(OIDCScopeValue.PROFILE);
  * </pre>
  *
+ * <p>Parsing returns shared instances of the well-known scope values, such
+ * as the standard OpenID Connect scope values, without a requirement, and
+ * creates new instances only for other values. The shared instances are
+ * distinct from the {@code OIDCScopeValue} constants, which carry a
+ * requirement and claim names, so comparisons with these constants fall
+ * back to string equality.
+ *
  * <p>Related specifications:
  *
  * <ul>
@@ -104,11 +111,62 @@ public class Scope extends LinkedHashSet<Scope.Value> {
 			return requirement;
 		}
 
+
+		/**
+		 * The shared instances of the well-known scope values, without
+		 * a requirement.
+		 */
+		private static final Map<String,Value> WELL_KNOWN = createWellKnownValues(
+			"openid", "profile", "email", "address", "phone", "offline_access");
+
+
+		/**
+		 * Creates the shared instances of the specified well-known
+		 * scope values.
+		 *
+		 * @param values The scope value strings.
+		 *
+		 * @return The scope values, keyed by string.
+		 */
+		private static Map<String,Value> createWellKnownValues(final String ... values) {
+
+			Map<String,Value> map = new HashMap<>();
+
+			for (String v: values) {
+				map.put(v, new Value(v));
+			}
+
+			return Collections.unmodifiableMap(map);
+		}
+
+
+		/**
+		 * Parses a scope value from the specified string. Returns a
+		 * shared instance if the scope value is well-known, such as a
+		 * standard OpenID Connect scope value.
+		 *
+		 * @param value The scope value string. Must not be {@code null}
+		 *              or empty string.
+		 *
+		 * @return The scope value, without a requirement.
+		 */
+		public static Value parse(final String value) {
+
+			Value canonical = WELL_KNOWN.get(value);
+
+			if (canonical != null) {
+				return canonical;
+			}
+
+			return new Value(value);
+		}
+
 		
 		@Override
 		public boolean equals(final Object object) {
 
-			return object instanceof Value &&
+			return this == object ||
+			       object instanceof Value &&
 			       this.toString().equals(object.toString());
 		}
 	}
@@ -145,7 +203,7 @@ public class Scope extends LinkedHashSet<Scope.Value> {
 	public Scope(final String ... values) {
 
 		for (String v: values)
-			add(new Value(v));
+			add(Value.parse(v));
 	}
 
 
@@ -170,7 +228,7 @@ public class Scope extends LinkedHashSet<Scope.Value> {
 	 */
 	public boolean add(final String value) {
 
-		return add(new Value(value));
+		return add(Value.parse(value));
 	}
 
 
@@ -183,7 +241,7 @@ public class Scope extends LinkedHashSet<Scope.Value> {
 	 */
 	public boolean contains(final String value) {
 
-		return contains(new Value(value));
+		return contains(Value.parse(value));
 	}
 
 	
@@ -244,7 +302,7 @@ public class Scope extends LinkedHashSet<Scope.Value> {
 		Scope scope = new Scope();
 		
 		for (String v: collection)
-			scope.add(new Scope.Value(v));
+			scope.add(Scope.Value.parse(v));
 		
 		return scope;
 	}
@@ -271,7 +329,7 @@ public class Scope extends LinkedHashSet<Scope.Value> {
 		StringTokenizer st = new StringTokenizer(s, " ,");
 
 		while(st.hasMoreTokens())
-			scope.add(new Scope.Value(st.nextToken()));
+			scope.add(Scope.Value.parse(st.nextToken()));
 
 		return scope;
 	}
@@ -0,0 +1,270 @@
+package com.nimbusds.oauth2.sdk;
+
+
+import java.util.*;
+
+import net.jcip.annotations.Immutable;
+
+
+/**
+ * Vocabulary of known scope values, each mapped to a bit position, for
+ * creating {@link CompactScope compact scopes}. Intended for authorisation
+ * servers which store or check the scopes of a large number of issued
+ * tokens. Up to {@link #MAX_SIZE} scope values can be registered.
+ *
+ * <p>Example:
+ *
+ * <pre>
+ * ScopeVocabulary vocabulary = new ScopeVocabulary(
+ *         OIDCScopeValue.OPENID,
+ *         OIDCScopeValue.EMAIL,
+ *         OIDCScopeValue.PROFILE,
+ *         new Scope.Value("read"),
+ *         new Scope.Value("write"));
+ *
+ * CompactScope granted = vocabulary.compact(Scope.parse("openid email read"));
+ * </pre>
+ */
+@Immutable
+public final class ScopeVocabulary {
+
+
+	/**
+	 * The maximum number of scope values in a vocabulary.
+	 */
+	public static final int MAX_SIZE = Long.SIZE;
+
+
+	/**
+	 * The scope values, in bit position order.
+	 */
+	private final Scope.Value[] values;
+
+
+	/**
+	 * The bit positions, keyed by scope value string.
+	 */
+	private final Map<String,Integer> positions;
+
+
+	/**
+	 * Creates a new scope vocabulary.
+	 *
+	 * @param values The scope values, in bit position order. Must not be
+	 *               {@code null}, contain duplicates or more than
+	 *               {@link #MAX_SIZE} values.
+	 */
+	public ScopeVocabulary(final Scope.Value ... values) {
+
+		this(Arrays.asList(values));
+	}
+
+
+	/**
+	 * Creates a new scope vocabulary.
+	 *
+	 * @param values The scope values, in bit position order. Must not be
+	 *               {@code null}, contain duplicates or more than
+	 *               {@link #MAX_SIZE} values.
+	 */
+	public ScopeVocabulary(final List<Scope.Value> values) {
+
+		if (values == null)
+			throw new IllegalArgumentException("The scope values must not be null");
+
+		if (values.size() > MAX_SIZE)
+			throw new IllegalArgumentException("The scope vocabulary must not have more than " + MAX_SIZE + " values");
+
+		this.values = values.toArray(new Scope.Value[values.size()]);
+
+		Map<String,Integer> map = new HashMap<>();
+
+		for (int i=0; i < this.values.length; i++) {
+
+			if (this.values[i] == null)
+				throw new IllegalArgumentException("The scope values must not be null");
+
+			if (map.put(this.values[i].getValue(), i) != null)
+				throw new IllegalArgumentException("Duplicate scope value: " + this.values[i]);
+		}
+
+		positions = Collections.unmodifiableMap(map);
+	}
+
+
+	/**
+	 * Returns the number of scope values in this vocabulary.
+	 *
+	 * @return The number of scope values.
+	 */
+	public int size() {
+
+		return values.length;
+	}
+
+
+	/**
+	 * Returns the scope value at the specified bit position.
+	 *
+	 * @param position The bit position.
+	 *
+	 * @return The scope value.
+	 */
+	public Scope.Value get(final int position) {
+
+		return values[position];
+	}
+
+
+	/**
+	 * Returns the bit position of the specified scope value.
+	 *
+	 * @param value The scope value string, {@code null} if not
+	 *              specified.
+	 *
+	 * @return The bit position, -1 if the scope value is not in this
+	 *         vocabulary.
+	 */
+	public int indexOf(final String value) {
+
+		if (value == null) {
+			return -1;
+		}
+
+		Integer position = positions.get(value);
+
+		return position != null ? position : -1;
+	}
+
+
+	/**
+	 * Returns the scope values of this vocabulary.
+	 *
+	 * @return The scope values, in bit position order.
+	 */
+	public List<Scope.Value> getValues() {
+
+		return Collections.unmodifiableList(Arrays.asList(values));
+	}
+
+
+	/**
+	 * Creates a compact scope from the specified scope. Scope values not
+	 * in this vocabulary are kept in the overflow set of the compact
+	 * scope.
+	 *
+	 * @param scope The scope, {@code null} if not specified.
+	 *
+	 * @return The compact scope, {@code null} if not specified.
+	 */
+	public CompactScope compact(final Scope scope) {
+
+		if (scope == null) {
+			return null;
+		}
+
+		return compact(scope.toStringList());
+	}
+
+
+	/**
+	 * Creates a compact scope from the specified scope value strings.
+	 * Scope values not in this vocabulary are kept in the overflow set of
+	 * the compact scope.
+	 *
+	 * @param values The scope value strings. Must not be {@code null}.
+	 *
+	 * @return The compact scope.
+	 */
+	public CompactScope compact(final Collection<String> values) {
+
+		long bits = 0L;
+		Set<Scope.Value> overflow = null;
+
+		for (String v: values) {
+
+			int position = indexOf(v);
+
+			if (position >= 0) {
+				bits |= 1L << position;
+				continue;
+			}
+
+			if (overflow == null) {
+				overflow = new LinkedHashSet<>();
+			}
+
+			overflow.add(Scope.Value.parse(v));
+		}
+
+		return new CompactScope(this, bits, overflow);
+	}
+
+
+	/**
+	 * Parses a compact scope from the specified scope string.
+	 *
+	 * @param s The scope string, {@code null} if not specified.
+	 *
+	 * @return The compact scope, {@code null} if not specified.
+	 */
+	public CompactScope parse(final String s) {
+
+		if (s == null) {
+			return null;
+		}
+
+		return compact(Scope.parse(s));
+	}
+
+
+	/**
+	 * Parses a compact scope from the specified serialised form, as
+	 * returned by {@link CompactScope#serialize()}. Overflow values in
+	 * this vocabulary are moved to the bit set.
+	 *
+	 * @param s The serialised compact scope. Must not be {@code null}.
+	 *
+	 * @return The compact scope.
+	 *
+	 * @throws ParseException If parsing failed.
+	 */
+	public CompactScope deserialize(final String s)
+		throws ParseException {
+
+		if (s == null)
+			throw new ParseException("Null serialised compact scope");
+
+		int pos = s.indexOf(' ');
+
+		String bitsString = pos < 0 ? s : s.substring(0, pos);
+
+		long bits;
+
+		try {
+			bits = Long.parseLong(bitsString, Character.MAX_RADIX);
+
+		} catch (NumberFormatException e) {
+
+			throw new ParseException("Invalid serialised compact scope: " + e.getMessage(), e);
+		}
+
+		if (values.length < MAX_SIZE && (bits >>> values.length) != 0L)
+			throw new ParseException("Invalid serialised compact scope: Unknown bit position");
+
+		Set<Scope.Value> overflow = null;
+
+		if (pos >= 0) {
+
+			overflow = new LinkedHashSet<>();
+
+			StringTokenizer st = new StringTokenizer(s.substring(pos + 1), " ");
+
+			while (st.hasMoreTokens()) {
+				overflow.add(Scope.Value.parse(st.nextToken()));
+			}
+		}
+
+		return new CompactScope(this, bits, overflow);
+	}
+}
@@ -167,7 +167,12 @@ public class TokenErrorResponse extends TokenResponse implements ErrorResponse {
 		httpResponse.setCacheControl("no-store");
 		httpResponse.setPragma("no-cache");
 		
-		httpResponse.setContent(toJSONObject().toString());
+		if (error.getCode() != null) {
+			// Same as the error object JSON, use the cached string
+			httpResponse.setContent(error.toJSONString());
+		} else {
+			httpResponse.setContent(toJSONObject().toString());
+		}
 		
 		return httpResponse;
 	}
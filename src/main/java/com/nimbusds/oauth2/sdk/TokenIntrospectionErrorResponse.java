@@ -128,7 +128,7 @@ public class TokenIntrospectionErrorResponse extends TokenIntrospectionResponse
 		httpResponse.setContentType(CommonContentTypes.APPLICATION_JSON);
 		httpResponse.setCacheControl("no-store");
 		httpResponse.setPragma("no-cache");
-		httpResponse.setContent(error.toJSONObject().toJSONString());
+		httpResponse.setContent(error.toJSONString());
 
 		return httpResponse;
 	}
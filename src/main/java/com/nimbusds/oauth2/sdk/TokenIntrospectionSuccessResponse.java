@@ -414,7 +414,7 @@ public class TokenIntrospectionSuccessResponse extends TokenIntrospectionRespons
 	public AccessTokenType getTokenType() {
 
 		try {
-			return new AccessTokenType(JSONObjectUtils.getString(params, "token_type"));
+			return AccessTokenType.parse(JSONObjectUtils.getString(params, "token_type"));
 		} catch (ParseException e) {
 			return null;
 		}
@@ -1,6 +1,10 @@
 package com.nimbusds.oauth2.sdk.auth;
 
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
 import net.jcip.annotations.Immutable;
 
 import com.nimbusds.oauth2.sdk.id.Identifier;
@@ -84,6 +88,34 @@ public final class ClientAuthenticationMethod extends Identifier {
 		new ClientAuthenticationMethod("none");
 
 
+	/**
+	 * The standard client authentication methods, keyed by value.
+	 */
+	private static final Map<String,ClientAuthenticationMethod> WELL_KNOWN = createWellKnownValues(
+		CLIENT_SECRET_BASIC, CLIENT_SECRET_POST, CLIENT_SECRET_JWT, PRIVATE_KEY_JWT, NONE);
+
+
+	/**
+	 * Creates a map of the specified standard client authentication
+	 * methods.
+	 *
+	 * @param values The standard client authentication methods.
+	 *
+	 * @return The standard client authentication methods, keyed by
+	 *         value.
+	 */
+	private static Map<String,ClientAuthenticationMethod> createWellKnownValues(final ClientAuthenticationMethod ... values) {
+
+		Map<String,ClientAuthenticationMethod> map = new HashMap<>();
+
+		for (ClientAuthenticationMethod method: values) {
+			map.put(method.getValue(), method);
+		}
+
+		return Collections.unmodifiableMap(map);
+	}
+
+
 	/**
 	 * Gets the default client authentication method.
 	 *
@@ -109,6 +141,7 @@ public final class ClientAuthenticationMethod extends Identifier {
 
 	/**
 	 * Parses a client authentication method from the specified value.
+	 * Returns the canonical instance for the standard methods.
 	 *
 	 * @param value The authentication method value. Must not be
 	 *              {@code null} or empty string.
@@ -117,26 +150,21 @@ public final class ClientAuthenticationMethod extends Identifier {
 	 */
 	public static ClientAuthenticationMethod parse(final String value) {
 
-		if (value.equals(CLIENT_SECRET_BASIC.getValue())) {
-			return CLIENT_SECRET_BASIC;
-		} else if (value.equals(CLIENT_SECRET_POST.getValue())) {
-			return CLIENT_SECRET_POST;
-		} else if (value.equals(CLIENT_SECRET_JWT.getValue())) {
-			return CLIENT_SECRET_JWT;
-		} else if (value.equals(PRIVATE_KEY_JWT.getValue())) {
-			return PRIVATE_KEY_JWT;
-		} else if (value.equals(NONE.getValue())) {
-			return NONE;
-		} else {
-			return new ClientAuthenticationMethod(value);
+		ClientAuthenticationMethod canonical = WELL_KNOWN.get(value);
+
+		if (canonical != null) {
+			return canonical;
 		}
+
+		return new ClientAuthenticationMethod(value);
 	}
 
 
 	@Override
 	public boolean equals(final Object object) {
 	
-		return object instanceof ClientAuthenticationMethod &&
+		return this == object ||
+		       object instanceof ClientAuthenticationMethod &&
 		       this.toString().equals(object.toString());
 	}
-}
\ No newline at end of file
+}
@@ -10,7 +10,7 @@ import javax.mail.internet.InternetAddress;
 import com.nimbusds.jose.JWSAlgorithm;
 import com.nimbusds.jose.jwk.JWKSet;
 import com.nimbusds.langtag.LangTag;
-import com.nimbusds.langtag.LangTagUtils;
+import com.nimbusds.langtag.LangTagException;
 import com.nimbusds.oauth2.sdk.GrantType;
 import com.nimbusds.oauth2.sdk.ParseException;
 import com.nimbusds.oauth2.sdk.ResponseType;
@@ -1205,105 +1205,126 @@ public class ClientMetadata {
 
 
 	/**
-	 * Parses an client metadata instance from the specified JSON object.
-	 *
-	 * @param jsonObject The JSON object to parse. Must not be
-	 *                   {@code null}.
+	 * Parser of a registered client metadata parameter.
 	 *
-	 * @return The client metadata.
-	 *
-	 * @throws ParseException If the JSON object couldn't be parsed to a
-	 *                        client metadata instance.
+	 * @param <M> The client metadata type.
 	 */
-	public static ClientMetadata parse(final JSONObject jsonObject)
-		throws ParseException {
+	protected interface ParameterParser<M extends ClientMetadata> {
 
-		// Copy JSON object, then parse
-		return parseFromModifiableJSONObject(new JSONObject(jsonObject));
+
+		/**
+		 * Parses the specified parameter and sets it in the client
+		 * metadata.
+		 *
+		 * @param metadata   The client metadata. Must not be
+		 *                   {@code null}.
+		 * @param jsonObject The JSON object to parse. Must not be
+		 *                   {@code null}.
+		 * @param name       The JSON object member name, with optional
+		 *                   language tag. Must not be {@code null}.
+		 * @param langTag    The language tag, {@code null} if none.
+		 *
+		 * @throws ParseException If parsing failed.
+		 */
+		void parse(final M metadata, final JSONObject jsonObject, final String name, final LangTag langTag)
+			throws ParseException;
 	}
 
 
 	/**
-	 * Parses an client metadata instance from the specified JSON object.
-	 *
-	 * @param jsonObject The JSON object to parse, will be modified by
-	 *                   the parse routine. Must not be {@code null}.
-	 *
-	 * @return The client metadata.
-	 *
-	 * @throws ParseException If the JSON object couldn't be parsed to a
-	 *                        client metadata instance.
+	 * The base names of the registered parameters which may have a
+	 * language tag.
 	 */
-	private static ClientMetadata parseFromModifiableJSONObject(final JSONObject jsonObject)
-		throws ParseException {
+	private static final Set<String> LANG_TAGGED_PARAMETER_NAMES = Collections.unmodifiableSet(
+		new HashSet<>(Arrays.asList("client_name", "logo_uri", "client_uri", "policy_uri", "tos_uri")));
 
-		ClientMetadata metadata = new ClientMetadata();
 
-		if (jsonObject.containsKey("redirect_uris")) {
+	/**
+	 * The registered parameter parsers, keyed by parameter base name.
+	 */
+	private static final Map<String,ParameterParser<ClientMetadata>> PARAMETER_PARSERS;
 
-			Set<URI> redirectURIs = new LinkedHashSet<>();
 
-			for (String uriString: JSONObjectUtils.getStringArray(jsonObject, "redirect_uris")) {
-				URI uri;
-				try {
-					uri = new URI(uriString);
-				} catch (URISyntaxException e) {
-					throw new ParseException("Invalid \"redirect_uris\" parameter: " + e.getMessage(), RegistrationError.INVALID_REDIRECT_URI.appendDescription(": " + e.getMessage()));
-				}
+	/**
+	 * Initialises the registered parameter parsers.
+	 */
+	static {
+		Map<String,ParameterParser<ClientMetadata>> p = new HashMap<>();
 
-				if (uri.getFragment() != null) {
-					String detail = "URI must not contain fragment";
-					throw new ParseException("Invalid \"redirect_uris\" parameter: " + detail, RegistrationError.INVALID_REDIRECT_URI.appendDescription(": " + detail));
-				}
+		p.put("redirect_uris", new ParameterParser<ClientMetadata>() {
+			@Override
+			public void parse(final ClientMetadata metadata, final JSONObject jsonObject, final String name, final LangTag langTag)
+				throws ParseException {
 
-				redirectURIs.add(uri);
-			}
+				Set<URI> redirectURIs = new LinkedHashSet<>();
 
-			metadata.setRedirectionURIs(redirectURIs);
-			jsonObject.remove("redirect_uris");
-		}
+				for (String uriString: JSONObjectUtils.getStringArray(jsonObject, name)) {
+					URI uri;
+					try {
+						uri = new URI(uriString);
+					} catch (URISyntaxException e) {
+						throw new ParseException("Invalid \"redirect_uris\" parameter: " + e.getMessage(), RegistrationError.INVALID_REDIRECT_URI.appendDescription(": " + e.getMessage()));
+					}
+
+					if (uri.getFragment() != null) {
+						String detail = "URI must not contain fragment";
+						throw new ParseException("Invalid \"redirect_uris\" parameter: " + detail, RegistrationError.INVALID_REDIRECT_URI.appendDescription(": " + detail));
+					}
 
-		try {
+					redirectURIs.add(uri);
+				}
 
-			if (jsonObject.containsKey("scope")) {
-				metadata.setScope(Scope.parse(JSONObjectUtils.getString(jsonObject, "scope")));
-				jsonObject.remove("scope");
+				metadata.setRedirectionURIs(redirectURIs);
 			}
+		});
 
+		p.put("scope", new ParameterParser<ClientMetadata>() {
+			@Override
+			public void parse(final ClientMetadata metadata, final JSONObject jsonObject, final String name, final LangTag langTag)
+				throws ParseException {
 
-			if (jsonObject.containsKey("response_types")) {
+				metadata.setScope(Scope.parse(JSONObjectUtils.getString(jsonObject, name)));
+			}
+		});
 
-				Set<ResponseType> responseTypes = new LinkedHashSet<>();
+		p.put("response_types", new ParameterParser<ClientMetadata>() {
+			@Override
+			public void parse(final ClientMetadata metadata, final JSONObject jsonObject, final String name, final LangTag langTag)
+				throws ParseException {
 
-				for (String rt : JSONObjectUtils.getStringArray(jsonObject, "response_types")) {
+				Set<ResponseType> responseTypes = new LinkedHashSet<>();
 
+				for (String rt: JSONObjectUtils.getStringArray(jsonObject, name)) {
 					responseTypes.add(ResponseType.parse(rt));
 				}
 
 				metadata.setResponseTypes(responseTypes);
-				jsonObject.remove("response_types");
 			}
+		});
 
-
-			if (jsonObject.containsKey("grant_types")) {
+		p.put("grant_types", new ParameterParser<ClientMetadata>() {
+			@Override
+			public void parse(final ClientMetadata metadata, final JSONObject jsonObject, final String name, final LangTag langTag)
+				throws ParseException {
 
 				Set<GrantType> grantTypes = new LinkedHashSet<>();
 
-				for (String grant : JSONObjectUtils.getStringArray(jsonObject, "grant_types")) {
-
+				for (String grant: JSONObjectUtils.getStringArray(jsonObject, name)) {
 					grantTypes.add(GrantType.parse(grant));
 				}
 
 				metadata.setGrantTypes(grantTypes);
-				jsonObject.remove("grant_types");
 			}
+		});
 
-
-			if (jsonObject.containsKey("contacts")) {
+		p.put("contacts", new ParameterParser<ClientMetadata>() {
+			@Override
+			public void parse(final ClientMetadata metadata, final JSONObject jsonObject, final String name, final LangTag langTag)
+				throws ParseException {
 
 				List<InternetAddress> emailList = new LinkedList<>();
 
-				for (String emailString : JSONObjectUtils.getStringArray(jsonObject, "contacts")) {
+				for (String emailString: JSONObjectUtils.getStringArray(jsonObject, name)) {
 
 					try {
 						emailList.add(new InternetAddress(emailString));
@@ -1316,162 +1337,256 @@ public class ClientMetadata {
 				}
 
 				metadata.setContacts(emailList);
-				jsonObject.remove("contacts");
 			}
+		});
 
-
-			// Find lang-tagged client_name params
-			Map<LangTag, Object> matches = LangTagUtils.find("client_name", jsonObject);
-
-			for (Map.Entry<LangTag, Object> entry : matches.entrySet()) {
+		p.put("client_name", new ParameterParser<ClientMetadata>() {
+			@Override
+			public void parse(final ClientMetadata metadata, final JSONObject jsonObject, final String name, final LangTag langTag)
+				throws ParseException {
 
 				try {
-					metadata.setName((String) entry.getValue(), entry.getKey());
+					metadata.setName((String) jsonObject.get(name), langTag);
 
 				} catch (ClassCastException e) {
 
 					throw new ParseException("Invalid \"client_name\" (language tag) parameter");
 				}
-
-				removeMember(jsonObject, "client_name", entry.getKey());
 			}
+		});
 
-
-			matches = LangTagUtils.find("logo_uri", jsonObject);
-
-			for (Map.Entry<LangTag, Object> entry : matches.entrySet()) {
+		p.put("logo_uri", new ParameterParser<ClientMetadata>() {
+			@Override
+			public void parse(final ClientMetadata metadata, final JSONObject jsonObject, final String name, final LangTag langTag)
+				throws ParseException {
 
 				try {
-					metadata.setLogoURI(new URI((String) entry.getValue()), entry.getKey());
+					metadata.setLogoURI(new URI((String) jsonObject.get(name)), langTag);
 
 				} catch (Exception e) {
 
 					throw new ParseException("Invalid \"logo_uri\" (language tag) parameter");
 				}
-
-				removeMember(jsonObject, "logo_uri", entry.getKey());
 			}
+		});
 
-
-			matches = LangTagUtils.find("client_uri", jsonObject);
-
-			for (Map.Entry<LangTag, Object> entry : matches.entrySet()) {
+		p.put("client_uri", new ParameterParser<ClientMetadata>() {
+			@Override
+			public void parse(final ClientMetadata metadata, final JSONObject jsonObject, final String name, final LangTag langTag)
+				throws ParseException {
 
 				try {
-					metadata.setURI(new URI((String) entry.getValue()), entry.getKey());
-
+					metadata.setURI(new URI((String) jsonObject.get(name)), langTag);
 
 				} catch (Exception e) {
 
 					throw new ParseException("Invalid \"client_uri\" (language tag) parameter");
 				}
-
-				removeMember(jsonObject, "client_uri", entry.getKey());
 			}
+		});
 
-
-			matches = LangTagUtils.find("policy_uri", jsonObject);
-
-			for (Map.Entry<LangTag, Object> entry : matches.entrySet()) {
+		p.put("policy_uri", new ParameterParser<ClientMetadata>() {
+			@Override
+			public void parse(final ClientMetadata metadata, final JSONObject jsonObject, final String name, final LangTag langTag)
+				throws ParseException {
 
 				try {
-					metadata.setPolicyURI(new URI((String) entry.getValue()), entry.getKey());
+					metadata.setPolicyURI(new URI((String) jsonObject.get(name)), langTag);
 
 				} catch (Exception e) {
 
 					throw new ParseException("Invalid \"policy_uri\" (language tag) parameter");
 				}
-
-				removeMember(jsonObject, "policy_uri", entry.getKey());
 			}
+		});
 
-
-			matches = LangTagUtils.find("tos_uri", jsonObject);
-
-			for (Map.Entry<LangTag, Object> entry : matches.entrySet()) {
+		p.put("tos_uri", new ParameterParser<ClientMetadata>() {
+			@Override
+			public void parse(final ClientMetadata metadata, final JSONObject jsonObject, final String name, final LangTag langTag)
+				throws ParseException {
 
 				try {
-					metadata.setTermsOfServiceURI(new URI((String) entry.getValue()), entry.getKey());
+					metadata.setTermsOfServiceURI(new URI((String) jsonObject.get(name)), langTag);
 
 				} catch (Exception e) {
 
 					throw new ParseException("Invalid \"tos_uri\" (language tag) parameter");
 				}
-
-				removeMember(jsonObject, "tos_uri", entry.getKey());
 			}
+		});
 
+		p.put("token_endpoint_auth_method", new ParameterParser<ClientMetadata>() {
+			@Override
+			public void parse(final ClientMetadata metadata, final JSONObject jsonObject, final String name, final LangTag langTag)
+				throws ParseException {
 
-			if (jsonObject.containsKey("token_endpoint_auth_method")) {
-				metadata.setTokenEndpointAuthMethod(new ClientAuthenticationMethod(
-					JSONObjectUtils.getString(jsonObject, "token_endpoint_auth_method")));
-
-				jsonObject.remove("token_endpoint_auth_method");
+				metadata.setTokenEndpointAuthMethod(ClientAuthenticationMethod.parse(
+					JSONObjectUtils.getString(jsonObject, name)));
 			}
+		});
 
+		p.put("token_endpoint_auth_signing_alg", new ParameterParser<ClientMetadata>() {
+			@Override
+			public void parse(final ClientMetadata metadata, final JSONObject jsonObject, final String name, final LangTag langTag)
+				throws ParseException {
 
-			if (jsonObject.containsKey("token_endpoint_auth_signing_alg")) {
 				metadata.setTokenEndpointAuthJWSAlg(new JWSAlgorithm(
-					JSONObjectUtils.getString(jsonObject, "token_endpoint_auth_signing_alg")));
-
-				jsonObject.remove("token_endpoint_auth_signing_alg");
+					JSONObjectUtils.getString(jsonObject, name)));
 			}
+		});
 
+		p.put("jwks_uri", new ParameterParser<ClientMetadata>() {
+			@Override
+			public void parse(final ClientMetadata metadata, final JSONObject jsonObject, final String name, final LangTag langTag)
+				throws ParseException {
 
-			if (jsonObject.containsKey("jwks_uri")) {
-				metadata.setJWKSetURI(JSONObjectUtils.getURI(jsonObject, "jwks_uri"));
-				jsonObject.remove("jwks_uri");
+				metadata.setJWKSetURI(JSONObjectUtils.getURI(jsonObject, name));
 			}
+		});
 
-			if (jsonObject.containsKey("jwks")) {
+		p.put("jwks", new ParameterParser<ClientMetadata>() {
+			@Override
+			public void parse(final ClientMetadata metadata, final JSONObject jsonObject, final String name, final LangTag langTag)
+				throws ParseException {
 
 				try {
-					metadata.setJWKSet(JWKSet.parse(JSONObjectUtils.getJSONObject(jsonObject, "jwks")));
+					metadata.setJWKSet(JWKSet.parse(JSONObjectUtils.getJSONObject(jsonObject, name)));
 
 				} catch (java.text.ParseException e) {
 					throw new ParseException(e.getMessage(), e);
 				}
+			}
+		});
 
-				jsonObject.remove("jwks");
+		p.put("software_id", new ParameterParser<ClientMetadata>() {
+			@Override
+			public void parse(final ClientMetadata metadata, final JSONObject jsonObject, final String name, final LangTag langTag)
+				throws ParseException {
+
+				metadata.setSoftwareID(new SoftwareID(JSONObjectUtils.getString(jsonObject, name)));
 			}
+		});
+
+		p.put("software_version", new ParameterParser<ClientMetadata>() {
+			@Override
+			public void parse(final ClientMetadata metadata, final JSONObject jsonObject, final String name, final LangTag langTag)
+				throws ParseException {
 
-			if (jsonObject.containsKey("software_id")) {
-				metadata.setSoftwareID(new SoftwareID(JSONObjectUtils.getString(jsonObject, "software_id")));
-				jsonObject.remove("software_id");
+				metadata.setSoftwareVersion(new SoftwareVersion(JSONObjectUtils.getString(jsonObject, name)));
 			}
+		});
+
+		PARAMETER_PARSERS = Collections.unmodifiableMap(p);
+	}
+
+
+	/**
+	 * Gets the registered OAuth 2.0 client metadata parameter parsers.
+	 *
+	 * @return The parameter parsers, keyed by parameter base name, as an
+	 *         unmodifiable map.
+	 */
+	protected static Map<String,ParameterParser<ClientMetadata>> getParameterParsers() {
+
+		return PARAMETER_PARSERS;
+	}
+
+
+	/**
+	 * Parses the specified JSON object into the specified client metadata
+	 * instance, in a single pass over the JSON object members. The JSON
+	 * object is not copied or modified. The members without a parser are
+	 * set as custom fields.
+	 *
+	 * @param jsonObject The JSON object to parse. Must not be
+	 *                   {@code null}.
+	 * @param parsers    The parameter parsers, keyed by parameter base
+	 *                   name. Must not be {@code null}.
+	 * @param metadata   The client metadata to set. Must not be
+	 *                   {@code null}.
+	 *
+	 * @return The client metadata.
+	 *
+	 * @throws ParseException If the JSON object couldn't be parsed to a
+	 *                        client metadata instance.
+	 */
+	protected static <M extends ClientMetadata> M parse(final JSONObject jsonObject,
+							    final Map<String,? extends ParameterParser<? super M>> parsers,
+							    final M metadata)
+		throws ParseException {
+
+		JSONObject customFields = null;
+
+		for (Map.Entry<String,Object> member: jsonObject.entrySet()) {
+
+			String name = member.getKey();
+			LangTag langTag = null;
 
-			if (jsonObject.containsKey("software_version")) {
-				metadata.setSoftwareVersion(new SoftwareVersion(JSONObjectUtils.getString(jsonObject, "software_version")));
-				jsonObject.remove("software_version");
+			ParameterParser<? super M> parser = parsers.get(name);
+
+			if (parser == null) {
+
+				int pos = name.indexOf('#');
+
+				if (pos > 0 && LANG_TAGGED_PARAMETER_NAMES.contains(name.substring(0, pos))) {
+
+					try {
+						langTag = LangTag.parse(name.substring(pos + 1));
+						parser = parsers.get(name.substring(0, pos));
+
+					} catch (LangTagException e) {
+						// Invalid language tag, custom field
+					}
+				}
 			}
 
-		} catch (ParseException e) {
-			// Insert client_client_metadata error code so that it
-			// can be reported back to the client if we have a
-			// registration event
-			throw new ParseException(e.getMessage(), RegistrationError.INVALID_CLIENT_METADATA.appendDescription(": " + e.getMessage()), e.getCause());
+			if (parser == null) {
+
+				// Custom field
+				if (customFields == null) {
+					customFields = new JSONObject();
+				}
+
+				customFields.put(name, member.getValue());
+				continue;
+			}
+
+			try {
+				parser.parse(metadata, jsonObject, name, langTag);
+
+			} catch (ParseException e) {
+
+				if (e.getErrorObject() != null) {
+					throw e;
+				}
+
+				// Insert client_client_metadata error code so that it
+				// can be reported back to the client if we have a
+				// registration event
+				throw new ParseException(e.getMessage(), RegistrationError.INVALID_CLIENT_METADATA.appendDescription(": " + e.getMessage()), e.getCause());
+			}
 		}
 
-		// The remaining fields are custom
-		metadata.customFields = jsonObject;
+		metadata.setCustomFields(customFields != null ? customFields : new JSONObject());
 
 		return metadata;
 	}
 
 
 	/**
-	 * Removes a JSON object member with the specified base name and
-	 * optional language tag.
+	 * Parses an client metadata instance from the specified JSON object.
+	 *
+	 * @param jsonObject The JSON object to parse. Must not be
+	 *                   {@code null}.
 	 *
-	 * @param jsonObject The JSON object. Must not be {@code null}.
-	 * @param name       The base member name. Must not be {@code null}.
-	 * @param langTag    The language tag, {@code null} if none.
+	 * @return The client metadata.
+	 *
+	 * @throws ParseException If the JSON object couldn't be parsed to a
+	 *                        client metadata instance.
 	 */
-	private static void removeMember(final JSONObject jsonObject, final String name, final LangTag langTag) {
+	public static ClientMetadata parse(final JSONObject jsonObject)
+		throws ParseException {
 
-		if (langTag == null)
-			jsonObject.remove(name);
-		else
-			jsonObject.remove(name + "#" + langTag);
+		return parse(jsonObject, PARAMETER_PARSERS, new ClientMetadata());
 	}
 }
@@ -161,6 +161,13 @@ public class ClientRegistrationErrorResponse
 
 			httpResponse.setWWWAuthenticate(bte.toWWWAuthenticateHeader());
 
+		} else if (error.getURI() == null) {
+
+			// Same as the error object JSON, use the cached string
+			httpResponse.setContentType(CommonContentTypes.APPLICATION_JSON);
+
+			httpResponse.setContent(error.toJSONString());
+
 		} else {
 			JSONObject jsonObject = new JSONObject();
 
@@ -28,6 +28,7 @@ import com.nimbusds.oauth2.sdk.util.JSONObjectUtils;
  *     <li>{@link #SC_OK HTTP 200 OK}
  *     <li>{@link #SC_CREATED HTTP 201 Created}
  *     <li>{@link #SC_FOUND HTTP 302 Redirect}
+ *     <li>{@link #SC_NOT_MODIFIED HTTP 304 Not Modified}
  *     <li>{@link #SC_BAD_REQUEST HTTP 400 Bad request}
  *     <li>{@link #SC_UNAUTHORIZED HTTP 401 Unauthorized}
  *     <li>{@link #SC_FORBIDDEN HTTP 403 Forbidden}
@@ -68,6 +69,13 @@ public class HTTPResponse extends HTTPMessage {
 	public static final int SC_FOUND = 302;
 	
 	
+	/**
+	 * HTTP status code (304) indicating the requested resource hasn't
+	 * been modified since the conditional request validators.
+	 */
+	public static final int SC_NOT_MODIFIED = 304;
+	
+	
 	/**
 	 * HTTP status code (400) indicating a bad request.
 	 */
@@ -34,6 +34,12 @@ public class Identifier implements Serializable, Comparable<Identifier>, JSONAwa
 	private static final SecureRandom secureRandom = new SecureRandom();
 
 
+	/**
+	 * Optional pool of pre-generated values, {@code null} if none.
+	 */
+	private static volatile IdentifierValuePool valuePool;
+
+
 	/**
 	 * The identifier value.
 	 */
@@ -56,19 +62,33 @@ public class Identifier implements Serializable, Comparable<Identifier>, JSONAwa
 
 
 	/**
-	 * Creates a new identifier with a randomly generated value of the 
-	 * specified byte length, Base64URL-encoded.
+	 * Creates a new identifier with a randomly generated value of the
+	 * specified byte length, Base64URL-encoded. If a
+	 * {@link #setValuePool value pool} for the byte length is registered
+	 * the value is drawn from it, else it is generated inline.
 	 *
 	 * @param byteLength The byte length of the value to generate. Must be
 	 *                   greater than one.
 	 */
 	public Identifier(final int byteLength) {
-		
+
 		if (byteLength < 1)
 			throw new IllegalArgumentException("The byte length must be a positive integer");
-		
+
+		IdentifierValuePool pool = valuePool;
+
+		String pooledValue = null;
+
+		if (pool != null && pool.getByteLength() == byteLength)
+			pooledValue = pool.poll();
+
+		if (pooledValue != null) {
+			value = pooledValue;
+			return;
+		}
+
 		byte[] n = new byte[byteLength];
-		
+
 		secureRandom.nextBytes(n);
 
 		value = Base64URL.encode(n).toString();
@@ -85,6 +105,31 @@ public class Identifier implements Serializable, Comparable<Identifier>, JSONAwa
 	}
 
 
+	/**
+	 * Registers a pool of pre-generated values for the random value
+	 * constructors.
+	 *
+	 * @param pool The value pool, {@code null} to generate all values
+	 *             inline.
+	 */
+	public static void setValuePool(final IdentifierValuePool pool) {
+
+		valuePool = pool;
+	}
+
+
+	/**
+	 * Returns the registered pool of pre-generated values for the random
+	 * value constructors.
+	 *
+	 * @return The value pool, {@code null} if none.
+	 */
+	public static IdentifierValuePool getValuePool() {
+
+		return valuePool;
+	}
+
+
 	/**
 	 * Returns the value of this identifier.
 	 *
@@ -0,0 +1,315 @@
+package com.nimbusds.oauth2.sdk.id;
+
+
+import java.security.SecureRandom;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.jcip.annotations.ThreadSafe;
+
+import com.nimbusds.jose.util.Base64URL;
+
+
+/**
+ * Bounded pool of pre-generated secure random identifier values,
+ * Base64URL-encoded. The pool is filled by a background thread, taking the
+ * random byte generation and encoding off the calling thread.
+ *
+ * <p>To make the {@link Identifier#Identifier(int) random value
+ * constructors} of {@link Identifier} and its extending classes (such as
+ * access tokens, refresh tokens and authorisation codes) draw their values
+ * from a pool, register it with {@link Identifier#setValuePool}. If the
+ * pool is drained, or its byte length doesn't match the requested one, the
+ * value is generated inline as usual.
+ *
+ * <p>Example:
+ *
+ * <pre>
+ * IdentifierValuePool pool = new IdentifierValuePool(32, 10000);
+ * pool.start();
+ * Identifier.setValuePool(pool);
+ * </pre>
+ */
+@ThreadSafe
+public class IdentifierValuePool {
+
+
+	/**
+	 * The default refill interval, in milliseconds.
+	 */
+	public static final long DEFAULT_REFILL_INTERVAL = 10L;
+
+
+	/**
+	 * The byte length of the pooled values.
+	 */
+	private final int byteLength;
+
+
+	/**
+	 * The maximum number of pooled values.
+	 */
+	private final int capacity;
+
+
+	/**
+	 * The refill interval, in milliseconds.
+	 */
+	private final long refillInterval;
+
+
+	/**
+	 * The pooled values.
+	 */
+	private final Queue<String> values = new ConcurrentLinkedQueue<>();
+
+
+	/**
+	 * The current number of pooled values, tracked separately as
+	 * {@link ConcurrentLinkedQueue#size} isn't a constant time operation.
+	 */
+	private final AtomicInteger size = new AtomicInteger();
+
+
+	/**
+	 * The number of values served from the pool.
+	 */
+	private final AtomicLong hits = new AtomicLong();
+
+
+	/**
+	 * The number of requests that found the pool drained.
+	 */
+	private final AtomicLong misses = new AtomicLong();
+
+
+	/**
+	 * The secure random generator.
+	 */
+	private final SecureRandom secureRandom = new SecureRandom();
+
+
+	/**
+	 * The refill executor, {@code null} if not started.
+	 */
+	private ScheduledExecutorService executor;
+
+
+	/**
+	 * Creates a new identifier value pool with the
+	 * {@link #DEFAULT_REFILL_INTERVAL default refill interval}. The
+	 * background refill must be started with {@link #start}.
+	 *
+	 * @param byteLength The byte length of the values to generate. Must be
+	 *                   a positive integer.
+	 * @param capacity   The maximum number of pooled values. Must be a
+	 *                   positive integer.
+	 */
+	public IdentifierValuePool(final int byteLength, final int capacity) {
+
+		this(byteLength, capacity, DEFAULT_REFILL_INTERVAL);
+	}
+
+
+	/**
+	 * Creates a new identifier value pool. The background refill must be
+	 * started with {@link #start}.
+	 *
+	 * @param byteLength     The byte length of the values to generate.
+	 *                       Must be a positive integer.
+	 * @param capacity       The maximum number of pooled values. Must be a
+	 *                       positive integer.
+	 * @param refillInterval The refill interval, in milliseconds. Must be
+	 *                       a positive integer.
+	 */
+	public IdentifierValuePool(final int byteLength, final int capacity, final long refillInterval) {
+
+		if (byteLength < 1)
+			throw new IllegalArgumentException("The byte length must be a positive integer");
+
+		if (capacity < 1)
+			throw new IllegalArgumentException("The capacity must be a positive integer");
+
+		if (refillInterval < 1)
+			throw new IllegalArgumentException("The refill interval must be a positive integer");
+
+		this.byteLength = byteLength;
+		this.capacity = capacity;
+		this.refillInterval = refillInterval;
+	}
+
+
+	/**
+	 * Returns the byte length of the pooled values.
+	 *
+	 * @return The byte length.
+	 */
+	public int getByteLength() {
+
+		return byteLength;
+	}
+
+
+	/**
+	 * Returns the maximum number of pooled values.
+	 *
+	 * @return The capacity.
+	 */
+	public int getCapacity() {
+
+		return capacity;
+	}
+
+
+	/**
+	 * Returns the refill interval.
+	 *
+	 * @return The refill interval, in milliseconds.
+	 */
+	public long getRefillInterval() {
+
+		return refillInterval;
+	}
+
+
+	/**
+	 * Returns the current number of pooled values.
+	 *
+	 * @return The number of pooled values.
+	 */
+	public int size() {
+
+		return size.get();
+	}
+
+
+	/**
+	 * Fills the pool up to its capacity on the calling thread.
+	 */
+	public void fill() {
+
+		byte[] n = new byte[byteLength];
+
+		while (true) {
+
+			int s = size.get();
+
+			if (s >= capacity)
+				return;
+
+			// Reserve the slot first, so that concurrent fills
+			// never exceed the capacity
+			if (! size.compareAndSet(s, s + 1))
+				continue;
+
+			secureRandom.nextBytes(n);
+			values.offer(Base64URL.encode(n).toString());
+		}
+	}
+
+
+	/**
+	 * Starts the background refill of the pool. Has no effect if already
+	 * started.
+	 */
+	public synchronized void start() {
+
+		if (executor != null)
+			return;
+
+		executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(final Runnable r) {
+				Thread t = new Thread(r);
+				t.setName("identifier-value-pool[" + byteLength + "]");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+
+		executor.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				fill();
+			}
+		}, 0L, refillInterval, TimeUnit.MILLISECONDS);
+	}
+
+
+	/**
+	 * Stops the background refill of the pool. The remaining pooled
+	 * values can still be drawn.
+	 */
+	public synchronized void shutdown() {
+
+		if (executor == null)
+			return;
+
+		executor.shutdownNow();
+		executor = null;
+	}
+
+
+	/**
+	 * Draws a value from the pool.
+	 *
+	 * @return The Base64URL-encoded value, {@code null} if the pool is
+	 *         drained.
+	 */
+	public String poll() {
+
+		String value = values.poll();
+
+		if (value == null) {
+			misses.incrementAndGet();
+			return null;
+		}
+
+		size.decrementAndGet();
+		hits.incrementAndGet();
+		return value;
+	}
+
+
+	/**
+	 * Returns the number of values served from the pool.
+	 *
+	 * @return The hit count.
+	 */
+	public long getHitCount() {
+
+		return hits.get();
+	}
+
+
+	/**
+	 * Returns the number of requests that found the pool drained and had
+	 * to fall back to inline generation.
+	 *
+	 * @return The miss count.
+	 */
+	public long getMissCount() {
+
+		return misses.get();
+	}
+
+
+	/**
+	 * Returns the ratio of requests served from the pool.
+	 *
+	 * @return The hit rate, between 0.0 and 1.0, 1.0 if there were no
+	 *         requests yet.
+	 */
+	public double getHitRate() {
+
+		long h = hits.get();
+		long total = h + misses.get();
+		return total == 0 ? 1.0 : (double) h / total;
+	}
+}
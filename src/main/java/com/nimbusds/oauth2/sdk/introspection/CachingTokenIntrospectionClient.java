@@ -0,0 +1,540 @@
+package com.nimbusds.oauth2.sdk.introspection;
+
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.jcip.annotations.ThreadSafe;
+
+import com.nimbusds.jose.util.Base64URL;
+import com.nimbusds.oauth2.sdk.ParseException;
+import com.nimbusds.oauth2.sdk.TokenIntrospectionRequest;
+import com.nimbusds.oauth2.sdk.TokenIntrospectionResponse;
+import com.nimbusds.oauth2.sdk.TokenIntrospectionSuccessResponse;
+import com.nimbusds.oauth2.sdk.auth.ClientAuthentication;
+import com.nimbusds.oauth2.sdk.http.HTTPResponse;
+import com.nimbusds.oauth2.sdk.token.AccessToken;
+import com.nimbusds.oauth2.sdk.token.Token;
+import com.nimbusds.oauth2.sdk.util.BoundedCache;
+import com.nimbusds.oauth2.sdk.util.CryptoPool;
+import com.nimbusds.oauth2.sdk.util.SingleFlight;
+
+
+/**
+ * Token introspection client with caching of the introspection results.
+ * Intended for resource servers that introspect the access tokens of
+ * incoming requests at the authorisation server.
+ *
+ * <p>The token introspection success responses are cached in a
+ * size-bounded cache, keyed by the SHA-256 hash of the token value, so
+ * that no token values are kept in memory. The entries expire as follows:
+ *
+ * <ul>
+ *     <li>Active tokens - at the token expiration time ({@code exp}), if
+ *         set, but not later than the configured maximum time-to-live.
+ *     <li>Inactive tokens - after the configured negative time-to-live,
+ *         zero to disable negative caching.
+ * </ul>
+ *
+ * <p>Token introspection error responses are not cached.
+ *
+ * <p>Concurrent introspections of the same token, e.g. during a burst of
+ * parallel API calls by a client, are collapsed into a single request to
+ * the token introspection endpoint.
+ *
+ * <p>The cached responses are shared between callers and must not be
+ * modified.
+ *
+ * <p>Related specifications:
+ *
+ * <ul>
+ *     <li>OAuth 2.0 Token Introspection (RFC 7662).
+ * </ul>
+ */
+@ThreadSafe
+public class CachingTokenIntrospectionClient {
+
+
+	/**
+	 * Cached token introspection response.
+	 */
+	private static final class CacheEntry {
+
+
+		/**
+		 * The token introspection response.
+		 */
+		private final TokenIntrospectionSuccessResponse response;
+
+
+		/**
+		 * The expiration time, in milliseconds since the Unix epoch.
+		 */
+		private final long expiresAt;
+
+
+		private CacheEntry(final TokenIntrospectionSuccessResponse response, final long expiresAt) {
+			this.response = response;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+
+	/**
+	 * The token introspection endpoint URI.
+	 */
+	private final URI endpoint;
+
+
+	/**
+	 * The client authentication, {@code null} if none.
+	 */
+	private final ClientAuthentication clientAuth;
+
+
+	/**
+	 * The client authorisation, {@code null} if none.
+	 */
+	private final AccessToken clientAuthz;
+
+
+	/**
+	 * The maximum time-to-live of cached active token responses, in
+	 * seconds.
+	 */
+	private final long maxTTL;
+
+
+	/**
+	 * The time-to-live of cached inactive token responses, in seconds.
+	 */
+	private final long negativeTTL;
+
+
+	/**
+	 * The cached responses, keyed by token hash.
+	 */
+	private final BoundedCache<String,CacheEntry> cache;
+
+
+	/**
+	 * The introspection requests in flight, keyed by token hash.
+	 */
+	private final SingleFlight<String,TokenIntrospectionResponse> inFlight = new SingleFlight<>();
+
+
+	/**
+	 * The hit count.
+	 */
+	private final AtomicLong hits = new AtomicLong();
+
+
+	/**
+	 * The miss count.
+	 */
+	private final AtomicLong misses = new AtomicLong();
+
+
+	/**
+	 * Creates a new caching token introspection client without client
+	 * authentication or authorisation.
+	 *
+	 * @param endpoint     The token introspection endpoint URI. Must not
+	 *                     be {@code null}.
+	 * @param maxCacheSize The maximum number of cached responses. Must be
+	 *                     a positive integer.
+	 * @param maxTTL       The maximum time-to-live of cached active token
+	 *                     responses, in seconds. Must be a positive
+	 *                     integer.
+	 * @param negativeTTL  The time-to-live of cached inactive token
+	 *                     responses, in seconds, zero to disable negative
+	 *                     caching.
+	 */
+	public CachingTokenIntrospectionClient(final URI endpoint,
+					       final int maxCacheSize,
+					       final long maxTTL,
+					       final long negativeTTL) {
+
+		this(endpoint, null, null, maxCacheSize, maxTTL, negativeTTL);
+	}
+
+
+	/**
+	 * Creates a new caching token introspection client. The client
+	 * authenticates with a secret or private key JWT assertion.
+	 *
+	 * @param endpoint     The token introspection endpoint URI. Must not
+	 *                     be {@code null}.
+	 * @param clientAuth   The client authentication. Must not be
+	 *                     {@code null}.
+	 * @param maxCacheSize The maximum number of cached responses. Must be
+	 *                     a positive integer.
+	 * @param maxTTL       The maximum time-to-live of cached active token
+	 *                     responses, in seconds. Must be a positive
+	 *                     integer.
+	 * @param negativeTTL  The time-to-live of cached inactive token
+	 *                     responses, in seconds, zero to disable negative
+	 *                     caching.
+	 */
+	public CachingTokenIntrospectionClient(final URI endpoint,
+					       final ClientAuthentication clientAuth,
+					       final int maxCacheSize,
+					       final long maxTTL,
+					       final long negativeTTL) {
+
+		this(endpoint, clientAuth, null, maxCacheSize, maxTTL, negativeTTL);
+
+		if (clientAuth == null)
+			throw new IllegalArgumentException("The client authentication must not be null");
+	}
+
+
+	/**
+	 * Creates a new caching token introspection client. The client
+	 * authorises itself with an access token.
+	 *
+	 * @param endpoint     The token introspection endpoint URI. Must not
+	 *                     be {@code null}.
+	 * @param clientAuthz  The client authorisation. Must not be
+	 *                     {@code null}.
+	 * @param maxCacheSize The maximum number of cached responses. Must be
+	 *                     a positive integer.
+	 * @param maxTTL       The maximum time-to-live of cached active token
+	 *                     responses, in seconds. Must be a positive
+	 *                     integer.
+	 * @param negativeTTL  The time-to-live of cached inactive token
+	 *                     responses, in seconds, zero to disable negative
+	 *                     caching.
+	 */
+	public CachingTokenIntrospectionClient(final URI endpoint,
+					       final AccessToken clientAuthz,
+					       final int maxCacheSize,
+					       final long maxTTL,
+					       final long negativeTTL) {
+
+		this(endpoint, null, clientAuthz, maxCacheSize, maxTTL, negativeTTL);
+
+		if (clientAuthz == null)
+			throw new IllegalArgumentException("The client authorisation must not be null");
+	}
+
+
+	/**
+	 * Creates a new caching token introspection client.
+	 *
+	 * @param endpoint     The token introspection endpoint URI. Must not
+	 *                     be {@code null}.
+	 * @param clientAuth   The client authentication, {@code null} if none.
+	 * @param clientAuthz  The client authorisation, {@code null} if none.
+	 * @param maxCacheSize The maximum number of cached responses. Must be
+	 *                     a positive integer.
+	 * @param maxTTL       The maximum time-to-live of cached active token
+	 *                     responses, in seconds. Must be a positive
+	 *                     integer.
+	 * @param negativeTTL  The time-to-live of cached inactive token
+	 *                     responses, in seconds, zero to disable negative
+	 *                     caching.
+	 */
+	private CachingTokenIntrospectionClient(final URI endpoint,
+						final ClientAuthentication clientAuth,
+						final AccessToken clientAuthz,
+						final int maxCacheSize,
+						final long maxTTL,
+						final long negativeTTL) {
+
+		if (endpoint == null)
+			throw new IllegalArgumentException("The token introspection endpoint URI must not be null");
+
+		if (maxTTL < 1)
+			throw new IllegalArgumentException("The max TTL must be a positive integer");
+
+		if (negativeTTL < 0)
+			throw new IllegalArgumentException("The negative TTL must not be negative");
+
+		this.endpoint = endpoint;
+		this.clientAuth = clientAuth;
+		this.clientAuthz = clientAuthz;
+		this.maxTTL = maxTTL;
+		this.negativeTTL = negativeTTL;
+		cache = new BoundedCache<>(maxCacheSize);
+	}
+
+
+	/**
+	 * Returns the token introspection endpoint URI.
+	 *
+	 * @return The endpoint URI.
+	 */
+	public URI getEndpointURI() {
+
+		return endpoint;
+	}
+
+
+	/**
+	 * Returns the client authentication.
+	 *
+	 * @return The client authentication, {@code null} if none.
+	 */
+	public ClientAuthentication getClientAuthentication() {
+
+		return clientAuth;
+	}
+
+
+	/**
+	 * Returns the client authorisation.
+	 *
+	 * @return The client authorisation, {@code null} if none.
+	 */
+	public AccessToken getClientAuthorization() {
+
+		return clientAuthz;
+	}
+
+
+	/**
+	 * Returns the maximum time-to-live of cached active token responses.
+	 *
+	 * @return The maximum time-to-live, in seconds.
+	 */
+	public long getMaxTTL() {
+
+		return maxTTL;
+	}
+
+
+	/**
+	 * Returns the time-to-live of cached inactive token responses.
+	 *
+	 * @return The negative time-to-live, in seconds, zero if negative
+	 *         caching is disabled.
+	 */
+	public long getNegativeTTL() {
+
+		return negativeTTL;
+	}
+
+
+	/**
+	 * Returns the number of introspections served from the cache.
+	 *
+	 * @return The hit count.
+	 */
+	public long getHitCount() {
+
+		return hits.get();
+	}
+
+
+	/**
+	 * Returns the number of introspections that required a request to the
+	 * token introspection endpoint.
+	 *
+	 * @return The miss count.
+	 */
+	public long getMissCount() {
+
+		return misses.get();
+	}
+
+
+	/**
+	 * Computes the cache key for the specified token.
+	 *
+	 * @param token The token. Must not be {@code null}.
+	 *
+	 * @return The Base64URL-encoded SHA-256 hash of the token value.
+	 */
+	private static String computeKey(final Token token) {
+
+		MessageDigest md;
+
+		try {
+			md = CryptoPool.getMessageDigest("SHA-256", null);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e.getMessage(), e);
+		}
+
+		return Base64URL.encode(md.digest(token.getValue().getBytes(Charset.forName("UTF-8")))).toString();
+	}
+
+
+	/**
+	 * Sends the specified token introspection request. May be overridden
+	 * to customise the HTTP request, e.g. to set timeouts.
+	 *
+	 * @param request The token introspection request. Must not be
+	 *                {@code null}.
+	 *
+	 * @return The HTTP response.
+	 *
+	 * @throws IOException If the HTTP request failed.
+	 */
+	protected HTTPResponse send(final TokenIntrospectionRequest request)
+		throws IOException {
+
+		return request.toHTTPRequest().send();
+	}
+
+
+	/**
+	 * Returns the cache expiration time for the specified token
+	 * introspection response.
+	 *
+	 * @param response The token introspection success response. Must not
+	 *                 be {@code null}.
+	 * @param now      The current time, in milliseconds since the Unix
+	 *                 epoch.
+	 *
+	 * @return The expiration time, in milliseconds since the Unix epoch,
+	 *         zero if the response must not be cached.
+	 */
+	private long computeExpiration(final TokenIntrospectionSuccessResponse response, final long now) {
+
+		if (! response.isActive()) {
+			return negativeTTL > 0 ? now + negativeTTL * 1000L : 0L;
+		}
+
+		long expiresAt = now + maxTTL * 1000L;
+
+		if (response.getExpirationTime() != null) {
+			expiresAt = Math.min(expiresAt, response.getExpirationTime().getTime());
+		}
+
+		return expiresAt > now ? expiresAt : 0L;
+	}
+
+
+	/**
+	 * Introspects the specified token at the authorisation server. The
+	 * introspection result is served from the cache if available.
+	 * Concurrent introspections of the same token share a single request
+	 * to the token introspection endpoint.
+	 *
+	 * @param token The access or refresh token. Must not be {@code null}.
+	 *
+	 * @return The token introspection success or error response.
+	 *
+	 * @throws IOException    If the HTTP request failed or the calling
+	 *                        thread was interrupted.
+	 * @throws ParseException If the HTTP response couldn't be parsed.
+	 */
+	public TokenIntrospectionResponse introspect(final Token token)
+		throws IOException, ParseException {
+
+		final String key = computeKey(token);
+
+		CacheEntry entry = cache.get(key);
+
+		if (entry != null && entry.expiresAt > System.currentTimeMillis()) {
+			hits.incrementAndGet();
+			return entry.response;
+		}
+
+		misses.incrementAndGet();
+
+		try {
+			return inFlight.execute(key, new Callable<TokenIntrospectionResponse>() {
+				@Override
+				public TokenIntrospectionResponse call()
+					throws IOException, ParseException {
+
+					return introspectAndCache(key, token);
+				}
+			});
+
+		} catch (InterruptedException e) {
+
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while awaiting token introspection");
+
+		} catch (ExecutionException e) {
+
+			Throwable cause = e.getCause();
+
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if (cause instanceof ParseException) {
+				throw (ParseException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			} else {
+				throw new IOException(cause.getMessage(), cause);
+			}
+		}
+	}
+
+
+	/**
+	 * Introspects the specified token at the authorisation server and
+	 * caches the result.
+	 *
+	 * @param key   The cache key. Must not be {@code null}.
+	 * @param token The access or refresh token. Must not be {@code null}.
+	 *
+	 * @return The token introspection success or error response.
+	 *
+	 * @throws IOException    If the HTTP request failed.
+	 * @throws ParseException If the HTTP response couldn't be parsed.
+	 */
+	private TokenIntrospectionResponse introspectAndCache(final String key, final Token token)
+		throws IOException, ParseException {
+
+		TokenIntrospectionRequest request;
+
+		if (clientAuthz != null) {
+			request = new TokenIntrospectionRequest(endpoint, clientAuthz, token);
+		} else {
+			request = new TokenIntrospectionRequest(endpoint, clientAuth, token);
+		}
+
+		TokenIntrospectionResponse response = TokenIntrospectionResponse.parse(send(request));
+
+		if (! (response instanceof TokenIntrospectionSuccessResponse)) {
+			return response;
+		}
+
+		TokenIntrospectionSuccessResponse successResponse = (TokenIntrospectionSuccessResponse) response;
+
+		long expiresAt = computeExpiration(successResponse, System.currentTimeMillis());
+
+		if (expiresAt > 0L) {
+			cache.put(key, new CacheEntry(successResponse, expiresAt));
+		} else {
+			cache.remove(key);
+		}
+
+		return response;
+	}
+
+
+	/**
+	 * Removes the cached introspection result for the specified token,
+	 * e.g. after its revocation.
+	 *
+	 * @param token The token. Must not be {@code null}.
+	 */
+	public void invalidate(final Token token) {
+
+		cache.remove(computeKey(token));
+	}
+
+
+	/**
+	 * Removes all cached introspection results.
+	 */
+	public void clear() {
+
+		cache.clear();
+	}
+}
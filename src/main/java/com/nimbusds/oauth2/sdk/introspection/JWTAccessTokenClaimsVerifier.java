@@ -0,0 +1,189 @@
+package com.nimbusds.oauth2.sdk.introspection;
+
+
+import java.util.Date;
+import java.util.List;
+
+import com.nimbusds.jose.util.DateUtils;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.proc.BadJWTException;
+import com.nimbusds.jwt.proc.ClockSkewAware;
+import com.nimbusds.jwt.proc.JWTClaimsVerifier;
+import com.nimbusds.oauth2.sdk.id.Audience;
+import com.nimbusds.oauth2.sdk.id.Issuer;
+import net.jcip.annotations.ThreadSafe;
+
+
+/**
+ * JWT-encoded access token claims verifier. Checks the issuer
+ * ({@code iss}), the audience ({@code aud}), the expiration time
+ * ({@code exp}) and the optional not-before time ({@code nbf}).
+ */
+@ThreadSafe
+public class JWTAccessTokenClaimsVerifier implements JWTClaimsVerifier, ClockSkewAware {
+
+
+	// Cache general exceptions
+
+	/**
+	 * Missing {@code exp} claim exception.
+	 */
+	private static final BadJWTException MISSING_EXP_CLAIM_EXCEPTION =
+		new BadJWTException("Missing JWT expiration (exp) claim");
+
+
+	/**
+	 * Missing {@code iss} claim exception.
+	 */
+	private static final BadJWTException MISSING_ISS_CLAIM_EXCEPTION =
+		new BadJWTException("Missing JWT issuer (iss) claim");
+
+
+	/**
+	 * Missing {@code aud} claim exception.
+	 */
+	private static final BadJWTException MISSING_AUD_CLAIM_EXCEPTION =
+		new BadJWTException("Missing JWT audience (aud) claim");
+
+
+	/**
+	 * Expired access token exception.
+	 */
+	private static final BadJWTException EXPIRED_EXCEPTION =
+		new BadJWTException("Expired JWT");
+
+
+	/**
+	 * Access token not yet valid exception.
+	 */
+	private static final BadJWTException BEFORE_NBF_EXCEPTION =
+		new BadJWTException("JWT before use time");
+
+
+	/**
+	 * The expected access token issuer.
+	 */
+	private final Issuer expectedIssuer;
+
+
+	/**
+	 * The expected audience.
+	 */
+	private final Audience expectedAudience;
+
+
+	/**
+	 * The maximum acceptable clock skew, in seconds.
+	 */
+	private int maxClockSkew;
+
+
+	/**
+	 * Creates a new JWT-encoded access token claims verifier.
+	 *
+	 * @param issuer       The expected access token issuer. Must not be
+	 *                     {@code null}.
+	 * @param audience     The expected audience, typically the resource
+	 *                     server identifier. Must not be {@code null}.
+	 * @param maxClockSkew The maximum acceptable clock skew (absolute
+	 *                     value), in seconds. Must be zero (no clock skew)
+	 *                     or positive integer.
+	 */
+	public JWTAccessTokenClaimsVerifier(final Issuer issuer,
+					    final Audience audience,
+					    final int maxClockSkew) {
+
+		if (issuer == null) {
+			throw new IllegalArgumentException("The expected access token issuer must not be null");
+		}
+		this.expectedIssuer = issuer;
+
+		if (audience == null) {
+			throw new IllegalArgumentException("The expected audience must not be null");
+		}
+		this.expectedAudience = audience;
+
+		setMaxClockSkew(maxClockSkew);
+	}
+
+
+	/**
+	 * Returns the expected access token issuer.
+	 *
+	 * @return The access token issuer.
+	 */
+	public Issuer getExpectedIssuer() {
+		return expectedIssuer;
+	}
+
+
+	/**
+	 * Returns the expected audience.
+	 *
+	 * @return The audience.
+	 */
+	public Audience getExpectedAudience() {
+		return expectedAudience;
+	}
+
+
+	@Override
+	public int getMaxClockSkew() {
+		return maxClockSkew;
+	}
+
+
+	@Override
+	public void setMaxClockSkew(final int maxClockSkew) {
+		if (maxClockSkew < 0) {
+			throw new IllegalArgumentException("The max clock skew must be zero or positive");
+		}
+		this.maxClockSkew = maxClockSkew;
+	}
+
+
+	@Override
+	public void verify(final JWTClaimsSet claimsSet)
+		throws BadJWTException {
+
+		final String tokenIssuer = claimsSet.getIssuer();
+
+		if (tokenIssuer == null) {
+			throw MISSING_ISS_CLAIM_EXCEPTION;
+		}
+
+		if (! expectedIssuer.getValue().equals(tokenIssuer)) {
+			throw new BadJWTException("Unexpected JWT issuer: " + tokenIssuer);
+		}
+
+		final List<String> tokenAudience = claimsSet.getAudience();
+
+		if (tokenAudience == null || tokenAudience.isEmpty()) {
+			throw MISSING_AUD_CLAIM_EXCEPTION;
+		}
+
+		if (! tokenAudience.contains(expectedAudience.getValue())) {
+			throw new BadJWTException("Unexpected JWT audience: " + tokenAudience);
+		}
+
+		final Date exp = claimsSet.getExpirationTime();
+
+		if (exp == null) {
+			throw MISSING_EXP_CLAIM_EXCEPTION;
+		}
+
+		final Date nowRef = new Date();
+
+		// Expiration must be after current time, given acceptable clock skew
+		if (! DateUtils.isAfter(exp, nowRef, maxClockSkew)) {
+			throw EXPIRED_EXCEPTION;
+		}
+
+		final Date nbf = claimsSet.getNotBeforeTime();
+
+		// Not-before time must be before current time, given acceptable clock skew
+		if (nbf != null && ! DateUtils.isBefore(nbf, nowRef, maxClockSkew)) {
+			throw BEFORE_NBF_EXCEPTION;
+		}
+	}
+}
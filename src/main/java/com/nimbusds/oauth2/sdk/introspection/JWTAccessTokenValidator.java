@@ -0,0 +1,283 @@
+package com.nimbusds.oauth2.sdk.introspection;
+
+
+import java.util.List;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.BadJOSEException;
+import com.nimbusds.jose.proc.JWSKeySelector;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.nimbusds.jwt.proc.BadJWTException;
+import com.nimbusds.jwt.proc.ClockSkewAware;
+import com.nimbusds.jwt.proc.ConfigurableJWTProcessor;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import com.nimbusds.oauth2.sdk.TokenIntrospectionSuccessResponse;
+import com.nimbusds.oauth2.sdk.id.Audience;
+import com.nimbusds.oauth2.sdk.id.Issuer;
+import com.nimbusds.oauth2.sdk.token.AccessToken;
+import com.nimbusds.oauth2.sdk.token.AccessTokenType;
+import net.jcip.annotations.ThreadSafe;
+import net.minidev.json.JSONObject;
+
+
+/**
+ * Local validator of signed JWT-encoded access tokens, for resource servers
+ * that don't need to introspect them at the authorisation server. The
+ * claims of a valid access token are returned as a token introspection
+ * success response, so that code written for token introspection can
+ * process them unchanged.
+ *
+ * <p>The access token signature is verified with a key from the
+ * authorisation server's JWK set. The access token must have the expected
+ * issuer ({@code iss}) and audience ({@code aud}), and must not be expired
+ * ({@code exp}) or used before its not-before time ({@code nbf}), given
+ * an acceptable clock skew.
+ *
+ * <p>The claims are mapped to the token introspection response parameters
+ * with the same names. A JSON array {@code scp} claim is mapped to the
+ * {@code scope} parameter if the latter is not set, and the
+ * {@code token_type} parameter defaults to {@code Bearer}.
+ *
+ * <p>Related specifications:
+ *
+ * <ul>
+ *     <li>OAuth 2.0 Token Introspection (RFC 7662).
+ *     <li>JSON Web Token (JWT) (RFC 7519).
+ * </ul>
+ */
+@ThreadSafe
+public class JWTAccessTokenValidator implements ClockSkewAware {
+
+
+	/**
+	 * The default maximum acceptable clock skew for verifying access token
+	 * timestamps, in seconds.
+	 */
+	public static final int DEFAULT_MAX_CLOCK_SKEW = 60;
+
+
+	/**
+	 * The expected access token issuer.
+	 */
+	private final Issuer expectedIssuer;
+
+
+	/**
+	 * The expected audience.
+	 */
+	private final Audience expectedAudience;
+
+
+	/**
+	 * The JWS key selector.
+	 */
+	private final JWSKeySelector jwsKeySelector;
+
+
+	/**
+	 * The maximum acceptable clock skew, in seconds.
+	 */
+	private int maxClockSkew = DEFAULT_MAX_CLOCK_SKEW;
+
+
+	/**
+	 * Creates a new validator for signed JWT-encoded access tokens.
+	 *
+	 * @param expectedIssuer   The expected access token issuer
+	 *                         (authorisation server). Must not be
+	 *                         {@code null}.
+	 * @param expectedAudience The expected audience, typically the
+	 *                         resource server identifier. Must not be
+	 *                         {@code null}.
+	 * @param expectedJWSAlg   The expected JWS algorithm. Must not be
+	 *                         {@code null}.
+	 * @param jwkSource        The authorisation server JWK source. Must
+	 *                         not be {@code null}.
+	 */
+	public JWTAccessTokenValidator(final Issuer expectedIssuer,
+				       final Audience expectedAudience,
+				       final JWSAlgorithm expectedJWSAlg,
+				       final JWKSource jwkSource) {
+
+		this(expectedIssuer, expectedAudience, new JWSVerificationKeySelector(expectedJWSAlg, jwkSource));
+	}
+
+
+	/**
+	 * Creates a new validator for signed JWT-encoded access tokens.
+	 *
+	 * @param expectedIssuer   The expected access token issuer
+	 *                         (authorisation server). Must not be
+	 *                         {@code null}.
+	 * @param expectedAudience The expected audience, typically the
+	 *                         resource server identifier. Must not be
+	 *                         {@code null}.
+	 * @param jwsKeySelector   The key selector for JWS verification. Must
+	 *                         not be {@code null}.
+	 */
+	public JWTAccessTokenValidator(final Issuer expectedIssuer,
+				       final Audience expectedAudience,
+				       final JWSKeySelector jwsKeySelector) {
+		if (expectedIssuer == null) {
+			throw new IllegalArgumentException("The expected access token issuer must not be null");
+		}
+		this.expectedIssuer = expectedIssuer;
+		if (expectedAudience == null) {
+			throw new IllegalArgumentException("The expected audience must not be null");
+		}
+		this.expectedAudience = expectedAudience;
+		if (jwsKeySelector == null) {
+			throw new IllegalArgumentException("The JWS key selector must not be null");
+		}
+		this.jwsKeySelector = jwsKeySelector;
+	}
+
+
+	/**
+	 * Returns the expected access token issuer.
+	 *
+	 * @return The access token issuer.
+	 */
+	public Issuer getExpectedIssuer() {
+		return expectedIssuer;
+	}
+
+
+	/**
+	 * Returns the expected audience.
+	 *
+	 * @return The audience.
+	 */
+	public Audience getExpectedAudience() {
+		return expectedAudience;
+	}
+
+
+	/**
+	 * Returns the configured JWS key selector for signed access token
+	 * validation.
+	 *
+	 * @return The JWS key selector.
+	 */
+	public JWSKeySelector getJWSKeySelector() {
+		return jwsKeySelector;
+	}
+
+
+	@Override
+	public int getMaxClockSkew() {
+		return maxClockSkew;
+	}
+
+
+	/**
+	 * Sets the maximum acceptable clock skew for verifying the access
+	 * token timestamps.
+	 *
+	 * @param maxClockSkew The maximum clock skew, in seconds. Must not be
+	 *                     negative.
+	 */
+	@Override
+	public void setMaxClockSkew(final int maxClockSkew) {
+		if (maxClockSkew < 0) {
+			throw new IllegalArgumentException("The max clock skew must not be negative");
+		}
+		this.maxClockSkew = maxClockSkew;
+	}
+
+
+	/**
+	 * Validates the specified JWT-encoded access token.
+	 *
+	 * @param accessToken The access token. Must not be {@code null}.
+	 *
+	 * @return The access token claims as an active token introspection
+	 *         success response.
+	 *
+	 * @throws BadJOSEException If the access token is invalid or expired.
+	 * @throws JOSEException    If an internal JOSE exception was
+	 *                          encountered.
+	 */
+	public TokenIntrospectionSuccessResponse validate(final AccessToken accessToken)
+		throws BadJOSEException, JOSEException {
+
+		SignedJWT jwt;
+
+		try {
+			jwt = SignedJWT.parse(accessToken.getValue());
+		} catch (java.text.ParseException e) {
+			throw new BadJWTException("Invalid JWT: " + e.getMessage(), e);
+		}
+
+		ConfigurableJWTProcessor jwtProcessor = new DefaultJWTProcessor();
+		jwtProcessor.setJWSKeySelector(jwsKeySelector);
+		jwtProcessor.setJWTClaimsVerifier(new JWTAccessTokenClaimsVerifier(expectedIssuer, expectedAudience, maxClockSkew));
+		JWTClaimsSet jwtClaimsSet = jwtProcessor.process(jwt, null);
+		return toTokenIntrospectionResponse(jwtClaimsSet);
+	}
+
+
+	/**
+	 * Validates the specified JWT-encoded access token and returns the
+	 * result as a token introspection response.
+	 *
+	 * @param accessToken The access token. Must not be {@code null}.
+	 *
+	 * @return The access token claims as an active token introspection
+	 *         success response, or an inactive response if the access
+	 *         token is invalid or expired.
+	 *
+	 * @throws JOSEException If an internal JOSE exception was
+	 *                       encountered.
+	 */
+	public TokenIntrospectionSuccessResponse introspect(final AccessToken accessToken)
+		throws JOSEException {
+
+		try {
+			return validate(accessToken);
+		} catch (BadJOSEException e) {
+			return new TokenIntrospectionSuccessResponse.Builder(false).build();
+		}
+	}
+
+
+	/**
+	 * Converts the specified access token claims set to a token
+	 * introspection success response.
+	 *
+	 * @param claimsSet The access token claims set. Must not be
+	 *                  {@code null}.
+	 *
+	 * @return The active token introspection success response.
+	 */
+	private static TokenIntrospectionSuccessResponse toTokenIntrospectionResponse(final JWTClaimsSet claimsSet) {
+
+		JSONObject params = new JSONObject();
+		params.putAll(claimsSet.toJSONObject());
+		params.put("active", true);
+
+		if (! params.containsKey("scope") && params.get("scp") instanceof List) {
+
+			StringBuilder sb = new StringBuilder();
+
+			for (Object value: (List<?>) params.get("scp")) {
+				if (sb.length() > 0) {
+					sb.append(' ');
+				}
+				sb.append(value);
+			}
+
+			params.put("scope", sb.toString());
+		}
+
+		if (! params.containsKey("token_type")) {
+			params.put("token_type", AccessTokenType.BEARER.getValue());
+		}
+
+		return new TokenIntrospectionSuccessResponse(params);
+	}
+}
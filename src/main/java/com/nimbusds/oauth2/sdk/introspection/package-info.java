@@ -0,0 +1,4 @@
+/**
+ * Resource server-side token introspection and access token validation.
+ */
+package com.nimbusds.oauth2.sdk.introspection;
@@ -6,6 +6,7 @@ import java.security.NoSuchAlgorithmException;
 
 import com.nimbusds.jose.util.Base64URL;
 import com.nimbusds.oauth2.sdk.id.Identifier;
+import com.nimbusds.oauth2.sdk.util.CryptoPool;
 
 
 /**
@@ -51,7 +52,7 @@ public class CodeChallenge extends Identifier {
 			MessageDigest md;
 
 			try {
-				md = MessageDigest.getInstance("SHA-256");
+				md = CryptoPool.getMessageDigest("SHA-256", null);
 			} catch (NoSuchAlgorithmException e) {
 				throw new IllegalStateException(e.getMessage());
 			}
@@ -0,0 +1,677 @@
+package com.nimbusds.oauth2.sdk.token;
+
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.nimbusds.oauth2.sdk.AccessTokenResponse;
+import com.nimbusds.oauth2.sdk.ErrorObject;
+import com.nimbusds.oauth2.sdk.GeneralException;
+import com.nimbusds.oauth2.sdk.GrantType;
+import com.nimbusds.oauth2.sdk.RefreshTokenGrant;
+import com.nimbusds.oauth2.sdk.Scope;
+import com.nimbusds.oauth2.sdk.TokenErrorResponse;
+import com.nimbusds.oauth2.sdk.TokenRequest;
+import com.nimbusds.oauth2.sdk.TokenResponse;
+import com.nimbusds.oauth2.sdk.http.HTTPResponse;
+import com.nimbusds.oauth2.sdk.id.ClientID;
+import com.nimbusds.oauth2.sdk.util.SingleFlight;
+import net.jcip.annotations.ThreadSafe;
+
+
+/**
+ * Client-side access token manager, for service-to-service callers that
+ * obtain access tokens with a client credentials or refresh token grant.
+ *
+ * <p>The access tokens are cached per token endpoint, client, scope and
+ * (for refresh token grants) refresh token, and are managed as follows:
+ *
+ * <ul>
+ *     <li>Refresh-ahead - a token requested within the configured
+ *         refresh-ahead time before its expiration is returned from the
+ *         cache and renewed in the background. The refresh-ahead time is
+ *         capped at half the token lifetime.
+ *     <li>Single-flight acquisition - concurrent requests for a missing
+ *         or expired token share a single request to the token endpoint.
+ *     <li>Stale grace - if a token can't be renewed because the token
+ *         endpoint is unreachable or slow, the expired token is returned
+ *         for up to the configured grace time after its expiration.
+ *     <li>Refresh token rotation - if the authorisation server issues a
+ *         new refresh token it's used for the subsequent renewals.
+ * </ul>
+ *
+ * <p>Tokens issued without a lifetime ({@code expires_in}) are cached
+ * until {@link #invalidate invalidated}, e.g. after a HTTP 401 response
+ * from the protected resource.
+ *
+ * <p>The token requests are sent again on renewal, client authentication
+ * included. Client authentication with a JWT assertion must therefore not
+ * rely on the assertion being used once only.
+ *
+ * <p>Example:
+ *
+ * <pre>
+ * AccessTokenManager tokenManager = new AccessTokenManager(60L, 30L);
+ *
+ * TokenRequest request = new TokenRequest(
+ *         tokenEndpoint,
+ *         new ClientSecretBasic(clientID, clientSecret),
+ *         new ClientCredentialsGrant(),
+ *         new Scope("read"));
+ *
+ * AccessToken accessToken = tokenManager.getAccessToken(request);
+ * </pre>
+ *
+ * <p>Related specifications:
+ *
+ * <ul>
+ *     <li>OAuth 2.0 (RFC 6749), sections 4.4 and 6.
+ * </ul>
+ */
+@ThreadSafe
+public class AccessTokenManager {
+
+
+	/**
+	 * The default number of threads for background token renewal.
+	 */
+	public static final int DEFAULT_REFRESH_THREADS = 2;
+
+
+	/**
+	 * Access token cache key.
+	 */
+	private static final class CacheKey {
+
+
+		/**
+		 * The token endpoint URI, {@code null} if not specified.
+		 */
+		private final URI endpoint;
+
+
+		/**
+		 * The client ID, {@code null} if not specified.
+		 */
+		private final ClientID clientID;
+
+
+		/**
+		 * The requested scope, {@code null} if not specified.
+		 */
+		private final Scope scope;
+
+
+		/**
+		 * The refresh token value, {@code null} if not a refresh token
+		 * grant.
+		 */
+		private final String refreshToken;
+
+
+		/**
+		 * The hash code.
+		 */
+		private final int hashCode;
+
+
+		private CacheKey(final URI endpoint,
+				 final ClientID clientID,
+				 final Scope scope,
+				 final String refreshToken) {
+
+			this.endpoint = endpoint;
+			this.clientID = clientID;
+			this.scope = scope != null ? new Scope(scope) : null;
+			this.refreshToken = refreshToken;
+			hashCode = Objects.hash(endpoint, clientID, this.scope, refreshToken);
+		}
+
+
+		@Override
+		public boolean equals(final Object o) {
+
+			if (this == o) return true;
+			if (! (o instanceof CacheKey)) return false;
+			CacheKey key = (CacheKey) o;
+			return Objects.equals(endpoint, key.endpoint) &&
+				Objects.equals(clientID, key.clientID) &&
+				Objects.equals(scope, key.scope) &&
+				Objects.equals(refreshToken, key.refreshToken);
+		}
+
+
+		@Override
+		public int hashCode() {
+
+			return hashCode;
+		}
+	}
+
+
+	/**
+	 * Cached access token.
+	 */
+	private static final class CacheEntry {
+
+
+		/**
+		 * The token request for renewing the access token.
+		 */
+		private final TokenRequest request;
+
+
+		/**
+		 * The access token.
+		 */
+		private final AccessToken accessToken;
+
+
+		/**
+		 * The expiration time, in milliseconds since the Unix epoch,
+		 * {@link Long#MAX_VALUE} if not specified.
+		 */
+		private final long expiresAt;
+
+
+		/**
+		 * The time after which the access token is renewed in the
+		 * background, in milliseconds since the Unix epoch.
+		 */
+		private final long refreshAt;
+
+
+		/**
+		 * {@code true} if a background renewal is in progress.
+		 */
+		private final AtomicBoolean refreshing = new AtomicBoolean();
+
+
+		private CacheEntry(final TokenRequest request,
+				   final AccessToken accessToken,
+				   final long expiresAt,
+				   final long refreshAt) {
+			this.request = request;
+			this.accessToken = accessToken;
+			this.expiresAt = expiresAt;
+			this.refreshAt = refreshAt;
+		}
+	}
+
+
+	/**
+	 * The refresh-ahead time, in seconds.
+	 */
+	private final long refreshAhead;
+
+
+	/**
+	 * The stale grace time, in seconds.
+	 */
+	private final long staleGrace;
+
+
+	/**
+	 * The cached access tokens.
+	 */
+	private final ConcurrentMap<CacheKey,CacheEntry> cache = new ConcurrentHashMap<>();
+
+
+	/**
+	 * The token requests in flight.
+	 */
+	private final SingleFlight<CacheKey,CacheEntry> inFlight = new SingleFlight<>();
+
+
+	/**
+	 * The executor for background token renewal.
+	 */
+	private final ExecutorService executor;
+
+
+	/**
+	 * The hit count.
+	 */
+	private final AtomicLong hits = new AtomicLong();
+
+
+	/**
+	 * The miss count.
+	 */
+	private final AtomicLong misses = new AtomicLong();
+
+
+	/**
+	 * The stale hit count.
+	 */
+	private final AtomicLong staleHits = new AtomicLong();
+
+
+	/**
+	 * Creates a new access token manager with the default number of
+	 * threads for background token renewal.
+	 *
+	 * @param refreshAhead The refresh-ahead time, in seconds, zero to
+	 *                     renew tokens on expiration only.
+	 * @param staleGrace   The grace time for returning expired tokens if
+	 *                     the token endpoint is unreachable, in seconds,
+	 *                     zero if none.
+	 */
+	public AccessTokenManager(final long refreshAhead, final long staleGrace) {
+
+		this(refreshAhead, staleGrace, DEFAULT_REFRESH_THREADS);
+	}
+
+
+	/**
+	 * Creates a new access token manager.
+	 *
+	 * @param refreshAhead   The refresh-ahead time, in seconds, zero to
+	 *                       renew tokens on expiration only.
+	 * @param staleGrace     The grace time for returning expired tokens
+	 *                       if the token endpoint is unreachable, in
+	 *                       seconds, zero if none.
+	 * @param refreshThreads The number of threads for background token
+	 *                       renewal. Must be a positive integer.
+	 */
+	public AccessTokenManager(final long refreshAhead,
+				  final long staleGrace,
+				  final int refreshThreads) {
+
+		if (refreshAhead < 0)
+			throw new IllegalArgumentException("The refresh-ahead time must not be negative");
+
+		if (staleGrace < 0)
+			throw new IllegalArgumentException("The stale grace time must not be negative");
+
+		if (refreshThreads < 1)
+			throw new IllegalArgumentException("The number of refresh threads must be a positive integer");
+
+		this.refreshAhead = refreshAhead;
+		this.staleGrace = staleGrace;
+
+		final AtomicInteger threadCounter = new AtomicInteger();
+
+		executor = Executors.newFixedThreadPool(refreshThreads, new ThreadFactory() {
+			@Override
+			public Thread newThread(final Runnable r) {
+				Thread t = new Thread(r);
+				t.setName("access-token-manager-" + threadCounter.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+
+	/**
+	 * Returns the refresh-ahead time.
+	 *
+	 * @return The refresh-ahead time, in seconds.
+	 */
+	public long getRefreshAhead() {
+
+		return refreshAhead;
+	}
+
+
+	/**
+	 * Returns the grace time for returning expired tokens if the token
+	 * endpoint is unreachable.
+	 *
+	 * @return The stale grace time, in seconds.
+	 */
+	public long getStaleGrace() {
+
+		return staleGrace;
+	}
+
+
+	/**
+	 * Returns the number of access tokens served from the cache.
+	 *
+	 * @return The hit count.
+	 */
+	public long getHitCount() {
+
+		return hits.get();
+	}
+
+
+	/**
+	 * Returns the number of access tokens that required a request to the
+	 * token endpoint.
+	 *
+	 * @return The miss count.
+	 */
+	public long getMissCount() {
+
+		return misses.get();
+	}
+
+
+	/**
+	 * Returns the number of expired access tokens served within the stale
+	 * grace time.
+	 *
+	 * @return The stale hit count.
+	 */
+	public long getStaleHitCount() {
+
+		return staleHits.get();
+	}
+
+
+	/**
+	 * Creates the cache key for the specified token request.
+	 *
+	 * @param request The token request. Must not be {@code null}.
+	 *
+	 * @return The cache key.
+	 */
+	private static CacheKey createKey(final TokenRequest request) {
+
+		GrantType grantType = request.getAuthorizationGrant().getType();
+
+		String refreshToken = null;
+
+		if (GrantType.REFRESH_TOKEN.equals(grantType)) {
+			refreshToken = ((RefreshTokenGrant) request.getAuthorizationGrant()).getRefreshToken().getValue();
+		} else if (! GrantType.CLIENT_CREDENTIALS.equals(grantType)) {
+			throw new IllegalArgumentException("Unsupported grant type: " + grantType);
+		}
+
+		ClientID clientID;
+
+		if (request.getClientAuthentication() != null) {
+			clientID = request.getClientAuthentication().getClientID();
+		} else {
+			clientID = request.getClientID();
+		}
+
+		return new CacheKey(request.getEndpointURI(), clientID, request.getScope(), refreshToken);
+	}
+
+
+	/**
+	 * Sends the specified token request. May be overridden to customise
+	 * the HTTP request, e.g. to set timeouts.
+	 *
+	 * @param request The token request. Must not be {@code null}.
+	 *
+	 * @return The HTTP response.
+	 *
+	 * @throws IOException If the HTTP request failed.
+	 */
+	protected HTTPResponse send(final TokenRequest request)
+		throws IOException {
+
+		return request.toHTTPRequest().send();
+	}
+
+
+	/**
+	 * Returns an access token for the specified token request. The token
+	 * is served from the cache if available, else it's requested from the
+	 * token endpoint. Concurrent requests for the same token share a
+	 * single request to the token endpoint.
+	 *
+	 * @param request The token request, with a client credentials or
+	 *                refresh token grant. Must not be {@code null}.
+	 *
+	 * @return The access token.
+	 *
+	 * @throws IOException      If the HTTP request failed and no token
+	 *                          within the stale grace time is available,
+	 *                          or the calling thread was interrupted.
+	 * @throws GeneralException If the token endpoint returned an error
+	 *                          response, or a {@link
+	 *                          com.nimbusds.oauth2.sdk.ParseException} if
+	 *                          the response couldn't be parsed.
+	 */
+	public AccessToken getAccessToken(final TokenRequest request)
+		throws IOException, GeneralException {
+
+		final CacheKey key = createKey(request);
+
+		CacheEntry entry = cache.get(key);
+
+		final long now = System.currentTimeMillis();
+
+		if (entry != null && entry.expiresAt > now) {
+
+			hits.incrementAndGet();
+
+			if (entry.refreshAt <= now) {
+				refreshInBackground(key, entry);
+			}
+
+			return entry.accessToken;
+		}
+
+		misses.incrementAndGet();
+
+		try {
+			return acquire(key, entry != null ? entry.request : request).accessToken;
+
+		} catch (IOException e) {
+
+			if (entry != null && entry.expiresAt + staleGrace * 1000L > System.currentTimeMillis()) {
+				staleHits.incrementAndGet();
+				return entry.accessToken;
+			}
+
+			throw e;
+		}
+	}
+
+
+	/**
+	 * Renews the specified cached access token in the background, unless
+	 * a renewal is already in progress.
+	 *
+	 * @param key   The cache key. Must not be {@code null}.
+	 * @param entry The cache entry. Must not be {@code null}.
+	 */
+	private void refreshInBackground(final CacheKey key, final CacheEntry entry) {
+
+		if (! entry.refreshing.compareAndSet(false, true)) {
+			return;
+		}
+
+		try {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						acquire(key, entry.request);
+					} catch (Exception e) {
+						// Keep the cached token, retry on next access
+						entry.refreshing.set(false);
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			entry.refreshing.set(false);
+		}
+	}
+
+
+	/**
+	 * Requests an access token from the token endpoint, unless a request
+	 * for the same key is already in flight, in which case its result is
+	 * awaited.
+	 *
+	 * @param key     The cache key. Must not be {@code null}.
+	 * @param request The token request. Must not be {@code null}.
+	 *
+	 * @return The new cache entry.
+	 *
+	 * @throws IOException      If the HTTP request failed or the calling
+	 *                          thread was interrupted.
+	 * @throws GeneralException If the token endpoint returned an error
+	 *                          response or the response couldn't be
+	 *                          parsed.
+	 */
+	private CacheEntry acquire(final CacheKey key, final TokenRequest request)
+		throws IOException, GeneralException {
+
+		try {
+			return inFlight.execute(key, new Callable<CacheEntry>() {
+				@Override
+				public CacheEntry call()
+					throws IOException, GeneralException {
+
+					return requestAndCache(key, request);
+				}
+			});
+
+		} catch (InterruptedException e) {
+
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while awaiting access token");
+
+		} catch (ExecutionException e) {
+
+			Throwable cause = e.getCause();
+
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if (cause instanceof GeneralException) {
+				throw (GeneralException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			} else {
+				throw new IOException(cause.getMessage(), cause);
+			}
+		}
+	}
+
+
+	/**
+	 * Requests an access token from the token endpoint and caches it.
+	 *
+	 * @param key     The cache key. Must not be {@code null}.
+	 * @param request The token request. Must not be {@code null}.
+	 *
+	 * @return The new cache entry.
+	 *
+	 * @throws IOException      If the HTTP request failed.
+	 * @throws GeneralException If the token endpoint returned an error
+	 *                          response or the response couldn't be
+	 *                          parsed.
+	 */
+	private CacheEntry requestAndCache(final CacheKey key, final TokenRequest request)
+		throws IOException, GeneralException {
+
+		TokenResponse response = TokenResponse.parse(send(request));
+
+		if (! response.indicatesSuccess()) {
+			// The grant or the client credentials are no longer valid
+			cache.remove(key);
+			ErrorObject error = ((TokenErrorResponse) response).getErrorObject();
+			throw new GeneralException("Token request failed: " + error.getCode(), error);
+		}
+
+		Tokens tokens = ((AccessTokenResponse) response).getTokens();
+
+		TokenRequest nextRequest = request;
+
+		if (tokens.getRefreshToken() != null && request.getAuthorizationGrant() instanceof RefreshTokenGrant) {
+			// Rotated refresh token
+			nextRequest = createTokenRequest(request, new RefreshTokenGrant(tokens.getRefreshToken()));
+		}
+
+		AccessToken accessToken = tokens.getAccessToken();
+
+		final long now = System.currentTimeMillis();
+
+		long expiresAt = Long.MAX_VALUE;
+		long refreshAt = Long.MAX_VALUE;
+
+		if (accessToken.getLifetime() > 0) {
+			long lifetime = accessToken.getLifetime() * 1000L;
+			expiresAt = now + lifetime;
+			refreshAt = expiresAt - Math.min(refreshAhead * 1000L, lifetime / 2);
+		}
+
+		CacheEntry entry = new CacheEntry(nextRequest, accessToken, expiresAt, refreshAt);
+		cache.put(key, entry);
+		return entry;
+	}
+
+
+	/**
+	 * Creates a copy of the specified token request with a new refresh
+	 * token grant.
+	 *
+	 * @param request The token request. Must not be {@code null}.
+	 * @param grant   The refresh token grant. Must not be {@code null}.
+	 *
+	 * @return The new token request.
+	 */
+	private static TokenRequest createTokenRequest(final TokenRequest request, final RefreshTokenGrant grant) {
+
+		if (request.getClientAuthentication() != null) {
+			return new TokenRequest(
+				request.getEndpointURI(),
+				request.getClientAuthentication(),
+				grant,
+				request.getScope(),
+				request.getCustomParameters());
+		}
+
+		return new TokenRequest(
+			request.getEndpointURI(),
+			request.getClientID(),
+			grant,
+			request.getScope(),
+			request.getCustomParameters());
+	}
+
+
+	/**
+	 * Removes the cached access token for the specified token request,
+	 * e.g. after it was rejected by the protected resource.
+	 *
+	 * @param request The token request. Must not be {@code null}.
+	 */
+	public void invalidate(final TokenRequest request) {
+
+		cache.remove(createKey(request));
+	}
+
+
+	/**
+	 * Removes all cached access tokens.
+	 */
+	public void clear() {
+
+		cache.clear();
+	}
+
+
+	/**
+	 * Shuts down the background token renewal. The cached tokens remain
+	 * available.
+	 */
+	public void shutdown() {
+
+		executor.shutdown();
+	}
+}
@@ -1,6 +1,10 @@
 package com.nimbusds.oauth2.sdk.token;
 
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
 import net.jcip.annotations.Immutable;
 
 import com.nimbusds.oauth2.sdk.id.Identifier;
@@ -32,6 +36,32 @@ public final class AccessTokenType extends Identifier {
 	public static final AccessTokenType UNKNOWN = new AccessTokenType("unknown");
 
 
+	/**
+	 * The standard access token types, keyed by value.
+	 */
+	private static final Map<String,AccessTokenType> WELL_KNOWN = createWellKnownValues(
+		BEARER, MAC, UNKNOWN);
+
+
+	/**
+	 * Creates a map of the specified standard access token types.
+	 *
+	 * @param values The standard access token types.
+	 *
+	 * @return The standard access token types, keyed by value.
+	 */
+	private static Map<String,AccessTokenType> createWellKnownValues(final AccessTokenType ... values) {
+
+		Map<String,AccessTokenType> map = new HashMap<>();
+
+		for (AccessTokenType type: values) {
+			map.put(type.getValue(), type);
+		}
+
+		return Collections.unmodifiableMap(map);
+	}
+
+
 	/**
 	 * Creates a new access token type with the specified value.
 	 *
@@ -44,10 +74,33 @@ public final class AccessTokenType extends Identifier {
 	}
 
 
+	/**
+	 * Parses an access token type from the specified value. Returns the
+	 * canonical instance for the standard types if the value matches
+	 * exactly, so that the original value is preserved.
+	 *
+	 * @param value The access token type value. Must not be {@code null}
+	 *              or empty string.
+	 *
+	 * @return The access token type.
+	 */
+	public static AccessTokenType parse(final String value) {
+
+		AccessTokenType canonical = WELL_KNOWN.get(value);
+
+		if (canonical != null) {
+			return canonical;
+		}
+
+		return new AccessTokenType(value);
+	}
+
+
 	@Override
 	public boolean equals(final Object object) {
 	
-		return object instanceof AccessTokenType &&
+		return this == object ||
+		       object instanceof AccessTokenType &&
 		       this.toString().equalsIgnoreCase(object.toString());
 	}
 }
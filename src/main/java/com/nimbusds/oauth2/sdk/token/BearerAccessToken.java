@@ -170,7 +170,7 @@ public final class BearerAccessToken extends AccessToken {
 		throws ParseException {
 
 		// Parse and verify type
-		AccessTokenType tokenType = new AccessTokenType(JSONObjectUtils.getString(jsonObject, "token_type"));
+		AccessTokenType tokenType = AccessTokenType.parse(JSONObjectUtils.getString(jsonObject, "token_type"));
 		
 		if (! tokenType.equals(AccessTokenType.BEARER))
 			throw new ParseException("Token type must be \"Bearer\"");
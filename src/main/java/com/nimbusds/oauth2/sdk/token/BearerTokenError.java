@@ -139,6 +139,13 @@ public class BearerTokenError extends ErrorObject {
 	 * Required scope, {@code null} if not specified.
 	 */
 	private final Scope scope;
+
+
+	/**
+	 * The cached {@code WWW-Authenticate} header value, {@code null} if
+	 * not serialised yet or a scope is specified.
+	 */
+	private volatile String wwwAuthHeader;
 	
 	
 	/**
@@ -304,6 +311,31 @@ public class BearerTokenError extends ErrorObject {
 	 */
 	public String toWWWAuthenticateHeader() {
 
+		if (scope != null) {
+			// The scope is mutable, don't cache
+			return composeWWWAuthenticateHeader();
+		}
+
+		// Immutable otherwise, serialise once
+		String s = wwwAuthHeader;
+
+		if (s == null) {
+			s = composeWWWAuthenticateHeader();
+			wwwAuthHeader = s;
+		}
+
+		return s;
+	}
+
+
+	/**
+	 * Composes the {@code WWW-Authenticate} HTTP response header value
+	 * for this bearer access token error.
+	 *
+	 * @return The {@code Www-Authenticate} header value.
+	 */
+	private String composeWWWAuthenticateHeader() {
+
 		StringBuilder sb = new StringBuilder("Bearer");
 		
 		int numParams = 0;
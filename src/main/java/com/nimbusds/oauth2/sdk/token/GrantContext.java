@@ -0,0 +1,291 @@
+package com.nimbusds.oauth2.sdk.token;
+
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Date;
+
+import net.jcip.annotations.Immutable;
+
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.oauth2.sdk.ParseException;
+import com.nimbusds.oauth2.sdk.Scope;
+import com.nimbusds.oauth2.sdk.id.ClientID;
+import com.nimbusds.oauth2.sdk.id.Subject;
+import com.nimbusds.oauth2.sdk.pkce.CodeChallenge;
+import com.nimbusds.oauth2.sdk.pkce.CodeChallengeMethod;
+
+
+/**
+ * The context of an authorisation grant, as captured by a self-contained
+ * authorisation code or refresh token.
+ *
+ * <p>Related specifications:
+ *
+ * <ul>
+ *     <li>OAuth 2.0 (RFC 6749), sections 1.3.1, 1.5 and 4.1.
+ *     <li>Proof Key for Code Exchange by OAuth Public Clients (RFC 7636).
+ * </ul>
+ *
+ * @see SelfContainedGrantCodec
+ */
+@Immutable
+public final class GrantContext {
+
+
+	/**
+	 * The client identifier.
+	 */
+	private final ClientID clientID;
+
+
+	/**
+	 * The subject (end-user), {@code null} if not specified.
+	 */
+	private final Subject subject;
+
+
+	/**
+	 * The authorised scope, {@code null} if not specified.
+	 */
+	private final Scope scope;
+
+
+	/**
+	 * The redirection URI, {@code null} if not specified.
+	 */
+	private final URI redirectURI;
+
+
+	/**
+	 * The PKCE code challenge, {@code null} if not specified.
+	 */
+	private final CodeChallenge codeChallenge;
+
+
+	/**
+	 * The PKCE code challenge method, {@code null} if not specified.
+	 */
+	private final CodeChallengeMethod codeChallengeMethod;
+
+
+	/**
+	 * The expiration time.
+	 */
+	private final Date exp;
+
+
+	/**
+	 * Creates a new grant context.
+	 *
+	 * @param clientID            The client identifier. Must not be
+	 *                            {@code null}.
+	 * @param subject             The subject (end-user), {@code null} if
+	 *                            not specified.
+	 * @param scope               The authorised scope, {@code null} if not
+	 *                            specified.
+	 * @param redirectURI         The redirection URI, {@code null} if not
+	 *                            specified.
+	 * @param codeChallenge       The PKCE code challenge, {@code null} if
+	 *                            not specified.
+	 * @param codeChallengeMethod The PKCE code challenge method,
+	 *                            {@code null} if not specified.
+	 * @param exp                 The expiration time. Must not be
+	 *                            {@code null}.
+	 */
+	public GrantContext(final ClientID clientID,
+			    final Subject subject,
+			    final Scope scope,
+			    final URI redirectURI,
+			    final CodeChallenge codeChallenge,
+			    final CodeChallengeMethod codeChallengeMethod,
+			    final Date exp) {
+
+		if (clientID == null)
+			throw new IllegalArgumentException("The client ID must not be null");
+
+		this.clientID = clientID;
+
+		this.subject = subject;
+		this.scope = scope;
+		this.redirectURI = redirectURI;
+		this.codeChallenge = codeChallenge;
+		this.codeChallengeMethod = codeChallengeMethod;
+
+		if (exp == null)
+			throw new IllegalArgumentException("The expiration time must not be null");
+
+		this.exp = exp;
+	}
+
+
+	/**
+	 * Gets the client identifier.
+	 *
+	 * @return The client identifier.
+	 */
+	public ClientID getClientID() {
+
+		return clientID;
+	}
+
+
+	/**
+	 * Gets the subject (end-user).
+	 *
+	 * @return The subject, {@code null} if not specified.
+	 */
+	public Subject getSubject() {
+
+		return subject;
+	}
+
+
+	/**
+	 * Gets the authorised scope.
+	 *
+	 * @return The scope, {@code null} if not specified.
+	 */
+	public Scope getScope() {
+
+		return scope;
+	}
+
+
+	/**
+	 * Gets the redirection URI.
+	 *
+	 * @return The redirection URI, {@code null} if not specified.
+	 */
+	public URI getRedirectionURI() {
+
+		return redirectURI;
+	}
+
+
+	/**
+	 * Gets the PKCE code challenge.
+	 *
+	 * @return The code challenge, {@code null} if not specified.
+	 */
+	public CodeChallenge getCodeChallenge() {
+
+		return codeChallenge;
+	}
+
+
+	/**
+	 * Gets the PKCE code challenge method.
+	 *
+	 * @return The code challenge method, {@code null} if not specified.
+	 */
+	public CodeChallengeMethod getCodeChallengeMethod() {
+
+		return codeChallengeMethod;
+	}
+
+
+	/**
+	 * Gets the expiration time.
+	 *
+	 * @return The expiration time.
+	 */
+	public Date getExpirationTime() {
+
+		return exp;
+	}
+
+
+	/**
+	 * Returns a JSON Web Token (JWT) claims set representation of this
+	 * grant context.
+	 *
+	 * @return The JWT claims set.
+	 */
+	public JWTClaimsSet toJWTClaimsSet() {
+
+		JWTClaimsSet.Builder builder = new JWTClaimsSet.Builder()
+			.claim("client_id", clientID.getValue())
+			.expirationTime(exp);
+
+		if (subject != null)
+			builder = builder.subject(subject.getValue());
+
+		if (scope != null)
+			builder = builder.claim("scope", scope.toString());
+
+		if (redirectURI != null)
+			builder = builder.claim("redirect_uri", redirectURI.toString());
+
+		if (codeChallenge != null)
+			builder = builder.claim("code_challenge", codeChallenge.getValue());
+
+		if (codeChallengeMethod != null)
+			builder = builder.claim("code_challenge_method", codeChallengeMethod.getValue());
+
+		return builder.build();
+	}
+
+
+	/**
+	 * Parses a grant context from the specified JSON Web Token (JWT)
+	 * claims set.
+	 *
+	 * @param claimsSet The JWT claims set. Must not be {@code null}.
+	 *
+	 * @return The grant context.
+	 *
+	 * @throws ParseException If the claims set couldn't be parsed to a
+	 *                        grant context.
+	 */
+	public static GrantContext parse(final JWTClaimsSet claimsSet)
+		throws ParseException {
+
+		try {
+			String clientIDString = claimsSet.getStringClaim("client_id");
+
+			if (clientIDString == null)
+				throw new ParseException("Missing client_id");
+
+			Date exp = claimsSet.getExpirationTime();
+
+			if (exp == null)
+				throw new ParseException("Missing expiration time");
+
+			Subject subject = null;
+
+			if (claimsSet.getSubject() != null)
+				subject = new Subject(claimsSet.getSubject());
+
+			Scope scope = Scope.parse(claimsSet.getStringClaim("scope"));
+
+			URI redirectURI = null;
+
+			if (claimsSet.getStringClaim("redirect_uri") != null)
+				redirectURI = new URI(claimsSet.getStringClaim("redirect_uri"));
+
+			CodeChallenge codeChallenge = null;
+
+			if (claimsSet.getStringClaim("code_challenge") != null)
+				codeChallenge = new CodeChallenge(claimsSet.getStringClaim("code_challenge"));
+
+			CodeChallengeMethod codeChallengeMethod = null;
+
+			if (claimsSet.getStringClaim("code_challenge_method") != null)
+				codeChallengeMethod = CodeChallengeMethod.parse(claimsSet.getStringClaim("code_challenge_method"));
+
+			return new GrantContext(
+				new ClientID(clientIDString),
+				subject,
+				scope,
+				redirectURI,
+				codeChallenge,
+				codeChallengeMethod,
+				exp);
+
+		} catch (java.text.ParseException | URISyntaxException | IllegalArgumentException e) {
+
+			throw new ParseException("Invalid grant context: " + e.getMessage(), e);
+		}
+	}
+}
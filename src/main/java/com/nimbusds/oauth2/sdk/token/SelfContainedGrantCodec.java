@@ -0,0 +1,300 @@
+package com.nimbusds.oauth2.sdk.token;
+
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import javax.crypto.SecretKey;
+
+import net.jcip.annotations.ThreadSafe;
+
+import com.nimbusds.jose.EncryptionMethod;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JOSEObjectType;
+import com.nimbusds.jose.JWEAlgorithm;
+import com.nimbusds.jose.JWEHeader;
+import com.nimbusds.jose.crypto.DirectDecrypter;
+import com.nimbusds.jose.crypto.DirectEncrypter;
+import com.nimbusds.jwt.EncryptedJWT;
+import com.nimbusds.oauth2.sdk.AuthorizationCode;
+import com.nimbusds.oauth2.sdk.GeneralException;
+import com.nimbusds.oauth2.sdk.OAuth2Error;
+import com.nimbusds.oauth2.sdk.ParseException;
+
+
+/**
+ * Encoder and decoder of self-contained authorisation codes and refresh
+ * tokens. The {@link GrantContext grant context} is encrypted and
+ * authenticated into the token value, so that it can be recovered at the
+ * token endpoint without a store lookup.
+ *
+ * <p>The token value is a JSON Web Encryption (JWE) object with direct
+ * symmetric key encryption ({@link JWEAlgorithm#DIR dir}). The content
+ * encryption method is determined by the key length:
+ *
+ * <ul>
+ *     <li>256 bits - {@link EncryptionMethod#A128CBC_HS256 A128CBC-HS256}
+ *     <li>384 bits - {@link EncryptionMethod#A192CBC_HS384 A192CBC-HS384}
+ *     <li>512 bits - {@link EncryptionMethod#A256CBC_HS512 A256CBC-HS512}
+ * </ul>
+ *
+ * <p>Key rotation is supported by identifying each key with a key ID,
+ * which is set in the JWE header. New tokens are encrypted with the
+ * current key, while tokens encrypted with any of the configured keys can
+ * be decoded.
+ *
+ * <p>Note that self-contained tokens cannot be revoked individually and
+ * one-time use of authorisation codes cannot be enforced without keeping
+ * some server-side state, such as a short-lived record of redeemed codes.
+ *
+ * <p>Related specifications:
+ *
+ * <ul>
+ *     <li>OAuth 2.0 (RFC 6749), sections 1.3.1 and 1.5.
+ *     <li>JSON Web Encryption (JWE) (RFC 7516).
+ * </ul>
+ */
+@ThreadSafe
+public class SelfContainedGrantCodec {
+
+
+	/**
+	 * The JOSE object type for authorisation codes.
+	 */
+	public static final JOSEObjectType AUTHORIZATION_CODE_TYPE = new JOSEObjectType("code");
+
+
+	/**
+	 * The JOSE object type for refresh tokens.
+	 */
+	public static final JOSEObjectType REFRESH_TOKEN_TYPE = new JOSEObjectType("refresh_token");
+
+
+	/**
+	 * The ID of the current key.
+	 */
+	private final String currentKeyID;
+
+
+	/**
+	 * The keys, by key ID.
+	 */
+	private final Map<String,SecretKey> keys;
+
+
+	/**
+	 * Creates a new codec for self-contained authorisation codes and
+	 * refresh tokens.
+	 *
+	 * @param currentKeyID The ID of the current key, used for encoding.
+	 *                     Must be present in the keys map.
+	 * @param keys         The keys, by key ID. Previous keys are kept in
+	 *                     the map for the lifetime of the tokens encoded
+	 *                     with them. Must not be {@code null}.
+	 */
+	public SelfContainedGrantCodec(final String currentKeyID, final Map<String,SecretKey> keys) {
+
+		if (keys == null)
+			throw new IllegalArgumentException("The keys must not be null");
+
+		if (currentKeyID == null || ! keys.containsKey(currentKeyID))
+			throw new IllegalArgumentException("The current key ID must match a configured key");
+
+		for (SecretKey key: keys.values()) {
+			getEncryptionMethod(key);
+		}
+
+		this.currentKeyID = currentKeyID;
+		this.keys = Collections.unmodifiableMap(new HashMap<>(keys));
+	}
+
+
+	/**
+	 * Returns the ID of the current key.
+	 *
+	 * @return The key ID.
+	 */
+	public String getCurrentKeyID() {
+
+		return currentKeyID;
+	}
+
+
+	/**
+	 * Returns the configured keys.
+	 *
+	 * @return The keys, by key ID.
+	 */
+	public Map<String,SecretKey> getKeys() {
+
+		return keys;
+	}
+
+
+	/**
+	 * Returns the content encryption method for the specified key.
+	 *
+	 * @param key The key. Must not be {@code null}.
+	 *
+	 * @return The encryption method.
+	 */
+	private static EncryptionMethod getEncryptionMethod(final SecretKey key) {
+
+		switch (key.getEncoded().length) {
+			case 32: return EncryptionMethod.A128CBC_HS256;
+			case 48: return EncryptionMethod.A192CBC_HS384;
+			case 64: return EncryptionMethod.A256CBC_HS512;
+			default:
+				throw new IllegalArgumentException("Unsupported key length, must be 256, 384 or 512 bits");
+		}
+	}
+
+
+	/**
+	 * Encodes the specified grant context into a token value.
+	 *
+	 * @param context The grant context. Must not be {@code null}.
+	 * @param type    The token type.
+	 *
+	 * @return The token value.
+	 */
+	private String encode(final GrantContext context, final JOSEObjectType type) {
+
+		SecretKey key = keys.get(currentKeyID);
+
+		JWEHeader header = new JWEHeader.Builder(JWEAlgorithm.DIR, getEncryptionMethod(key))
+			.type(type)
+			.keyID(currentKeyID)
+			.build();
+
+		EncryptedJWT jwt = new EncryptedJWT(header, context.toJWTClaimsSet());
+
+		try {
+			jwt.encrypt(new DirectEncrypter(key));
+		} catch (JOSEException e) {
+			throw new RuntimeException(e.getMessage(), e);
+		}
+
+		return jwt.serialize();
+	}
+
+
+	/**
+	 * Decodes the grant context from the specified token value.
+	 *
+	 * @param value The token value. Must not be {@code null}.
+	 * @param type  The expected token type.
+	 *
+	 * @return The grant context.
+	 *
+	 * @throws GeneralException If the token value is invalid or expired,
+	 *                          with an {@link OAuth2Error#INVALID_GRANT
+	 *                          invalid_grant} error.
+	 */
+	private GrantContext decode(final String value, final JOSEObjectType type)
+		throws GeneralException {
+
+		EncryptedJWT jwt;
+
+		try {
+			jwt = EncryptedJWT.parse(value);
+		} catch (java.text.ParseException e) {
+			throw new GeneralException("Invalid token: " + e.getMessage(), OAuth2Error.INVALID_GRANT, e);
+		}
+
+		if (! type.equals(jwt.getHeader().getType()))
+			throw new GeneralException("Invalid token: Unexpected type", OAuth2Error.INVALID_GRANT);
+
+		if (! JWEAlgorithm.DIR.equals(jwt.getHeader().getAlgorithm()))
+			throw new GeneralException("Invalid token: Unexpected algorithm", OAuth2Error.INVALID_GRANT);
+
+		SecretKey key = jwt.getHeader().getKeyID() != null ? keys.get(jwt.getHeader().getKeyID()) : null;
+
+		if (key == null)
+			throw new GeneralException("Invalid token: Unknown key ID", OAuth2Error.INVALID_GRANT);
+
+		if (! getEncryptionMethod(key).equals(jwt.getHeader().getEncryptionMethod()))
+			throw new GeneralException("Invalid token: Unexpected encryption method", OAuth2Error.INVALID_GRANT);
+
+		GrantContext context;
+
+		try {
+			jwt.decrypt(new DirectDecrypter(key));
+			context = GrantContext.parse(jwt.getJWTClaimsSet());
+		} catch (JOSEException | java.text.ParseException | ParseException e) {
+			throw new GeneralException("Invalid token: " + e.getMessage(), OAuth2Error.INVALID_GRANT, e);
+		}
+
+		if (context.getExpirationTime().before(new Date()))
+			throw new GeneralException("Expired token", OAuth2Error.INVALID_GRANT);
+
+		return context;
+	}
+
+
+	/**
+	 * Encodes the specified grant context into a self-contained
+	 * authorisation code.
+	 *
+	 * @param context The grant context. Must not be {@code null}.
+	 *
+	 * @return The authorisation code.
+	 */
+	public AuthorizationCode encodeAuthorizationCode(final GrantContext context) {
+
+		return new AuthorizationCode(encode(context, AUTHORIZATION_CODE_TYPE));
+	}
+
+
+	/**
+	 * Decodes the grant context from the specified self-contained
+	 * authorisation code.
+	 *
+	 * @param code The authorisation code. Must not be {@code null}.
+	 *
+	 * @return The grant context.
+	 *
+	 * @throws GeneralException If the code is invalid or expired, with an
+	 *                          {@link OAuth2Error#INVALID_GRANT
+	 *                          invalid_grant} error.
+	 */
+	public GrantContext decode(final AuthorizationCode code)
+		throws GeneralException {
+
+		return decode(code.getValue(), AUTHORIZATION_CODE_TYPE);
+	}
+
+
+	/**
+	 * Encodes the specified grant context into a self-contained refresh
+	 * token.
+	 *
+	 * @param context The grant context. Must not be {@code null}.
+	 *
+	 * @return The refresh token.
+	 */
+	public RefreshToken encodeRefreshToken(final GrantContext context) {
+
+		return new RefreshToken(encode(context, REFRESH_TOKEN_TYPE));
+	}
+
+
+	/**
+	 * Decodes the grant context from the specified self-contained refresh
+	 * token.
+	 *
+	 * @param refreshToken The refresh token. Must not be {@code null}.
+	 *
+	 * @return The grant context.
+	 *
+	 * @throws GeneralException If the refresh token is invalid or expired,
+	 *                          with an {@link OAuth2Error#INVALID_GRANT
+	 *                          invalid_grant} error.
+	 */
+	public GrantContext decode(final RefreshToken refreshToken)
+		throws GeneralException {
+
+		return decode(refreshToken.getValue(), REFRESH_TOKEN_TYPE);
+	}
+}
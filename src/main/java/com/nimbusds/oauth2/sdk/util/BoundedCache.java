@@ -0,0 +1,250 @@
+package com.nimbusds.oauth2.sdk.util;
+
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.jcip.annotations.ThreadSafe;
+
+
+/**
+ * Size-bounded, concurrent cache with least-recently-used (LRU) eviction.
+ * The entries are spread over a number of independently locked segments,
+ * each with its own share of the maximum size, so eviction is LRU per
+ * segment. Keeps hit and miss counts.
+ *
+ * @param <K> The key type.
+ * @param <V> The value type.
+ */
+@ThreadSafe
+public class BoundedCache<K,V> {
+
+
+	/**
+	 * The maximum number of segments.
+	 */
+	private static final int MAX_SEGMENTS = 16;
+
+
+	/**
+	 * Cache segment.
+	 */
+	private static final class Segment<K,V> extends LinkedHashMap<K,V> {
+
+
+		private static final long serialVersionUID = 1L;
+
+
+		/**
+		 * The maximum segment size.
+		 */
+		private final int maxSize;
+
+
+		private Segment(final int maxSize) {
+			super(16, 0.75f, true);
+			this.maxSize = maxSize;
+		}
+
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<K,V> eldest) {
+			return size() > maxSize;
+		}
+	}
+
+
+	/**
+	 * The maximum number of entries.
+	 */
+	private final int maxSize;
+
+
+	/**
+	 * The segments.
+	 */
+	private final Segment<K,V>[] segments;
+
+
+	/**
+	 * The hit count.
+	 */
+	private final AtomicLong hits = new AtomicLong();
+
+
+	/**
+	 * The miss count.
+	 */
+	private final AtomicLong misses = new AtomicLong();
+
+
+	/**
+	 * Creates a new bounded cache.
+	 *
+	 * @param maxSize The maximum number of entries. Must be a positive
+	 *                integer.
+	 */
+	@SuppressWarnings("unchecked")
+	public BoundedCache(final int maxSize) {
+
+		if (maxSize < 1)
+			throw new IllegalArgumentException("The max cache size must be a positive integer");
+
+		this.maxSize = maxSize;
+
+		int numSegments = Math.min(MAX_SEGMENTS, maxSize);
+
+		segments = new Segment[numSegments];
+
+		for (int i=0; i < numSegments; i++) {
+			// Distribute the remainder over the first segments
+			int segmentMaxSize = maxSize / numSegments + (i < maxSize % numSegments ? 1 : 0);
+			segments[i] = new Segment<>(segmentMaxSize);
+		}
+	}
+
+
+	/**
+	 * Returns the segment for the specified key.
+	 *
+	 * @param key The key. Must not be {@code null}.
+	 *
+	 * @return The segment.
+	 */
+	private Segment<K,V> segmentFor(final Object key) {
+
+		int h = key.hashCode();
+		h ^= (h >>> 16);
+		return segments[(h & 0x7fffffff) % segments.length];
+	}
+
+
+	/**
+	 * Returns the maximum number of entries.
+	 *
+	 * @return The maximum size.
+	 */
+	public int getMaxSize() {
+
+		return maxSize;
+	}
+
+
+	/**
+	 * Gets the cached value for the specified key.
+	 *
+	 * @param key The key. Must not be {@code null}.
+	 *
+	 * @return The value, {@code null} if not cached.
+	 */
+	public V get(final K key) {
+
+		Segment<K,V> segment = segmentFor(key);
+
+		V value;
+
+		synchronized (segment) {
+			value = segment.get(key);
+		}
+
+		if (value != null) {
+			hits.incrementAndGet();
+		} else {
+			misses.incrementAndGet();
+		}
+
+		return value;
+	}
+
+
+	/**
+	 * Caches the specified value. The least recently used entry of the
+	 * segment is evicted if its share of the maximum size is exceeded.
+	 *
+	 * @param key   The key. Must not be {@code null}.
+	 * @param value The value. Must not be {@code null}.
+	 */
+	public void put(final K key, final V value) {
+
+		if (value == null)
+			throw new IllegalArgumentException("The value must not be null");
+
+		Segment<K,V> segment = segmentFor(key);
+
+		synchronized (segment) {
+			segment.put(key, value);
+		}
+	}
+
+
+	/**
+	 * Removes the cached value for the specified key.
+	 *
+	 * @param key The key. Must not be {@code null}.
+	 *
+	 * @return The removed value, {@code null} if none.
+	 */
+	public V remove(final K key) {
+
+		Segment<K,V> segment = segmentFor(key);
+
+		synchronized (segment) {
+			return segment.remove(key);
+		}
+	}
+
+
+	/**
+	 * Removes all cached entries.
+	 */
+	public void clear() {
+
+		for (Segment<K,V> segment: segments) {
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
+	}
+
+
+	/**
+	 * Returns the number of cached entries.
+	 *
+	 * @return The number of entries.
+	 */
+	public int size() {
+
+		int size = 0;
+
+		for (Segment<K,V> segment: segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+
+		return size;
+	}
+
+
+	/**
+	 * Returns the number of lookups that found a cached value.
+	 *
+	 * @return The hit count.
+	 */
+	public long getHitCount() {
+
+		return hits.get();
+	}
+
+
+	/**
+	 * Returns the number of lookups that found no cached value.
+	 *
+	 * @return The miss count.
+	 */
+	public long getMissCount() {
+
+		return misses.get();
+	}
+}
@@ -0,0 +1,207 @@
+package com.nimbusds.oauth2.sdk.util;
+
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Provider;
+import java.util.HashMap;
+import java.util.Map;
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.NoSuchPaddingException;
+
+
+/**
+ * Per-thread pool of message digest, MAC and cipher instances. Avoids the
+ * JCA provider lookup that {@code getInstance} performs on every call.
+ *
+ * <p>The returned instances are owned by the calling thread and must not be
+ * shared with other threads or kept beyond the current operation, as the
+ * next request for the same algorithm and provider on the thread will
+ * return the same instance. Message digests and MACs are reset before
+ * they are returned; ciphers must be initialised by the caller.
+ */
+public class CryptoPool {
+
+
+	/**
+	 * The per-thread instances, keyed by type, algorithm and provider.
+	 */
+	private static final ThreadLocal<Map<Key,Object>> instances = new ThreadLocal<Map<Key,Object>>() {
+		@Override
+		protected Map<Key,Object> initialValue() {
+			return new HashMap<>();
+		}
+	};
+
+
+	/**
+	 * Pool key.
+	 */
+	private static final class Key {
+
+
+		/**
+		 * The primitive type.
+		 */
+		private final Class<?> type;
+
+
+		/**
+		 * The algorithm or transformation.
+		 */
+		private final String alg;
+
+
+		/**
+		 * The provider, {@code null} for the default one.
+		 */
+		private final Provider provider;
+
+
+		private Key(final Class<?> type, final String alg, final Provider provider) {
+			this.type = type;
+			this.alg = alg;
+			this.provider = provider;
+		}
+
+
+		@Override
+		public boolean equals(final Object o) {
+			if (this == o) return true;
+			if (! (o instanceof Key)) return false;
+			Key that = (Key) o;
+			return type == that.type && alg.equals(that.alg) && provider == that.provider;
+		}
+
+
+		@Override
+		public int hashCode() {
+			int result = type.hashCode();
+			result = 31 * result + alg.hashCode();
+			result = 31 * result + (provider != null ? System.identityHashCode(provider) : 0);
+			return result;
+		}
+	}
+
+
+	/**
+	 * Gets a message digest for the specified algorithm.
+	 *
+	 * @param alg      The message digest algorithm. Must not be
+	 *                 {@code null}.
+	 * @param provider The security provider, {@code null} for the default
+	 *                 one.
+	 *
+	 * @return The reset message digest, owned by the calling thread.
+	 *
+	 * @throws NoSuchAlgorithmException If the algorithm isn't supported.
+	 */
+	public static MessageDigest getMessageDigest(final String alg, final Provider provider)
+		throws NoSuchAlgorithmException {
+
+		Key key = new Key(MessageDigest.class, alg, provider);
+
+		Map<Key,Object> map = instances.get();
+
+		MessageDigest md = (MessageDigest) map.get(key);
+
+		if (md != null) {
+			md.reset();
+			return md;
+		}
+
+		md = provider != null ? MessageDigest.getInstance(alg, provider) : MessageDigest.getInstance(alg);
+		map.put(key, md);
+		return md;
+	}
+
+
+	/**
+	 * Gets a MAC for the specified algorithm.
+	 *
+	 * @param alg      The MAC algorithm. Must not be {@code null}.
+	 * @param provider The security provider, {@code null} for the default
+	 *                 one.
+	 *
+	 * @return The MAC, owned by the calling thread. If it was previously
+	 *         initialised it is reset, else it must be initialised by the
+	 *         caller.
+	 *
+	 * @throws NoSuchAlgorithmException If the algorithm isn't supported.
+	 */
+	public static Mac getMac(final String alg, final Provider provider)
+		throws NoSuchAlgorithmException {
+
+		Key key = new Key(Mac.class, alg, provider);
+
+		Map<Key,Object> map = instances.get();
+
+		Mac mac = (Mac) map.get(key);
+
+		if (mac != null) {
+			mac.reset();
+			return mac;
+		}
+
+		mac = provider != null ? Mac.getInstance(alg, provider) : Mac.getInstance(alg);
+		map.put(key, mac);
+		return mac;
+	}
+
+
+	/**
+	 * Gets a cipher for the specified transformation.
+	 *
+	 * @param transformation The cipher transformation, e.g.
+	 *                       "AES/CBC/PKCS5Padding". Must not be
+	 *                       {@code null}.
+	 * @param provider       The security provider, {@code null} for the
+	 *                       default one.
+	 *
+	 * @return The cipher, owned by the calling thread. Must be initialised
+	 *         by the caller.
+	 *
+	 * @throws NoSuchAlgorithmException If the transformation isn't
+	 *                                  supported.
+	 * @throws NoSuchPaddingException   If the padding scheme isn't
+	 *                                  supported.
+	 */
+	public static Cipher getCipher(final String transformation, final Provider provider)
+		throws NoSuchAlgorithmException, NoSuchPaddingException {
+
+		Key key = new Key(Cipher.class, transformation, provider);
+
+		Map<Key,Object> map = instances.get();
+
+		Cipher cipher = (Cipher) map.get(key);
+
+		if (cipher != null) {
+			return cipher;
+		}
+
+		cipher = provider != null ? Cipher.getInstance(transformation, provider) : Cipher.getInstance(transformation);
+		map.put(key, cipher);
+		return cipher;
+	}
+
+
+	/**
+	 * Removes all pooled instances of the calling thread. May be called
+	 * by applications that run on thread pools they don't own, such as
+	 * those of servlet containers, to prevent class loader leaks.
+	 */
+	public static void clear() {
+
+		instances.remove();
+	}
+
+
+	/**
+	 * Prevents instantiation.
+	 */
+	private CryptoPool() {
+
+		// do nothing
+	}
+}
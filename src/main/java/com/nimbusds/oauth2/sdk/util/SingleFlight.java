@@ -0,0 +1,78 @@
+package com.nimbusds.oauth2.sdk.util;
+
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import net.jcip.annotations.ThreadSafe;
+
+
+/**
+ * Collapses concurrent calls for the same key into a single execution. The
+ * first caller for a key executes the call on its own thread, while
+ * subsequent callers for the same key block until the call completes and
+ * share its result or exception. Once a call completes, the next call for
+ * the key executes anew.
+ *
+ * @param <K> The key type.
+ * @param <V> The result type.
+ */
+@ThreadSafe
+public class SingleFlight<K,V> {
+
+
+	/**
+	 * The calls in flight.
+	 */
+	private final ConcurrentMap<K,FutureTask<V>> calls = new ConcurrentHashMap<>();
+
+
+	/**
+	 * Executes the specified call, unless a call for the same key is
+	 * already in flight, in which case its result is awaited.
+	 *
+	 * @param key      The key. Must not be {@code null}.
+	 * @param callable The call. Must not be {@code null}.
+	 *
+	 * @return The call result.
+	 *
+	 * @throws ExecutionException   If the call threw an exception,
+	 *                              available as the cause.
+	 * @throws InterruptedException If the calling thread was interrupted
+	 *                              while awaiting the result of another
+	 *                              caller.
+	 */
+	public V execute(final K key, final Callable<V> callable)
+		throws ExecutionException, InterruptedException {
+
+		FutureTask<V> task = new FutureTask<>(callable);
+
+		FutureTask<V> inFlight = calls.putIfAbsent(key, task);
+
+		if (inFlight != null) {
+			return inFlight.get();
+		}
+
+		try {
+			task.run();
+		} finally {
+			calls.remove(key, task);
+		}
+
+		return task.get();
+	}
+
+
+	/**
+	 * Returns the number of calls currently in flight.
+	 *
+	 * @return The number of calls in flight.
+	 */
+	public int getInFlightCount() {
+
+		return calls.size();
+	}
+}
@@ -177,26 +177,26 @@ public class AuthenticationRequest extends AuthorizationRequest {
 		/**
 		 * The response type (required).
 		 */
-		private final ResponseType rt;
+		private ResponseType rt;
 
 
 		/**
 		 * The client identifier (required).
 		 */
-		private final ClientID clientID;
+		private ClientID clientID;
 
 
 		/**
 		 * The redirection URI where the response will be sent
 		 * (required).
 		 */
-		private final URI redirectURI;
+		private URI redirectURI;
 
 
 		/**
 		 * The scope (required).
 		 */
-		private final Scope scope;
+		private Scope scope;
 
 
 		/**
@@ -361,6 +361,121 @@ public class AuthenticationRequest extends AuthorizationRequest {
 		}
 
 
+		/**
+		 * Creates a new OpenID Connect authentication request builder
+		 * from the specified request.
+		 *
+		 * @param request The OpenID Connect authentication request.
+		 *                Must not be {@code null}.
+		 */
+		public Builder(final AuthenticationRequest request) {
+
+			uri = request.getEndpointURI();
+			rt = request.getResponseType();
+			rm = request.getResponseMode();
+			scope = request.getScope();
+			clientID = request.getClientID();
+			redirectURI = request.getRedirectionURI();
+			state = request.getState();
+			nonce = request.getNonce();
+			display = request.getDisplay();
+			prompt = request.getPrompt();
+			maxAge = request.getMaxAge();
+			uiLocales = request.getUILocales();
+			claimsLocales = request.getClaimsLocales();
+			idTokenHint = request.getIDTokenHint();
+			loginHint = request.getLoginHint();
+			acrValues = request.getACRValues();
+			claims = request.getClaims();
+			requestObject = request.getRequestObject();
+			requestURI = request.getRequestURI();
+			codeChallenge = request.getCodeChallenge();
+			codeChallengeMethod = request.getCodeChallengeMethod();
+			customParams.putAll(request.getCustomParameters());
+		}
+
+
+		/**
+		 * Sets the response type. Corresponds to the
+		 * {@code response_type} parameter.
+		 *
+		 * @param rt The response type. Must specify a valid OpenID
+		 *           Connect response type. Must not be {@code null}.
+		 *
+		 * @return This builder.
+		 */
+		public Builder responseType(final ResponseType rt) {
+
+			if (rt == null)
+				throw new IllegalArgumentException("The response type must not be null");
+
+			OIDCResponseTypeValidator.validate(rt);
+
+			this.rt = rt;
+			return this;
+		}
+
+
+		/**
+		 * Sets the scope. Corresponds to the {@code scope} parameter.
+		 *
+		 * @param scope The scope. Must contain an
+		 *              {@link OIDCScopeValue#OPENID openid value}.
+		 *              Must not be {@code null}.
+		 *
+		 * @return This builder.
+		 */
+		public Builder scope(final Scope scope) {
+
+			if (scope == null)
+				throw new IllegalArgumentException("The scope must not be null");
+
+			if (! scope.contains(OIDCScopeValue.OPENID))
+				throw new IllegalArgumentException("The scope must include an \"openid\" value");
+
+			this.scope = scope;
+			return this;
+		}
+
+
+		/**
+		 * Sets the client identifier. Corresponds to the
+		 * {@code client_id} parameter.
+		 *
+		 * @param clientID The client identifier. Must not be
+		 *                 {@code null}.
+		 *
+		 * @return This builder.
+		 */
+		public Builder clientID(final ClientID clientID) {
+
+			if (clientID == null)
+				throw new IllegalArgumentException("The client ID must not be null");
+
+			this.clientID = clientID;
+			return this;
+		}
+
+
+		/**
+		 * Sets the redirection URI. Corresponds to the
+		 * {@code redirect_uri} parameter.
+		 *
+		 * @param redirectURI The redirection URI. Must not be
+		 *                    {@code null} unless set by means of the
+		 *                    optional {@code request_object} /
+		 *                    {@code request_uri} parameter.
+		 *
+		 * @return This builder.
+		 */
+		public Builder redirectionURI(final URI redirectURI) {
+
+			// Check presence at build time
+			this.redirectURI = redirectURI;
+			return this;
+		}
+
+
 		/**
 		 * Sets the state. Corresponds to the recommended {@code state}
 		 * parameter.
@@ -0,0 +1,316 @@
+package com.nimbusds.openid.connect.sdk;
+
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.nimbusds.openid.connect.sdk.claims.ClaimRequirement;
+import com.nimbusds.openid.connect.sdk.claims.ClaimsSet;
+import com.nimbusds.openid.connect.sdk.claims.UserInfo;
+import net.jcip.annotations.Immutable;
+
+
+/**
+ * Compiled projection of a claims set onto the individual claims requested
+ * for the UserInfo endpoint or the ID token. The projection is compiled
+ * once from the claims request entries and copies the requested claims
+ * from a source claims set, such as a full user profile, in a single pass.
+ *
+ * <p>Projection rules:
+ *
+ * <ul>
+ *     <li>A claim requested without a language tag matches the base claim
+ *         and all its language-tagged variants, e.g. {@code name} and
+ *         {@code name#ja-Kana-JP}.
+ *     <li>A claim requested with a language tag matches only the claim
+ *         with that language tag, unless the claim was also requested
+ *         without a language tag.
+ *     <li>A claim requested with a value or values is only copied if its
+ *         value matches.
+ * </ul>
+ *
+ * <p>Example:
+ *
+ * <pre>
+ * ClaimsProjection projection = ClaimsProjection.forUserInfo(ClaimsRequest.resolve(authRequest));
+ *
+ * UserInfo userInfo = projection.project(userProfile);
+ * </pre>
+ *
+ * <p>Related specifications:
+ *
+ * <ul>
+ *     <li>OpenID Connect Core 1.0, section 5.5.
+ * </ul>
+ */
+@Immutable
+public final class ClaimsProjection {
+
+
+	/**
+	 * Compiled projection rule for a claim base name.
+	 */
+	@Immutable
+	private static final class Rule {
+
+
+		/**
+		 * The claim request entry without a language tag, {@code null}
+		 * if none.
+		 */
+		private final ClaimsRequest.Entry baseEntry;
+
+
+		/**
+		 * The claim request entries with a language tag, keyed by
+		 * lower case language tag.
+		 */
+		private final Map<String,ClaimsRequest.Entry> langTaggedEntries;
+
+
+		/**
+		 * Creates a new projection rule.
+		 *
+		 * @param baseEntry         The claim request entry without a
+		 *                          language tag, {@code null} if none.
+		 * @param langTaggedEntries The claim request entries with a
+		 *                          language tag, keyed by lower case
+		 *                          language tag.
+		 */
+		private Rule(final ClaimsRequest.Entry baseEntry,
+			     final Map<String,ClaimsRequest.Entry> langTaggedEntries) {
+
+			this.baseEntry = baseEntry;
+			this.langTaggedEntries = langTaggedEntries;
+		}
+
+
+		/**
+		 * Returns the claim request entry matching the specified
+		 * language tag.
+		 *
+		 * @param langTag The lower case language tag, {@code null} if
+		 *                none.
+		 *
+		 * @return The matching claim request entry, {@code null} if
+		 *         none.
+		 */
+		private ClaimsRequest.Entry match(final String langTag) {
+
+			if (langTag == null) {
+				return baseEntry;
+			}
+
+			ClaimsRequest.Entry entry = langTaggedEntries.get(langTag);
+
+			return entry != null ? entry : baseEntry;
+		}
+	}
+
+
+	/**
+	 * The compiled projection rules, keyed by claim base name.
+	 */
+	private final Map<String,Rule> rules;
+
+
+	/**
+	 * The names of the essential claims, with optional language tags.
+	 */
+	private final Set<String> essentialClaimNames;
+
+
+	/**
+	 * Compiles a new claims projection from the specified claim request
+	 * entries.
+	 *
+	 * @param entries The claim request entries. Must not be {@code null}.
+	 */
+	public ClaimsProjection(final Collection<ClaimsRequest.Entry> entries) {
+
+		if (entries == null)
+			throw new IllegalArgumentException("The claim request entries must not be null");
+
+		Map<String,ClaimsRequest.Entry> baseEntries = new HashMap<>();
+		Map<String,Map<String,ClaimsRequest.Entry>> langTaggedEntries = new HashMap<>();
+		Set<String> essential = new HashSet<>();
+
+		for (ClaimsRequest.Entry entry: entries) {
+
+			String name = entry.getClaimName();
+
+			if (entry.getLangTag() == null) {
+				baseEntries.put(name, entry);
+			} else {
+				Map<String,ClaimsRequest.Entry> tagged = langTaggedEntries.get(name);
+				if (tagged == null) {
+					tagged = new HashMap<>();
+					langTaggedEntries.put(name, tagged);
+				}
+				tagged.put(entry.getLangTag().toString().toLowerCase(), entry);
+			}
+
+			if (ClaimRequirement.ESSENTIAL.equals(entry.getClaimRequirement())) {
+				essential.add(entry.getClaimName(true));
+			}
+		}
+
+		Set<String> names = new HashSet<>(baseEntries.keySet());
+		names.addAll(langTaggedEntries.keySet());
+
+		Map<String,Rule> compiled = new HashMap<>();
+
+		for (String name: names) {
+
+			Map<String,ClaimsRequest.Entry> tagged = langTaggedEntries.get(name);
+
+			compiled.put(name, new Rule(
+				baseEntries.get(name),
+				tagged != null ? tagged : Collections.<String,ClaimsRequest.Entry>emptyMap()));
+		}
+
+		rules = Collections.unmodifiableMap(compiled);
+		essentialClaimNames = Collections.unmodifiableSet(essential);
+	}
+
+
+	/**
+	 * Compiles a new claims projection for the UserInfo claims of the
+	 * specified claims request.
+	 *
+	 * @param claimsRequest The claims request. Must not be {@code null}.
+	 *
+	 * @return The claims projection.
+	 */
+	public static ClaimsProjection forUserInfo(final ClaimsRequest claimsRequest) {
+
+		return new ClaimsProjection(claimsRequest.getUserInfoClaims());
+	}
+
+
+	/**
+	 * Compiles a new claims projection for the ID token claims of the
+	 * specified claims request.
+	 *
+	 * @param claimsRequest The claims request. Must not be {@code null}.
+	 *
+	 * @return The claims projection.
+	 */
+	public static ClaimsProjection forIDToken(final ClaimsRequest claimsRequest) {
+
+		return new ClaimsProjection(claimsRequest.getIDTokenClaims());
+	}
+
+
+	/**
+	 * Returns the base names of the requested claims.
+	 *
+	 * @return The requested claim base names.
+	 */
+	public Set<String> getClaimNames() {
+
+		return rules.keySet();
+	}
+
+
+	/**
+	 * Returns the names of the claims requested as essential.
+	 *
+	 * @return The essential claim names, with optional language tags,
+	 *         empty set if none.
+	 */
+	public Set<String> getEssentialClaimNames() {
+
+		return essentialClaimNames;
+	}
+
+
+	/**
+	 * Checks if the specified claim value matches the value constraints
+	 * of the specified claim request entry.
+	 *
+	 * @param entry The claim request entry.
+	 * @param value The claim value.
+	 *
+	 * @return {@code true} if the value matches or no value constraint is
+	 *         specified, else {@code false}.
+	 */
+	private static boolean matchesValue(final ClaimsRequest.Entry entry, final Object value) {
+
+		String requiredValue = entry.getValue();
+
+		if (requiredValue != null) {
+			return requiredValue.equals(value.toString());
+		}
+
+		List<String> requiredValues = entry.getValues();
+
+		if (requiredValues != null) {
+			return requiredValues.contains(value.toString());
+		}
+
+		return true;
+	}
+
+
+	/**
+	 * Copies the requested claims from the specified source claims set to
+	 * the specified target claims set.
+	 *
+	 * @param source The source claims set. Must not be {@code null}.
+	 * @param target The target claims set, e.g. an ID token claims set.
+	 *               Must not be {@code null}.
+	 */
+	public void project(final ClaimsSet source, final ClaimsSet target) {
+
+		for (String key: source.getClaimNames()) {
+
+			int pos = key.indexOf('#');
+
+			String name = pos < 0 ? key : key.substring(0, pos);
+
+			Rule rule = rules.get(name);
+
+			if (rule == null) {
+				continue; // not requested
+			}
+
+			ClaimsRequest.Entry entry = rule.match(pos < 0 ? null : key.substring(pos + 1).toLowerCase());
+
+			if (entry == null) {
+				continue;
+			}
+
+			// Only requested values are retrieved, and copied if frozen
+			Object value = source.getClaim(key);
+
+			if (value != null && matchesValue(entry, value)) {
+				target.setClaim(key, value);
+			}
+		}
+	}
+
+
+	/**
+	 * Creates a new UserInfo claims set with the requested claims from
+	 * the specified source UserInfo claims set, such as a full user
+	 * profile.
+	 *
+	 * @param source The source UserInfo claims set. Must not be
+	 *               {@code null}.
+	 *
+	 * @return The projected UserInfo claims set, with the subject of the
+	 *         source.
+	 */
+	public UserInfo project(final UserInfo source) {
+
+		UserInfo userInfo = new UserInfo(source.getSubject());
+		project(source, userInfo);
+		return userInfo;
+	}
+}
@@ -1,6 +1,7 @@
 package com.nimbusds.openid.connect.sdk;
 
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
@@ -431,6 +432,51 @@ public class ClaimsRequest {
 	}
 
 
+	/**
+	 * The standard OpenID Connect scope values which resolve to individual
+	 * claims, the array index is the bit position in the scope masks.
+	 */
+	private static final OIDCScopeValue[] CLAIM_SCOPE_VALUES = {
+		OIDCScopeValue.PROFILE,
+		OIDCScopeValue.EMAIL,
+		OIDCScopeValue.PHONE,
+		OIDCScopeValue.ADDRESS
+	};
+
+
+	/**
+	 * Precomputed immutable claims request entries for each combination
+	 * of the {@link #CLAIM_SCOPE_VALUES claim scope values}, indexed by
+	 * scope mask.
+	 */
+	private static final List<Map<ImmutablePair<String,LangTag>,Entry>> SCOPE_CLAIMS_TABLE;
+
+
+	static {
+		List<Map<ImmutablePair<String,LangTag>,Entry>> table = new ArrayList<>(1 << CLAIM_SCOPE_VALUES.length);
+
+		for (int mask=0; mask < 1 << CLAIM_SCOPE_VALUES.length; mask++) {
+
+			Map<ImmutablePair<String,LangTag>,Entry> entries = new HashMap<>();
+
+			for (int i=0; i < CLAIM_SCOPE_VALUES.length; i++) {
+
+				if ((mask & (1 << i)) == 0) {
+					continue;
+				}
+
+				for (Entry en: CLAIM_SCOPE_VALUES[i].toClaimsRequestEntries()) {
+					entries.put(new ImmutablePair<>(en.getClaimName(), en.getLangTag()), en);
+				}
+			}
+
+			table.add(Collections.unmodifiableMap(entries));
+		}
+
+		SCOPE_CLAIMS_TABLE = Collections.unmodifiableList(table);
+	}
+
+
 	/**
 	 * The requested ID token claims, keyed by claim name and language tag.
 	 */
@@ -876,6 +922,10 @@ public class ClaimsRequest {
 	 * OpenID Connect scope values} are resolved to their respective
 	 * individual claims requests, any other scope values are ignored.
 	 *
+	 * <p>The individual claims requests for each combination of standard
+	 * scope values are precomputed, resolution only copies the matching
+	 * entries into the returned claims request.
+	 *
 	 * @param responseType The response type. Must not be {@code null}.
 	 * @param scope        The scope. Must not be {@code null}.
 	 * 
@@ -889,41 +939,27 @@ public class ClaimsRequest {
 			! responseType.contains(ResponseType.Value.CODE) &&
 			! responseType.contains(ResponseType.Value.TOKEN);
 
-		ClaimsRequest claimsRequest = new ClaimsRequest();
-		
+		// Compute the mask of the standard scope values
+		int mask = 0;
+
 		for (Scope.Value value: scope) {
-			
-			Set<ClaimsRequest.Entry> entries;
-			
-			if (value.equals(OIDCScopeValue.PROFILE)) {
-				
-				entries = OIDCScopeValue.PROFILE.toClaimsRequestEntries();
-				
-			} else if (value.equals(OIDCScopeValue.EMAIL)) {
-				
-				entries = OIDCScopeValue.EMAIL.toClaimsRequestEntries();
-				
-			} else if (value.equals(OIDCScopeValue.PHONE)) {
-				
-				entries = OIDCScopeValue.PHONE.toClaimsRequestEntries();
-				
-			} else if (value.equals(OIDCScopeValue.ADDRESS)) {
-				
-				entries = OIDCScopeValue.ADDRESS.toClaimsRequestEntries();
-				
-			} else {
-				
-				continue; // skip
-			}
-			
-			for (ClaimsRequest.Entry en: entries) {
 
-				if (switchToIDToken)
-					claimsRequest.addIDTokenClaim(en);
-				else
-					claimsRequest.addUserInfoClaim(en);
+			for (int i=0; i < CLAIM_SCOPE_VALUES.length; i++) {
+
+				if (value.equals(CLAIM_SCOPE_VALUES[i])) {
+					mask |= 1 << i;
+					break;
+				}
 			}
 		}
+
+		ClaimsRequest claimsRequest = new ClaimsRequest();
+
+		// Copy the precomputed entries
+		if (switchToIDToken)
+			claimsRequest.idTokenClaims.putAll(SCOPE_CLAIMS_TABLE.get(mask));
+		else
+			claimsRequest.userInfoClaims.putAll(SCOPE_CLAIMS_TABLE.get(mask));
 		
 		return claimsRequest;
 	}
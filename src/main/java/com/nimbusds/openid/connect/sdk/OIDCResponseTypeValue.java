@@ -24,14 +24,14 @@ public class OIDCResponseTypeValue {
 	/**
 	 * ID Token response type.
 	 */
-	public static final ResponseType.Value ID_TOKEN = new ResponseType.Value("id_token");
+	public static final ResponseType.Value ID_TOKEN = ResponseType.Value.parse("id_token");
 
 
 	/**
 	 * None response type, should not be combined with other response type
 	 * values.
 	 */
-	public static final ResponseType.Value NONE = new ResponseType.Value("none");
+	public static final ResponseType.Value NONE = ResponseType.Value.parse("none");
 
 
 	/**
@@ -4,29 +4,224 @@ package com.nimbusds.openid.connect.sdk.claims;
 import java.net.URI;
 import java.net.URL;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.mail.internet.InternetAddress;
 
 import com.nimbusds.jose.util.DateUtils;
 import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.langtag.LangTag;
+import com.nimbusds.langtag.LangTagException;
 import com.nimbusds.langtag.LangTagUtils;
 import com.nimbusds.oauth2.sdk.ParseException;
 import com.nimbusds.oauth2.sdk.util.JSONObjectUtils;
+import net.minidev.json.JSONArray;
 import net.minidev.json.JSONObject;
 
 
 /**
  * Claims set serialisable to a JSON object.
+ *
+ * <p>The typed values returned by the URL, URI, email and date claim
+ * getters are cached per claim, and re-parsed only when the claim value is
+ * replaced. Typed values parsed from JSON arrays and objects, which can be
+ * modified in place, are only cached once the claims set is frozen. A
+ * claims set can be {@link #freeze frozen} to make it read-only, e.g. for
+ * sharing between threads.
  */
 public abstract class ClaimsSet {
 
 
+	/**
+	 * Parser of typed claim values.
+	 */
+	protected interface ClaimParser<T> {
+
+
+		/**
+		 * Parses the specified claim to a typed value.
+		 *
+		 * @param claims The JSON object with the claims. Not
+		 *               {@code null}.
+		 * @param name   The claim name. Not {@code null}.
+		 *
+		 * @return The typed claim value.
+		 *
+		 * @throws Exception If parsing failed.
+		 */
+		T parse(final JSONObject claims, final String name)
+			throws Exception;
+	}
+
+
+	/**
+	 * URL claim parser.
+	 */
+	private static final ClaimParser<URL> URL_PARSER = new ClaimParser<URL>() {
+		@Override
+		public URL parse(final JSONObject claims, final String name)
+			throws ParseException {
+
+			return JSONObjectUtils.getURL(claims, name);
+		}
+	};
+
+
+	/**
+	 * URI claim parser.
+	 */
+	private static final ClaimParser<URI> URI_PARSER = new ClaimParser<URI>() {
+		@Override
+		public URI parse(final JSONObject claims, final String name)
+			throws ParseException {
+
+			return JSONObjectUtils.getURI(claims, name);
+		}
+	};
+
+
+	/**
+	 * Email claim parser.
+	 */
+	private static final ClaimParser<InternetAddress> EMAIL_PARSER = new ClaimParser<InternetAddress>() {
+		@Override
+		public InternetAddress parse(final JSONObject claims, final String name)
+			throws ParseException {
+
+			return JSONObjectUtils.getEmail(claims, name);
+		}
+	};
+
+
+	/**
+	 * Date / time claim parser.
+	 */
+	private static final ClaimParser<Date> DATE_PARSER = new ClaimParser<Date>() {
+		@Override
+		public Date parse(final JSONObject claims, final String name)
+			throws ParseException {
+
+			return DateUtils.fromSecondsSinceEpoch(JSONObjectUtils.getNumber(claims, name).longValue());
+		}
+	};
+
+
+	/**
+	 * Cached typed claim value.
+	 */
+	private static final class ParsedClaim {
+
+
+		/**
+		 * The raw claim value the typed value was parsed from.
+		 */
+		private final Object rawValue;
+
+
+		/**
+		 * The parser.
+		 */
+		private final ClaimParser<?> parser;
+
+
+		/**
+		 * The typed claim value, {@code null} if parsing failed.
+		 */
+		private final Object value;
+
+
+		/**
+		 * Creates a new cached typed claim value.
+		 *
+		 * @param rawValue The raw claim value.
+		 * @param parser   The parser.
+		 * @param value    The typed claim value, {@code null} if
+		 *                 parsing failed.
+		 */
+		private ParsedClaim(final Object rawValue, final ClaimParser<?> parser, final Object value) {
+			this.rawValue = rawValue;
+			this.parser = parser;
+			this.value = value;
+		}
+	}
+
+
+	/**
+	 * Index of the claim names of a frozen claims set by base name, with
+	 * the parsed language tags.
+	 */
+	private static final class LangTagIndex {
+
+
+		/**
+		 * The claim names, with optional language tag, keyed by base
+		 * name and parsed language tag ({@code null} if none).
+		 */
+		private final Map<String,Map<LangTag,String>> names;
+
+
+		/**
+		 * Indexes the specified claims.
+		 *
+		 * @param claims The claims. Must not be {@code null}.
+		 */
+		private LangTagIndex(final JSONObject claims) {
+
+			names = new HashMap<>();
+
+			for (String key: claims.keySet()) {
+
+				int pos = key.indexOf('#');
+
+				String baseName = pos < 0 ? key : key.substring(0, pos);
+				LangTag langTag = null;
+
+				if (pos >= 0) {
+					try {
+						langTag = LangTag.parse(key.substring(pos + 1));
+					} catch (LangTagException e) {
+						continue; // skip
+					}
+				}
+
+				Map<LangTag,String> entries = names.get(baseName);
+
+				if (entries == null) {
+					entries = new HashMap<>();
+					names.put(baseName, entries);
+				}
+
+				entries.put(langTag, key);
+			}
+		}
+	}
+
+
 	/**
 	 * The JSON object representation of the claims set.
 	 */
 	private final JSONObject claims;
 
 
+	/**
+	 * The language tag index, {@code null} if not built or the claims set
+	 * isn't frozen.
+	 */
+	private volatile LangTagIndex langTagIndex;
+
+
+	/**
+	 * The cached typed claim values, keyed by claim name, {@code null} if
+	 * none were cached yet.
+	 */
+	private volatile Map<String,ParsedClaim> parsedClaims;
+
+
+	/**
+	 * {@code true} if the claims set is frozen (read-only).
+	 */
+	private volatile boolean frozen = false;
+
+
 	/**
 	 * Creates a new empty claims set.
 	 */
@@ -57,7 +252,12 @@ public abstract class ClaimsSet {
 	 */
 	public void putAll(final ClaimsSet other) {
 
-		putAll(other.claims);
+		if (other.frozen) {
+			// Don't share the nested values of a frozen claims set
+			putAll((JSONObject) deepCopy(other.claims));
+		} else {
+			putAll(other.claims);
+		}
 	}
 
 
@@ -68,12 +268,191 @@ public abstract class ClaimsSet {
 	 */
 	public void putAll(final Map<String,Object> claims) {
 
+		ensureNotFrozen();
+
 		this.claims.putAll(claims);
+
+		Map<String,ParsedClaim> cache = parsedClaims;
+
+		if (cache != null) {
+			cache.clear();
+		}
 	}
 
 
 	/**
-	 * Gets a claim.
+	 * Freezes this claims set, making it read-only. Subsequent attempts to
+	 * set claims will throw an {@link IllegalStateException}. The nested
+	 * JSON object and array values are copied, to detach them from any
+	 * references held by the caller, and are returned as deep copies
+	 * from then on, as is the {@link #toJSONObject JSON object
+	 * representation} of a frozen claims set.
+	 */
+	public void freeze() {
+
+		if (frozen) {
+			return;
+		}
+
+		synchronized (this) {
+
+			if (frozen) {
+				return;
+			}
+
+			for (Map.Entry<String,Object> entry: claims.entrySet()) {
+
+				Object value = entry.getValue();
+
+				if (value instanceof Map || value instanceof List) {
+					entry.setValue(deepCopy(value));
+				}
+			}
+
+			frozen = true;
+		}
+	}
+
+
+	/**
+	 * Returns {@code true} if this claims set is frozen (read-only).
+	 *
+	 * @return {@code true} if frozen, else {@code false}.
+	 */
+	public boolean isFrozen() {
+
+		return frozen;
+	}
+
+
+	/**
+	 * Ensures this claims set is not frozen.
+	 *
+	 * @throws IllegalStateException If the claims set is frozen.
+	 */
+	private void ensureNotFrozen() {
+
+		if (frozen)
+			throw new IllegalStateException("The claims set is frozen");
+	}
+
+
+	/**
+	 * Returns the cached typed claim values, creating the cache on first
+	 * use.
+	 *
+	 * @return The cached typed claim values, keyed by claim name.
+	 */
+	private Map<String,ParsedClaim> getParsedClaims() {
+
+		Map<String,ParsedClaim> cache = parsedClaims;
+
+		if (cache == null) {
+
+			synchronized (this) {
+
+				cache = parsedClaims;
+
+				if (cache == null) {
+					cache = new ConcurrentHashMap<>();
+					parsedClaims = cache;
+				}
+			}
+		}
+
+		return cache;
+	}
+
+
+	/**
+	 * Gets a typed claim, parsing it with the specified parser on the
+	 * first access and after the claim value is replaced. Claims with a
+	 * JSON array or object value are not cached unless the claims set is
+	 * frozen, as they can be modified in place.
+	 *
+	 * @param name   The claim name. Must not be {@code null}.
+	 * @param parser The claim parser. Must not be {@code null}.
+	 *
+	 * @return The typed claim value, {@code null} if not specified or
+	 *         parsing failed.
+	 */
+	@SuppressWarnings("unchecked")
+	protected <T> T getParsedClaim(final String name, final ClaimParser<T> parser) {
+
+		Object rawValue = claims.get(name);
+
+		if (rawValue == null) {
+			return null;
+		}
+
+		final boolean cacheable = frozen || ! (rawValue instanceof List || rawValue instanceof Map);
+
+		if (cacheable) {
+
+			ParsedClaim cached = getParsedClaims().get(name);
+
+			if (cached != null && cached.rawValue == rawValue && cached.parser == parser) {
+				return (T) cached.value;
+			}
+		}
+
+		T value;
+
+		try {
+			value = parser.parse(claims, name);
+		} catch (Exception e) {
+			value = null;
+		}
+
+		if (cacheable) {
+			getParsedClaims().put(name, new ParsedClaim(rawValue, parser, value));
+		}
+
+		return value;
+	}
+
+
+	/**
+	 * Gets a claim that casts to the specified class. The JSON object and
+	 * array values of a frozen claims set are returned as deep copies.
+	 *
+	 * @param name  The claim name. Must not be {@code null}.
+	 * @param clazz The Java class that the claim value should cast to.
+	 *              Must not be {@code null}.
+	 *
+	 * @return The claim value, {@code null} if not specified.
+	 *
+	 * @throws ParseException If casting failed.
+	 */
+	private <T> T getGenericClaim(final String name, final Class<T> clazz)
+		throws ParseException {
+
+		T value = JSONObjectUtils.getGeneric(claims, name, clazz);
+
+		if (frozen && (value instanceof Map || value instanceof List)) {
+			// Prevent modification
+			return clazz.cast(deepCopy(value));
+		}
+
+		return value;
+	}
+
+
+	/**
+	 * Returns the names of the claims in this claims set, without copying
+	 * the claim values.
+	 *
+	 * @return The claim names, as an unmodifiable view.
+	 */
+	public Set<String> getClaimNames() {
+
+		return Collections.unmodifiableSet(claims.keySet());
+	}
+
+
+	/**
+	 * Gets a claim. The JSON object and array values of a frozen claims
+	 * set are returned as deep copies.
 	 *
 	 * @param name The claim name. Must not be {@code null}.
 	 *
@@ -81,7 +460,9 @@ public abstract class ClaimsSet {
 	 */
 	public Object getClaim(final String name) {
 
-		return claims.get(name);
+		Object value = claims.get(name);
+
+		return frozen ? deepCopy(value) : value;
 	}
 
 
@@ -98,7 +479,7 @@ public abstract class ClaimsSet {
 	public <T> T getClaim(final String name, final Class<T> clazz) {
 
 		try {
-			return JSONObjectUtils.getGeneric(claims, name, clazz);
+			return getGenericClaim(name, clazz);
 		} catch (ParseException e) {
 			return null;
 		}
@@ -139,16 +520,45 @@ public abstract class ClaimsSet {
 	 */
 	public <T> Map<LangTag,T> getLangTaggedClaim(final String name, final Class<T> clazz) {
 
-		Map<LangTag,Object> matches = LangTagUtils.find(name, claims);
 		Map<LangTag,T> out = new HashMap<>();
 
-		for (Map.Entry<LangTag,Object> entry: matches.entrySet()) {
+		if (! frozen) {
+
+			// The claims may change, scan them
+			Map<LangTag,Object> matches = LangTagUtils.find(name, claims);
+
+			for (Map.Entry<LangTag,Object> entry: matches.entrySet()) {
+
+				LangTag langTag = entry.getKey();
+				String compositeKey = name + (langTag != null ? "#" + langTag : "");
 
-			LangTag langTag = entry.getKey();
-			String compositeKey = name + (langTag != null ? "#" + langTag : "");
+				try {
+					out.put(langTag, getGenericClaim(compositeKey, clazz));
+				} catch (ParseException e) {
+					// skip
+				}
+			}
+
+			return out;
+		}
+
+		LangTagIndex index = langTagIndex;
+
+		if (index == null) {
+			index = new LangTagIndex(claims);
+			langTagIndex = index;
+		}
+
+		Map<LangTag,String> matches = index.names.get(name);
+
+		if (matches == null) {
+			return out;
+		}
+
+		for (Map.Entry<LangTag,String> entry: matches.entrySet()) {
 
 			try {
-				out.put(langTag, JSONObjectUtils.getGeneric(claims, compositeKey, clazz));
+				out.put(entry.getKey(), getGenericClaim(entry.getValue(), clazz));
 			} catch (ParseException e) {
 				// skip
 			}
@@ -169,10 +579,18 @@ public abstract class ClaimsSet {
 	 */
 	public void setClaim(final String name, final Object value) {
 
+		ensureNotFrozen();
+
 		if (value != null)
 			claims.put(name, value);
 		else
 			claims.remove(name);
+
+		Map<String,ParsedClaim> cache = parsedClaims;
+
+		if (cache != null) {
+			cache.remove(name);
+		}
 	}
 
 
@@ -273,11 +691,7 @@ public abstract class ClaimsSet {
 	 */
 	public URL getURLClaim(final String name) {
 
-		try {
-			return JSONObjectUtils.getURL(claims, name);
-		} catch (ParseException e) {
-			return null;
-		}
+		return getParsedClaim(name, URL_PARSER);
 	}
 
 
@@ -293,7 +707,7 @@ public abstract class ClaimsSet {
 		if (value != null)
 			setClaim(name, value.toString());
 		else
-			claims.remove(name);
+			setClaim(name, null);
 	}
 
 
@@ -307,11 +721,7 @@ public abstract class ClaimsSet {
 	 */
 	public URI getURIClaim(final String name) {
 
-		try {
-			return JSONObjectUtils.getURI(claims, name);
-		} catch (ParseException e) {
-			return null;
-		}
+		return getParsedClaim(name, URI_PARSER);
 	}
 
 
@@ -327,7 +737,7 @@ public abstract class ClaimsSet {
 		if (value != null)
 			setClaim(name, value.toString());
 		else
-			claims.remove(name);
+			setClaim(name, null);
 	}
 
 
@@ -341,11 +751,10 @@ public abstract class ClaimsSet {
 	 */
 	public InternetAddress getEmailClaim(final String name) {
 
-		try {
-			return JSONObjectUtils.getEmail(claims, name);
-		} catch (ParseException e) {
-			return null;
-		}
+		InternetAddress value = getParsedClaim(name, EMAIL_PARSER);
+
+		// Mutable, return a copy
+		return value != null ? (InternetAddress) value.clone() : null;
 	}
 
 
@@ -361,7 +770,7 @@ public abstract class ClaimsSet {
 		if (value != null)
 			setClaim(name, value.getAddress());
 		else
-			claims.remove(name);
+			setClaim(name, null);
 	}
 
 
@@ -376,11 +785,10 @@ public abstract class ClaimsSet {
 	 */
 	public Date getDateClaim(final String name) {
 
-		try {
-			return DateUtils.fromSecondsSinceEpoch(JSONObjectUtils.getNumber(claims, name).longValue());
-		} catch (Exception e) {
-			return null;
-		}
+		Date value = getParsedClaim(name, DATE_PARSER);
+
+		// Mutable, return a copy
+		return value != null ? new Date(value.getTime()) : null;
 	}
 
 
@@ -397,7 +805,7 @@ public abstract class ClaimsSet {
 		if (value != null)
 			setClaim(name, DateUtils.toSecondsSinceEpoch(value));
 		else
-			claims.remove(name);
+			setClaim(name, null);
 	}
 
 
@@ -419,6 +827,45 @@ public abstract class ClaimsSet {
 	}
 
 
+	/**
+	 * Returns a deep copy of the specified JSON value. JSON objects and
+	 * arrays are copied recursively, other values are immutable.
+	 *
+	 * @param value The JSON value, {@code null} if not specified.
+	 *
+	 * @return The copied JSON value.
+	 */
+	@SuppressWarnings("unchecked")
+	private static Object deepCopy(final Object value) {
+
+		if (value instanceof Map) {
+
+			JSONObject copy = new JSONObject();
+
+			for (Map.Entry<String,?> entry: ((Map<String,?>) value).entrySet()) {
+				copy.put(entry.getKey(), deepCopy(entry.getValue()));
+			}
+
+			return copy;
+		}
+
+		if (value instanceof List) {
+
+			List<?> list = (List<?>) value;
+
+			JSONArray copy = new JSONArray();
+
+			for (Object item: list) {
+				copy.add(deepCopy(item));
+			}
+
+			return copy;
+		}
+
+		return value;
+	}
+
+
 	/**
 	 * Gets the JSON object representation of this claims set.
 	 *
@@ -433,10 +880,16 @@ public abstract class ClaimsSet {
 	 * }
 	 * </pre>
 	 *
-	 * @return The JSON object representation.
+	 * @return The JSON object representation, a deep copy if the claims
+	 *         set is frozen.
 	 */
 	public JSONObject toJSONObject() {
 
+		if (frozen) {
+			// Prevent modification, including of nested values
+			return (JSONObject) deepCopy(claims);
+		}
+
 		return claims;
 	}
 
@@ -452,7 +905,7 @@ public abstract class ClaimsSet {
 		throws ParseException {
 
 		try {
-			return JWTClaimsSet.parse(claims);
+			return JWTClaimsSet.parse(frozen ? (JSONObject) deepCopy(claims) : claims);
 
 		} catch (java.text.ParseException e) {
 
@@ -10,6 +10,7 @@ import com.nimbusds.jose.JWSAlgorithm;
 import com.nimbusds.jose.util.Base64URL;
 
 import com.nimbusds.oauth2.sdk.id.Identifier;
+import com.nimbusds.oauth2.sdk.util.CryptoPool;
 
 
 /**
@@ -30,43 +31,59 @@ public abstract class HashClaim extends Identifier {
 
 
 	/**
-	 * Gets the matching SHA-2 message digest for the specified JSON Web
-	 * Signature (JWS) algorithm.
+	 * Gets the matching SHA-2 message digest algorithm for the specified
+	 * JSON Web Signature (JWS) algorithm.
 	 *
 	 * @param alg The JWS algorithm. Must not be {@code null}.
 	 *
-	 * @return The SHA-2 message digest, {@code null} if the JWS algorithm
-	 *         or its corresponding SHA-2 message digest are not supported.
+	 * @return The SHA-2 message digest algorithm, {@code null} if the JWS
+	 *         algorithm is not supported.
 	 */
-	public static MessageDigest getMessageDigestInstance(final JWSAlgorithm alg) {
-
-		String mdAlg;
+	private static String getMessageDigestAlgorithm(final JWSAlgorithm alg) {
 
 		if (alg.equals(JWSAlgorithm.HS256) ||
 		    alg.equals(JWSAlgorithm.RS256) ||
 		    alg.equals(JWSAlgorithm.ES256) ||
 		    alg.equals(JWSAlgorithm.PS256)    ) {
 
-			mdAlg = "SHA-256";
+			return "SHA-256";
 
 		} else if (alg.equals(JWSAlgorithm.HS384) ||
 			   alg.equals(JWSAlgorithm.RS384) ||
 			   alg.equals(JWSAlgorithm.ES384) ||
 			   alg.equals(JWSAlgorithm.PS384)    ) {
 
-			mdAlg = "SHA-384";
+			return "SHA-384";
 
 		} else if (alg.equals(JWSAlgorithm.HS512) ||
 			   alg.equals(JWSAlgorithm.RS512) ||
 			   alg.equals(JWSAlgorithm.ES512) ||
 			   alg.equals(JWSAlgorithm.PS512)    ) {
 
-			mdAlg = "SHA-512";
+			return "SHA-512";
 
 		} else {
 			// unsupported JWS alg
 			return null;
 		}
+	}
+
+
+	/**
+	 * Gets the matching SHA-2 message digest for the specified JSON Web
+	 * Signature (JWS) algorithm.
+	 *
+	 * @param alg The JWS algorithm. Must not be {@code null}.
+	 *
+	 * @return The SHA-2 message digest, {@code null} if the JWS algorithm
+	 *         or its corresponding SHA-2 message digest are not supported.
+	 */
+	public static MessageDigest getMessageDigestInstance(final JWSAlgorithm alg) {
+
+		String mdAlg = getMessageDigestAlgorithm(alg);
+
+		if (mdAlg == null)
+			return null;
 
 		try {
 			return MessageDigest.getInstance(mdAlg);
@@ -93,11 +110,22 @@ public abstract class HashClaim extends Identifier {
 	 */
 	public static String computeValue(final Identifier identifier, final JWSAlgorithm alg) {
 
-		MessageDigest md = getMessageDigestInstance(alg);
+		String mdAlg = getMessageDigestAlgorithm(alg);
 
-		if (md == null)
+		if (mdAlg == null)
 			return null;
 
+		MessageDigest md;
+
+		try {
+			md = CryptoPool.getMessageDigest(mdAlg, null);
+
+		} catch (NoSuchAlgorithmException e) {
+
+			// unsupported SHA-2 alg
+			return null;
+		}
+
 		md.update(identifier.getValue().getBytes(Charset.forName("US-ASCII")));
 
 		byte[] hash = md.digest();
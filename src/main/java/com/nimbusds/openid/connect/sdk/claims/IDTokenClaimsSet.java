@@ -148,6 +148,32 @@ public class IDTokenClaimsSet extends ClaimsSet {
 	}
 
 
+	/**
+	 * Audience claim parser.
+	 */
+	private static final ClaimParser<List<Audience>> AUDIENCE_PARSER = new ClaimParser<List<Audience>>() {
+		@Override
+		public List<Audience> parse(final JSONObject claims, final String name)
+			throws ParseException {
+
+			if (claims.get(name) instanceof String) {
+				// Special case - aud is a string
+				return Collections.unmodifiableList(new Audience(JSONObjectUtils.getString(claims, name)).toSingleAudienceList());
+			}
+
+			// General case - JSON string array
+			String[] rawList = JSONObjectUtils.getStringArray(claims, name);
+
+			List<Audience> audList = new ArrayList<>(rawList.length);
+
+			for (String s: rawList)
+				audList.add(new Audience(s));
+
+			return Collections.unmodifiableList(audList);
+		}
+	};
+
+
 	/**
 	 * Gets the names of the standard top-level ID token claims.
 	 *
@@ -408,24 +434,12 @@ public class IDTokenClaimsSet extends ClaimsSet {
 	/**
 	 * Gets the ID token audience. Corresponds to the {@code aud} claim.
 	 *
-	 * @return The audience.
+	 * @return The audience, as an unmodifiable list, {@code null} if not
+	 *         specified or parsing failed.
 	 */
 	public List<Audience> getAudience() {
 
-		if (getClaim(AUD_CLAIM_NAME) instanceof String) {
-			// Special case - aud is a string
-			return new Audience(getStringClaim(AUD_CLAIM_NAME)).toSingleAudienceList();
-		}
-
-		// General case - JSON string array
-		List<String> rawList = getStringListClaim(AUD_CLAIM_NAME);
-
-		List<Audience> audList = new ArrayList<>(rawList.size());
-
-		for (String s: rawList)
-			audList.add(new Audience(s));
-
-		return audList;
+		return getParsedClaim(AUD_CLAIM_NAME, AUDIENCE_PARSER);
 	}
 
 
@@ -198,6 +198,19 @@ public class UserInfo extends ClaimsSet {
 	}
 	
 	
+	/**
+	 * Address claim parser.
+	 */
+	private static final ClaimParser<Address> ADDRESS_PARSER = new ClaimParser<Address>() {
+		@Override
+		public Address parse(final JSONObject claims, final String name)
+			throws ParseException {
+
+			return new Address(JSONObjectUtils.getJSONObject(claims, name));
+		}
+	};
+	
+	
 	/**
 	 * Gets the names of the standard top-level UserInfo claims.
 	 *
@@ -932,7 +945,8 @@ public class UserInfo extends ClaimsSet {
 	 * @param langTag The language tag of the entry, {@code null} to get 
 	 *                the non-tagged entry.
 	 *
-	 * @return The preferred address, {@code null} if not specified.
+	 * @return The preferred address, {@code null} if not specified. Frozen
+	 *         if this UserInfo is frozen.
 	 */
 	public Address getAddress(final LangTag langTag) {
 	
@@ -943,12 +957,14 @@ public class UserInfo extends ClaimsSet {
 		else
 			name = ADDRESS_CLAIM_NAME;
 
-		JSONObject jsonObject = getClaim(name, JSONObject.class);
+		Address address = getParsedClaim(name, ADDRESS_PARSER);
 
-		if (jsonObject == null)
-			return null;
+		if (address != null && isFrozen()) {
+			// Cached and shared, make read-only
+			address.freeze();
+		}
 
-		return new Address(jsonObject);
+		return address;
 	}
 	
 	
@@ -7,6 +7,7 @@ import javax.crypto.spec.IvParameterSpec;
 
 import com.nimbusds.jose.util.Base64URL;
 import com.nimbusds.oauth2.sdk.id.Subject;
+import com.nimbusds.oauth2.sdk.util.CryptoPool;
 import net.jcip.annotations.ThreadSafe;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
@@ -67,8 +68,8 @@ public class AESBasedPairwiseSubjectCodec extends PairwiseSubjectCodec {
 
 
 	/**
-	 * Creates a new AES/CBC/PKCS5Padding cipher using the configured
-	 * JCE provider and salt.
+	 * Gets an AES/CBC/PKCS5Padding cipher from the per-thread pool and
+	 * initialises it using the configured JCE provider and salt.
 	 *
 	 * @param mode The cipher mode.
 	 *
@@ -79,12 +80,7 @@ public class AESBasedPairwiseSubjectCodec extends PairwiseSubjectCodec {
 		Cipher aesCipher;
 
 		try {
-			if (getProvider() != null) {
-				aesCipher = Cipher.getInstance("AES/CBC/PKCS5Padding", getProvider());
-			} else {
-				aesCipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
-			}
-
+			aesCipher = CryptoPool.getCipher("AES/CBC/PKCS5Padding", getProvider());
 			aesCipher.init(mode, aesKey, new IvParameterSpec(getSalt()));
 		} catch (Exception e) {
 			throw new RuntimeException(e);
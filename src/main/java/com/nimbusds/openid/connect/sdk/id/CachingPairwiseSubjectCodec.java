@@ -0,0 +1,231 @@
+package com.nimbusds.openid.connect.sdk.id;
+
+
+import java.security.Provider;
+
+import com.nimbusds.oauth2.sdk.id.Subject;
+import com.nimbusds.oauth2.sdk.util.BoundedCache;
+import net.jcip.annotations.ThreadSafe;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+
+
+/**
+ * Caching decorator of a pairwise subject codec. Memoizes the pairwise
+ * subjects of recently encoded (sector identifier, local subject) pairs,
+ * and the reverse mapping for {@link #decode}, in size-bounded caches with
+ * least-recently-used eviction.
+ *
+ * <p>The reverse mapping is only kept if the underlying codec supports
+ * decoding. For codecs that don't support reversal, such as the
+ * {@link HashBasedPairwiseSubjectCodec hash-based} one, decoding always
+ * fails with an {@link UnsupportedOperationException}, regardless of the
+ * cache contents.
+ */
+@ThreadSafe
+public class CachingPairwiseSubjectCodec extends PairwiseSubjectCodec {
+
+
+	/**
+	 * The underlying codec.
+	 */
+	private final PairwiseSubjectCodec codec;
+
+
+	/**
+	 * The cached pairwise subjects, keyed by sector ID and local subject.
+	 */
+	private final BoundedCache<Pair<SectorID,Subject>,Subject> encodeCache;
+
+
+	/**
+	 * The cached sector IDs and local subjects, keyed by pairwise subject,
+	 * {@code null} if the underlying codec doesn't support decoding.
+	 */
+	private final BoundedCache<Subject,Pair<SectorID,Subject>> decodeCache;
+
+
+	/**
+	 * Creates a new caching decorator of a pairwise subject codec.
+	 *
+	 * @param codec        The underlying codec. Must not be {@code null}.
+	 * @param maxCacheSize The maximum number of cached pairwise subjects,
+	 *                     applies separately to the encode and decode
+	 *                     caches. Must be a positive integer.
+	 */
+	public CachingPairwiseSubjectCodec(final PairwiseSubjectCodec codec, final int maxCacheSize) {
+		super(codec != null ? codec.getSalt() : null);
+		if (codec == null) {
+			throw new IllegalArgumentException("The pairwise subject codec must not be null");
+		}
+		this.codec = codec;
+		encodeCache = new BoundedCache<>(maxCacheSize);
+		decodeCache = supportsDecoding(codec) ? new BoundedCache<Subject,Pair<SectorID,Subject>>(maxCacheSize) : null;
+	}
+
+
+	/**
+	 * Checks if the specified codec supports decoding, i.e. overrides the
+	 * default {@link PairwiseSubjectCodec#decode} method.
+	 *
+	 * @param codec The codec. Must not be {@code null}.
+	 *
+	 * @return {@code true} if decoding is supported, else {@code false}.
+	 */
+	private static boolean supportsDecoding(final PairwiseSubjectCodec codec) {
+
+		if (codec instanceof CachingPairwiseSubjectCodec) {
+			return ((CachingPairwiseSubjectCodec) codec).supportsDecoding();
+		}
+
+		try {
+			return codec.getClass().getMethod("decode", Subject.class).getDeclaringClass() != PairwiseSubjectCodec.class;
+
+		} catch (NoSuchMethodException e) {
+
+			return false;
+		}
+	}
+
+
+	/**
+	 * Returns the underlying codec.
+	 *
+	 * @return The underlying codec.
+	 */
+	public PairwiseSubjectCodec getCodec() {
+		return codec;
+	}
+
+
+	/**
+	 * Returns the maximum number of cached pairwise subjects.
+	 *
+	 * @return The maximum cache size.
+	 */
+	public int getMaxCacheSize() {
+		return encodeCache.getMaxSize();
+	}
+
+
+	@Override
+	public Provider getProvider() {
+		return codec.getProvider();
+	}
+
+
+	@Override
+	public void setProvider(final Provider provider) {
+		codec.setProvider(provider);
+	}
+
+
+	/**
+	 * Returns {@code true} if the underlying codec supports decoding.
+	 *
+	 * @return {@code true} if decoding is supported, else {@code false}.
+	 */
+	public boolean supportsDecoding() {
+		return decodeCache != null;
+	}
+
+
+	/**
+	 * Returns the number of encodings served from the cache.
+	 *
+	 * @return The encode hit count.
+	 */
+	public long getEncodeHitCount() {
+		return encodeCache.getHitCount();
+	}
+
+
+	/**
+	 * Returns the number of encodings delegated to the underlying codec.
+	 *
+	 * @return The encode miss count.
+	 */
+	public long getEncodeMissCount() {
+		return encodeCache.getMissCount();
+	}
+
+
+	/**
+	 * Returns the number of decodings served from the cache.
+	 *
+	 * @return The decode hit count.
+	 */
+	public long getDecodeHitCount() {
+		return decodeCache != null ? decodeCache.getHitCount() : 0L;
+	}
+
+
+	/**
+	 * Returns the number of decodings delegated to the underlying codec.
+	 *
+	 * @return The decode miss count.
+	 */
+	public long getDecodeMissCount() {
+		return decodeCache != null ? decodeCache.getMissCount() : 0L;
+	}
+
+
+	/**
+	 * Removes all cached pairwise subjects, e.g. after a change of the
+	 * underlying codec's keys.
+	 */
+	public void clear() {
+		encodeCache.clear();
+
+		if (decodeCache != null) {
+			decodeCache.clear();
+		}
+	}
+
+
+	@Override
+	public Subject encode(final SectorID sectorID, final Subject localSub) {
+
+		Pair<SectorID,Subject> key = new ImmutablePair<>(sectorID, localSub);
+
+		Subject pairwiseSubject = encodeCache.get(key);
+
+		if (pairwiseSubject != null) {
+			return pairwiseSubject;
+		}
+
+		pairwiseSubject = codec.encode(sectorID, localSub);
+
+		encodeCache.put(key, pairwiseSubject);
+
+		if (decodeCache != null) {
+			decodeCache.put(pairwiseSubject, key);
+		}
+
+		return pairwiseSubject;
+	}
+
+
+	@Override
+	public Pair<SectorID,Subject> decode(final Subject pairwiseSubject)
+		throws InvalidPairwiseSubjectException {
+
+		if (decodeCache == null) {
+			// Consistent failure, don't serve reverse mappings
+			return codec.decode(pairwiseSubject);
+		}
+
+		Pair<SectorID,Subject> decoded = decodeCache.get(pairwiseSubject);
+
+		if (decoded != null) {
+			return decoded;
+		}
+
+		decoded = codec.decode(pairwiseSubject);
+
+		decodeCache.put(pairwiseSubject, decoded);
+		encodeCache.put(decoded, pairwiseSubject);
+
+		return decoded;
+	}
+}
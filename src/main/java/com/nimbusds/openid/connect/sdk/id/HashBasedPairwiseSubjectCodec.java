@@ -3,9 +3,12 @@ package com.nimbusds.openid.connect.sdk.id;
 
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
 
 import com.nimbusds.jose.util.Base64URL;
 import com.nimbusds.oauth2.sdk.id.Subject;
+import com.nimbusds.oauth2.sdk.util.CryptoPool;
 import net.jcip.annotations.ThreadSafe;
 
 
@@ -63,11 +66,7 @@ public class HashBasedPairwiseSubjectCodec extends PairwiseSubjectCodec {
 
 		MessageDigest sha256;
 		try {
-			if (getProvider() != null) {
-				sha256 = MessageDigest.getInstance(HASH_ALGORITHM, getProvider());
-			} else {
-				sha256 = MessageDigest.getInstance(HASH_ALGORITHM);
-			}
+			sha256 = CryptoPool.getMessageDigest(HASH_ALGORITHM, getProvider());
 		} catch (NoSuchAlgorithmException e) {
 			throw new RuntimeException(e.getMessage(), e);
 		}
@@ -78,4 +77,38 @@ public class HashBasedPairwiseSubjectCodec extends PairwiseSubjectCodec {
 
 		return new Subject(Base64URL.encode(hash).toString());
 	}
+
+
+	@Override
+	public List<Subject> encode(final SectorID sectorID, final List<Subject> localSubs) {
+
+		// Hash the sector ID once and clone the primed digest for each
+		// local subject
+		MessageDigest primed;
+		try {
+			primed = (MessageDigest) CryptoPool.getMessageDigest(HASH_ALGORITHM, getProvider()).clone();
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e.getMessage(), e);
+		} catch (CloneNotSupportedException e) {
+			return super.encode(sectorID, localSubs);
+		}
+
+		primed.update(sectorID.getValue().getBytes(CHARSET));
+
+		List<Subject> pairwiseSubs = new ArrayList<>(localSubs.size());
+
+		try {
+			for (Subject localSub: localSubs) {
+				MessageDigest sha256 = (MessageDigest) primed.clone();
+				sha256.update(localSub.getValue().getBytes(CHARSET));
+				byte[] hash = sha256.digest(getSalt());
+				pairwiseSubs.add(new Subject(Base64URL.encode(hash).toString()));
+			}
+		} catch (CloneNotSupportedException e) {
+			// Cloneable once implies cloneable always
+			throw new RuntimeException(e.getMessage(), e);
+		}
+
+		return pairwiseSubs;
+	}
 }
@@ -0,0 +1,383 @@
+package com.nimbusds.openid.connect.sdk.id;
+
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.nimbusds.oauth2.sdk.id.Subject;
+import net.jcip.annotations.ThreadSafe;
+import org.apache.commons.lang3.tuple.Pair;
+
+
+/**
+ * Bulk encoder / decoder of pairwise subject identifiers, intended for user
+ * export, sector migration and audit jobs. The subjects are read from an
+ * iterator in chunks, which are processed in parallel by a fixed pool of
+ * worker threads. Each worker reuses its cipher or message digest between
+ * the subjects, and the number of chunks in flight is bounded, so that
+ * arbitrarily large subject streams can be processed in constant memory.
+ *
+ * <p>Example:
+ *
+ * <pre>
+ * PairwiseSubjectBatchProcessor processor = new PairwiseSubjectBatchProcessor(codec);
+ *
+ * processor.encode(sectorID, localSubjects.iterator(), new PairwiseSubjectBatchProcessor.EncodeHandler() {
+ *         public void handle(Subject localSub, Subject pairwiseSub) {
+ *             // store the pairwise subject
+ *         }
+ * });
+ *
+ * processor.shutdown();
+ * </pre>
+ */
+@ThreadSafe
+public class PairwiseSubjectBatchProcessor {
+
+
+	/**
+	 * The default number of subjects per chunk.
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+
+	/**
+	 * Handler of encoded pairwise subjects. Invoked concurrently from the
+	 * worker threads, implementations must be thread-safe.
+	 */
+	public interface EncodeHandler {
+
+
+		/**
+		 * Handles an encoded pairwise subject.
+		 *
+		 * @param localSub    The local subject.
+		 * @param pairwiseSub The matching pairwise subject.
+		 */
+		void handle(final Subject localSub, final Subject pairwiseSub);
+	}
+
+
+	/**
+	 * Handler of decoded pairwise subjects. Invoked concurrently from the
+	 * worker threads, implementations must be thread-safe.
+	 */
+	public interface DecodeHandler {
+
+
+		/**
+		 * Handles a decoded pairwise subject.
+		 *
+		 * @param pairwiseSub The pairwise subject.
+		 * @param decoded     The matching sector identifier and local
+		 *                    subject.
+		 */
+		void handle(final Subject pairwiseSub, final Pair<SectorID,Subject> decoded);
+
+
+		/**
+		 * Handles an invalid pairwise subject.
+		 *
+		 * @param pairwiseSub The pairwise subject.
+		 * @param e           The decoding exception.
+		 */
+		void handleInvalid(final Subject pairwiseSub, final InvalidPairwiseSubjectException e);
+	}
+
+
+	/**
+	 * The pairwise subject codec.
+	 */
+	private final PairwiseSubjectCodec codec;
+
+
+	/**
+	 * The number of worker threads.
+	 */
+	private final int parallelism;
+
+
+	/**
+	 * The number of subjects per chunk.
+	 */
+	private final int chunkSize;
+
+
+	/**
+	 * The worker threads.
+	 */
+	private final ExecutorService executor;
+
+
+	/**
+	 * Creates a new batch processor with one worker thread per available
+	 * processor and the {@link #DEFAULT_CHUNK_SIZE default chunk size}.
+	 *
+	 * @param codec The pairwise subject codec. Must not be {@code null}.
+	 */
+	public PairwiseSubjectBatchProcessor(final PairwiseSubjectCodec codec) {
+
+		this(codec, Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_SIZE);
+	}
+
+
+	/**
+	 * Creates a new batch processor.
+	 *
+	 * @param codec       The pairwise subject codec. Must not be
+	 *                    {@code null}.
+	 * @param parallelism The number of worker threads. Must be a positive
+	 *                    integer.
+	 * @param chunkSize   The number of subjects per chunk. Must be a
+	 *                    positive integer.
+	 */
+	public PairwiseSubjectBatchProcessor(final PairwiseSubjectCodec codec,
+					     final int parallelism,
+					     final int chunkSize) {
+
+		if (codec == null)
+			throw new IllegalArgumentException("The pairwise subject codec must not be null");
+
+		if (parallelism < 1)
+			throw new IllegalArgumentException("The parallelism must be a positive integer");
+
+		if (chunkSize < 1)
+			throw new IllegalArgumentException("The chunk size must be a positive integer");
+
+		this.codec = codec;
+		this.parallelism = parallelism;
+		this.chunkSize = chunkSize;
+
+		final AtomicInteger threadCounter = new AtomicInteger();
+
+		executor = Executors.newFixedThreadPool(parallelism, new ThreadFactory() {
+			@Override
+			public Thread newThread(final Runnable r) {
+				Thread t = new Thread(r);
+				t.setName("pairwise-subject-batch-" + threadCounter.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+
+	/**
+	 * Returns the pairwise subject codec.
+	 *
+	 * @return The pairwise subject codec.
+	 */
+	public PairwiseSubjectCodec getCodec() {
+
+		return codec;
+	}
+
+
+	/**
+	 * Returns the number of worker threads.
+	 *
+	 * @return The number of worker threads.
+	 */
+	public int getParallelism() {
+
+		return parallelism;
+	}
+
+
+	/**
+	 * Returns the number of subjects per chunk.
+	 *
+	 * @return The chunk size.
+	 */
+	public int getChunkSize() {
+
+		return chunkSize;
+	}
+
+
+	/**
+	 * Reads the next chunk of subjects from the specified iterator.
+	 *
+	 * @param subjects The subjects iterator.
+	 *
+	 * @return The chunk, empty if the iterator is exhausted.
+	 */
+	private List<Subject> nextChunk(final Iterator<Subject> subjects) {
+
+		List<Subject> chunk = new ArrayList<>(chunkSize);
+
+		while (chunk.size() < chunkSize && subjects.hasNext()) {
+			chunk.add(subjects.next());
+		}
+
+		return chunk;
+	}
+
+
+	/**
+	 * Submits the tasks created by the specified factory for each chunk
+	 * of subjects and waits for their completion.
+	 *
+	 * @param subjects    The subjects iterator.
+	 * @param taskFactory The chunk task factory.
+	 *
+	 * @return The number of processed subjects.
+	 *
+	 * @throws InterruptedException If the calling thread was interrupted.
+	 */
+	private long process(final Iterator<Subject> subjects, final ChunkTaskFactory taskFactory)
+		throws InterruptedException {
+
+		final int maxChunksInFlight = parallelism * 2;
+
+		final Semaphore permits = new Semaphore(maxChunksInFlight);
+
+		final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+		final AtomicLong count = new AtomicLong();
+
+		while (failure.get() == null) {
+
+			final List<Subject> chunk = nextChunk(subjects);
+
+			if (chunk.isEmpty())
+				break;
+
+			permits.acquire();
+
+			final Runnable task = taskFactory.create(chunk);
+
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						task.run();
+						count.addAndGet(chunk.size());
+					} catch (RuntimeException e) {
+						failure.compareAndSet(null, e);
+					} finally {
+						permits.release();
+					}
+				}
+			});
+		}
+
+		// Wait for all chunks to complete
+		permits.acquire(maxChunksInFlight);
+		permits.release(maxChunksInFlight);
+
+		if (failure.get() != null)
+			throw failure.get();
+
+		return count.get();
+	}
+
+
+	/**
+	 * Factory of chunk tasks.
+	 */
+	private interface ChunkTaskFactory {
+
+
+		/**
+		 * Creates a new task for the specified chunk of subjects.
+		 *
+		 * @param chunk The chunk of subjects.
+		 *
+		 * @return The task.
+		 */
+		Runnable create(final List<Subject> chunk);
+	}
+
+
+	/**
+	 * Encodes pairwise subject identifiers for the specified sector
+	 * identifier and local subjects. Blocks until all subjects are
+	 * processed.
+	 *
+	 * @param sectorID  The sector identifier. Must not be {@code null}.
+	 * @param localSubs The local subjects. Must not be {@code null}.
+	 * @param handler   The handler of the encoded pairwise subjects. Must
+	 *                  be thread-safe and not {@code null}.
+	 *
+	 * @return The number of encoded subjects.
+	 *
+	 * @throws InterruptedException If the calling thread was interrupted.
+	 */
+	public long encode(final SectorID sectorID,
+			   final Iterator<Subject> localSubs,
+			   final EncodeHandler handler)
+		throws InterruptedException {
+
+		return process(localSubs, new ChunkTaskFactory() {
+			@Override
+			public Runnable create(final List<Subject> chunk) {
+				return new Runnable() {
+					@Override
+					public void run() {
+						List<Subject> pairwiseSubs = codec.encode(sectorID, chunk);
+						for (int i=0; i < chunk.size(); i++) {
+							handler.handle(chunk.get(i), pairwiseSubs.get(i));
+						}
+					}
+				};
+			}
+		});
+	}
+
+
+	/**
+	 * Decodes the specified pairwise subject identifiers. Requires a codec
+	 * that supports reversal. Blocks until all subjects are processed.
+	 *
+	 * @param pairwiseSubs The pairwise subjects. Must not be {@code null}.
+	 * @param handler      The handler of the decoded pairwise subjects.
+	 *                     Must be thread-safe and not {@code null}.
+	 *
+	 * @return The number of processed subjects, including invalid ones.
+	 *
+	 * @throws InterruptedException If the calling thread was interrupted.
+	 */
+	public long decode(final Iterator<Subject> pairwiseSubs,
+			   final DecodeHandler handler)
+		throws InterruptedException {
+
+		return process(pairwiseSubs, new ChunkTaskFactory() {
+			@Override
+			public Runnable create(final List<Subject> chunk) {
+				return new Runnable() {
+					@Override
+					public void run() {
+						for (Subject pairwiseSub: chunk) {
+							Pair<SectorID,Subject> decoded;
+							try {
+								decoded = codec.decode(pairwiseSub);
+							} catch (InvalidPairwiseSubjectException e) {
+								handler.handleInvalid(pairwiseSub, e);
+								continue;
+							}
+							handler.handle(pairwiseSub, decoded);
+						}
+					}
+				};
+			}
+		});
+	}
+
+
+	/**
+	 * Shuts down the worker threads of this batch processor.
+	 */
+	public void shutdown() {
+
+		executor.shutdown();
+	}
+}
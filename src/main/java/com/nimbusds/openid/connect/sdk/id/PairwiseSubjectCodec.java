@@ -4,6 +4,8 @@ package com.nimbusds.openid.connect.sdk.id;
 import java.net.URI;
 import java.nio.charset.Charset;
 import java.security.Provider;
+import java.util.ArrayList;
+import java.util.List;
 
 import com.nimbusds.oauth2.sdk.id.Subject;
 import net.jcip.annotations.ThreadSafe;
@@ -124,6 +126,30 @@ public abstract class PairwiseSubjectCodec {
 	public abstract Subject encode(final SectorID sectorID, final Subject localSub);
 
 
+	/**
+	 * Encodes a batch of new pairwise subject identifiers from the
+	 * specified sector identifier and local subjects. Codecs may override
+	 * this method to share the per-sector work between the subjects.
+	 *
+	 * @param sectorID  The sector identifier. Must not be {@code null}.
+	 * @param localSubs The local subject identifiers. Must not be
+	 *                  {@code null}.
+	 *
+	 * @return The pairwise subject identifiers, in the order of the local
+	 *         subjects.
+	 */
+	public List<Subject> encode(final SectorID sectorID, final List<Subject> localSubs) {
+
+		List<Subject> pairwiseSubs = new ArrayList<>(localSubs.size());
+
+		for (Subject localSub: localSubs) {
+			pairwiseSubs.add(encode(sectorID, localSub));
+		}
+
+		return pairwiseSubs;
+	}
+
+
 	/**
 	 * Decodes the specified pairwise subject identifier to produce the
 	 * matching sector identifier and local subject. Throws a
@@ -3,18 +3,52 @@ package com.nimbusds.openid.connect.sdk.id;
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.nimbusds.jose.util.Resource;
 import com.nimbusds.jose.util.ResourceRetriever;
 import com.nimbusds.oauth2.sdk.GeneralException;
+import com.nimbusds.oauth2.sdk.util.BoundedCache;
 import com.nimbusds.oauth2.sdk.util.JSONArrayUtils;
+import com.nimbusds.oauth2.sdk.util.SingleFlight;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+import org.apache.commons.lang3.tuple.Pair;
 
 
 /**
  * Sector identifier URI validator.
  *
+ * <p>The published redirection URIs may optionally be cached for a
+ * configured time-to-live, so that clients sharing a sector identifier URI
+ * are validated with a single retrieval. Concurrent retrievals of the same
+ * sector identifier URI are coalesced. Failed retrievals are not cached.
+ *
+ * <p>Many clients, e.g. after a configuration change, can be revalidated
+ * in bulk, with the distinct sector identifier URIs retrieved
+ * concurrently:
+ *
+ * <pre>
+ * SectorIDURIValidator validator = new SectorIDURIValidator(retriever, 300L, 1000);
+ *
+ * Map&lt;ClientID,Pair&lt;URI,Set&lt;URI&gt;&gt;&gt; clients = ...
+ *
+ * Map&lt;ClientID,GeneralException&gt; failures = validator.validate(clients, 16);
+ * </pre>
+ *
  * <p>Related specifications:
  *
  * <ul>
@@ -22,8 +56,42 @@ import com.nimbusds.oauth2.sdk.util.JSONArrayUtils;
  *     <li>OpenID Connect Dynamic Client Registration 1.0, section 5.
  * </ul>
  */
+@ThreadSafe
 public class SectorIDURIValidator {
-	
+
+
+	/**
+	 * Cached redirection URIs published at a sector identifier URI.
+	 */
+	@Immutable
+	private static final class CacheEntry {
+
+
+		/**
+		 * The published redirection URIs.
+		 */
+		private final Set<URI> redirectURIs;
+
+
+		/**
+		 * The expiration time, in milliseconds since the Unix epoch.
+		 */
+		private final long expiresAt;
+
+
+		/**
+		 * Creates a new cache entry.
+		 *
+		 * @param redirectURIs The published redirection URIs.
+		 * @param expiresAt    The expiration time, in milliseconds since
+		 *                     the Unix epoch.
+		 */
+		private CacheEntry(final Set<URI> redirectURIs, final long expiresAt) {
+			this.redirectURIs = redirectURIs;
+			this.expiresAt = expiresAt;
+		}
+	}
+
 
 	/**
 	 * The URL resource retriever.
@@ -32,7 +100,27 @@ public class SectorIDURIValidator {
 
 
 	/**
-	 * Creates a new sector identifier URI validator.
+	 * The cache time-to-live, in seconds, zero if caching is disabled.
+	 */
+	private final long cacheTTL;
+
+
+	/**
+	 * The cached published redirection URIs, {@code null} if caching is
+	 * disabled.
+	 */
+	private final BoundedCache<URI,CacheEntry> cache;
+
+
+	/**
+	 * Coalesces concurrent retrievals of the same sector identifier URI.
+	 */
+	private final SingleFlight<URI,Set<URI>> singleFlight = new SingleFlight<>();
+
+
+	/**
+	 * Creates a new sector identifier URI validator. The sector
+	 * identifier URIs are retrieved on each validation.
 	 *
 	 * @param resourceRetriever The URL resource retriever to use. Must not
 	 *                          be {@code null}.
@@ -42,6 +130,34 @@ public class SectorIDURIValidator {
 			throw new IllegalArgumentException("The resource retriever must not be null");
 		}
 		this.resourceRetriever = resourceRetriever;
+		cacheTTL = 0L;
+		cache = null;
+	}
+
+
+	/**
+	 * Creates a new sector identifier URI validator which caches the
+	 * published redirection URIs.
+	 *
+	 * @param resourceRetriever The URL resource retriever to use. Must not
+	 *                          be {@code null}.
+	 * @param cacheTTL          The cache time-to-live, in seconds. Must
+	 *                          be positive.
+	 * @param maxCacheSize      The maximum number of cached sector
+	 *                          identifier URIs. Must be positive.
+	 */
+	public SectorIDURIValidator(final ResourceRetriever resourceRetriever,
+				    final long cacheTTL,
+				    final int maxCacheSize) {
+		if (resourceRetriever == null) {
+			throw new IllegalArgumentException("The resource retriever must not be null");
+		}
+		if (cacheTTL <= 0L) {
+			throw new IllegalArgumentException("The cache time-to-live must be positive");
+		}
+		this.resourceRetriever = resourceRetriever;
+		this.cacheTTL = cacheTTL;
+		cache = new BoundedCache<>(maxCacheSize);
 	}
 
 
@@ -56,18 +172,52 @@ public class SectorIDURIValidator {
 
 
 	/**
-	 * Validates the specified sector identifier URI by ensuring it lists
-	 * all specified redirection URIs.
+	 * Returns the cache time-to-live.
 	 *
+	 * @return The cache time-to-live, in seconds, zero if caching is
+	 *         disabled.
+	 */
+	public long getCacheTTL() {
+		return cacheTTL;
+	}
+
+
+	/**
+	 * Removes the cached redirection URIs for the specified sector
+	 * identifier URI.
 	 *
-	 * @param sectorURI    The sector identifier URI. Must not be
-	 *                     {@code null}.
-	 * @param redirectURIs The redirection URIs of the client. Must not be
-	 *                     {@code null}.
+	 * @param sectorURI The sector identifier URI. Must not be
+	 *                  {@code null}.
+	 */
+	public void invalidate(final URI sectorURI) {
+		if (cache != null) {
+			cache.remove(sectorURI);
+		}
+	}
+
+
+	/**
+	 * Removes all cached redirection URIs.
+	 */
+	public void clear() {
+		if (cache != null) {
+			cache.clear();
+		}
+	}
+
+
+	/**
+	 * Retrieves the redirection URIs published at the specified sector
+	 * identifier URI.
 	 *
-	 * @throws GeneralException If validation failed.
+	 * @param sectorURI The sector identifier URI. Must not be
+	 *                  {@code null}.
+	 *
+	 * @return The published redirection URIs.
+	 *
+	 * @throws GeneralException If retrieval or parsing failed.
 	 */
-	public void validate(final URI sectorURI, final Set<URI> redirectURIs)
+	private Set<URI> retrieveRedirectURIs(final URI sectorURI)
 		throws GeneralException {
 
 		Resource resource;
@@ -88,11 +238,210 @@ public class SectorIDURIValidator {
 
 		List<URI> uriList = JSONArrayUtils.toURIList(JSONArrayUtils.parse(resource.getContent()));
 
+		return Collections.unmodifiableSet(new HashSet<>(uriList));
+	}
+
+
+	/**
+	 * Gets the redirection URIs published at the specified sector
+	 * identifier URI, from the cache if available and fresh.
+	 *
+	 * @param sectorURI The sector identifier URI. Must not be
+	 *                  {@code null}.
+	 *
+	 * @return The published redirection URIs.
+	 *
+	 * @throws GeneralException If retrieval or parsing failed.
+	 */
+	private Set<URI> getRedirectURIs(final URI sectorURI)
+		throws GeneralException {
+
+		if (cache == null) {
+			return retrieveRedirectURIs(sectorURI);
+		}
+
+		CacheEntry entry = cache.get(sectorURI);
+
+		if (entry != null && entry.expiresAt > System.currentTimeMillis()) {
+			return entry.redirectURIs;
+		}
+
+		try {
+			return singleFlight.execute(sectorURI, new Callable<Set<URI>>() {
+				@Override
+				public Set<URI> call()
+					throws GeneralException {
+
+					Set<URI> redirectURIs = retrieveRedirectURIs(sectorURI);
+					cache.put(sectorURI, new CacheEntry(redirectURIs, System.currentTimeMillis() + cacheTTL * 1000L));
+					return redirectURIs;
+				}
+			});
+
+		} catch (ExecutionException e) {
+
+			Throwable cause = e.getCause();
+
+			if (cause instanceof GeneralException) {
+				throw (GeneralException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			} else {
+				throw new GeneralException("Couldn't retrieve the sector ID JSON document: " + cause.getMessage(), cause);
+			}
+
+		} catch (InterruptedException e) {
+
+			Thread.currentThread().interrupt();
+			throw new GeneralException("Couldn't retrieve the sector ID JSON document: Interrupted", e);
+		}
+	}
+
+
+	/**
+	 * Ensures the specified redirection URIs are published.
+	 *
+	 * @param sectorURI     The sector identifier URI.
+	 * @param publishedURIs The published redirection URIs.
+	 * @param redirectURIs  The redirection URIs of the client.
+	 *
+	 * @throws GeneralException If a redirection URI isn't published.
+	 */
+	private static void ensurePublished(final URI sectorURI,
+					    final Set<URI> publishedURIs,
+					    final Set<URI> redirectURIs)
+		throws GeneralException {
+
 		for (URI uri: redirectURIs) {
 
-			if (! uriList.contains(uri)) {
+			if (! publishedURIs.contains(uri)) {
 				throw new GeneralException("Sector ID URI validation failed: Redirect URI " + uri + " is missing from published JSON array at sector ID URI " + sectorURI);
 			}
 		}
 	}
+
+
+	/**
+	 * Validates the specified sector identifier URI by ensuring it lists
+	 * all specified redirection URIs.
+	 *
+	 *
+	 * @param sectorURI    The sector identifier URI. Must not be
+	 *                     {@code null}.
+	 * @param redirectURIs The redirection URIs of the client. Must not be
+	 *                     {@code null}.
+	 *
+	 * @throws GeneralException If validation failed.
+	 */
+	public void validate(final URI sectorURI, final Set<URI> redirectURIs)
+		throws GeneralException {
+
+		ensurePublished(sectorURI, getRedirectURIs(sectorURI), redirectURIs);
+	}
+
+
+	/**
+	 * Validates the sector identifier URIs of the specified clients. The
+	 * distinct sector identifier URIs are retrieved concurrently, each
+	 * one once.
+	 *
+	 * @param <K>         The client key type.
+	 * @param clients     The sector identifier URI and the redirection
+	 *                    URIs of each client, keyed by client identifier
+	 *                    or other key. Must not be {@code null}.
+	 * @param parallelism The maximum number of concurrent retrievals.
+	 *                    Must be a positive integer.
+	 *
+	 * @return The validation failures, keyed by client, empty if all
+	 *         clients passed validation.
+	 *
+	 * @throws InterruptedException If the calling thread was interrupted.
+	 */
+	public <K> Map<K,GeneralException> validate(final Map<K,Pair<URI,Set<URI>>> clients,
+						    final int parallelism)
+		throws InterruptedException {
+
+		if (parallelism < 1)
+			throw new IllegalArgumentException("The parallelism must be a positive integer");
+
+		Set<URI> sectorURIs = new HashSet<>();
+
+		for (Pair<URI,Set<URI>> client: clients.values()) {
+			sectorURIs.add(client.getLeft());
+		}
+
+		final AtomicInteger threadCounter = new AtomicInteger();
+
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, sectorURIs.size())), new ThreadFactory() {
+			@Override
+			public Thread newThread(final Runnable r) {
+				Thread t = new Thread(r);
+				t.setName("sector-id-uri-validator-" + threadCounter.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+
+		Map<URI,Future<Set<URI>>> futures = new LinkedHashMap<>();
+
+		try {
+			for (final URI sectorURI: sectorURIs) {
+				futures.put(sectorURI, executor.submit(new Callable<Set<URI>>() {
+					@Override
+					public Set<URI> call()
+						throws GeneralException {
+
+						return getRedirectURIs(sectorURI);
+					}
+				}));
+			}
+
+			Map<URI,Set<URI>> published = new LinkedHashMap<>();
+			Map<URI,GeneralException> retrievalFailures = new LinkedHashMap<>();
+
+			for (Map.Entry<URI,Future<Set<URI>>> en: futures.entrySet()) {
+
+				try {
+					published.put(en.getKey(), en.getValue().get());
+
+				} catch (ExecutionException e) {
+
+					Throwable cause = e.getCause();
+
+					if (cause instanceof Error) {
+						throw (Error) cause;
+					} else if (cause instanceof GeneralException) {
+						retrievalFailures.put(en.getKey(), (GeneralException) cause);
+					} else {
+						retrievalFailures.put(en.getKey(), new GeneralException("Couldn't retrieve the sector ID JSON document: " + cause.getMessage(), cause));
+					}
+				}
+			}
+
+			Map<K,GeneralException> failures = new LinkedHashMap<>();
+
+			for (Map.Entry<K,Pair<URI,Set<URI>>> client: clients.entrySet()) {
+
+				URI sectorURI = client.getValue().getLeft();
+
+				if (retrievalFailures.containsKey(sectorURI)) {
+					failures.put(client.getKey(), retrievalFailures.get(sectorURI));
+					continue;
+				}
+
+				try {
+					ensurePublished(sectorURI, published.get(sectorURI), client.getValue().getRight());
+				} catch (GeneralException e) {
+					failures.put(client.getKey(), e);
+				}
+			}
+
+			return failures;
+
+		} finally {
+			executor.shutdownNow();
+		}
+	}
 }
@@ -2,23 +2,56 @@ package com.nimbusds.openid.connect.sdk.op;
 
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
+import java.util.StringTokenizer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
 import com.nimbusds.jose.JOSEException;
 import com.nimbusds.jose.proc.BadJOSEException;
 import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jose.util.Base64URL;
 import com.nimbusds.jwt.JWT;
 import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.JWTParser;
 import com.nimbusds.jwt.proc.JWTProcessor;
+import com.nimbusds.langtag.LangTag;
+import com.nimbusds.langtag.LangTagException;
 import com.nimbusds.oauth2.sdk.ParseException;
+import com.nimbusds.oauth2.sdk.ResponseMode;
+import com.nimbusds.oauth2.sdk.ResponseType;
+import com.nimbusds.oauth2.sdk.Scope;
 import com.nimbusds.oauth2.sdk.http.ResourceRetriever;
+import com.nimbusds.oauth2.sdk.id.ClientID;
+import com.nimbusds.oauth2.sdk.id.State;
+import com.nimbusds.oauth2.sdk.pkce.CodeChallenge;
+import com.nimbusds.oauth2.sdk.pkce.CodeChallengeMethod;
+import com.nimbusds.oauth2.sdk.util.BoundedCache;
+import com.nimbusds.oauth2.sdk.util.JSONObjectUtils;
+import com.nimbusds.oauth2.sdk.util.SingleFlight;
 import com.nimbusds.openid.connect.sdk.AuthenticationRequest;
+import com.nimbusds.openid.connect.sdk.ClaimsRequest;
+import com.nimbusds.openid.connect.sdk.Display;
+import com.nimbusds.openid.connect.sdk.Nonce;
 import com.nimbusds.openid.connect.sdk.OIDCError;
+import com.nimbusds.openid.connect.sdk.Prompt;
+import com.nimbusds.openid.connect.sdk.claims.ACR;
+import net.jcip.annotations.Immutable;
 import net.jcip.annotations.ThreadSafe;
+import net.minidev.json.JSONObject;
+import org.apache.commons.lang3.StringUtils;
 
 
 /**
@@ -36,6 +69,18 @@ import net.jcip.annotations.ThreadSafe;
  * {@link ResourceRetriever JWT retriever} must be provided, otherwise only
  * inlined request objects can be processed.
  *
+ * <p>Request objects retrieved by URL may optionally be cached, with
+ * concurrent retrievals of the same URL coalesced. A request URI with a
+ * fragment matching the SHA-256 hash of the retrieved request object
+ * identifies immutable content and is cached until evicted. Other request
+ * URIs are cached for the configured time-to-live. The processed JWT
+ * claims sets may also be cached, for at most the configured time-to-live
+ * and not beyond the request object expiration, to skip repeated JWS
+ * validation and JWE decryption for the same client. The cached claims
+ * sets are not keyed by security context, claims caching must therefore
+ * not be enabled if the outcome of the JWT processing depends on the
+ * security context passed to {@link #resolve}.
+ *
  * <p>Related specifications:
  *
  * <ul>
@@ -46,6 +91,80 @@ import net.jcip.annotations.ThreadSafe;
 public class AuthenticationRequestResolver<C extends SecurityContext> {
 
 
+	/**
+	 * Cached request object retrieved by URL.
+	 */
+	@Immutable
+	private static final class CachedRequestObject {
+
+
+		/**
+		 * The serialised request object.
+		 */
+		private final String content;
+
+
+		/**
+		 * The expiration time, in milliseconds since the Unix epoch.
+		 */
+		private final long expiresAt;
+
+
+		/**
+		 * Creates a new cached request object.
+		 *
+		 * @param content   The serialised request object.
+		 * @param expiresAt The expiration time, in milliseconds since
+		 *                  the Unix epoch.
+		 */
+		private CachedRequestObject(final String content, final long expiresAt) {
+			this.content = content;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+
+	/**
+	 * Cached processed claims set of a request object retrieved by URL.
+	 */
+	@Immutable
+	private static final class CachedClaims {
+
+
+		/**
+		 * The identifier of the client which passed the request object.
+		 */
+		private final ClientID clientID;
+
+
+		/**
+		 * The processed JWT claims set.
+		 */
+		private final JWTClaimsSet claimsSet;
+
+
+		/**
+		 * The expiration time, in milliseconds since the Unix epoch.
+		 */
+		private final long expiresAt;
+
+
+		/**
+		 * Creates a new cached claims set.
+		 *
+		 * @param clientID  The client identifier.
+		 * @param claimsSet The processed JWT claims set.
+		 * @param expiresAt The expiration time, in milliseconds since
+		 *                  the Unix epoch.
+		 */
+		private CachedClaims(final ClientID clientID, final JWTClaimsSet claimsSet, final long expiresAt) {
+			this.clientID = clientID;
+			this.claimsSet = claimsSet;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+
 	/**
 	 * The JWT processor.
 	 */
@@ -58,6 +177,33 @@ public class AuthenticationRequestResolver<C extends SecurityContext> {
 	private final ResourceRetriever jwtRetriever;
 
 
+	/**
+	 * The time-to-live of request objects retrieved by URL without a hash
+	 * fragment, in seconds, zero if caching is disabled.
+	 */
+	private final long cacheTTL;
+
+
+	/**
+	 * The cached request objects retrieved by URL, {@code null} if caching
+	 * is disabled.
+	 */
+	private final BoundedCache<URI,CachedRequestObject> requestObjectCache;
+
+
+	/**
+	 * The cached processed claims sets of request objects retrieved by
+	 * URL, {@code null} if claims caching is disabled.
+	 */
+	private final BoundedCache<URI,CachedClaims> claimsCache;
+
+
+	/**
+	 * Coalesces concurrent retrievals of the same request URI.
+	 */
+	private final SingleFlight<URI,CachedRequestObject> singleFlight = new SingleFlight<>();
+
+
 	/**
 	 * Creates a new minimal OpenID Connect authentication request
 	 * resolver. It will not process OpenID Connect request objects and
@@ -67,6 +213,9 @@ public class AuthenticationRequestResolver<C extends SecurityContext> {
 	public AuthenticationRequestResolver() {
 		jwtProcessor = null;
 		jwtRetriever = null;
+		cacheTTL = 0L;
+		requestObjectCache = null;
+		claimsCache = null;
 	}
 	
 	
@@ -86,6 +235,9 @@ public class AuthenticationRequestResolver<C extends SecurityContext> {
 			throw new IllegalArgumentException("The JWT processor must not be null");
 		this.jwtProcessor = jwtProcessor;
 		jwtRetriever = null;
+		cacheTTL = 0L;
+		requestObjectCache = null;
+		claimsCache = null;
 	}
 	
 	
@@ -111,6 +263,56 @@ public class AuthenticationRequestResolver<C extends SecurityContext> {
 		if (jwtRetriever == null)
 			throw new IllegalArgumentException("The JWT retriever must not be null");
 		this.jwtRetriever = jwtRetriever;
+
+		cacheTTL = 0L;
+		requestObjectCache = null;
+		claimsCache = null;
+	}
+
+
+	/**
+	 * Creates a new OpenID Connect request object resolver that supports
+	 * OpenID Connect request objects passed by value (using the
+	 * authentication {@code request} parameter) or by reference (using the
+	 * authentication {@code request_uri} parameter), and caches the
+	 * request objects retrieved by reference.
+	 *
+	 * @param jwtProcessor A configured JWT processor providing JWS
+	 *                     validation and optional JWE decryption of the
+	 *                     request objects. Must not be {@code null}.
+	 * @param jwtRetriever A configured JWT retriever for OpenID Connect
+	 *                     request objects passed by URI. Must not be
+	 *                     {@code null}.
+	 * @param cacheTTL     The time-to-live of request objects retrieved
+	 *                     by URI without a hash fragment, in seconds. Must
+	 *                     be positive.
+	 * @param maxCacheSize The maximum number of cached request objects.
+	 *                     Must be positive.
+	 * @param cacheClaims  If {@code true} the processed JWT claims sets of
+	 *                     request objects retrieved by URI are also
+	 *                     cached, per client. Must be {@code false} if
+	 *                     the JWT processing depends on the security
+	 *                     context.
+	 */
+	public AuthenticationRequestResolver(final JWTProcessor<C> jwtProcessor,
+					     final ResourceRetriever jwtRetriever,
+					     final long cacheTTL,
+					     final int maxCacheSize,
+					     final boolean cacheClaims) {
+		if (jwtProcessor == null)
+			throw new IllegalArgumentException("The JWT processor must not be null");
+		this.jwtProcessor = jwtProcessor;
+
+		if (jwtRetriever == null)
+			throw new IllegalArgumentException("The JWT retriever must not be null");
+		this.jwtRetriever = jwtRetriever;
+
+		if (cacheTTL <= 0L)
+			throw new IllegalArgumentException("The cache time-to-live must be positive");
+		this.cacheTTL = cacheTTL;
+
+		requestObjectCache = new BoundedCache<>(maxCacheSize);
+		claimsCache = cacheClaims ? new BoundedCache<URI,CachedClaims>(maxCacheSize) : null;
 	}
 	
 	
@@ -136,6 +338,166 @@ public class AuthenticationRequestResolver<C extends SecurityContext> {
 	}
 
 
+	/**
+	 * Returns the time-to-live of cached request objects retrieved by URI
+	 * without a hash fragment.
+	 *
+	 * @return The cache time-to-live, in seconds, zero if caching is
+	 *         disabled.
+	 */
+	public long getCacheTTL() {
+
+		return cacheTTL;
+	}
+
+
+	/**
+	 * Removes all cached request objects and processed claims sets.
+	 */
+	public void clearCache() {
+
+		if (requestObjectCache != null) {
+			requestObjectCache.clear();
+		}
+
+		if (claimsCache != null) {
+			claimsCache.clear();
+		}
+	}
+
+
+	/**
+	 * Checks if the fragment of the specified request URI is the SHA-256
+	 * hash of the specified request object, Base64URL or hex encoded.
+	 *
+	 * @param requestURI The request URI. Must not be {@code null}.
+	 * @param content    The serialised request object. Must not be
+	 *                   {@code null}.
+	 *
+	 * @return {@code true} if the fragment matches the content hash, else
+	 *         {@code false}.
+	 */
+	private static boolean matchesFragmentHash(final URI requestURI, final String content) {
+
+		String fragment = requestURI.getFragment();
+
+		if (StringUtils.isBlank(fragment)) {
+			return false;
+		}
+
+		byte[] hash;
+
+		try {
+			hash = MessageDigest.getInstance("SHA-256").digest(content.getBytes(Charset.forName("UTF-8")));
+
+		} catch (NoSuchAlgorithmException e) {
+
+			// SHA-256 support is required by the Java platform
+			throw new IllegalStateException(e.getMessage(), e);
+		}
+
+		if (fragment.equals(Base64URL.encode(hash).toString())) {
+			return true;
+		}
+
+		StringBuilder hex = new StringBuilder(hash.length * 2);
+
+		for (byte b: hash) {
+			hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+			hex.append(Character.forDigit(b & 0xF, 16));
+		}
+
+		return fragment.equalsIgnoreCase(hex.toString());
+	}
+
+
+	/**
+	 * Returns the expiration time for a cached request object retrieved
+	 * from the specified URI.
+	 *
+	 * @param requestURI The request URI. Must not be {@code null}.
+	 * @param content    The serialised request object. Must not be
+	 *                   {@code null}.
+	 *
+	 * @return The expiration time, in milliseconds since the Unix epoch.
+	 */
+	private long computeExpiration(final URI requestURI, final String content) {
+
+		if (matchesFragmentHash(requestURI, content)) {
+			// Verified content hash, the URI changes with the content
+			return Long.MAX_VALUE;
+		}
+
+		return System.currentTimeMillis() + cacheTTL * 1000L;
+	}
+
+
+	/**
+	 * Retrieves the request object at the specified URI, from the cache
+	 * if caching is enabled.
+	 *
+	 * @param requestURI The request URI. Must not be {@code null}.
+	 *
+	 * @return The serialised request object.
+	 *
+	 * @throws IOException If the request object couldn't be retrieved.
+	 */
+	private String retrieveRequestObject(final URI requestURI)
+		throws IOException {
+
+		if (requestObjectCache == null) {
+			return jwtRetriever.retrieveResource(requestURI.toURL()).getContent();
+		}
+
+		CachedRequestObject cached = requestObjectCache.get(requestURI);
+
+		if (cached != null && cached.expiresAt > System.currentTimeMillis()) {
+			return cached.content;
+		}
+
+		try {
+			return singleFlight.execute(requestURI, new Callable<CachedRequestObject>() {
+				@Override
+				public CachedRequestObject call()
+					throws IOException {
+
+					String content = jwtRetriever.retrieveResource(requestURI.toURL()).getContent();
+
+					CachedRequestObject retrieved = new CachedRequestObject(content, computeExpiration(requestURI, content));
+
+					try {
+						JWTParser.parse(content);
+						requestObjectCache.put(requestURI, retrieved);
+					} catch (java.text.ParseException e) {
+						// Don't cache invalid JWTs
+					}
+
+					return retrieved;
+				}
+			}).content;
+
+		} catch (ExecutionException e) {
+
+			Throwable cause = e.getCause();
+
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			} else {
+				throw new IOException(cause.getMessage(), cause);
+			}
+
+		} catch (InterruptedException e) {
+
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted");
+		}
+	}
+
+
 	/**
 	 * Reformats the specified JWT claims set to a 
 	 * {@literal java.util.Map&<String,String>} instance.
@@ -166,6 +528,298 @@ public class AuthenticationRequestResolver<C extends SecurityContext> {
 	}
 
 
+	/**
+	 * Parses a space-separated list of language tags.
+	 *
+	 * @param paramName The parameter name.
+	 * @param value     The parameter value, {@code null} if not
+	 *                  specified.
+	 *
+	 * @return The language tags, {@code null} if not specified.
+	 *
+	 * @throws ParseException If parsing failed.
+	 */
+	private static List<LangTag> parseLangTags(final String paramName, final String value)
+		throws ParseException {
+
+		if (StringUtils.isBlank(value)) {
+			return null;
+		}
+
+		List<LangTag> langTags = new LinkedList<>();
+
+		StringTokenizer st = new StringTokenizer(value, " ");
+
+		while (st.hasMoreTokens()) {
+
+			try {
+				langTags.add(LangTag.parse(st.nextToken()));
+
+			} catch (LangTagException e) {
+				throw new ParseException("Invalid \"" + paramName + "\" parameter: " + e.getMessage(), e);
+			}
+		}
+
+		return langTags;
+	}
+
+
+	/**
+	 * Merges the parameters of the specified OpenID Connect authentication
+	 * request with the claims of its request object. The typed claim
+	 * values are set directly, only the parameters found in the request
+	 * object are parsed and validated. The {@code request} and
+	 * {@code request_uri} parameters are removed.
+	 *
+	 * @param request   The OpenID Connect authentication request. Must
+	 *                  not be {@code null}.
+	 * @param claimsSet The request object claims. Must not be
+	 *                  {@code null}.
+	 *
+	 * @return The merged OpenID Connect authentication request.
+	 *
+	 * @throws ParseException If a request object parameter is invalid, or
+	 *                        the merged request is invalid.
+	 */
+	private static AuthenticationRequest merge(final AuthenticationRequest request,
+						   final JWTClaimsSet claimsSet)
+		throws ParseException {
+
+		AuthenticationRequest.Builder builder = new AuthenticationRequest.Builder(request)
+			.requestObject(null)
+			.requestURI(null);
+
+		ResponseType rt = request.getResponseType();
+		Nonce nonce = request.getNonce();
+		URI redirectURI = request.getRedirectionURI();
+		CodeChallenge codeChallenge = request.getCodeChallenge();
+		CodeChallengeMethod codeChallengeMethod = request.getCodeChallengeMethod();
+
+		for (Map.Entry<String,Object> claim: claimsSet.getClaims().entrySet()) {
+
+			final String name = claim.getKey();
+			final Object value = claim.getValue();
+
+			if (value == null) {
+				continue; // skip
+			}
+
+			final String v = value.toString();
+
+			switch (name) {
+
+				case "request":
+				case "request_uri":
+					break; // make sure request object / request_uri is deleted
+
+				case "response_type":
+					try {
+						rt = ResponseType.parse(v);
+					} catch (ParseException e) {
+						throw new ParseException("Missing \"response_type\" parameter", e);
+					}
+					try {
+						builder.responseType(rt);
+					} catch (IllegalArgumentException e) {
+						throw new ParseException("Unsupported \"response_type\" parameter: " + e.getMessage(), e);
+					}
+					break;
+
+				case "client_id":
+					if (StringUtils.isBlank(v)) {
+						throw new ParseException("Missing \"client_id\" parameter");
+					}
+					builder.clientID(new ClientID(v));
+					break;
+
+				case "redirect_uri":
+					redirectURI = null;
+					if (StringUtils.isNotBlank(v)) {
+						try {
+							redirectURI = new URI(v);
+						} catch (URISyntaxException e) {
+							throw new ParseException("Invalid \"redirect_uri\" parameter: " + e.getMessage(), e);
+						}
+					}
+					builder.redirectionURI(redirectURI);
+					break;
+
+				case "scope":
+					if (StringUtils.isBlank(v)) {
+						throw new ParseException("Missing \"scope\" parameter");
+					}
+					try {
+						builder.scope(Scope.parse(v));
+					} catch (IllegalArgumentException e) {
+						throw new ParseException("The scope must include an \"openid\" value", e);
+					}
+					break;
+
+				case "state":
+					builder.state(State.parse(v));
+					break;
+
+				case "response_mode":
+					builder.responseMode(StringUtils.isNotBlank(v) ? new ResponseMode(v) : null);
+					break;
+
+				case "nonce":
+					nonce = Nonce.parse(v);
+					builder.nonce(nonce);
+					break;
+
+				case "display":
+					try {
+						builder.display(Display.parse(v));
+					} catch (ParseException e) {
+						throw new ParseException("Invalid \"display\" parameter: " + e.getMessage(), e);
+					}
+					break;
+
+				case "prompt":
+					try {
+						builder.prompt(Prompt.parse(v));
+					} catch (ParseException e) {
+						throw new ParseException("Invalid \"prompt\" parameter: " + e.getMessage(), e);
+					}
+					break;
+
+				case "max_age":
+					if (value instanceof Number) {
+						builder.maxAge(((Number) value).intValue());
+					} else if (StringUtils.isBlank(v)) {
+						builder.maxAge(0);
+					} else {
+						try {
+							builder.maxAge(Integer.parseInt(v));
+						} catch (NumberFormatException e) {
+							throw new ParseException("Invalid \"max_age\" parameter: " + v, e);
+						}
+					}
+					break;
+
+				case "ui_locales":
+					builder.uiLocales(parseLangTags(name, v));
+					break;
+
+				case "claims_locales":
+					builder.claimsLocales(parseLangTags(name, v));
+					break;
+
+				case "id_token_hint":
+					JWT idTokenHint = null;
+					if (StringUtils.isNotBlank(v)) {
+						try {
+							idTokenHint = JWTParser.parse(v);
+						} catch (java.text.ParseException e) {
+							throw new ParseException("Invalid \"id_token_hint\" parameter: " + e.getMessage(), e);
+						}
+					}
+					builder.idTokenHint(idTokenHint);
+					break;
+
+				case "login_hint":
+					builder.loginHint(v);
+					break;
+
+				case "acr_values":
+					List<ACR> acrValues = null;
+					if (StringUtils.isNotBlank(v)) {
+						acrValues = new LinkedList<>();
+						StringTokenizer st = new StringTokenizer(v, " ");
+						while (st.hasMoreTokens()) {
+							acrValues.add(new ACR(st.nextToken()));
+						}
+					}
+					builder.acrValues(acrValues);
+					break;
+
+				case "claims":
+					ClaimsRequest claims = null;
+					if (value instanceof Map) {
+						// Parse exceptions silently ignored
+						@SuppressWarnings("unchecked")
+						JSONObject jsonObject = value instanceof JSONObject ? (JSONObject) value : new JSONObject((Map<String,?>) value);
+						claims = ClaimsRequest.parse(jsonObject);
+					} else if (StringUtils.isNotBlank(v)) {
+						JSONObject jsonObject;
+						try {
+							jsonObject = JSONObjectUtils.parse(v);
+						} catch (ParseException e) {
+							throw new ParseException("Invalid \"claims\" parameter: " + e.getMessage(), e);
+						}
+						// Parse exceptions silently ignored
+						claims = ClaimsRequest.parse(jsonObject);
+					}
+					builder.claims(claims);
+					break;
+
+				case "code_challenge":
+					codeChallenge = StringUtils.isNotBlank(v) ? new CodeChallenge(v) : null;
+					break;
+
+				case "code_challenge_method":
+					codeChallengeMethod = StringUtils.isNotBlank(v) ? CodeChallengeMethod.parse(v) : null;
+					break;
+
+				default:
+					builder.customParameter(name, v);
+			}
+		}
+
+		builder.codeChallenge(codeChallenge, codeChallenge != null ? codeChallengeMethod : null);
+
+		// Nonce required in implicit flow
+		if (rt.impliesImplicitFlow() && nonce == null) {
+			throw new ParseException("Missing \"nonce\" parameter: Required in implicit flow");
+		}
+
+		// Redirect URI required, request_object / request_uri removed
+		if (redirectURI == null) {
+			throw new ParseException("Missing \"redirect_uri\" parameter");
+		}
+
+		try {
+			return builder.build();
+
+		} catch (IllegalStateException e) {
+
+			throw new ParseException(e.getMessage(), e);
+		}
+	}
+
+
+	/**
+	 * Processes the specified request object.
+	 *
+	 * @param jwt             The request object. Must not be
+	 *                        {@code null}.
+	 * @param securityContext Optional security context to pass to the JWT
+	 *                        processor, {@code null} if not specified.
+	 * @param request         The OpenID Connect authentication request.
+	 *                        Must not be {@code null}.
+	 *
+	 * @return The JWT claims set.
+	 *
+	 * @throws ResolveException If the request object is invalid.
+	 * @throws JOSEException    If an internal processing exception was
+	 *                          encountered.
+	 */
+	private JWTClaimsSet process(final JWT jwt,
+				     final C securityContext,
+				     final AuthenticationRequest request)
+		throws ResolveException, JOSEException {
+
+		try {
+			return jwtProcessor.process(jwt, securityContext);
+		} catch (BadJOSEException e) {
+			throw new ResolveException("Invalid request object: " + e.getMessage(),
+				"Bad JWT / signature / HMAC / encryption", // error_description for client, hide details
+				request, e);
+		}
+	}
+
+
 	/**
 	 * Resolves the specified OpenID Connect authentication request by
 	 * superseding its parameters with those found in the optional OpenID
@@ -191,7 +845,7 @@ public class AuthenticationRequestResolver<C extends SecurityContext> {
 			return request;
 		}
 
-		final JWT jwt;
+		final JWTClaimsSet jwtClaims;
 
 		if (request.getRequestURI() != null) {
 
@@ -200,18 +854,57 @@ public class AuthenticationRequestResolver<C extends SecurityContext> {
 				throw new ResolveException(OIDCError.REQUEST_URI_NOT_SUPPORTED, request);
 			}
 
-			// Download request object
-			try {
-				jwt = JWTParser.parse(jwtRetriever.retrieveResource(request.getRequestURI().toURL()).getContent());
-			} catch (MalformedURLException e) {
-				throw new ResolveException(OIDCError.INVALID_REQUEST_URI.setDescription("Malformed URL"), request);
-			} catch (IOException e) {
-				// Most likely client problem, possible causes: bad URL, timeout, network down
-				throw new ResolveException("Couldn't retrieve request_uri: " + e.getMessage(),
-					"Network error, check the request_uri", // error_description for client, hide details
-					request, e);
-			} catch (java.text.ParseException e) {
-				throw new ResolveException(OIDCError.INVALID_REQUEST_URI.setDescription("Invalid JWT"), request);
+			final URI requestURI = request.getRequestURI();
+
+			JWTClaimsSet cachedClaims = null;
+
+			if (claimsCache != null) {
+				CachedClaims cached = claimsCache.get(requestURI);
+				if (cached != null &&
+				    cached.expiresAt > System.currentTimeMillis() &&
+				    cached.clientID.equals(request.getClientID())) {
+					cachedClaims = cached.claimsSet;
+				}
+			}
+
+			if (cachedClaims != null) {
+
+				jwtClaims = cachedClaims;
+
+			} else {
+
+				final JWT jwt;
+
+				// Download request object
+				try {
+					jwt = JWTParser.parse(retrieveRequestObject(requestURI));
+				} catch (MalformedURLException e) {
+					throw new ResolveException(OIDCError.INVALID_REQUEST_URI.setDescription("Malformed URL"), request);
+				} catch (IOException e) {
+					// Most likely client problem, possible causes: bad URL, timeout, network down
+					throw new ResolveException("Couldn't retrieve request_uri: " + e.getMessage(),
+						"Network error, check the request_uri", // error_description for client, hide details
+						request, e);
+				} catch (java.text.ParseException e) {
+					throw new ResolveException(OIDCError.INVALID_REQUEST_URI.setDescription("Invalid JWT"), request);
+				}
+
+				jwtClaims = process(jwt, securityContext, request);
+
+				if (claimsCache != null) {
+
+					// Bounded lifetime, the JWT processing may depend
+					// on keys which are rotated or revoked
+					long expiresAt = System.currentTimeMillis() + cacheTTL * 1000L;
+
+					Date exp = jwtClaims.getExpirationTime();
+
+					if (exp != null) {
+						expiresAt = Math.min(expiresAt, exp.getTime());
+					}
+
+					claimsCache.put(requestURI, new CachedClaims(request.getClientID(), jwtClaims, expiresAt));
+				}
 			}
 
 		} else {
@@ -221,28 +914,12 @@ public class AuthenticationRequestResolver<C extends SecurityContext> {
 			}
 
 			// Request object inlined
-			jwt = request.getRequestObject();
-		}
-
-		final JWTClaimsSet jwtClaims;
-
-		try {
-			jwtClaims = jwtProcessor.process(jwt, securityContext);
-		} catch (BadJOSEException e) {
-			throw new ResolveException("Invalid request object: " + e.getMessage(),
-				"Bad JWT / signature / HMAC / encryption", // error_description for client, hide details
-				request, e);
+			jwtClaims = process(request.getRequestObject(), securityContext, request);
 		}
 
-		Map<String,String> finalParams = new HashMap<>();
-		finalParams.putAll(request.toParameters());
-		finalParams.putAll(reformatClaims(jwtClaims)); // Merge params from request object
-		finalParams.remove("request"); // make sure request object is deleted
-		finalParams.remove("request_uri"); // make sure request_uri is deleted
-
 		// Create new updated OpenID auth request
 		try {
-			return AuthenticationRequest.parse(request.getEndpointURI(), finalParams);
+			return merge(request, jwtClaims);
 		} catch (ParseException e) {
 			// E.g. missing OIDC required redirect_uri
 			throw new ResolveException("Couldn't create final OpenID authentication request: " + e.getMessage(),
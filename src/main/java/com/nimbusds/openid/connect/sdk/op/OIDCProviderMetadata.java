@@ -1768,7 +1768,7 @@ public class OIDCProviderMetadata {
 			for (String v: JSONObjectUtils.getStringArray(jsonObject, "scopes_supported")) {
 
 				if (v != null)
-					op.scope.add(new Scope.Value(v));
+					op.scope.add(Scope.Value.parse(v));
 			}
 		}
 
@@ -1834,7 +1834,7 @@ public class OIDCProviderMetadata {
 			for (String v: JSONObjectUtils.getStringArray(jsonObject, "token_endpoint_auth_methods_supported")) {
 				
 				if (v != null)
-					op.tokenEndpointAuthMethods.add(new ClientAuthenticationMethod(v));
+					op.tokenEndpointAuthMethods.add(ClientAuthenticationMethod.parse(v));
 			}
 		}
 		
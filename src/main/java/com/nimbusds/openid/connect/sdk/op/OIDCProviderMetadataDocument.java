@@ -0,0 +1,348 @@
+package com.nimbusds.openid.connect.sdk.op;
+
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.StringTokenizer;
+import java.util.TimeZone;
+
+import com.nimbusds.jose.util.Base64URL;
+import com.nimbusds.oauth2.sdk.http.CommonContentTypes;
+import com.nimbusds.oauth2.sdk.http.HTTPRequest;
+import com.nimbusds.oauth2.sdk.http.HTTPResponse;
+import net.jcip.annotations.Immutable;
+
+
+/**
+ * Immutable, pre-serialised snapshot of OpenID Provider metadata, for
+ * serving the discovery endpoint at
+ * {@code /.well-known/openid-configuration}. The metadata is serialised
+ * once, and the UTF-8 encoded document is kept together with a strong
+ * {@code ETag} and a {@code Last-Modified} date, so that conditional
+ * requests from Relying Parties can be answered with
+ * {@code 304 Not Modified}.
+ *
+ * <p>Later changes to the metadata are not reflected in the document, a
+ * new document must be created instead.
+ *
+ * <p>Example:
+ *
+ * <pre>
+ * OIDCProviderMetadataDocument document = new OIDCProviderMetadataDocument(opMetadata);
+ *
+ * HTTPResponse httpResponse = document.toHTTPResponse(httpRequest);
+ * </pre>
+ *
+ * <p>Related specifications:
+ *
+ * <ul>
+ *     <li>OpenID Connect Discovery 1.0, section 4.2.
+ *     <li>Hypertext Transfer Protocol (HTTP/1.1): Conditional Requests
+ *         (RFC 7232).
+ * </ul>
+ */
+@Immutable
+public final class OIDCProviderMetadataDocument {
+
+
+	/**
+	 * The document character set.
+	 */
+	private static final Charset UTF8 = Charset.forName(CommonContentTypes.DEFAULT_CHARSET);
+
+
+	/**
+	 * The serialised metadata.
+	 */
+	private final String json;
+
+
+	/**
+	 * The UTF-8 encoded serialised metadata.
+	 */
+	private final byte[] bytes;
+
+
+	/**
+	 * The strong entity tag, quoted.
+	 */
+	private final String eTag;
+
+
+	/**
+	 * The last modification time, in milliseconds since the Unix epoch,
+	 * truncated to seconds.
+	 */
+	private final long lastModified;
+
+
+	/**
+	 * The last modification time, formatted as HTTP date.
+	 */
+	private final String lastModifiedString;
+
+
+	/**
+	 * Creates a new OpenID Provider metadata document, with the current
+	 * time as last modification time.
+	 *
+	 * @param metadata The OpenID Provider metadata. Must not be
+	 *                 {@code null}.
+	 */
+	public OIDCProviderMetadataDocument(final OIDCProviderMetadata metadata) {
+
+		this(metadata, new Date());
+	}
+
+
+	/**
+	 * Creates a new OpenID Provider metadata document.
+	 *
+	 * @param metadata     The OpenID Provider metadata. Must not be
+	 *                     {@code null}.
+	 * @param lastModified The last modification time of the metadata.
+	 *                     Must not be {@code null}.
+	 */
+	public OIDCProviderMetadataDocument(final OIDCProviderMetadata metadata,
+					    final Date lastModified) {
+
+		if (metadata == null)
+			throw new IllegalArgumentException("The OpenID Provider metadata must not be null");
+
+		if (lastModified == null)
+			throw new IllegalArgumentException("The last modification time must not be null");
+
+		json = metadata.toJSONObject().toJSONString();
+		bytes = json.getBytes(UTF8);
+		eTag = computeETag(bytes);
+		this.lastModified = lastModified.getTime() / 1000L * 1000L;
+		lastModifiedString = createHTTPDateFormat().format(new Date(this.lastModified));
+	}
+
+
+	/**
+	 * Computes a strong entity tag for the specified content.
+	 *
+	 * @param content The content.
+	 *
+	 * @return The quoted entity tag.
+	 */
+	private static String computeETag(final byte[] content) {
+
+		try {
+			byte[] hash = MessageDigest.getInstance("SHA-256").digest(content);
+			return "\"" + Base64URL.encode(hash) + "\"";
+
+		} catch (NoSuchAlgorithmException e) {
+
+			// SHA-256 support is required by the Java platform
+			throw new IllegalStateException(e.getMessage(), e);
+		}
+	}
+
+
+	/**
+	 * Creates a new HTTP date format (RFC 7231, section 7.1.1.1). Date
+	 * formats are not thread-safe.
+	 *
+	 * @return The HTTP date format.
+	 */
+	private static DateFormat createHTTPDateFormat() {
+
+		SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+		format.setTimeZone(TimeZone.getTimeZone("GMT"));
+		return format;
+	}
+
+
+	/**
+	 * Returns the serialised OpenID Provider metadata.
+	 *
+	 * @return The JSON object string.
+	 */
+	public String getJSONString() {
+
+		return json;
+	}
+
+
+	/**
+	 * Returns a copy of the UTF-8 encoded serialised OpenID Provider
+	 * metadata.
+	 *
+	 * @return The UTF-8 encoded JSON object string.
+	 */
+	public byte[] getBytes() {
+
+		return bytes.clone();
+	}
+
+
+	/**
+	 * Returns the length of the UTF-8 encoded serialised OpenID Provider
+	 * metadata, for the {@code Content-Length} header.
+	 *
+	 * @return The content length, in bytes.
+	 */
+	public int getContentLength() {
+
+		return bytes.length;
+	}
+
+
+	/**
+	 * Writes the UTF-8 encoded serialised OpenID Provider metadata to the
+	 * specified output stream, without copying.
+	 *
+	 * @param out The output stream. Must not be {@code null}.
+	 *
+	 * @throws IOException If writing failed.
+	 */
+	public void writeTo(final OutputStream out)
+		throws IOException {
+
+		out.write(bytes);
+	}
+
+
+	/**
+	 * Returns the strong entity tag of the document.
+	 *
+	 * @return The quoted entity tag, for the {@code ETag} header.
+	 */
+	public String getETag() {
+
+		return eTag;
+	}
+
+
+	/**
+	 * Returns the last modification time of the document.
+	 *
+	 * @return The last modification time, truncated to seconds.
+	 */
+	public Date getLastModified() {
+
+		return new Date(lastModified);
+	}
+
+
+	/**
+	 * Returns the last modification time of the document, formatted as
+	 * HTTP date.
+	 *
+	 * @return The HTTP date, for the {@code Last-Modified} header.
+	 */
+	public String getLastModifiedString() {
+
+		return lastModifiedString;
+	}
+
+
+	/**
+	 * Checks if the document matches the specified conditional request
+	 * headers, i.e. the client already has the current document. The
+	 * {@code If-Modified-Since} header is ignored if an
+	 * {@code If-None-Match} header is present.
+	 *
+	 * @param ifNoneMatch     The {@code If-None-Match} header value,
+	 *                        {@code null} if not specified.
+	 * @param ifModifiedSince The {@code If-Modified-Since} header value,
+	 *                        {@code null} if not specified.
+	 *
+	 * @return {@code true} if the document wasn't modified, else
+	 *         {@code false}.
+	 */
+	public boolean isNotModified(final String ifNoneMatch, final String ifModifiedSince) {
+
+		if (ifNoneMatch != null) {
+
+			StringTokenizer st = new StringTokenizer(ifNoneMatch, ",");
+
+			while (st.hasMoreTokens()) {
+
+				String tag = st.nextToken().trim();
+
+				// Weak comparison, see RFC 7232, section 3.2
+				if (tag.startsWith("W/")) {
+					tag = tag.substring(2);
+				}
+
+				if (tag.equals("*") || tag.equals(eTag)) {
+					return true;
+				}
+			}
+
+			return false;
+		}
+
+		if (ifModifiedSince != null) {
+
+			if (ifModifiedSince.equals(lastModifiedString)) {
+				// Echoed Last-Modified header, skip date parsing
+				return true;
+			}
+
+			try {
+				return createHTTPDateFormat().parse(ifModifiedSince).getTime() >= lastModified;
+
+			} catch (java.text.ParseException e) {
+
+				// Invalid dates must be ignored
+				return false;
+			}
+		}
+
+		return false;
+	}
+
+
+	/**
+	 * Returns a {@link HTTPResponse#SC_OK 200 OK} HTTP response with the
+	 * document, the {@code ETag} and the {@code Last-Modified} headers.
+	 *
+	 * @return The HTTP response.
+	 */
+	public HTTPResponse toHTTPResponse() {
+
+		HTTPResponse httpResponse = new HTTPResponse(HTTPResponse.SC_OK);
+		httpResponse.setContentType(CommonContentTypes.APPLICATION_JSON);
+		httpResponse.setHeader("ETag", eTag);
+		httpResponse.setHeader("Last-Modified", lastModifiedString);
+		httpResponse.setContent(json);
+		return httpResponse;
+	}
+
+
+	/**
+	 * Returns the HTTP response for the specified discovery request. If
+	 * the request is conditional and the document wasn't modified a
+	 * {@link HTTPResponse#SC_NOT_MODIFIED 304 Not Modified} response
+	 * without content is returned, else a
+	 * {@link HTTPResponse#SC_OK 200 OK} response with the document. Both
+	 * responses have the {@code ETag} and the {@code Last-Modified}
+	 * headers.
+	 *
+	 * @param httpRequest The HTTP request. Must not be {@code null}.
+	 *
+	 * @return The HTTP response.
+	 */
+	public HTTPResponse toHTTPResponse(final HTTPRequest httpRequest) {
+
+		if (! isNotModified(httpRequest.getHeader("If-None-Match"), httpRequest.getHeader("If-Modified-Since"))) {
+			return toHTTPResponse();
+		}
+
+		HTTPResponse httpResponse = new HTTPResponse(HTTPResponse.SC_NOT_MODIFIED);
+		httpResponse.setHeader("ETag", eTag);
+		httpResponse.setHeader("Last-Modified", lastModifiedString);
+		return httpResponse;
+	}
+}
@@ -8,9 +8,9 @@ import java.util.*;
 import com.nimbusds.jose.EncryptionMethod;
 import com.nimbusds.jose.JWEAlgorithm;
 import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.langtag.LangTag;
 import com.nimbusds.oauth2.sdk.ParseException;
 import com.nimbusds.oauth2.sdk.client.ClientMetadata;
-import com.nimbusds.oauth2.sdk.client.RegistrationError;
 import com.nimbusds.oauth2.sdk.util.JSONObjectUtils;
 import com.nimbusds.openid.connect.sdk.SubjectType;
 import com.nimbusds.openid.connect.sdk.claims.ACR;
@@ -871,50 +871,54 @@ public class OIDCClientMetadata extends ClientMetadata {
 
 
 	/**
-	 * Parses an OpenID Connect client metadata instance from the specified
-	 * JSON object.
-	 *
-	 * @param jsonObject The JSON object to parse. Must not be 
-	 *                   {@code null}.
-	 *
-	 * @return The OpenID Connect client metadata.
-	 *
-	 * @throws ParseException If the JSON object couldn't be parsed to an
-	 *                        OpenID Connect client metadata instance.
+	 * The registered parameter parsers, keyed by parameter base name,
+	 * including the base OAuth 2.0 client parameter parsers.
 	 */
-	public static OIDCClientMetadata parse(final JSONObject jsonObject)
-		throws ParseException {
+	private static final Map<String,ParameterParser<? super OIDCClientMetadata>> PARAMETER_PARSERS;
 
-		ClientMetadata baseMetadata = ClientMetadata.parse(jsonObject);
-		
-		OIDCClientMetadata metadata = new OIDCClientMetadata(baseMetadata);
 
-		// Parse the OIDC-specific fields from the custom OAuth 2.0 dyn
-		// reg fields
+	/**
+	 * Initialises the registered parameter parsers.
+	 */
+	static {
+		// Start with the base OAuth 2.0 client param parsers
+		Map<String,ParameterParser<? super OIDCClientMetadata>> p = new HashMap<String,ParameterParser<? super OIDCClientMetadata>>(ClientMetadata.getParameterParsers());
 
-		JSONObject oidcFields = baseMetadata.getCustomFields();
+		p.put("application_type", new ParameterParser<OIDCClientMetadata>() {
+			@Override
+			public void parse(final OIDCClientMetadata metadata, final JSONObject jsonObject, final String name, final LangTag langTag)
+				throws ParseException {
 
-		try {
-			if (jsonObject.containsKey("application_type")) {
-				metadata.setApplicationType(JSONObjectUtils.getEnum(jsonObject, "application_type", ApplicationType.class));
-				oidcFields.remove("application_type");
+				metadata.setApplicationType(JSONObjectUtils.getEnum(jsonObject, name, ApplicationType.class));
 			}
+		});
 
-			if (jsonObject.containsKey("subject_type")) {
-				metadata.setSubjectType(JSONObjectUtils.getEnum(jsonObject, "subject_type", SubjectType.class));
-				oidcFields.remove("subject_type");
+		p.put("subject_type", new ParameterParser<OIDCClientMetadata>() {
+			@Override
+			public void parse(final OIDCClientMetadata metadata, final JSONObject jsonObject, final String name, final LangTag langTag)
+				throws ParseException {
+
+				metadata.setSubjectType(JSONObjectUtils.getEnum(jsonObject, name, SubjectType.class));
 			}
+		});
+
+		p.put("sector_identifier_uri", new ParameterParser<OIDCClientMetadata>() {
+			@Override
+			public void parse(final OIDCClientMetadata metadata, final JSONObject jsonObject, final String name, final LangTag langTag)
+				throws ParseException {
 
-			if (jsonObject.containsKey("sector_identifier_uri")) {
-				metadata.setSectorIDURI(JSONObjectUtils.getURI(jsonObject, "sector_identifier_uri"));
-				oidcFields.remove("sector_identifier_uri");
+				metadata.setSectorIDURI(JSONObjectUtils.getURI(jsonObject, name));
 			}
+		});
 
-			if (jsonObject.containsKey("request_uris")) {
+		p.put("request_uris", new ParameterParser<OIDCClientMetadata>() {
+			@Override
+			public void parse(final OIDCClientMetadata metadata, final JSONObject jsonObject, final String name, final LangTag langTag)
+				throws ParseException {
 
 				Set<URI> requestURIs = new LinkedHashSet<>();
 
-				for (String uriString : JSONObjectUtils.getStringArray(jsonObject, "request_uris")) {
+				for (String uriString: JSONObjectUtils.getStringArray(jsonObject, name)) {
 
 					try {
 						requestURIs.add(new URI(uriString));
@@ -926,104 +930,139 @@ public class OIDCClientMetadata extends ClientMetadata {
 				}
 
 				metadata.setRequestObjectURIs(requestURIs);
-				oidcFields.remove("request_uris");
 			}
+		});
 
-			if (jsonObject.containsKey("request_object_signing_alg")) {
-				metadata.setRequestObjectJWSAlg(new JWSAlgorithm(
-					JSONObjectUtils.getString(jsonObject, "request_object_signing_alg")));
+		p.put("request_object_signing_alg", new ParameterParser<OIDCClientMetadata>() {
+			@Override
+			public void parse(final OIDCClientMetadata metadata, final JSONObject jsonObject, final String name, final LangTag langTag)
+				throws ParseException {
 
-				oidcFields.remove("request_object_signing_alg");
+				metadata.setRequestObjectJWSAlg(new JWSAlgorithm(JSONObjectUtils.getString(jsonObject, name)));
 			}
+		});
 
-			if (jsonObject.containsKey("request_object_encryption_alg")) {
-				metadata.setRequestObjectJWEAlg(new JWEAlgorithm(
-					JSONObjectUtils.getString(jsonObject, "request_object_encryption_alg")));
+		p.put("request_object_encryption_alg", new ParameterParser<OIDCClientMetadata>() {
+			@Override
+			public void parse(final OIDCClientMetadata metadata, final JSONObject jsonObject, final String name, final LangTag langTag)
+				throws ParseException {
 
-				oidcFields.remove("request_object_encryption_alg");
+				metadata.setRequestObjectJWEAlg(new JWEAlgorithm(JSONObjectUtils.getString(jsonObject, name)));
 			}
+		});
 
-			if (jsonObject.containsKey("request_object_encryption_enc")) {
-				metadata.setRequestObjectJWEEnc(EncryptionMethod.parse(
-					JSONObjectUtils.getString(jsonObject, "request_object_encryption_enc")));
+		p.put("request_object_encryption_enc", new ParameterParser<OIDCClientMetadata>() {
+			@Override
+			public void parse(final OIDCClientMetadata metadata, final JSONObject jsonObject, final String name, final LangTag langTag)
+				throws ParseException {
 
-				oidcFields.remove("request_object_encryption_enc");
+				metadata.setRequestObjectJWEEnc(EncryptionMethod.parse(JSONObjectUtils.getString(jsonObject, name)));
 			}
+		});
 
-			if (jsonObject.containsKey("id_token_signed_response_alg")) {
-				metadata.setIDTokenJWSAlg(new JWSAlgorithm(
-					JSONObjectUtils.getString(jsonObject, "id_token_signed_response_alg")));
+		p.put("id_token_signed_response_alg", new ParameterParser<OIDCClientMetadata>() {
+			@Override
+			public void parse(final OIDCClientMetadata metadata, final JSONObject jsonObject, final String name, final LangTag langTag)
+				throws ParseException {
 
-				oidcFields.remove("id_token_signed_response_alg");
+				metadata.setIDTokenJWSAlg(new JWSAlgorithm(JSONObjectUtils.getString(jsonObject, name)));
 			}
+		});
 
-			if (jsonObject.containsKey("id_token_encrypted_response_alg")) {
-				metadata.setIDTokenJWEAlg(new JWEAlgorithm(
-					JSONObjectUtils.getString(jsonObject, "id_token_encrypted_response_alg")));
+		p.put("id_token_encrypted_response_alg", new ParameterParser<OIDCClientMetadata>() {
+			@Override
+			public void parse(final OIDCClientMetadata metadata, final JSONObject jsonObject, final String name, final LangTag langTag)
+				throws ParseException {
 
-				oidcFields.remove("id_token_encrypted_response_alg");
+				metadata.setIDTokenJWEAlg(new JWEAlgorithm(JSONObjectUtils.getString(jsonObject, name)));
 			}
+		});
 
-			if (jsonObject.containsKey("id_token_encrypted_response_enc")) {
-				metadata.setIDTokenJWEEnc(EncryptionMethod.parse(
-					JSONObjectUtils.getString(jsonObject, "id_token_encrypted_response_enc")));
+		p.put("id_token_encrypted_response_enc", new ParameterParser<OIDCClientMetadata>() {
+			@Override
+			public void parse(final OIDCClientMetadata metadata, final JSONObject jsonObject, final String name, final LangTag langTag)
+				throws ParseException {
 
-				oidcFields.remove("id_token_encrypted_response_enc");
+				metadata.setIDTokenJWEEnc(EncryptionMethod.parse(JSONObjectUtils.getString(jsonObject, name)));
 			}
+		});
 
-			if (jsonObject.containsKey("userinfo_signed_response_alg")) {
-				metadata.setUserInfoJWSAlg(new JWSAlgorithm(
-					JSONObjectUtils.getString(jsonObject, "userinfo_signed_response_alg")));
+		p.put("userinfo_signed_response_alg", new ParameterParser<OIDCClientMetadata>() {
+			@Override
+			public void parse(final OIDCClientMetadata metadata, final JSONObject jsonObject, final String name, final LangTag langTag)
+				throws ParseException {
 
-				oidcFields.remove("userinfo_signed_response_alg");
+				metadata.setUserInfoJWSAlg(new JWSAlgorithm(JSONObjectUtils.getString(jsonObject, name)));
 			}
+		});
 
-			if (jsonObject.containsKey("userinfo_encrypted_response_alg")) {
-				metadata.setUserInfoJWEAlg(new JWEAlgorithm(
-					JSONObjectUtils.getString(jsonObject, "userinfo_encrypted_response_alg")));
+		p.put("userinfo_encrypted_response_alg", new ParameterParser<OIDCClientMetadata>() {
+			@Override
+			public void parse(final OIDCClientMetadata metadata, final JSONObject jsonObject, final String name, final LangTag langTag)
+				throws ParseException {
 
-				oidcFields.remove("userinfo_encrypted_response_alg");
+				metadata.setUserInfoJWEAlg(new JWEAlgorithm(JSONObjectUtils.getString(jsonObject, name)));
 			}
+		});
 
-			if (jsonObject.containsKey("userinfo_encrypted_response_enc")) {
-				metadata.setUserInfoJWEEnc(EncryptionMethod.parse(
-					JSONObjectUtils.getString(jsonObject, "userinfo_encrypted_response_enc")));
+		p.put("userinfo_encrypted_response_enc", new ParameterParser<OIDCClientMetadata>() {
+			@Override
+			public void parse(final OIDCClientMetadata metadata, final JSONObject jsonObject, final String name, final LangTag langTag)
+				throws ParseException {
 
-				oidcFields.remove("userinfo_encrypted_response_enc");
+				metadata.setUserInfoJWEEnc(EncryptionMethod.parse(JSONObjectUtils.getString(jsonObject, name)));
 			}
+		});
 
-			if (jsonObject.containsKey("default_max_age")) {
-				metadata.setDefaultMaxAge(JSONObjectUtils.getInt(jsonObject, "default_max_age"));
-				oidcFields.remove("default_max_age");
+		p.put("default_max_age", new ParameterParser<OIDCClientMetadata>() {
+			@Override
+			public void parse(final OIDCClientMetadata metadata, final JSONObject jsonObject, final String name, final LangTag langTag)
+				throws ParseException {
+
+				metadata.setDefaultMaxAge(JSONObjectUtils.getInt(jsonObject, name));
 			}
+		});
+
+		p.put("require_auth_time", new ParameterParser<OIDCClientMetadata>() {
+			@Override
+			public void parse(final OIDCClientMetadata metadata, final JSONObject jsonObject, final String name, final LangTag langTag)
+				throws ParseException {
 
-			if (jsonObject.containsKey("require_auth_time")) {
-				metadata.requiresAuthTime(JSONObjectUtils.getBoolean(jsonObject, "require_auth_time"));
-				oidcFields.remove("require_auth_time");
+				metadata.requiresAuthTime(JSONObjectUtils.getBoolean(jsonObject, name));
 			}
+		});
 
-			if (jsonObject.containsKey("default_acr_values")) {
+		p.put("default_acr_values", new ParameterParser<OIDCClientMetadata>() {
+			@Override
+			public void parse(final OIDCClientMetadata metadata, final JSONObject jsonObject, final String name, final LangTag langTag)
+				throws ParseException {
 
 				List<ACR> acrValues = new LinkedList<>();
 
-				for (String acrString : JSONObjectUtils.getStringArray(jsonObject, "default_acr_values"))
+				for (String acrString: JSONObjectUtils.getStringArray(jsonObject, name))
 					acrValues.add(new ACR(acrString));
 
 				metadata.setDefaultACRs(acrValues);
-
-				oidcFields.remove("default_acr_values");
 			}
+		});
+
+		p.put("initiate_login_uri", new ParameterParser<OIDCClientMetadata>() {
+			@Override
+			public void parse(final OIDCClientMetadata metadata, final JSONObject jsonObject, final String name, final LangTag langTag)
+				throws ParseException {
 
-			if (jsonObject.containsKey("initiate_login_uri")) {
-				metadata.setInitiateLoginURI(JSONObjectUtils.getURI(jsonObject, "initiate_login_uri"));
-				oidcFields.remove("initiate_login_uri");
+				metadata.setInitiateLoginURI(JSONObjectUtils.getURI(jsonObject, name));
 			}
+		});
 
-			if (jsonObject.containsKey("post_logout_redirect_uris")) {
+		p.put("post_logout_redirect_uris", new ParameterParser<OIDCClientMetadata>() {
+			@Override
+			public void parse(final OIDCClientMetadata metadata, final JSONObject jsonObject, final String name, final LangTag langTag)
+				throws ParseException {
 
 				Set<URI> logoutURIs = new LinkedHashSet<>();
 
-				for (String uriString : JSONObjectUtils.getStringArray(jsonObject, "post_logout_redirect_uris")) {
+				for (String uriString: JSONObjectUtils.getStringArray(jsonObject, name)) {
 
 					try {
 						logoutURIs.add(new URI(uriString));
@@ -1035,18 +1074,28 @@ public class OIDCClientMetadata extends ClientMetadata {
 				}
 
 				metadata.setPostLogoutRedirectionURIs(logoutURIs);
-				oidcFields.remove("post_logout_redirect_uris");
 			}
-		} catch (ParseException e) {
-			// Insert client_client_metadata error code so that it
-			// can be reported back to the client if we have a
-			// registration event
-			throw new ParseException(e.getMessage(), RegistrationError.INVALID_CLIENT_METADATA.appendDescription(": " + e.getMessage()), e.getCause());
-		}
+		});
+
+		PARAMETER_PARSERS = Collections.unmodifiableMap(p);
+	}
 
-		// The remaining fields are custom
-		metadata.setCustomFields(oidcFields);
 
-		return metadata;
+	/**
+	 * Parses an OpenID Connect client metadata instance from the specified
+	 * JSON object, in a single pass over the JSON object members.
+	 *
+	 * @param jsonObject The JSON object to parse. Must not be 
+	 *                   {@code null}.
+	 *
+	 * @return The OpenID Connect client metadata.
+	 *
+	 * @throws ParseException If the JSON object couldn't be parsed to an
+	 *                        OpenID Connect client metadata instance.
+	 */
+	public static OIDCClientMetadata parse(final JSONObject jsonObject)
+		throws ParseException {
+
+		return ClientMetadata.parse(jsonObject, PARAMETER_PARSERS, new OIDCClientMetadata());
 	}
 }
@@ -0,0 +1,558 @@
+package com.nimbusds.openid.connect.sdk.rp;
+
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.nimbusds.oauth2.sdk.GeneralException;
+import com.nimbusds.oauth2.sdk.ParseException;
+import com.nimbusds.oauth2.sdk.http.HTTPRequest;
+import com.nimbusds.oauth2.sdk.http.HTTPResponse;
+import com.nimbusds.oauth2.sdk.id.Issuer;
+import com.nimbusds.oauth2.sdk.util.SingleFlight;
+import com.nimbusds.openid.connect.sdk.op.OIDCProviderMetadata;
+import net.jcip.annotations.ThreadSafe;
+
+
+/**
+ * OpenID Provider metadata resolver. Retrieves the metadata of an OpenID
+ * Provider from its discovery endpoint
+ * ({@code [issuer]/.well-known/openid-configuration}) and caches it.
+ *
+ * <ul>
+ *     <li>The issuer in the retrieved metadata must match the requested
+ *         issuer.
+ *     <li>The metadata is cached for the configured time-to-live. Expired
+ *         metadata is revalidated with a conditional request, using the
+ *         {@code ETag} and {@code Last-Modified} response headers of the
+ *         previous retrieval, so that unchanged metadata isn't transferred
+ *         and parsed again.
+ *     <li>If the discovery endpoint is unreachable or returns an invalid
+ *         response the expired metadata is served for up to the
+ *         configured max stale time.
+ *     <li>Concurrent retrievals of the same metadata share a single
+ *         request to the discovery endpoint.
+ * </ul>
+ *
+ * <p>The cached metadata is shared between callers and must not be
+ * modified.
+ *
+ * <p>Related specifications:
+ *
+ * <ul>
+ *     <li>OpenID Connect Discovery 1.0, section 4.
+ *     <li>Hypertext Transfer Protocol (HTTP/1.1): Conditional Requests
+ *         (RFC 7232).
+ * </ul>
+ */
+@ThreadSafe
+public class OIDCProviderMetadataResolver {
+
+
+	/**
+	 * The default time-to-live of cached metadata, in seconds.
+	 */
+	public static final long DEFAULT_TTL = 3600L;
+
+
+	/**
+	 * The default max stale time, in seconds.
+	 */
+	public static final long DEFAULT_MAX_STALE = 24 * 3600L;
+
+
+	/**
+	 * The well-known path of the discovery endpoint.
+	 */
+	private static final String WELL_KNOWN_PATH = "/.well-known/openid-configuration";
+
+
+	/**
+	 * Cached provider metadata.
+	 */
+	private static final class CacheEntry {
+
+
+		/**
+		 * The provider metadata.
+		 */
+		private final OIDCProviderMetadata metadata;
+
+
+		/**
+		 * The {@code ETag} response header, {@code null} if none.
+		 */
+		private final String eTag;
+
+
+		/**
+		 * The {@code Last-Modified} response header, {@code null} if
+		 * none.
+		 */
+		private final String lastModified;
+
+
+		/**
+		 * The expiration time, in milliseconds since the Unix epoch.
+		 */
+		private final long expiresAt;
+
+
+		private CacheEntry(final OIDCProviderMetadata metadata,
+				   final String eTag,
+				   final String lastModified,
+				   final long expiresAt) {
+			this.metadata = metadata;
+			this.eTag = eTag;
+			this.lastModified = lastModified;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+
+	/**
+	 * The time-to-live of cached metadata, in seconds.
+	 */
+	private final long ttl;
+
+
+	/**
+	 * The max stale time, in seconds.
+	 */
+	private final long maxStale;
+
+
+	/**
+	 * The cached metadata, keyed by issuer.
+	 */
+	private final ConcurrentMap<Issuer,CacheEntry> cache = new ConcurrentHashMap<>();
+
+
+	/**
+	 * The metadata requests in flight, keyed by issuer.
+	 */
+	private final SingleFlight<Issuer,CacheEntry> inFlight = new SingleFlight<>();
+
+
+	/**
+	 * The hit count.
+	 */
+	private final AtomicLong hits = new AtomicLong();
+
+
+	/**
+	 * The miss count.
+	 */
+	private final AtomicLong misses = new AtomicLong();
+
+
+	/**
+	 * The not modified count.
+	 */
+	private final AtomicLong notModified = new AtomicLong();
+
+
+	/**
+	 * The stale hit count.
+	 */
+	private final AtomicLong staleHits = new AtomicLong();
+
+
+	/**
+	 * Creates a new OpenID Provider metadata resolver with the
+	 * {@link #DEFAULT_TTL default time-to-live} and
+	 * {@link #DEFAULT_MAX_STALE default max stale time}.
+	 */
+	public OIDCProviderMetadataResolver() {
+
+		this(DEFAULT_TTL, DEFAULT_MAX_STALE);
+	}
+
+
+	/**
+	 * Creates a new OpenID Provider metadata resolver.
+	 *
+	 * @param ttl      The time-to-live of cached metadata, in seconds.
+	 *                 Must be a positive integer.
+	 * @param maxStale The time after expiration to serve cached metadata
+	 *                 if the discovery endpoint is unreachable, in
+	 *                 seconds, zero if none.
+	 */
+	public OIDCProviderMetadataResolver(final long ttl, final long maxStale) {
+
+		if (ttl < 1)
+			throw new IllegalArgumentException("The TTL must be a positive integer");
+
+		if (maxStale < 0)
+			throw new IllegalArgumentException("The max stale time must not be negative");
+
+		this.ttl = ttl;
+		this.maxStale = maxStale;
+	}
+
+
+	/**
+	 * Returns the time-to-live of cached metadata.
+	 *
+	 * @return The time-to-live, in seconds.
+	 */
+	public long getTTL() {
+
+		return ttl;
+	}
+
+
+	/**
+	 * Returns the time after expiration to serve cached metadata if the
+	 * discovery endpoint is unreachable.
+	 *
+	 * @return The max stale time, in seconds.
+	 */
+	public long getMaxStale() {
+
+		return maxStale;
+	}
+
+
+	/**
+	 * Returns the number of resolutions served from the cache.
+	 *
+	 * @return The hit count.
+	 */
+	public long getHitCount() {
+
+		return hits.get();
+	}
+
+
+	/**
+	 * Returns the number of resolutions that required a request to the
+	 * discovery endpoint.
+	 *
+	 * @return The miss count.
+	 */
+	public long getMissCount() {
+
+		return misses.get();
+	}
+
+
+	/**
+	 * Returns the number of requests to the discovery endpoint that
+	 * returned HTTP 304 (Not Modified).
+	 *
+	 * @return The not modified count.
+	 */
+	public long getNotModifiedCount() {
+
+		return notModified.get();
+	}
+
+
+	/**
+	 * Returns the number of expired metadata served within the max stale
+	 * time.
+	 *
+	 * @return The stale hit count.
+	 */
+	public long getStaleHitCount() {
+
+		return staleHits.get();
+	}
+
+
+	/**
+	 * Composes the discovery endpoint URL for the specified issuer.
+	 *
+	 * @param issuer The issuer. Must not be {@code null}.
+	 *
+	 * @return The discovery endpoint URL.
+	 */
+	public static URL composeDiscoveryURL(final Issuer issuer) {
+
+		String value = issuer.getValue();
+
+		if (value.endsWith("/")) {
+			value = value.substring(0, value.length() - 1);
+		}
+
+		try {
+			return new URL(value + WELL_KNOWN_PATH);
+
+		} catch (MalformedURLException e) {
+
+			throw new IllegalArgumentException("Invalid issuer URL: " + issuer, e);
+		}
+	}
+
+
+	/**
+	 * Sends the specified discovery request. May be overridden to
+	 * customise the HTTP request, e.g. to set timeouts.
+	 *
+	 * @param httpRequest The HTTP request. Must not be {@code null}.
+	 *
+	 * @return The HTTP response.
+	 *
+	 * @throws IOException If the HTTP request failed.
+	 */
+	protected HTTPResponse send(final HTTPRequest httpRequest)
+		throws IOException {
+
+		return httpRequest.send();
+	}
+
+
+	/**
+	 * Resolves the metadata of the specified OpenID Provider. The
+	 * metadata is served from the cache if available and not expired,
+	 * else it's retrieved or revalidated at the discovery endpoint.
+	 *
+	 * @param issuer The issuer. Must not be {@code null}.
+	 *
+	 * @return The OpenID Provider metadata.
+	 *
+	 * @throws IOException      If the HTTP request failed and no metadata
+	 *                          within the max stale time is available, or
+	 *                          the calling thread was interrupted.
+	 * @throws GeneralException If the issuer in the retrieved metadata
+	 *                          doesn't match, or a {@link ParseException}
+	 *                          if the response couldn't be parsed and no
+	 *                          metadata within the max stale time is
+	 *                          available.
+	 */
+	public OIDCProviderMetadata resolve(final Issuer issuer)
+		throws IOException, GeneralException {
+
+		CacheEntry entry = cache.get(issuer);
+
+		if (entry != null && entry.expiresAt > System.currentTimeMillis()) {
+			hits.incrementAndGet();
+			return entry.metadata;
+		}
+
+		misses.incrementAndGet();
+
+		return retrieve(issuer, entry);
+	}
+
+
+	/**
+	 * Revalidates the metadata of the specified OpenID Provider at the
+	 * discovery endpoint, regardless of the cached metadata expiration.
+	 *
+	 * @param issuer The issuer. Must not be {@code null}.
+	 *
+	 * @return The OpenID Provider metadata.
+	 *
+	 * @throws IOException      If the HTTP request failed and no metadata
+	 *                          within the max stale time is available, or
+	 *                          the calling thread was interrupted.
+	 * @throws GeneralException If the issuer in the retrieved metadata
+	 *                          doesn't match, or a {@link ParseException}
+	 *                          if the response couldn't be parsed and no
+	 *                          metadata within the max stale time is
+	 *                          available.
+	 */
+	public OIDCProviderMetadata refresh(final Issuer issuer)
+		throws IOException, GeneralException {
+
+		return retrieve(issuer, cache.get(issuer));
+	}
+
+
+	/**
+	 * Retrieves or revalidates the metadata of the specified OpenID
+	 * Provider, serving the cached metadata within the max stale time on
+	 * failure.
+	 *
+	 * @param issuer The issuer. Must not be {@code null}.
+	 * @param cached The cached metadata, {@code null} if none.
+	 *
+	 * @return The OpenID Provider metadata.
+	 *
+	 * @throws IOException      If the HTTP request failed.
+	 * @throws GeneralException If the metadata is invalid.
+	 */
+	private OIDCProviderMetadata retrieve(final Issuer issuer, final CacheEntry cached)
+		throws IOException, GeneralException {
+
+		try {
+			return fetch(issuer).metadata;
+
+		} catch (IOException | ParseException e) {
+
+			if (cached != null && cached.expiresAt + maxStale * 1000L > System.currentTimeMillis()) {
+				staleHits.incrementAndGet();
+				return cached.metadata;
+			}
+
+			throw e;
+		}
+	}
+
+
+	/**
+	 * Retrieves or revalidates the metadata of the specified OpenID
+	 * Provider, unless a request for the same issuer is already in
+	 * flight, in which case its result is awaited.
+	 *
+	 * @param issuer The issuer. Must not be {@code null}.
+	 *
+	 * @return The new cache entry.
+	 *
+	 * @throws IOException      If the HTTP request failed or the calling
+	 *                          thread was interrupted.
+	 * @throws GeneralException If the metadata is invalid.
+	 */
+	private CacheEntry fetch(final Issuer issuer)
+		throws IOException, GeneralException {
+
+		try {
+			return inFlight.execute(issuer, new Callable<CacheEntry>() {
+				@Override
+				public CacheEntry call()
+					throws IOException, GeneralException {
+
+					return fetchAndCache(issuer);
+				}
+			});
+
+		} catch (InterruptedException e) {
+
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while awaiting OpenID Provider metadata");
+
+		} catch (ExecutionException e) {
+
+			Throwable cause = e.getCause();
+
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if (cause instanceof GeneralException) {
+				throw (GeneralException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			} else {
+				throw new IOException(cause.getMessage(), cause);
+			}
+		}
+	}
+
+
+	/**
+	 * Retrieves or revalidates the metadata of the specified OpenID
+	 * Provider and caches it.
+	 *
+	 * @param issuer The issuer. Must not be {@code null}.
+	 *
+	 * @return The new cache entry.
+	 *
+	 * @throws IOException      If the HTTP request failed.
+	 * @throws GeneralException If the metadata is invalid.
+	 */
+	private CacheEntry fetchAndCache(final Issuer issuer)
+		throws IOException, GeneralException {
+
+		CacheEntry cached = cache.get(issuer);
+
+		HTTPRequest httpRequest = new HTTPRequest(HTTPRequest.Method.GET, composeDiscoveryURL(issuer));
+
+		if (cached != null) {
+			httpRequest.setHeader("If-None-Match", cached.eTag);
+			httpRequest.setHeader("If-Modified-Since", cached.lastModified);
+		}
+
+		HTTPResponse httpResponse = send(httpRequest);
+
+		String eTag = httpResponse.getHeader("ETag");
+		String lastModified = httpResponse.getHeader("Last-Modified");
+
+		CacheEntry entry;
+
+		if (cached != null && httpResponse.getStatusCode() == HTTPResponse.SC_NOT_MODIFIED) {
+
+			notModified.incrementAndGet();
+
+			entry = new CacheEntry(
+				cached.metadata,
+				eTag != null ? eTag : cached.eTag,
+				lastModified != null ? lastModified : cached.lastModified,
+				System.currentTimeMillis() + ttl * 1000L);
+
+		} else {
+
+			httpResponse.ensureStatusCode(HTTPResponse.SC_OK);
+
+			OIDCProviderMetadata metadata = OIDCProviderMetadata.parse(httpResponse.getContentAsJSONObject());
+
+			if (! issuer.equals(metadata.getIssuer())) {
+				throw new GeneralException("Issuer mismatch: Expected " + issuer + ", found " + metadata.getIssuer());
+			}
+
+			entry = new CacheEntry(metadata, eTag, lastModified, System.currentTimeMillis() + ttl * 1000L);
+		}
+
+		cache.put(issuer, entry);
+		return entry;
+	}
+
+
+	/**
+	 * Returns the cached metadata of the specified OpenID Provider,
+	 * without retrieving it.
+	 *
+	 * @param issuer The issuer. Must not be {@code null}.
+	 *
+	 * @return The cached metadata, possibly expired, {@code null} if
+	 *         none.
+	 */
+	public OIDCProviderMetadata getCachedMetadata(final Issuer issuer) {
+
+		CacheEntry entry = cache.get(issuer);
+		return entry != null ? entry.metadata : null;
+	}
+
+
+	/**
+	 * Caches the specified OpenID Provider metadata, e.g. loaded from a
+	 * snapshot at startup. The metadata is cached for the configured
+	 * time-to-live, without conditional request validators.
+	 *
+	 * @param metadata The OpenID Provider metadata. Must not be
+	 *                 {@code null}.
+	 */
+	public void put(final OIDCProviderMetadata metadata) {
+
+		cache.put(metadata.getIssuer(), new CacheEntry(metadata, null, null, System.currentTimeMillis() + ttl * 1000L));
+	}
+
+
+	/**
+	 * Removes the cached metadata of the specified OpenID Provider.
+	 *
+	 * @param issuer The issuer. Must not be {@code null}.
+	 */
+	public void invalidate(final Issuer issuer) {
+
+		cache.remove(issuer);
+	}
+
+
+	/**
+	 * Removes all cached metadata.
+	 */
+	public void clear() {
+
+		cache.clear();
+	}
+}
@@ -0,0 +1,458 @@
+package com.nimbusds.openid.connect.sdk.rp;
+
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.oauth2.sdk.ParseException;
+import com.nimbusds.oauth2.sdk.http.HTTPRequest;
+import com.nimbusds.oauth2.sdk.http.HTTPResponse;
+import com.nimbusds.oauth2.sdk.id.Issuer;
+import com.nimbusds.openid.connect.sdk.op.OIDCProviderMetadata;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+
+
+/**
+ * Prefetcher of OpenID Provider metadata and JWK sets, intended to warm up
+ * a Relying Party configured with many OpenID Providers at startup, before
+ * the first end-user logins.
+ *
+ * <p>The metadata and JWK sets of the specified issuers are retrieved
+ * concurrently, with a bounded number of threads and an overall deadline.
+ * The metadata is resolved with an {@link OIDCProviderMetadataResolver},
+ * which keeps it cached. The readiness of each issuer is reported in a
+ * {@link Result}, with the retrieved JWK set for creating the ID token
+ * validator.
+ *
+ * <p>Example:
+ *
+ * <pre>
+ * OIDCProviderPrefetcher prefetcher = new OIDCProviderPrefetcher(resolver, 16);
+ *
+ * Map&lt;Issuer,OIDCProviderPrefetcher.Result&gt; results = prefetcher.prefetch(issuers, 10000L);
+ *
+ * for (OIDCProviderPrefetcher.Result result: results.values()) {
+ *         if (result.isReady()) {
+ *                 // create ID token validator with result.getJWKSet()
+ *         }
+ * }
+ * </pre>
+ */
+@ThreadSafe
+public class OIDCProviderPrefetcher {
+
+
+	/**
+	 * OpenID Provider readiness status.
+	 */
+	public enum Status {
+
+
+		/**
+		 * The metadata and the JWK set were retrieved.
+		 */
+		READY,
+
+
+		/**
+		 * The metadata couldn't be retrieved.
+		 */
+		METADATA_FAILED,
+
+
+		/**
+		 * The metadata was retrieved, but the JWK set couldn't be
+		 * retrieved.
+		 */
+		JWK_SET_FAILED,
+
+
+		/**
+		 * The deadline expired before the metadata and the JWK set
+		 * could be retrieved.
+		 */
+		TIMED_OUT
+	}
+
+
+	/**
+	 * OpenID Provider prefetch result.
+	 */
+	@Immutable
+	public static final class Result {
+
+
+		/**
+		 * The issuer.
+		 */
+		private final Issuer issuer;
+
+
+		/**
+		 * The readiness status.
+		 */
+		private final Status status;
+
+
+		/**
+		 * The provider metadata, {@code null} if not retrieved.
+		 */
+		private final OIDCProviderMetadata metadata;
+
+
+		/**
+		 * The provider JWK set, {@code null} if not retrieved.
+		 */
+		private final JWKSet jwkSet;
+
+
+		/**
+		 * The exception, {@code null} if none.
+		 */
+		private final Exception exception;
+
+
+		/**
+		 * Creates a new OpenID Provider prefetch result.
+		 *
+		 * @param issuer    The issuer. Must not be {@code null}.
+		 * @param status    The readiness status. Must not be
+		 *                  {@code null}.
+		 * @param metadata  The provider metadata, {@code null} if not
+		 *                  retrieved.
+		 * @param jwkSet    The provider JWK set, {@code null} if not
+		 *                  retrieved.
+		 * @param exception The exception, {@code null} if none.
+		 */
+		public Result(final Issuer issuer,
+			      final Status status,
+			      final OIDCProviderMetadata metadata,
+			      final JWKSet jwkSet,
+			      final Exception exception) {
+
+			this.issuer = issuer;
+			this.status = status;
+			this.metadata = metadata;
+			this.jwkSet = jwkSet;
+			this.exception = exception;
+		}
+
+
+		/**
+		 * Returns the issuer.
+		 *
+		 * @return The issuer.
+		 */
+		public Issuer getIssuer() {
+
+			return issuer;
+		}
+
+
+		/**
+		 * Returns the readiness status.
+		 *
+		 * @return The readiness status.
+		 */
+		public Status getStatus() {
+
+			return status;
+		}
+
+
+		/**
+		 * Returns {@code true} if the metadata and the JWK set were
+		 * retrieved.
+		 *
+		 * @return {@code true} if ready, else {@code false}.
+		 */
+		public boolean isReady() {
+
+			return Status.READY.equals(status);
+		}
+
+
+		/**
+		 * Returns the provider metadata.
+		 *
+		 * @return The provider metadata, {@code null} if not retrieved.
+		 */
+		public OIDCProviderMetadata getMetadata() {
+
+			return metadata;
+		}
+
+
+		/**
+		 * Returns the provider JWK set.
+		 *
+		 * @return The provider JWK set, {@code null} if not retrieved.
+		 */
+		public JWKSet getJWKSet() {
+
+			return jwkSet;
+		}
+
+
+		/**
+		 * Returns the exception for a failed retrieval.
+		 *
+		 * @return The exception, {@code null} if none.
+		 */
+		public Exception getException() {
+
+			return exception;
+		}
+	}
+
+
+	/**
+	 * The provider metadata resolver.
+	 */
+	private final OIDCProviderMetadataResolver resolver;
+
+
+	/**
+	 * The maximum number of concurrent retrievals.
+	 */
+	private final int parallelism;
+
+
+	/**
+	 * Creates a new OpenID Provider prefetcher.
+	 *
+	 * @param resolver    The provider metadata resolver. Must not be
+	 *                    {@code null}.
+	 * @param parallelism The maximum number of concurrent retrievals.
+	 *                    Must be a positive integer.
+	 */
+	public OIDCProviderPrefetcher(final OIDCProviderMetadataResolver resolver,
+				      final int parallelism) {
+
+		if (resolver == null)
+			throw new IllegalArgumentException("The provider metadata resolver must not be null");
+
+		if (parallelism < 1)
+			throw new IllegalArgumentException("The parallelism must be a positive integer");
+
+		this.resolver = resolver;
+		this.parallelism = parallelism;
+	}
+
+
+	/**
+	 * Returns the provider metadata resolver.
+	 *
+	 * @return The provider metadata resolver.
+	 */
+	public OIDCProviderMetadataResolver getResolver() {
+
+		return resolver;
+	}
+
+
+	/**
+	 * Returns the maximum number of concurrent retrievals.
+	 *
+	 * @return The parallelism.
+	 */
+	public int getParallelism() {
+
+		return parallelism;
+	}
+
+
+	/**
+	 * Sends the specified JWK set request. May be overridden to customise
+	 * the HTTP request, e.g. to set timeouts.
+	 *
+	 * @param httpRequest The HTTP request. Must not be {@code null}.
+	 *
+	 * @return The HTTP response.
+	 *
+	 * @throws IOException If the HTTP request failed.
+	 */
+	protected HTTPResponse send(final HTTPRequest httpRequest)
+		throws IOException {
+
+		return httpRequest.send();
+	}
+
+
+	/**
+	 * Retrieves the JWK set at the specified URL.
+	 *
+	 * @param jwkSetURL The JWK set URL. Must not be {@code null}.
+	 *
+	 * @return The JWK set.
+	 *
+	 * @throws IOException    If the HTTP request failed.
+	 * @throws ParseException If the HTTP response couldn't be parsed to a
+	 *                        JWK set.
+	 */
+	private JWKSet retrieveJWKSet(final URL jwkSetURL)
+		throws IOException, ParseException {
+
+		HTTPResponse httpResponse = send(new HTTPRequest(HTTPRequest.Method.GET, jwkSetURL));
+
+		httpResponse.ensureStatusCode(HTTPResponse.SC_OK);
+
+		try {
+			return JWKSet.parse(httpResponse.getContent());
+
+		} catch (java.text.ParseException e) {
+
+			throw new ParseException("Invalid JWK set: " + e.getMessage(), e);
+		}
+	}
+
+
+	/**
+	 * Prefetches the metadata and the JWK set of the specified OpenID
+	 * Provider.
+	 *
+	 * @param issuer     The issuer. Must not be {@code null}.
+	 * @param revalidate If {@code true} cached metadata is revalidated.
+	 *
+	 * @return The prefetch result.
+	 */
+	private Result prefetch(final Issuer issuer, final boolean revalidate) {
+
+		OIDCProviderMetadata metadata;
+
+		try {
+			metadata = revalidate ? resolver.refresh(issuer) : resolver.resolve(issuer);
+
+		} catch (Exception e) {
+
+			return new Result(issuer, Status.METADATA_FAILED, null, null, e);
+		}
+
+		try {
+			JWKSet jwkSet = retrieveJWKSet(metadata.getJWKSetURI().toURL());
+			return new Result(issuer, Status.READY, metadata, jwkSet, null);
+
+		} catch (Exception e) {
+
+			return new Result(issuer, Status.JWK_SET_FAILED, metadata, null, e);
+		}
+	}
+
+
+	/**
+	 * Prefetches the metadata and JWK sets of the specified OpenID
+	 * Providers concurrently. Returns when all retrievals completed or
+	 * the deadline expired, whichever occurs first. Retrievals still in
+	 * progress at the deadline are cancelled.
+	 *
+	 * @param issuers The issuers. Must not be {@code null}.
+	 * @param timeout The deadline for all retrievals, in milliseconds.
+	 *
+	 * @return The prefetch results, in the order of the issuers.
+	 *
+	 * @throws InterruptedException If the calling thread was interrupted.
+	 */
+	public Map<Issuer,Result> prefetch(final List<Issuer> issuers, final long timeout)
+		throws InterruptedException {
+
+		return prefetch(issuers, timeout, false);
+	}
+
+
+	/**
+	 * Prefetches the metadata and JWK sets of the specified OpenID
+	 * Providers concurrently. Returns when all retrievals completed or
+	 * the deadline expired, whichever occurs first. Retrievals still in
+	 * progress at the deadline are cancelled.
+	 *
+	 * @param issuers    The issuers. Must not be {@code null}.
+	 * @param timeout    The deadline for all retrievals, in milliseconds.
+	 * @param revalidate If {@code true} metadata already cached by the
+	 *                   resolver, e.g. loaded from a snapshot, is
+	 *                   revalidated at the discovery endpoints.
+	 *
+	 * @return The prefetch results, in the order of the issuers.
+	 *
+	 * @throws InterruptedException If the calling thread was interrupted.
+	 */
+	public Map<Issuer,Result> prefetch(final List<Issuer> issuers,
+					   final long timeout,
+					   final boolean revalidate)
+		throws InterruptedException {
+
+		final long deadline = System.currentTimeMillis() + timeout;
+
+		final AtomicInteger threadCounter = new AtomicInteger();
+
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, issuers.size())), new ThreadFactory() {
+			@Override
+			public Thread newThread(final Runnable r) {
+				Thread t = new Thread(r);
+				t.setName("oidc-provider-prefetch-" + threadCounter.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+
+		try {
+			List<Future<Result>> futures = new ArrayList<>(issuers.size());
+
+			for (final Issuer issuer: issuers) {
+				futures.add(executor.submit(new Callable<Result>() {
+					@Override
+					public Result call() {
+						return prefetch(issuer, revalidate);
+					}
+				}));
+			}
+
+			Map<Issuer,Result> results = new LinkedHashMap<>();
+
+			for (int i=0; i < issuers.size(); i++) {
+
+				Issuer issuer = issuers.get(i);
+				Future<Result> future = futures.get(i);
+
+				try {
+					long remaining = Math.max(0L, deadline - System.currentTimeMillis());
+					results.put(issuer, future.get(remaining, TimeUnit.MILLISECONDS));
+
+				} catch (TimeoutException e) {
+
+					future.cancel(true);
+					results.put(issuer, new Result(issuer, Status.TIMED_OUT, resolver.getCachedMetadata(issuer), null, e));
+
+				} catch (ExecutionException e) {
+
+					Throwable cause = e.getCause();
+
+					if (cause instanceof Error) {
+						throw (Error) cause;
+					}
+
+					results.put(issuer, new Result(issuer, Status.METADATA_FAILED, null, null, (Exception) cause));
+				}
+			}
+
+			return results;
+
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
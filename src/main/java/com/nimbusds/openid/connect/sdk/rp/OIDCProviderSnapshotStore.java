@@ -0,0 +1,392 @@
+package com.nimbusds.openid.connect.sdk.rp;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.CRC32;
+
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.oauth2.sdk.ParseException;
+import com.nimbusds.oauth2.sdk.id.Issuer;
+import com.nimbusds.oauth2.sdk.util.JSONObjectUtils;
+import com.nimbusds.openid.connect.sdk.op.OIDCProviderMetadata;
+import net.jcip.annotations.ThreadSafe;
+import net.minidev.json.JSONObject;
+
+
+/**
+ * Local file store for snapshots of OpenID Provider metadata and JWK sets,
+ * enabling a Relying Party to validate ID tokens immediately after a
+ * restart, and to start when OpenID Providers are unreachable.
+ *
+ * <p>The snapshot file has a fixed header, followed by the UTF-8 encoded
+ * JSON payload:
+ *
+ * <ul>
+ *     <li>Magic number (4 bytes).
+ *     <li>Format version (4 bytes).
+ *     <li>Save time, in milliseconds since the Unix epoch (8 bytes).
+ *     <li>Payload length (4 bytes).
+ *     <li>CRC-32 checksum of the payload (8 bytes).
+ * </ul>
+ *
+ * <p>Snapshots are written to a temporary file which then atomically
+ * replaces the previous snapshot, so that a crash during saving never
+ * leaves a corrupted snapshot. On file systems without atomic rename the
+ * previous snapshot is replaced non-atomically. Only the public keys of
+ * the JWK sets are saved.
+ *
+ * <p>Example:
+ *
+ * <pre>
+ * OIDCProviderSnapshotStore store = new OIDCProviderSnapshotStore(new File("op-snapshot.bin"));
+ *
+ * // Instant startup from the last good snapshot
+ * Map&lt;Issuer,OIDCProviderPrefetcher.Result&gt; snapshot = store.loadInto(resolver);
+ *
+ * // Revalidate and save a fresh snapshot
+ * store.revalidateInBackground(prefetcher, issuers, 30000L);
+ * </pre>
+ */
+@ThreadSafe
+public class OIDCProviderSnapshotStore {
+
+
+	/**
+	 * The snapshot file magic number ("OPSN").
+	 */
+	private static final int MAGIC = 0x4F50534E;
+
+
+	/**
+	 * The current snapshot format version.
+	 */
+	public static final int VERSION = 1;
+
+
+	/**
+	 * The header length, in bytes.
+	 */
+	private static final int HEADER_LENGTH = 4 + 4 + 8 + 4 + 8;
+
+
+	/**
+	 * The payload character set.
+	 */
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+
+	/**
+	 * The snapshot file.
+	 */
+	private final File file;
+
+
+	/**
+	 * Creates a new OpenID Provider snapshot store.
+	 *
+	 * @param file The snapshot file. Must not be {@code null}.
+	 */
+	public OIDCProviderSnapshotStore(final File file) {
+
+		if (file == null)
+			throw new IllegalArgumentException("The snapshot file must not be null");
+
+		this.file = file;
+	}
+
+
+	/**
+	 * Returns the snapshot file.
+	 *
+	 * @return The snapshot file.
+	 */
+	public File getFile() {
+
+		return file;
+	}
+
+
+	/**
+	 * Saves a snapshot of the specified OpenID Providers. Only
+	 * {@link OIDCProviderPrefetcher.Result#isReady() ready} providers are
+	 * included.
+	 *
+	 * @param results The OpenID Provider prefetch results. Must not be
+	 *                {@code null}.
+	 *
+	 * @throws IOException If the snapshot couldn't be written.
+	 */
+	public synchronized void save(final Collection<OIDCProviderPrefetcher.Result> results)
+		throws IOException {
+
+		JSONObject payload = new JSONObject();
+
+		for (OIDCProviderPrefetcher.Result result: results) {
+
+			if (! result.isReady()) {
+				continue;
+			}
+
+			JSONObject entry = new JSONObject();
+			entry.put("metadata", result.getMetadata().toJSONObject());
+			entry.put("jwks", result.getJWKSet().toJSONObject(true));
+			payload.put(result.getIssuer().getValue(), entry);
+		}
+
+		byte[] content = payload.toJSONString().getBytes(UTF8);
+
+		CRC32 crc = new CRC32();
+		crc.update(content);
+
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH + content.length);
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putLong(System.currentTimeMillis());
+		buffer.putInt(content.length);
+		buffer.putLong(crc.getValue());
+		buffer.put(content);
+		buffer.flip();
+
+		File tmpFile = new File(file.getPath() + ".tmp");
+
+		try (RandomAccessFile raf = new RandomAccessFile(tmpFile, "rw")) {
+			raf.setLength(0L);
+			FileChannel channel = raf.getChannel();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			channel.force(true);
+		}
+
+		try {
+			Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+		} catch (AtomicMoveNotSupportedException e) {
+
+			// File system without atomic rename
+			Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+
+	/**
+	 * Loads the snapshot.
+	 *
+	 * @return The OpenID Provider metadata and JWK sets, as ready
+	 *         prefetch results keyed by issuer, empty if no snapshot was
+	 *         saved.
+	 *
+	 * @throws IOException    If the snapshot couldn't be read.
+	 * @throws ParseException If the snapshot is corrupted or has an
+	 *                        unsupported version.
+	 */
+	public synchronized Map<Issuer,OIDCProviderPrefetcher.Result> load()
+		throws IOException, ParseException {
+
+		if (! file.exists()) {
+			return Collections.emptyMap();
+		}
+
+		// Plain read, a mapped buffer would hold the file until collected
+		ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+
+		if (buffer.remaining() < HEADER_LENGTH) {
+			throw new ParseException("Invalid snapshot: Truncated header");
+		}
+
+		if (buffer.getInt() != MAGIC) {
+			throw new ParseException("Invalid snapshot: Bad magic number");
+		}
+
+		int version = buffer.getInt();
+
+		if (version != VERSION) {
+			throw new ParseException("Unsupported snapshot version: " + version);
+		}
+
+		buffer.getLong(); // save time
+
+		int length = buffer.getInt();
+
+		long checksum = buffer.getLong();
+
+		if (length != buffer.remaining()) {
+			throw new ParseException("Invalid snapshot: Unexpected payload length");
+		}
+
+		CRC32 crc = new CRC32();
+		crc.update(buffer.array(), HEADER_LENGTH, length);
+
+		if (crc.getValue() != checksum) {
+			throw new ParseException("Invalid snapshot: Checksum mismatch");
+		}
+
+		String content = new String(buffer.array(), HEADER_LENGTH, length, UTF8);
+
+		JSONObject payload = JSONObjectUtils.parse(content);
+
+		Map<Issuer,OIDCProviderPrefetcher.Result> results = new LinkedHashMap<>();
+
+		for (String issuerValue: payload.keySet()) {
+
+			JSONObject entry = JSONObjectUtils.getJSONObject(payload, issuerValue);
+
+			OIDCProviderMetadata metadata = OIDCProviderMetadata.parse(JSONObjectUtils.getJSONObject(entry, "metadata"));
+
+			JWKSet jwkSet;
+
+			try {
+				jwkSet = JWKSet.parse(JSONObjectUtils.getJSONObject(entry, "jwks"));
+
+			} catch (java.text.ParseException e) {
+
+				throw new ParseException("Invalid snapshot JWK set: " + e.getMessage(), e);
+			}
+
+			Issuer issuer = new Issuer(issuerValue);
+
+			results.put(issuer, new OIDCProviderPrefetcher.Result(issuer, OIDCProviderPrefetcher.Status.READY, metadata, jwkSet, null));
+		}
+
+		return results;
+	}
+
+
+	/**
+	 * Loads the snapshot and caches the OpenID Provider metadata in the
+	 * specified resolver.
+	 *
+	 * @param resolver The OpenID Provider metadata resolver. Must not be
+	 *                 {@code null}.
+	 *
+	 * @return The OpenID Provider metadata and JWK sets, as ready
+	 *         prefetch results keyed by issuer, empty if no snapshot was
+	 *         saved.
+	 *
+	 * @throws IOException    If the snapshot couldn't be read.
+	 * @throws ParseException If the snapshot is corrupted or has an
+	 *                        unsupported version.
+	 */
+	public Map<Issuer,OIDCProviderPrefetcher.Result> loadInto(final OIDCProviderMetadataResolver resolver)
+		throws IOException, ParseException {
+
+		Map<Issuer,OIDCProviderPrefetcher.Result> results = load();
+
+		for (OIDCProviderPrefetcher.Result result: results.values()) {
+			resolver.put(result.getMetadata());
+		}
+
+		return results;
+	}
+
+
+	/**
+	 * Revalidates the metadata and JWK sets of the specified OpenID
+	 * Providers in the background, and saves a new snapshot. Providers
+	 * that couldn't be revalidated keep their entry from the previous
+	 * snapshot.
+	 *
+	 * @param prefetcher The OpenID Provider prefetcher. Must not be
+	 *                   {@code null}.
+	 * @param issuers    The issuers. Must not be {@code null}.
+	 * @param timeout    The deadline for all retrievals, in
+	 *                   milliseconds.
+	 *
+	 * @return The future prefetch results, keyed by issuer.
+	 */
+	public Future<Map<Issuer,OIDCProviderPrefetcher.Result>> revalidateInBackground(final OIDCProviderPrefetcher prefetcher,
+										      final List<Issuer> issuers,
+										      final long timeout) {
+
+		ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(final Runnable r) {
+				Thread t = new Thread(r);
+				t.setName("oidc-provider-snapshot-revalidation");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+
+		try {
+			return executor.submit(new Callable<Map<Issuer,OIDCProviderPrefetcher.Result>>() {
+				@Override
+				public Map<Issuer,OIDCProviderPrefetcher.Result> call()
+					throws Exception {
+
+					return revalidate(prefetcher, issuers, timeout);
+				}
+			});
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+
+	/**
+	 * Revalidates the metadata and JWK sets of the specified OpenID
+	 * Providers and saves a new snapshot.
+	 *
+	 * @param prefetcher The OpenID Provider prefetcher. Must not be
+	 *                   {@code null}.
+	 * @param issuers    The issuers. Must not be {@code null}.
+	 * @param timeout    The deadline for all retrievals, in
+	 *                   milliseconds.
+	 *
+	 * @return The prefetch results, keyed by issuer.
+	 *
+	 * @throws Exception If revalidation or saving failed.
+	 */
+	private Map<Issuer,OIDCProviderPrefetcher.Result> revalidate(final OIDCProviderPrefetcher prefetcher,
+								     final List<Issuer> issuers,
+								     final long timeout)
+		throws Exception {
+
+		Map<Issuer,OIDCProviderPrefetcher.Result> results = prefetcher.prefetch(issuers, timeout, true);
+
+		Map<Issuer,OIDCProviderPrefetcher.Result> previous;
+
+		try {
+			previous = load();
+		} catch (ParseException e) {
+			// Corrupted snapshot, replace
+			previous = Collections.emptyMap();
+		}
+
+		List<OIDCProviderPrefetcher.Result> snapshot = new ArrayList<>(issuers.size());
+
+		for (Issuer issuer: issuers) {
+
+			OIDCProviderPrefetcher.Result result = results.get(issuer);
+
+			if (result != null && result.isReady()) {
+				snapshot.add(result);
+			} else if (previous.containsKey(issuer)) {
+				snapshot.add(previous.get(issuer));
+			}
+		}
+
+		save(snapshot);
+
+		return results;
+	}
+}
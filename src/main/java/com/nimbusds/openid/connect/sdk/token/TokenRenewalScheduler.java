@@ -0,0 +1,749 @@
+package com.nimbusds.openid.connect.sdk.token;
+
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.nimbusds.oauth2.sdk.AccessTokenResponse;
+import com.nimbusds.oauth2.sdk.ErrorObject;
+import com.nimbusds.oauth2.sdk.GeneralException;
+import com.nimbusds.oauth2.sdk.ParseException;
+import com.nimbusds.oauth2.sdk.RefreshTokenGrant;
+import com.nimbusds.oauth2.sdk.TokenErrorResponse;
+import com.nimbusds.oauth2.sdk.TokenRequest;
+import com.nimbusds.oauth2.sdk.TokenResponse;
+import com.nimbusds.oauth2.sdk.auth.ClientAuthentication;
+import com.nimbusds.oauth2.sdk.http.HTTPResponse;
+import com.nimbusds.oauth2.sdk.id.Subject;
+import com.nimbusds.oauth2.sdk.token.RefreshToken;
+import com.nimbusds.oauth2.sdk.token.Tokens;
+import com.nimbusds.openid.connect.sdk.OIDCTokenResponse;
+import net.jcip.annotations.ThreadSafe;
+
+
+/**
+ * Scheduler for the bulk renewal of access tokens with refresh token
+ * grants, intended for clients holding the tokens of many end-users.
+ *
+ * <p>The tracked token sets are renewed ahead of the access token
+ * expiration, with a random delay (jitter) to spread the renewals of
+ * tokens issued at the same time. The due renewals are dispatched in
+ * batches at a fixed interval and executed with bounded concurrency, so
+ * that the load on the token endpoint remains smooth.
+ *
+ * <p>The outcome of each renewal is reported to a {@link Listener}, per
+ * subject:
+ *
+ * <ul>
+ *     <li>Renewed tokens are passed to the listener and tracked again. If
+ *         the token response doesn't include a new refresh token the
+ *         current one is retained. Token responses with an ID token are
+ *         passed as {@link OIDCTokens}.
+ *     <li>Token error responses, such as {@code invalid_grant} for a
+ *         revoked refresh token, are reported as {@link GeneralException}
+ *         with the error object, and the tokens are no longer tracked.
+ *     <li>HTTP request failures are reported as {@link IOException} and
+ *         the renewal is retried after the configured retry delay.
+ * </ul>
+ *
+ * <p>Related specifications:
+ *
+ * <ul>
+ *     <li>OAuth 2.0 (RFC 6749), section 6.
+ *     <li>OpenID Connect Core 1.0, section 12.
+ * </ul>
+ */
+@ThreadSafe
+public class TokenRenewalScheduler {
+
+
+	/**
+	 * Token renewal listener.
+	 */
+	public interface Listener {
+
+
+		/**
+		 * Called when the tokens of a subject were renewed.
+		 *
+		 * @param subject The subject.
+		 * @param tokens  The renewed tokens, {@link OIDCTokens} if the
+		 *                token response included an ID token.
+		 */
+		void onRenewal(final Subject subject, final Tokens tokens);
+
+
+		/**
+		 * Called when the renewal of the tokens of a subject failed.
+		 *
+		 * @param subject The subject.
+		 * @param e       The exception: {@link GeneralException} with
+		 *                the error object for a token error response,
+		 *                {@link ParseException} for an invalid token
+		 *                response, {@link IOException} for a failed
+		 *                HTTP request, {@link RuntimeException} for an
+		 *                unexpected error or a rejected renewal after
+		 *                shutdown.
+		 */
+		void onFailure(final Subject subject, final Exception e);
+	}
+
+
+	/**
+	 * The default dispatch interval for due renewals, in milliseconds.
+	 */
+	public static final long DEFAULT_DISPATCH_INTERVAL = 1000L;
+
+
+	/**
+	 * Tracked token set.
+	 */
+	private static final class TrackedTokens implements Delayed {
+
+
+		/**
+		 * The subject.
+		 */
+		private final Subject subject;
+
+
+		/**
+		 * The tokens.
+		 */
+		private final Tokens tokens;
+
+
+		/**
+		 * The renewal time, in milliseconds since the Unix epoch.
+		 */
+		private final long renewAt;
+
+
+		private TrackedTokens(final Subject subject, final Tokens tokens, final long renewAt) {
+			this.subject = subject;
+			this.tokens = tokens;
+			this.renewAt = renewAt;
+		}
+
+
+		@Override
+		public long getDelay(final TimeUnit unit) {
+
+			return unit.convert(renewAt - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+		}
+
+
+		@Override
+		public int compareTo(final Delayed other) {
+
+			long diff = getDelay(TimeUnit.MILLISECONDS) - other.getDelay(TimeUnit.MILLISECONDS);
+			return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+		}
+	}
+
+
+	/**
+	 * The token endpoint URI.
+	 */
+	private final URI endpoint;
+
+
+	/**
+	 * The client authentication, {@code null} for a public client.
+	 */
+	private final ClientAuthentication clientAuth;
+
+
+	/**
+	 * The renewal listener.
+	 */
+	private final Listener listener;
+
+
+	/**
+	 * The time before the access token expiration to renew, in seconds.
+	 */
+	private final long renewAhead;
+
+
+	/**
+	 * The maximum random delay added to the renewal time, in seconds.
+	 */
+	private final long maxJitter;
+
+
+	/**
+	 * The delay before retrying a renewal after a HTTP request failure,
+	 * in seconds.
+	 */
+	private final long retryDelay;
+
+
+	/**
+	 * The maximum number of concurrent renewals.
+	 */
+	private final int maxConcurrency;
+
+
+	/**
+	 * The tracked tokens, keyed by subject.
+	 */
+	private final ConcurrentMap<Subject,TrackedTokens> tracked = new ConcurrentHashMap<>();
+
+
+	/**
+	 * The scheduled renewals. Replaced and untracked entries are left in
+	 * the queue and skipped on dispatch, to avoid linear removal scans.
+	 */
+	private final DelayQueue<TrackedTokens> queue = new DelayQueue<>();
+
+
+	/**
+	 * Bounds the number of renewals in progress.
+	 */
+	private final Semaphore permits;
+
+
+	/**
+	 * The dispatcher of due renewals.
+	 */
+	private final ScheduledExecutorService dispatcher;
+
+
+	/**
+	 * The renewal workers.
+	 */
+	private final ExecutorService workers;
+
+
+	/**
+	 * The renewal count.
+	 */
+	private final AtomicLong renewals = new AtomicLong();
+
+
+	/**
+	 * The failure count.
+	 */
+	private final AtomicLong failures = new AtomicLong();
+
+
+	/**
+	 * Creates a new token renewal scheduler. The due renewals are
+	 * dispatched at the {@link #DEFAULT_DISPATCH_INTERVAL default
+	 * interval}.
+	 *
+	 * @param endpoint       The token endpoint URI. Must not be
+	 *                       {@code null}.
+	 * @param clientAuth     The client authentication, {@code null} for
+	 *                       a public client.
+	 * @param listener       The renewal listener. Must not be
+	 *                       {@code null}.
+	 * @param renewAhead     The time before the access token expiration
+	 *                       to renew, in seconds.
+	 * @param maxJitter      The maximum random delay added to the renewal
+	 *                       time, in seconds, zero if none. Must not
+	 *                       exceed the renewal-ahead time.
+	 * @param retryDelay     The delay before retrying a renewal after a
+	 *                       HTTP request failure, in seconds. Must be a
+	 *                       positive integer.
+	 * @param maxConcurrency The maximum number of concurrent renewals.
+	 *                       Must be a positive integer.
+	 */
+	public TokenRenewalScheduler(final URI endpoint,
+				     final ClientAuthentication clientAuth,
+				     final Listener listener,
+				     final long renewAhead,
+				     final long maxJitter,
+				     final long retryDelay,
+				     final int maxConcurrency) {
+
+		this(endpoint, clientAuth, listener, renewAhead, maxJitter, retryDelay, maxConcurrency, DEFAULT_DISPATCH_INTERVAL);
+	}
+
+
+	/**
+	 * Creates a new token renewal scheduler.
+	 *
+	 * @param endpoint         The token endpoint URI. Must not be
+	 *                         {@code null}.
+	 * @param clientAuth       The client authentication, {@code null}
+	 *                         for a public client.
+	 * @param listener         The renewal listener. Must not be
+	 *                         {@code null}.
+	 * @param renewAhead       The time before the access token
+	 *                         expiration to renew, in seconds.
+	 * @param maxJitter        The maximum random delay added to the
+	 *                         renewal time, in seconds, zero if none.
+	 *                         Must not exceed the renewal-ahead time.
+	 * @param retryDelay       The delay before retrying a renewal after a
+	 *                         HTTP request failure, in seconds. Must be a
+	 *                         positive integer.
+	 * @param maxConcurrency   The maximum number of concurrent renewals.
+	 *                         Must be a positive integer.
+	 * @param dispatchInterval The dispatch interval for due renewals, in
+	 *                         milliseconds. Must be a positive integer.
+	 */
+	public TokenRenewalScheduler(final URI endpoint,
+				     final ClientAuthentication clientAuth,
+				     final Listener listener,
+				     final long renewAhead,
+				     final long maxJitter,
+				     final long retryDelay,
+				     final int maxConcurrency,
+				     final long dispatchInterval) {
+
+		if (endpoint == null)
+			throw new IllegalArgumentException("The token endpoint URI must not be null");
+
+		if (listener == null)
+			throw new IllegalArgumentException("The listener must not be null");
+
+		if (renewAhead < 0)
+			throw new IllegalArgumentException("The renew-ahead time must not be negative");
+
+		if (maxJitter < 0 || maxJitter > renewAhead)
+			throw new IllegalArgumentException("The max jitter must not be negative or exceed the renew-ahead time");
+
+		if (retryDelay < 1)
+			throw new IllegalArgumentException("The retry delay must be a positive integer");
+
+		if (maxConcurrency < 1)
+			throw new IllegalArgumentException("The max concurrency must be a positive integer");
+
+		if (dispatchInterval < 1)
+			throw new IllegalArgumentException("The dispatch interval must be a positive integer");
+
+		this.endpoint = endpoint;
+		this.clientAuth = clientAuth;
+		this.listener = listener;
+		this.renewAhead = renewAhead;
+		this.maxJitter = maxJitter;
+		this.retryDelay = retryDelay;
+		this.maxConcurrency = maxConcurrency;
+
+		permits = new Semaphore(maxConcurrency);
+
+		final AtomicInteger threadCounter = new AtomicInteger();
+
+		ThreadFactory threadFactory = new ThreadFactory() {
+			@Override
+			public Thread newThread(final Runnable r) {
+				Thread t = new Thread(r);
+				t.setName("token-renewal-" + threadCounter.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		};
+
+		workers = Executors.newFixedThreadPool(maxConcurrency, threadFactory);
+
+		dispatcher = Executors.newSingleThreadScheduledExecutor(threadFactory);
+
+		dispatcher.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					dispatch();
+				} catch (RuntimeException e) {
+					// An escaping exception would cancel the
+					// periodic dispatch for all subjects
+				}
+			}
+		}, dispatchInterval, dispatchInterval, TimeUnit.MILLISECONDS);
+	}
+
+
+	/**
+	 * Returns the token endpoint URI.
+	 *
+	 * @return The token endpoint URI.
+	 */
+	public URI getEndpointURI() {
+
+		return endpoint;
+	}
+
+
+	/**
+	 * Returns the client authentication.
+	 *
+	 * @return The client authentication, {@code null} for a public
+	 *         client.
+	 */
+	public ClientAuthentication getClientAuthentication() {
+
+		return clientAuth;
+	}
+
+
+	/**
+	 * Returns the time before the access token expiration to renew.
+	 *
+	 * @return The renew-ahead time, in seconds.
+	 */
+	public long getRenewAhead() {
+
+		return renewAhead;
+	}
+
+
+	/**
+	 * Returns the maximum random delay added to the renewal time.
+	 *
+	 * @return The max jitter, in seconds.
+	 */
+	public long getMaxJitter() {
+
+		return maxJitter;
+	}
+
+
+	/**
+	 * Returns the delay before retrying a renewal after a HTTP request
+	 * failure.
+	 *
+	 * @return The retry delay, in seconds.
+	 */
+	public long getRetryDelay() {
+
+		return retryDelay;
+	}
+
+
+	/**
+	 * Returns the maximum number of concurrent renewals.
+	 *
+	 * @return The max concurrency.
+	 */
+	public int getMaxConcurrency() {
+
+		return maxConcurrency;
+	}
+
+
+	/**
+	 * Returns the number of tracked token sets.
+	 *
+	 * @return The tracked count.
+	 */
+	public int getTrackedCount() {
+
+		return tracked.size();
+	}
+
+
+	/**
+	 * Returns the number of successful renewals.
+	 *
+	 * @return The renewal count.
+	 */
+	public long getRenewalCount() {
+
+		return renewals.get();
+	}
+
+
+	/**
+	 * Returns the number of failed renewals.
+	 *
+	 * @return The failure count.
+	 */
+	public long getFailureCount() {
+
+		return failures.get();
+	}
+
+
+	/**
+	 * Starts tracking the specified tokens for renewal. Replaces any
+	 * tokens currently tracked for the subject.
+	 *
+	 * @param subject The subject. Must not be {@code null}.
+	 * @param tokens  The tokens, with a refresh token and an access token
+	 *                lifetime. Must not be {@code null}.
+	 */
+	public void track(final Subject subject, final Tokens tokens) {
+
+		if (subject == null)
+			throw new IllegalArgumentException("The subject must not be null");
+
+		if (tokens.getRefreshToken() == null)
+			throw new IllegalArgumentException("The tokens must include a refresh token");
+
+		if (tokens.getAccessToken().getLifetime() <= 0)
+			throw new IllegalArgumentException("The access token lifetime must be specified");
+
+		schedule(new TrackedTokens(subject, tokens, computeRenewalTime(tokens, System.currentTimeMillis())));
+	}
+
+
+	/**
+	 * Stops tracking the tokens of the specified subject.
+	 *
+	 * @param subject The subject. Must not be {@code null}.
+	 */
+	public void untrack(final Subject subject) {
+
+		// The queued entry is skipped on dispatch
+		tracked.remove(subject);
+	}
+
+
+	/**
+	 * Computes the renewal time for the specified tokens.
+	 *
+	 * @param tokens The tokens. Must not be {@code null}.
+	 * @param now    The current time, in milliseconds since the Unix
+	 *               epoch.
+	 *
+	 * @return The renewal time, in milliseconds since the Unix epoch.
+	 */
+	private long computeRenewalTime(final Tokens tokens, final long now) {
+
+		long renewAt = now + (tokens.getAccessToken().getLifetime() - renewAhead) * 1000L;
+
+		if (maxJitter > 0) {
+			renewAt += ThreadLocalRandom.current().nextLong(maxJitter * 1000L);
+		}
+
+		return Math.max(renewAt, now);
+	}
+
+
+	/**
+	 * Schedules the renewal of the specified tracked tokens.
+	 *
+	 * @param entry The tracked tokens. Must not be {@code null}.
+	 */
+	private void schedule(final TrackedTokens entry) {
+
+		// Any previously queued entry is skipped on dispatch
+		tracked.put(entry.subject, entry);
+
+		queue.add(entry);
+	}
+
+
+	/**
+	 * Reschedules the specified tracked tokens, unless they were replaced
+	 * or untracked in the meantime.
+	 *
+	 * @param current The current tracked tokens. Must not be
+	 *                {@code null}.
+	 * @param next    The next tracked tokens. Must not be {@code null}.
+	 */
+	private void reschedule(final TrackedTokens current, final TrackedTokens next) {
+
+		if (tracked.replace(current.subject, current, next)) {
+			queue.add(next);
+		}
+	}
+
+
+	/**
+	 * Dispatches the due renewals to the workers, up to the number of
+	 * available workers. The remaining due renewals are dispatched on
+	 * subsequent runs.
+	 */
+	private void dispatch() {
+
+		List<TrackedTokens> due = new ArrayList<>();
+
+		queue.drainTo(due, permits.availablePermits());
+
+		for (final TrackedTokens entry: due) {
+
+			if (tracked.get(entry.subject) != entry) {
+				// Replaced or untracked
+				continue;
+			}
+
+			permits.acquireUninterruptibly();
+
+			try {
+				workers.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							renew(entry);
+						} finally {
+							permits.release();
+						}
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				permits.release();
+				// Shut down, the entry would never be renewed
+				failures.incrementAndGet();
+				tracked.remove(entry.subject, entry);
+				notifyFailure(entry.subject, e);
+			}
+		}
+	}
+
+
+	/**
+	 * Sends the specified token request. May be overridden to customise
+	 * the HTTP request, e.g. to set timeouts.
+	 *
+	 * @param request The token request. Must not be {@code null}.
+	 *
+	 * @return The HTTP response.
+	 *
+	 * @throws IOException If the HTTP request failed.
+	 */
+	protected HTTPResponse send(final TokenRequest request)
+		throws IOException {
+
+		return request.toHTTPRequest().send();
+	}
+
+
+	/**
+	 * Reports a failed renewal to the listener. Exceptions thrown by the
+	 * listener are ignored.
+	 *
+	 * @param subject The subject. Must not be {@code null}.
+	 * @param e       The exception. Must not be {@code null}.
+	 */
+	private void notifyFailure(final Subject subject, final Exception e) {
+
+		try {
+			listener.onFailure(subject, e);
+		} catch (RuntimeException listenerException) {
+			// ignore
+		}
+	}
+
+
+	/**
+	 * Renews the specified tracked tokens and reports the outcome to the
+	 * listener.
+	 *
+	 * @param entry The tracked tokens. Must not be {@code null}.
+	 */
+	private void renew(final TrackedTokens entry) {
+
+		Tokens renewedTokens;
+
+		try {
+			RefreshTokenGrant grant = new RefreshTokenGrant(entry.tokens.getRefreshToken());
+
+			TokenRequest request;
+
+			if (clientAuth != null) {
+				request = new TokenRequest(endpoint, clientAuth, grant);
+			} else {
+				request = new TokenRequest(endpoint, grant);
+			}
+
+			renewedTokens = requestTokens(request, entry.tokens.getRefreshToken());
+
+		} catch (IOException | RuntimeException e) {
+
+			// Possibly transient, retry
+			failures.incrementAndGet();
+			reschedule(entry, new TrackedTokens(entry.subject, entry.tokens, System.currentTimeMillis() + retryDelay * 1000L));
+			notifyFailure(entry.subject, e);
+			return;
+
+		} catch (GeneralException e) {
+
+			failures.incrementAndGet();
+			tracked.remove(entry.subject, entry);
+			notifyFailure(entry.subject, e);
+			return;
+		}
+
+		renewals.incrementAndGet();
+
+		if (renewedTokens.getAccessToken().getLifetime() > 0) {
+			reschedule(entry, new TrackedTokens(entry.subject, renewedTokens, computeRenewalTime(renewedTokens, System.currentTimeMillis())));
+		} else {
+			// Renewal time unknown
+			tracked.remove(entry.subject, entry);
+		}
+
+		try {
+			listener.onRenewal(entry.subject, renewedTokens);
+		} catch (RuntimeException e) {
+			// ignore
+		}
+	}
+
+
+	/**
+	 * Requests new tokens from the token endpoint.
+	 *
+	 * @param request      The token request. Must not be {@code null}.
+	 * @param refreshToken The current refresh token, retained if the
+	 *                     token response doesn't include a new one. Must
+	 *                     not be {@code null}.
+	 *
+	 * @return The renewed tokens.
+	 *
+	 * @throws IOException      If the HTTP request failed.
+	 * @throws GeneralException If the token endpoint returned an error
+	 *                          response or the response couldn't be
+	 *                          parsed.
+	 */
+	private Tokens requestTokens(final TokenRequest request, final RefreshToken refreshToken)
+		throws IOException, GeneralException {
+
+		HTTPResponse httpResponse = send(request);
+
+		TokenResponse response;
+
+		if (httpResponse.getStatusCode() == HTTPResponse.SC_OK &&
+		    httpResponse.getContentAsJSONObject().containsKey("id_token")) {
+			response = OIDCTokenResponse.parse(httpResponse);
+		} else {
+			response = TokenResponse.parse(httpResponse);
+		}
+
+		if (! response.indicatesSuccess()) {
+			ErrorObject error = ((TokenErrorResponse) response).getErrorObject();
+			throw new GeneralException("Token renewal failed: " + error.getCode(), error);
+		}
+
+		Tokens tokens = ((AccessTokenResponse) response).getTokens();
+
+		if (tokens.getRefreshToken() != null) {
+			return tokens;
+		}
+
+		if (tokens instanceof OIDCTokens) {
+			OIDCTokens oidcTokens = (OIDCTokens) tokens;
+			return new OIDCTokens(oidcTokens.getIDTokenString(), oidcTokens.getAccessToken(), refreshToken);
+		}
+
+		return new Tokens(tokens.getAccessToken(), refreshToken);
+	}
+
+
+	/**
+	 * Shuts down the scheduler. Renewals in progress are completed.
+	 */
+	public void shutdown() {
+
+		dispatcher.shutdown();
+		workers.shutdown();
+	}
+}
@@ -0,0 +1,224 @@
+package com.nimbusds.oauth2.sdk;
+
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import junit.framework.TestCase;
+
+import com.nimbusds.openid.connect.sdk.OIDCScopeValue;
+
+
+/**
+ * Tests the compact scope and the scope vocabulary.
+ */
+public class CompactScopeTest extends TestCase {
+
+
+	private static final ScopeVocabulary VOCABULARY = new ScopeVocabulary(
+		OIDCScopeValue.OPENID,
+		OIDCScopeValue.EMAIL,
+		OIDCScopeValue.PROFILE,
+		new Scope.Value("read"),
+		new Scope.Value("write"));
+
+
+	public void testVocabulary() {
+
+		assertEquals(5, VOCABULARY.size());
+		assertEquals(64, ScopeVocabulary.MAX_SIZE);
+		assertEquals(OIDCScopeValue.OPENID, VOCABULARY.get(0));
+		assertEquals(new Scope.Value("write"), VOCABULARY.get(4));
+		assertEquals(3, VOCABULARY.indexOf("read"));
+		assertEquals(-1, VOCABULARY.indexOf("admin"));
+		assertEquals(-1, VOCABULARY.indexOf(null));
+		assertEquals(5, VOCABULARY.getValues().size());
+	}
+
+
+	public void testVocabularyRejectsDuplicates() {
+
+		try {
+			new ScopeVocabulary(new Scope.Value("read"), new Scope.Value("read"));
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("Duplicate scope value: read", e.getMessage());
+		}
+	}
+
+
+	public void testVocabularyRejectsTooManyValues() {
+
+		Scope.Value[] values = new Scope.Value[65];
+
+		for (int i=0; i < values.length; i++) {
+			values[i] = new Scope.Value("s" + i);
+		}
+
+		try {
+			new ScopeVocabulary(values);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The scope vocabulary must not have more than 64 values", e.getMessage());
+		}
+	}
+
+
+	public void testCompact() {
+
+		CompactScope scope = VOCABULARY.compact(Scope.parse("openid read admin"));
+
+		assertEquals(1L | 1L << 3, scope.getBits());
+		assertEquals(Collections.singleton(new Scope.Value("admin")), scope.getOverflow());
+		assertEquals(3, scope.size());
+		assertFalse(scope.isEmpty());
+
+		assertTrue(scope.contains("openid"));
+		assertTrue(scope.contains(OIDCScopeValue.OPENID));
+		assertTrue(scope.contains("read"));
+		assertTrue(scope.contains("admin"));
+		assertFalse(scope.contains("write"));
+		assertFalse(scope.contains("other"));
+
+		assertEquals(Scope.parse("openid read admin"), scope.toScope());
+		assertEquals("openid read admin", scope.toString());
+
+		assertNull(VOCABULARY.compact((Scope) null));
+		assertNull(VOCABULARY.parse(null));
+	}
+
+
+	public void testEmpty() {
+
+		CompactScope scope = VOCABULARY.parse("");
+
+		assertTrue(scope.isEmpty());
+		assertEquals(0, scope.size());
+		assertTrue(scope.toScope().isEmpty());
+		assertEquals("0", scope.serialize());
+	}
+
+
+	public void testSubsetAndIntersection() {
+
+		CompactScope granted = VOCABULARY.parse("openid email read write admin");
+		CompactScope required = VOCABULARY.parse("read write");
+
+		assertTrue(granted.containsAll(required));
+		assertFalse(required.containsAll(granted));
+		assertTrue(granted.containsAll(Scope.parse("openid admin")));
+		assertFalse(granted.containsAll(Scope.parse("openid profile")));
+
+		assertTrue(granted.intersects(required));
+		assertFalse(VOCABULARY.parse("profile").intersects(required));
+		assertTrue(VOCABULARY.parse("admin").intersects(granted));
+
+		assertEquals(VOCABULARY.parse("read admin"), granted.intersect(VOCABULARY.parse("read profile admin other")));
+		assertEquals(VOCABULARY.parse("openid read admin other"), VOCABULARY.parse("openid admin").union(VOCABULARY.parse("read other")));
+	}
+
+
+	public void testDifferentVocabularies() {
+
+		ScopeVocabulary other = new ScopeVocabulary(new Scope.Value("read"));
+
+		try {
+			VOCABULARY.parse("read").containsAll(other.parse("read"));
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The compact scopes must have the same vocabulary", e.getMessage());
+		}
+
+		assertFalse(VOCABULARY.parse("read").equals(other.parse("read")));
+	}
+
+
+	public void testSerialize()
+		throws Exception {
+
+		CompactScope scope = VOCABULARY.parse("openid profile write admin other");
+
+		String s = scope.serialize();
+		assertEquals(Long.toString(1L | 1L << 2 | 1L << 4, Character.MAX_RADIX) + " admin other", s);
+
+		CompactScope parsed = VOCABULARY.deserialize(s);
+		assertEquals(scope, parsed);
+		assertEquals(scope.hashCode(), parsed.hashCode());
+	}
+
+
+	public void testSerializeFullVocabulary()
+		throws Exception {
+
+		Scope.Value[] values = new Scope.Value[64];
+
+		for (int i=0; i < values.length; i++) {
+			values[i] = new Scope.Value("s" + i);
+		}
+
+		ScopeVocabulary vocabulary = new ScopeVocabulary(values);
+
+		CompactScope scope = vocabulary.compact(Arrays.asList("s0", "s63"));
+		assertEquals(2, scope.size());
+		assertTrue(scope.contains("s63"));
+
+		assertEquals(scope, vocabulary.deserialize(scope.serialize()));
+		assertEquals(Scope.parse("s0 s63"), scope.toScope());
+	}
+
+
+	public void testDeserializeInvalid() {
+
+		try {
+			VOCABULARY.deserialize("xyz!");
+			fail();
+		} catch (ParseException e) {
+			assertTrue(e.getMessage().startsWith("Invalid serialised compact scope: "));
+		}
+
+		try {
+			VOCABULARY.deserialize(Long.toString(1L << 5, Character.MAX_RADIX));
+			fail();
+		} catch (ParseException e) {
+			assertEquals("Invalid serialised compact scope: Unknown bit position", e.getMessage());
+		}
+	}
+
+
+	public void testRejectUnknownBitPosition() {
+
+		assertEquals(1L << 4, new CompactScope(VOCABULARY, 1L << 4, null).getBits());
+
+		try {
+			new CompactScope(VOCABULARY, 1L << 5, null);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The bit set must not have bits beyond the vocabulary size", e.getMessage());
+		}
+
+		try {
+			new CompactScope(VOCABULARY, Long.MIN_VALUE, null);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The bit set must not have bits beyond the vocabulary size", e.getMessage());
+		}
+	}
+
+
+	public void testCanonicalOverflow()
+		throws Exception {
+
+		CompactScope expected = VOCABULARY.compact(Arrays.asList("openid", "custom"));
+
+		CompactScope scope = VOCABULARY.deserialize("0 openid custom");
+		assertTrue(scope.contains("openid"));
+		assertEquals(expected.getBits(), scope.getBits());
+		assertEquals(Collections.singleton(new Scope.Value("custom")), scope.getOverflow());
+		assertEquals(expected, scope);
+		assertTrue(scope.containsAll(VOCABULARY.compact(Arrays.asList("openid"))));
+
+		scope = new CompactScope(VOCABULARY, 0L, Collections.singleton(new Scope.Value("openid")));
+		assertEquals(VOCABULARY.compact(Arrays.asList("openid")), scope);
+		assertTrue(scope.getOverflow().isEmpty());
+	}
+}
@@ -9,6 +9,7 @@ import net.minidev.json.JSONObject;
 
 import com.nimbusds.oauth2.sdk.http.CommonContentTypes;
 import com.nimbusds.oauth2.sdk.http.HTTPResponse;
+import com.nimbusds.oauth2.sdk.util.JSONObjectUtils;
 
 
 /**
@@ -186,4 +187,21 @@ public class ErrorObjectTest extends TestCase {
 
 		assertEquals(440, new ErrorObject("code", "description", 400).setHTTPStatusCode(440).getHTTPStatusCode());
 	}
+
+
+	public void testToJSONStringCached()
+		throws Exception {
+
+		String json = OAuth2Error.INVALID_CLIENT.toJSONString();
+
+		assertSame(json, OAuth2Error.INVALID_CLIENT.toJSONString());
+		assertEquals(OAuth2Error.INVALID_CLIENT.toJSONObject(), JSONObjectUtils.parse(json));
+
+		// Custom description
+		ErrorObject custom = OAuth2Error.INVALID_CLIENT.setDescription("Bad client credentials");
+		JSONObject o = JSONObjectUtils.parse(custom.toJSONString());
+		assertEquals("invalid_client", o.get("error"));
+		assertEquals("Bad client credentials", o.get("error_description"));
+		assertEquals(2, o.size());
+	}
 }
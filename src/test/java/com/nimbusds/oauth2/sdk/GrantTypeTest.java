@@ -137,4 +137,22 @@ public class GrantTypeTest extends TestCase {
 			// ok
 		}
 	}
+
+
+	public void testParseCanonical()
+		throws Exception {
+
+		assertSame(GrantType.AUTHORIZATION_CODE, GrantType.parse("authorization_code"));
+		assertSame(GrantType.IMPLICIT, GrantType.parse("implicit"));
+		assertSame(GrantType.REFRESH_TOKEN, GrantType.parse("refresh_token"));
+		assertSame(GrantType.PASSWORD, GrantType.parse("password"));
+		assertSame(GrantType.CLIENT_CREDENTIALS, GrantType.parse("client_credentials"));
+		assertSame(GrantType.JWT_BEARER, GrantType.parse("urn:ietf:params:oauth:grant-type:jwt-bearer"));
+		assertSame(GrantType.SAML2_BEARER, GrantType.parse("urn:ietf:params:oauth:grant-type:saml2-bearer"));
+
+		GrantType custom = GrantType.parse("custom");
+		assertEquals("custom", custom.getValue());
+		assertNotSame(custom, GrantType.parse("custom"));
+		assertEquals(custom, GrantType.parse("custom"));
+	}
 }
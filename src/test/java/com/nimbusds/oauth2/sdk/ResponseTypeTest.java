@@ -168,4 +168,25 @@ public class ResponseTypeTest extends TestCase {
 
 		assertTrue(ResponseType.parse("code id_token").equals(ResponseType.parse("id_token code")));
 	}
+
+
+	public void testParseCanonicalValues()
+		throws Exception {
+
+		ResponseType rt = ResponseType.parse("code id_token");
+
+		for (ResponseType.Value value: rt) {
+			assertTrue(value == ResponseType.Value.CODE || value == ResponseType.Value.parse("id_token"));
+		}
+
+		assertTrue(rt.contains(OIDCResponseTypeValue.ID_TOKEN));
+
+		// Constants are the shared instances
+		assertSame(OIDCResponseTypeValue.ID_TOKEN, ResponseType.Value.parse("id_token"));
+		assertSame(OIDCResponseTypeValue.NONE, ResponseType.Value.parse("none"));
+
+		assertSame(ResponseType.Value.TOKEN, ResponseType.Value.parse("token"));
+		assertSame(ResponseType.Value.parse("none"), ResponseType.Value.parse("none"));
+		assertNotSame(ResponseType.Value.parse("custom"), ResponseType.Value.parse("custom"));
+	}
 }
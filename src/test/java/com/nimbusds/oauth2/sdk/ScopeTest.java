@@ -1,11 +1,15 @@
 package com.nimbusds.oauth2.sdk;
 
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 
 import junit.framework.TestCase;
 
+import com.nimbusds.openid.connect.sdk.OIDCScopeValue;
+
 
 /**
  * Tests the scope class.
@@ -147,4 +151,30 @@ public class ScopeTest extends TestCase {
 		assertTrue(scope.contains("admin"));
 		assertEquals(3, scope.size());
 	}
+
+
+	public void testParseCanonicalValues() {
+
+		Scope scope = Scope.parse("openid email custom");
+
+		Iterator<Scope.Value> it = scope.iterator();
+		Scope.Value openid = it.next();
+		assertSame(Scope.Value.parse("openid"), openid);
+		assertNull(openid.getRequirement());
+		assertEquals(OIDCScopeValue.OPENID, openid);
+		Scope.Value email = it.next();
+		assertSame(Scope.Value.parse("email"), email);
+		assertNull(email.getRequirement());
+		assertEquals(new Scope.Value("custom"), it.next());
+
+		for (String v: Arrays.asList("profile", "address", "phone", "offline_access")) {
+			assertSame(Scope.Value.parse(v), Scope.Value.parse(v));
+			assertNull(Scope.Value.parse(v).getRequirement());
+		}
+
+		assertNotSame(Scope.Value.parse("custom"), Scope.Value.parse("custom"));
+
+		assertSame(Scope.Value.parse("phone"), Scope.parse(Arrays.asList("phone")).iterator().next());
+		assertSame(Scope.Value.parse("address"), new Scope("address").iterator().next());
+	}
 }
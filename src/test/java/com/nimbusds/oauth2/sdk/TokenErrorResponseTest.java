@@ -128,4 +128,23 @@ public class TokenErrorResponseTest extends TestCase {
 		assertNull(errorResponse.getErrorObject().getURI());
 		assertEquals("{\"error\":null}", errorResponse.toJSONObject().toJSONString()); // TODO
 	}
+
+
+	public void testStandardErrorContentCached()
+		throws Exception {
+
+		HTTPResponse httpResponse = new TokenErrorResponse(OAuth2Error.INVALID_GRANT).toHTTPResponse();
+
+		assertEquals(HTTPResponse.SC_BAD_REQUEST, httpResponse.getStatusCode());
+		assertSame(OAuth2Error.INVALID_GRANT.toJSONString(), httpResponse.getContent());
+		assertSame(httpResponse.getContent(), new TokenErrorResponse(OAuth2Error.INVALID_GRANT).toHTTPResponse().getContent());
+
+		JSONObject o = httpResponse.getContentAsJSONObject();
+		assertEquals("invalid_grant", o.get("error"));
+		assertEquals(OAuth2Error.INVALID_GRANT.getDescription(), o.get("error_description"));
+
+		// Custom description
+		httpResponse = new TokenErrorResponse(OAuth2Error.INVALID_GRANT.setDescription("Expired code")).toHTTPResponse();
+		assertEquals("Expired code", httpResponse.getContentAsJSONObject().get("error_description"));
+	}
 }
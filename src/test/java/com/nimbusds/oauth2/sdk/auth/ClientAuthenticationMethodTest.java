@@ -57,4 +57,18 @@ public class ClientAuthenticationMethodTest extends TestCase {
 			// ok
 		}
 	}
+
+
+	public void testParseCanonical() {
+
+		assertSame(ClientAuthenticationMethod.CLIENT_SECRET_BASIC, ClientAuthenticationMethod.parse("client_secret_basic"));
+		assertSame(ClientAuthenticationMethod.CLIENT_SECRET_POST, ClientAuthenticationMethod.parse("client_secret_post"));
+		assertSame(ClientAuthenticationMethod.CLIENT_SECRET_JWT, ClientAuthenticationMethod.parse("client_secret_jwt"));
+		assertSame(ClientAuthenticationMethod.PRIVATE_KEY_JWT, ClientAuthenticationMethod.parse("private_key_jwt"));
+		assertSame(ClientAuthenticationMethod.NONE, ClientAuthenticationMethod.parse("none"));
+
+		ClientAuthenticationMethod custom = ClientAuthenticationMethod.parse("custom");
+		assertNotSame(custom, ClientAuthenticationMethod.parse("custom"));
+		assertEquals(custom, ClientAuthenticationMethod.parse("custom"));
+	}
 }
@@ -663,4 +663,52 @@ public class ClientMetadataTest extends TestCase {
 			assertEquals("Invalid client metadata field: Unexpected type of JSON object member with key \"response_types\"", e.getErrorObject().getDescription());
 		}
 	}
-}
\ No newline at end of file
+
+
+	public void testParseDoesNotModifySource()
+		throws Exception {
+
+		JSONObject o = new JSONObject();
+		o.put("redirect_uris", Arrays.asList("https://example.com/cb"));
+		o.put("scope", "read write");
+		o.put("client_name", "Example");
+		o.put("client_name#de", "Beispiel");
+		o.put("client_name#1234567890", "Invalid");
+		o.put("scope#en", "read");
+		o.put("data", "123");
+
+		JSONObject copy = new JSONObject(o);
+
+		ClientMetadata metadata = ClientMetadata.parse(o);
+
+		assertEquals(copy, o);
+
+		assertEquals(Collections.singleton(URI.create("https://example.com/cb")), metadata.getRedirectionURIs());
+		assertEquals(Scope.parse("read write"), metadata.getScope());
+		assertEquals("Example", metadata.getName());
+		assertEquals("Beispiel", metadata.getName(LangTag.parse("de")));
+
+		// Unregistered members and invalid language tags
+		JSONObject customFields = metadata.getCustomFields();
+		assertEquals("Invalid", customFields.get("client_name#1234567890"));
+		assertEquals("read", customFields.get("scope#en"));
+		assertEquals("123", customFields.get("data"));
+		assertEquals(3, customFields.size());
+	}
+
+
+	public void testParseNoCustomFields()
+		throws Exception {
+
+		JSONObject o = new JSONObject();
+		o.put("redirect_uris", Arrays.asList("https://example.com/cb"));
+
+		ClientMetadata metadata = ClientMetadata.parse(o);
+
+		assertTrue(metadata.getCustomFields().isEmpty());
+
+		metadata.setCustomField("data", "123");
+		assertEquals("123", metadata.getCustomField("data"));
+		assertFalse(o.containsKey("data"));
+	}
+}
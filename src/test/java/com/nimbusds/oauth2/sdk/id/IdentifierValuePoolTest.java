@@ -0,0 +1,123 @@
+package com.nimbusds.oauth2.sdk.id;
+
+
+import com.nimbusds.jose.util.Base64URL;
+import com.nimbusds.oauth2.sdk.AuthorizationCode;
+import com.nimbusds.oauth2.sdk.token.BearerAccessToken;
+import junit.framework.TestCase;
+
+
+/**
+ * Tests the identifier value pool.
+ */
+public class IdentifierValuePoolTest extends TestCase {
+
+
+	public void testConstructor() {
+
+		IdentifierValuePool pool = new IdentifierValuePool(32, 100);
+		assertEquals(32, pool.getByteLength());
+		assertEquals(100, pool.getCapacity());
+		assertEquals(IdentifierValuePool.DEFAULT_REFILL_INTERVAL, pool.getRefillInterval());
+		assertEquals(0, pool.size());
+		assertEquals(0L, pool.getHitCount());
+		assertEquals(0L, pool.getMissCount());
+		assertEquals(1.0, pool.getHitRate());
+	}
+
+
+	public void testRejectIllegalArgs() {
+
+		try {
+			new IdentifierValuePool(0, 100);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The byte length must be a positive integer", e.getMessage());
+		}
+
+		try {
+			new IdentifierValuePool(32, 0);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The capacity must be a positive integer", e.getMessage());
+		}
+
+		try {
+			new IdentifierValuePool(32, 100, 0L);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The refill interval must be a positive integer", e.getMessage());
+		}
+	}
+
+
+	public void testFillAndPoll() {
+
+		IdentifierValuePool pool = new IdentifierValuePool(16, 3);
+		pool.fill();
+		assertEquals(3, pool.size());
+
+		for (int i=0; i < 3; i++) {
+			String value = pool.poll();
+			assertEquals(16, new Base64URL(value).decode().length);
+		}
+
+		assertEquals(0, pool.size());
+		assertNull(pool.poll());
+
+		assertEquals(3L, pool.getHitCount());
+		assertEquals(1L, pool.getMissCount());
+		assertEquals(0.75, pool.getHitRate());
+	}
+
+
+	public void testBackgroundRefill()
+		throws Exception {
+
+		IdentifierValuePool pool = new IdentifierValuePool(32, 10, 1L);
+		pool.start();
+		pool.start(); // no effect
+
+		for (int i=0; i < 100 && pool.size() < 10; i++) {
+			Thread.sleep(10L);
+		}
+
+		assertEquals(10, pool.size());
+
+		pool.shutdown();
+		pool.shutdown(); // no effect
+		assertEquals(10, pool.size());
+	}
+
+
+	public void testIdentifierDrawsFromPool() {
+
+		IdentifierValuePool pool = new IdentifierValuePool(32, 2);
+		pool.fill();
+
+		Identifier.setValuePool(pool);
+
+		try {
+			assertEquals(pool, Identifier.getValuePool());
+
+			new BearerAccessToken();
+			new AuthorizationCode();
+			assertEquals(0, pool.size());
+			assertEquals(2L, pool.getHitCount());
+
+			// Drained, inline generation
+			assertEquals(32, new Base64URL(new AuthorizationCode().getValue()).decode().length);
+			assertEquals(1L, pool.getMissCount());
+
+			// Byte length mismatch, pool not consulted
+			assertEquals(16, new Base64URL(new AuthorizationCode(16).getValue()).decode().length);
+			assertEquals(2L, pool.getHitCount());
+			assertEquals(1L, pool.getMissCount());
+
+		} finally {
+			Identifier.setValuePool(null);
+		}
+
+		assertNull(Identifier.getValuePool());
+	}
+}
@@ -0,0 +1,331 @@
+package com.nimbusds.oauth2.sdk.introspection;
+
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.nimbusds.oauth2.sdk.TokenIntrospectionErrorResponse;
+import com.nimbusds.oauth2.sdk.TokenIntrospectionRequest;
+import com.nimbusds.oauth2.sdk.TokenIntrospectionResponse;
+import com.nimbusds.oauth2.sdk.TokenIntrospectionSuccessResponse;
+import com.nimbusds.oauth2.sdk.auth.ClientAuthentication;
+import com.nimbusds.oauth2.sdk.auth.ClientSecretBasic;
+import com.nimbusds.oauth2.sdk.auth.Secret;
+import com.nimbusds.oauth2.sdk.http.HTTPResponse;
+import com.nimbusds.oauth2.sdk.id.ClientID;
+import com.nimbusds.oauth2.sdk.token.AccessToken;
+import com.nimbusds.oauth2.sdk.token.BearerAccessToken;
+import com.nimbusds.oauth2.sdk.token.BearerTokenError;
+import junit.framework.TestCase;
+
+
+/**
+ * Tests the caching token introspection client.
+ */
+public class CachingTokenIntrospectionClientTest extends TestCase {
+
+
+	private static final URI ENDPOINT = URI.create("https://c2id.com/token/introspect");
+
+
+	private static final ClientAuthentication CLIENT_AUTH = new ClientSecretBasic(new ClientID("123"), new Secret("secret"));
+
+
+	/**
+	 * Client returning a canned response and counting the requests.
+	 */
+	private static class MockClient extends CachingTokenIntrospectionClient {
+
+
+		private final AtomicInteger requestCount = new AtomicInteger();
+
+
+		private volatile HTTPResponse httpResponse;
+
+
+		MockClient(final long maxTTL, final long negativeTTL) {
+			super(ENDPOINT, CLIENT_AUTH, 100, maxTTL, negativeTTL);
+		}
+
+
+		@Override
+		protected HTTPResponse send(final TokenIntrospectionRequest request)
+			throws IOException {
+
+			requestCount.incrementAndGet();
+			return httpResponse;
+		}
+	}
+
+
+	public void testConstructor() {
+
+		CachingTokenIntrospectionClient client = new CachingTokenIntrospectionClient(ENDPOINT, CLIENT_AUTH, 100, 60L, 10L);
+		assertEquals(ENDPOINT, client.getEndpointURI());
+		assertEquals(CLIENT_AUTH, client.getClientAuthentication());
+		assertNull(client.getClientAuthorization());
+		assertEquals(60L, client.getMaxTTL());
+		assertEquals(10L, client.getNegativeTTL());
+		assertEquals(0L, client.getHitCount());
+		assertEquals(0L, client.getMissCount());
+	}
+
+
+	public void testCacheActiveToken()
+		throws Exception {
+
+		MockClient client = new MockClient(60L, 0L);
+
+		client.httpResponse = new TokenIntrospectionSuccessResponse.Builder(true)
+			.expirationTime(new Date(new Date().getTime() + 3600 * 1000L))
+			.build()
+			.toHTTPResponse();
+
+		BearerAccessToken token = new BearerAccessToken();
+
+		TokenIntrospectionResponse r1 = client.introspect(token);
+		TokenIntrospectionResponse r2 = client.introspect(token);
+
+		assertTrue(((TokenIntrospectionSuccessResponse) r1).isActive());
+		assertSame(r1, r2);
+		assertEquals(1, client.requestCount.get());
+		assertEquals(1L, client.getHitCount());
+		assertEquals(1L, client.getMissCount());
+
+		// Other token
+		client.introspect(new BearerAccessToken());
+		assertEquals(2, client.requestCount.get());
+
+		// Invalidated
+		client.invalidate(token);
+		client.introspect(token);
+		assertEquals(3, client.requestCount.get());
+
+		client.clear();
+		client.introspect(token);
+		assertEquals(4, client.requestCount.get());
+	}
+
+
+	public void testExpiredTokenNotCached()
+		throws Exception {
+
+		MockClient client = new MockClient(60L, 0L);
+
+		client.httpResponse = new TokenIntrospectionSuccessResponse.Builder(true)
+			.expirationTime(new Date(new Date().getTime() - 1000L))
+			.build()
+			.toHTTPResponse();
+
+		BearerAccessToken token = new BearerAccessToken();
+
+		client.introspect(token);
+		client.introspect(token);
+		assertEquals(2, client.requestCount.get());
+	}
+
+
+	public void testExpirationBoundedByTokenExp()
+		throws Exception {
+
+		MockClient client = new MockClient(60L, 0L);
+
+		client.httpResponse = new TokenIntrospectionSuccessResponse.Builder(true)
+			.expirationTime(new Date(new Date().getTime() + 1000L))
+			.build()
+			.toHTTPResponse();
+
+		BearerAccessToken token = new BearerAccessToken();
+
+		client.introspect(token);
+		client.introspect(token);
+		assertEquals(1, client.requestCount.get());
+
+		Thread.sleep(1100L);
+
+		client.introspect(token);
+		assertEquals(2, client.requestCount.get());
+	}
+
+
+	public void testNegativeCaching()
+		throws Exception {
+
+		MockClient client = new MockClient(60L, 10L);
+
+		client.httpResponse = new TokenIntrospectionSuccessResponse.Builder(false).build().toHTTPResponse();
+
+		BearerAccessToken token = new BearerAccessToken();
+
+		assertFalse(((TokenIntrospectionSuccessResponse) client.introspect(token)).isActive());
+		assertFalse(((TokenIntrospectionSuccessResponse) client.introspect(token)).isActive());
+		assertEquals(1, client.requestCount.get());
+	}
+
+
+	public void testNegativeCachingDisabled()
+		throws Exception {
+
+		MockClient client = new MockClient(60L, 0L);
+
+		client.httpResponse = new TokenIntrospectionSuccessResponse.Builder(false).build().toHTTPResponse();
+
+		BearerAccessToken token = new BearerAccessToken();
+
+		client.introspect(token);
+		client.introspect(token);
+		assertEquals(2, client.requestCount.get());
+	}
+
+
+	public void testErrorResponseNotCached()
+		throws Exception {
+
+		MockClient client = new MockClient(60L, 10L);
+
+		client.httpResponse = new TokenIntrospectionErrorResponse(BearerTokenError.INVALID_TOKEN).toHTTPResponse();
+
+		BearerAccessToken token = new BearerAccessToken();
+
+		assertTrue(client.introspect(token) instanceof TokenIntrospectionErrorResponse);
+		assertTrue(client.introspect(token) instanceof TokenIntrospectionErrorResponse);
+		assertEquals(2, client.requestCount.get());
+	}
+
+
+	public void testCoalesceConcurrentIntrospections()
+		throws Exception {
+
+		final CountDownLatch release = new CountDownLatch(1);
+
+		final MockClient client = new MockClient(60L, 0L) {
+			@Override
+			protected HTTPResponse send(final TokenIntrospectionRequest request)
+				throws IOException {
+
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					throw new IOException(e);
+				}
+				return super.send(request);
+			}
+		};
+
+		client.httpResponse = new TokenIntrospectionSuccessResponse.Builder(true).build().toHTTPResponse();
+
+		final BearerAccessToken token = new BearerAccessToken();
+
+		final int numThreads = 10;
+
+		final List<TokenIntrospectionResponse> responses = Collections.synchronizedList(new ArrayList<TokenIntrospectionResponse>());
+
+		List<Thread> threads = new ArrayList<>();
+
+		for (int i=0; i < numThreads; i++) {
+			Thread t = new Thread() {
+				public void run() {
+					try {
+						responses.add(client.introspect(token));
+					} catch (Exception e) {
+						// ignore
+					}
+				}
+			};
+			threads.add(t);
+			t.start();
+		}
+
+		// Let all threads reach the in-flight request
+		Thread.sleep(200L);
+		release.countDown();
+
+		for (Thread t: threads) {
+			t.join();
+		}
+
+		assertEquals(numThreads, responses.size());
+		assertEquals(1, client.requestCount.get());
+
+		for (TokenIntrospectionResponse r: responses) {
+			assertSame(responses.get(0), r);
+		}
+	}
+
+
+	public void testSharedException()
+		throws Exception {
+
+		MockClient client = new MockClient(60L, 0L) {
+			@Override
+			protected HTTPResponse send(final TokenIntrospectionRequest request)
+				throws IOException {
+
+				throw new IOException("Connection refused");
+			}
+		};
+
+		try {
+			client.introspect(new BearerAccessToken());
+			fail();
+		} catch (IOException e) {
+			assertEquals("Connection refused", e.getMessage());
+		}
+	}
+
+
+	public void testRejectIllegalArgs() {
+
+		try {
+			new CachingTokenIntrospectionClient(null, CLIENT_AUTH, 100, 60L, 0L);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The token introspection endpoint URI must not be null", e.getMessage());
+		}
+
+		try {
+			new CachingTokenIntrospectionClient(ENDPOINT, CLIENT_AUTH, 100, 0L, 0L);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The max TTL must be a positive integer", e.getMessage());
+		}
+
+		try {
+			new CachingTokenIntrospectionClient(ENDPOINT, CLIENT_AUTH, 100, 60L, -1L);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The negative TTL must not be negative", e.getMessage());
+		}
+
+		try {
+			new CachingTokenIntrospectionClient(ENDPOINT, (ClientAuthentication) null, 100, 60L, 0L);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The client authentication must not be null", e.getMessage());
+		}
+
+		try {
+			new CachingTokenIntrospectionClient(ENDPOINT, (AccessToken) null, 100, 60L, 0L);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The client authorisation must not be null", e.getMessage());
+		}
+	}
+
+
+	public void testConstructorWithoutClientAuth() {
+
+		CachingTokenIntrospectionClient client = new CachingTokenIntrospectionClient(ENDPOINT, 100, 60L, 10L);
+		assertEquals(ENDPOINT, client.getEndpointURI());
+		assertNull(client.getClientAuthentication());
+		assertNull(client.getClientAuthorization());
+		assertEquals(60L, client.getMaxTTL());
+		assertEquals(10L, client.getNegativeTTL());
+	}
+}
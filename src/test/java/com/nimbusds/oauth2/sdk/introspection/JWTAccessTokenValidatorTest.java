@@ -0,0 +1,222 @@
+package com.nimbusds.oauth2.sdk.introspection;
+
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+import java.util.Date;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.nimbusds.jose.proc.BadJOSEException;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.nimbusds.oauth2.sdk.Scope;
+import com.nimbusds.oauth2.sdk.TokenIntrospectionSuccessResponse;
+import com.nimbusds.oauth2.sdk.id.Audience;
+import com.nimbusds.oauth2.sdk.id.Issuer;
+import com.nimbusds.oauth2.sdk.id.Subject;
+import com.nimbusds.oauth2.sdk.token.AccessTokenType;
+import com.nimbusds.oauth2.sdk.token.BearerAccessToken;
+import junit.framework.TestCase;
+
+
+/**
+ * Tests the JWT-encoded access token validator.
+ */
+public class JWTAccessTokenValidatorTest extends TestCase {
+
+
+	private static final Issuer ISSUER = new Issuer("https://c2id.com");
+
+
+	private static final Audience AUDIENCE = new Audience("https://rs.example.com");
+
+
+	private RSAKey rsaJWK;
+
+
+	private JWTAccessTokenValidator validator;
+
+
+	@Override
+	public void setUp()
+		throws Exception {
+
+		KeyPairGenerator gen = KeyPairGenerator.getInstance("RSA");
+		gen.initialize(1024);
+		KeyPair keyPair = gen.generateKeyPair();
+		rsaJWK = new RSAKey.Builder((RSAPublicKey)keyPair.getPublic())
+			.privateKey((RSAPrivateKey)keyPair.getPrivate())
+			.keyID("1")
+			.keyUse(KeyUse.SIGNATURE)
+			.build();
+
+		validator = new JWTAccessTokenValidator(ISSUER, AUDIENCE, JWSAlgorithm.RS256, new ImmutableJWKSet(new JWKSet(rsaJWK)));
+	}
+
+
+	private BearerAccessToken createAccessToken(final JWTClaimsSet claimsSet)
+		throws Exception {
+
+		SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID("1").build(), claimsSet);
+		jwt.sign(new RSASSASigner(rsaJWK));
+		return new BearerAccessToken(jwt.serialize());
+	}
+
+
+	private static JWTClaimsSet.Builder createClaims() {
+
+		Date now = new Date();
+
+		return new JWTClaimsSet.Builder()
+			.issuer(ISSUER.getValue())
+			.subject("alice")
+			.audience(AUDIENCE.getValue())
+			.expirationTime(new Date(now.getTime() + 10*60*1000L))
+			.issueTime(now);
+	}
+
+
+	public void testGetters() {
+
+		assertEquals(ISSUER, validator.getExpectedIssuer());
+		assertEquals(AUDIENCE, validator.getExpectedAudience());
+		assertNotNull(validator.getJWSKeySelector());
+		assertEquals(JWTAccessTokenValidator.DEFAULT_MAX_CLOCK_SKEW, validator.getMaxClockSkew());
+	}
+
+
+	public void testRejectNegativeMaxClockSkew() {
+
+		validator.setMaxClockSkew(0);
+		assertEquals(0, validator.getMaxClockSkew());
+
+		try {
+			validator.setMaxClockSkew(-1);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The max clock skew must not be negative", e.getMessage());
+		}
+
+		assertEquals(0, validator.getMaxClockSkew());
+	}
+
+
+	public void testValidate()
+		throws Exception {
+
+		BearerAccessToken accessToken = createAccessToken(createClaims()
+			.claim("client_id", "123")
+			.claim("scope", "read write")
+			.build());
+
+		TokenIntrospectionSuccessResponse response = validator.validate(accessToken);
+		assertTrue(response.isActive());
+		assertEquals(ISSUER, response.getIssuer());
+		assertEquals(new Subject("alice"), response.getSubject());
+		assertTrue(response.getAudience().contains(AUDIENCE));
+		assertEquals("123", response.getClientID().getValue());
+		assertEquals(Scope.parse("read write"), response.getScope());
+		assertEquals(AccessTokenType.BEARER, response.getTokenType());
+		assertNotNull(response.getExpirationTime());
+		assertNotNull(response.getIssueTime());
+
+		assertTrue(validator.introspect(accessToken).isActive());
+	}
+
+
+	public void testMapScpClaim()
+		throws Exception {
+
+		BearerAccessToken accessToken = createAccessToken(createClaims()
+			.claim("scp", Arrays.asList("read", "write"))
+			.build());
+
+		assertEquals(Scope.parse("read write"), validator.validate(accessToken).getScope());
+	}
+
+
+	public void testUnexpectedIssuer()
+		throws Exception {
+
+		BearerAccessToken accessToken = createAccessToken(createClaims()
+			.issuer("https://other.com")
+			.build());
+
+		try {
+			validator.validate(accessToken);
+			fail();
+		} catch (BadJOSEException e) {
+			assertEquals("Unexpected JWT issuer: https://other.com", e.getMessage());
+		}
+
+		assertFalse(validator.introspect(accessToken).isActive());
+	}
+
+
+	public void testUnexpectedAudience()
+		throws Exception {
+
+		BearerAccessToken accessToken = createAccessToken(createClaims()
+			.audience("https://other.com")
+			.build());
+
+		try {
+			validator.validate(accessToken);
+			fail();
+		} catch (BadJOSEException e) {
+			assertEquals("Unexpected JWT audience: [https://other.com]", e.getMessage());
+		}
+	}
+
+
+	public void testExpired()
+		throws Exception {
+
+		Date now = new Date();
+
+		BearerAccessToken accessToken = createAccessToken(createClaims()
+			.expirationTime(new Date(now.getTime() - 5*60*1000L))
+			.build());
+
+		try {
+			validator.validate(accessToken);
+			fail();
+		} catch (BadJOSEException e) {
+			assertEquals("Expired JWT", e.getMessage());
+		}
+	}
+
+
+	public void testBeforeNotBeforeTime()
+		throws Exception {
+
+		Date now = new Date();
+
+		BearerAccessToken accessToken = createAccessToken(createClaims()
+			.notBeforeTime(new Date(now.getTime() + 5*60*1000L))
+			.build());
+
+		try {
+			validator.validate(accessToken);
+			fail();
+		} catch (BadJOSEException e) {
+			assertEquals("JWT before use time", e.getMessage());
+		}
+	}
+
+
+	public void testNotJWT()
+		throws Exception {
+
+		assertFalse(validator.introspect(new BearerAccessToken()).isActive());
+	}
+}
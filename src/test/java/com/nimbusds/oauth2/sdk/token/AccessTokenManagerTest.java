@@ -0,0 +1,382 @@
+package com.nimbusds.oauth2.sdk.token;
+
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.nimbusds.oauth2.sdk.AccessTokenResponse;
+import com.nimbusds.oauth2.sdk.AuthorizationCode;
+import com.nimbusds.oauth2.sdk.AuthorizationCodeGrant;
+import com.nimbusds.oauth2.sdk.ClientCredentialsGrant;
+import com.nimbusds.oauth2.sdk.GeneralException;
+import com.nimbusds.oauth2.sdk.OAuth2Error;
+import com.nimbusds.oauth2.sdk.RefreshTokenGrant;
+import com.nimbusds.oauth2.sdk.Scope;
+import com.nimbusds.oauth2.sdk.TokenErrorResponse;
+import com.nimbusds.oauth2.sdk.TokenRequest;
+import com.nimbusds.oauth2.sdk.auth.ClientAuthentication;
+import com.nimbusds.oauth2.sdk.auth.ClientSecretBasic;
+import com.nimbusds.oauth2.sdk.auth.Secret;
+import com.nimbusds.oauth2.sdk.http.HTTPResponse;
+import com.nimbusds.oauth2.sdk.id.ClientID;
+import junit.framework.TestCase;
+
+
+/**
+ * Tests the access token manager.
+ */
+public class AccessTokenManagerTest extends TestCase {
+
+
+	private static final URI ENDPOINT = URI.create("https://c2id.com/token");
+
+
+	private static final ClientAuthentication CLIENT_AUTH = new ClientSecretBasic(new ClientID("123"), new Secret("secret"));
+
+
+	/**
+	 * Manager issuing new tokens and counting the requests.
+	 */
+	private static class MockManager extends AccessTokenManager {
+
+
+		private final AtomicInteger requestCount = new AtomicInteger();
+
+
+		private volatile long lifetime = 3600L;
+
+
+		private volatile boolean rotateRefreshToken;
+
+
+		private volatile boolean unreachable;
+
+
+		private volatile boolean errorResponse;
+
+
+		private volatile TokenRequest lastRequest;
+
+
+		MockManager(final long refreshAhead, final long staleGrace) {
+			super(refreshAhead, staleGrace);
+		}
+
+
+		@Override
+		protected HTTPResponse send(final TokenRequest request)
+			throws IOException {
+
+			requestCount.incrementAndGet();
+			lastRequest = request;
+
+			if (unreachable) {
+				throw new IOException("Connection refused");
+			}
+
+			if (errorResponse) {
+				return new TokenErrorResponse(OAuth2Error.INVALID_CLIENT).toHTTPResponse();
+			}
+
+			RefreshToken refreshToken = rotateRefreshToken ? new RefreshToken() : null;
+			return new AccessTokenResponse(new Tokens(new BearerAccessToken(lifetime, null), refreshToken)).toHTTPResponse();
+		}
+	}
+
+
+	private static TokenRequest createRequest(final Scope scope) {
+
+		return new TokenRequest(ENDPOINT, CLIENT_AUTH, new ClientCredentialsGrant(), scope);
+	}
+
+
+	public void testConstructor() {
+
+		AccessTokenManager manager = new AccessTokenManager(60L, 30L);
+		assertEquals(60L, manager.getRefreshAhead());
+		assertEquals(30L, manager.getStaleGrace());
+		assertEquals(0L, manager.getHitCount());
+		assertEquals(0L, manager.getMissCount());
+		assertEquals(0L, manager.getStaleHitCount());
+		manager.shutdown();
+	}
+
+
+	public void testCacheAccessToken()
+		throws Exception {
+
+		MockManager manager = new MockManager(60L, 0L);
+
+		AccessToken t1 = manager.getAccessToken(createRequest(new Scope("read")));
+		AccessToken t2 = manager.getAccessToken(createRequest(new Scope("read")));
+		assertSame(t1, t2);
+		assertEquals(1, manager.requestCount.get());
+		assertEquals(1L, manager.getHitCount());
+		assertEquals(1L, manager.getMissCount());
+
+		// Other scope
+		AccessToken t3 = manager.getAccessToken(createRequest(new Scope("write")));
+		assertNotSame(t1, t3);
+		assertEquals(2, manager.requestCount.get());
+
+		// Invalidated
+		manager.invalidate(createRequest(new Scope("read")));
+		assertNotSame(t1, manager.getAccessToken(createRequest(new Scope("read"))));
+		assertEquals(3, manager.requestCount.get());
+
+		manager.clear();
+		manager.getAccessToken(createRequest(new Scope("read")));
+		assertEquals(4, manager.requestCount.get());
+
+		manager.shutdown();
+	}
+
+
+	public void testCacheWithoutEndpoint()
+		throws Exception {
+
+		MockManager manager = new MockManager(60L, 0L);
+
+		TokenRequest request = new TokenRequest(null, CLIENT_AUTH, new ClientCredentialsGrant(), new Scope("read"));
+
+		AccessToken t1 = manager.getAccessToken(request);
+		assertSame(t1, manager.getAccessToken(new TokenRequest(null, CLIENT_AUTH, new ClientCredentialsGrant(), new Scope("read"))));
+		assertEquals(1, manager.requestCount.get());
+
+		// Other endpoint
+		assertNotSame(t1, manager.getAccessToken(createRequest(new Scope("read"))));
+		assertEquals(2, manager.requestCount.get());
+
+		manager.shutdown();
+	}
+
+
+	public void testRenewExpired()
+		throws Exception {
+
+		MockManager manager = new MockManager(0L, 0L);
+		manager.lifetime = 1L;
+
+		AccessToken t1 = manager.getAccessToken(createRequest(null));
+
+		Thread.sleep(1100L);
+
+		AccessToken t2 = manager.getAccessToken(createRequest(null));
+		assertNotSame(t1, t2);
+		assertEquals(2, manager.requestCount.get());
+
+		manager.shutdown();
+	}
+
+
+	public void testRefreshAhead()
+		throws Exception {
+
+		MockManager manager = new MockManager(60L, 0L);
+		manager.lifetime = 2L;
+
+		AccessToken t1 = manager.getAccessToken(createRequest(null));
+
+		// Past half the lifetime
+		Thread.sleep(1100L);
+
+		assertSame(t1, manager.getAccessToken(createRequest(null)));
+
+		// Await background renewal
+		Thread.sleep(200L);
+
+		assertEquals(2, manager.requestCount.get());
+		assertNotSame(t1, manager.getAccessToken(createRequest(null)));
+		assertEquals(2, manager.requestCount.get());
+
+		manager.shutdown();
+	}
+
+
+	public void testStaleGrace()
+		throws Exception {
+
+		MockManager manager = new MockManager(0L, 60L);
+		manager.lifetime = 1L;
+
+		AccessToken t1 = manager.getAccessToken(createRequest(null));
+
+		Thread.sleep(1100L);
+
+		manager.unreachable = true;
+
+		assertSame(t1, manager.getAccessToken(createRequest(null)));
+		assertEquals(1L, manager.getStaleHitCount());
+
+		manager.shutdown();
+	}
+
+
+	public void testNoStaleGrace()
+		throws Exception {
+
+		MockManager manager = new MockManager(0L, 0L);
+		manager.lifetime = 1L;
+
+		manager.getAccessToken(createRequest(null));
+
+		Thread.sleep(1100L);
+
+		manager.unreachable = true;
+
+		try {
+			manager.getAccessToken(createRequest(null));
+			fail();
+		} catch (IOException e) {
+			assertEquals("Connection refused", e.getMessage());
+		}
+
+		manager.shutdown();
+	}
+
+
+	public void testErrorResponse()
+		throws Exception {
+
+		MockManager manager = new MockManager(0L, 60L);
+		manager.errorResponse = true;
+
+		try {
+			manager.getAccessToken(createRequest(null));
+			fail();
+		} catch (GeneralException e) {
+			assertEquals(OAuth2Error.INVALID_CLIENT, e.getErrorObject());
+		}
+
+		manager.shutdown();
+	}
+
+
+	public void testRefreshTokenRotation()
+		throws Exception {
+
+		MockManager manager = new MockManager(0L, 0L);
+		manager.lifetime = 1L;
+		manager.rotateRefreshToken = true;
+
+		RefreshToken refreshToken = new RefreshToken();
+		TokenRequest request = new TokenRequest(ENDPOINT, CLIENT_AUTH, new RefreshTokenGrant(refreshToken), null);
+
+		manager.getAccessToken(request);
+		assertEquals(refreshToken, ((RefreshTokenGrant) manager.lastRequest.getAuthorizationGrant()).getRefreshToken());
+
+		Thread.sleep(1100L);
+
+		manager.getAccessToken(request);
+		assertEquals(2, manager.requestCount.get());
+		assertFalse(refreshToken.equals(((RefreshTokenGrant) manager.lastRequest.getAuthorizationGrant()).getRefreshToken()));
+
+		manager.shutdown();
+	}
+
+
+	public void testCoalesceConcurrentAcquisitions()
+		throws Exception {
+
+		final CountDownLatch release = new CountDownLatch(1);
+
+		final MockManager manager = new MockManager(0L, 0L) {
+			@Override
+			protected HTTPResponse send(final TokenRequest request)
+				throws IOException {
+
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					throw new IOException(e);
+				}
+				return super.send(request);
+			}
+		};
+
+		final int numThreads = 10;
+
+		final List<AccessToken> tokens = Collections.synchronizedList(new ArrayList<AccessToken>());
+
+		List<Thread> threads = new ArrayList<>();
+
+		for (int i=0; i < numThreads; i++) {
+			Thread t = new Thread() {
+				public void run() {
+					try {
+						tokens.add(manager.getAccessToken(createRequest(null)));
+					} catch (Exception e) {
+						// ignore
+					}
+				}
+			};
+			threads.add(t);
+			t.start();
+		}
+
+		// Let all threads reach the in-flight request
+		Thread.sleep(200L);
+		release.countDown();
+
+		for (Thread t: threads) {
+			t.join();
+		}
+
+		assertEquals(numThreads, tokens.size());
+		assertEquals(1, manager.requestCount.get());
+
+		for (AccessToken t: tokens) {
+			assertSame(tokens.get(0), t);
+		}
+
+		manager.shutdown();
+	}
+
+
+	public void testRejectUnsupportedGrant()
+		throws Exception {
+
+		AccessTokenManager manager = new AccessTokenManager(0L, 0L);
+
+		TokenRequest request = new TokenRequest(ENDPOINT, CLIENT_AUTH, new AuthorizationCodeGrant(new AuthorizationCode(), URI.create("https://example.com/cb")), null);
+
+		try {
+			manager.getAccessToken(request);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("Unsupported grant type: authorization_code", e.getMessage());
+		}
+
+		manager.shutdown();
+	}
+
+
+	public void testRejectIllegalArgs() {
+
+		try {
+			new AccessTokenManager(-1L, 0L);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The refresh-ahead time must not be negative", e.getMessage());
+		}
+
+		try {
+			new AccessTokenManager(0L, -1L);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The stale grace time must not be negative", e.getMessage());
+		}
+
+		try {
+			new AccessTokenManager(0L, 0L, 0);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The number of refresh threads must be a positive integer", e.getMessage());
+		}
+	}
+}
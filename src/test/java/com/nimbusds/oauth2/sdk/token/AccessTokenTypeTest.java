@@ -22,4 +22,29 @@ public class AccessTokenTypeTest extends TestCase {
 
 		assertFalse(new AccessTokenType("bearer").equals(new AccessTokenType("mac")));
 	}
+
+
+	public void testParse() {
+
+		assertSame(AccessTokenType.BEARER, AccessTokenType.parse("Bearer"));
+		assertSame(AccessTokenType.MAC, AccessTokenType.parse("mac"));
+		assertSame(AccessTokenType.UNKNOWN, AccessTokenType.parse("unknown"));
+
+		// Preserve case of non-canonical values
+		AccessTokenType bearer = AccessTokenType.parse("bearer");
+		assertNotSame(AccessTokenType.BEARER, bearer);
+		assertEquals("bearer", bearer.getValue());
+		assertEquals(AccessTokenType.BEARER, bearer);
+	}
+
+
+	public void testParseNull() {
+
+		try {
+			AccessTokenType.parse(null);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// ok
+		}
+	}
 }
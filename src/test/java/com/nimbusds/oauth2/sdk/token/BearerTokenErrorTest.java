@@ -119,4 +119,34 @@ public class BearerTokenErrorTest extends TestCase {
 		assertNull(error.getURI());
 		assertNull(error.getRealm());
 	}
+
+
+	public void testWWWAuthenticateHeaderCached() {
+
+		String header = BearerTokenError.INVALID_TOKEN.toWWWAuthenticateHeader();
+
+		assertEquals("Bearer error=\"invalid_token\", error_description=\"Invalid access token\"", header);
+		assertSame(header, BearerTokenError.INVALID_TOKEN.toWWWAuthenticateHeader());
+
+		// Copies have own header
+		assertEquals("Bearer realm=\"example.com\", error=\"invalid_token\", error_description=\"Invalid access token\"",
+			BearerTokenError.INVALID_TOKEN.setRealm("example.com").toWWWAuthenticateHeader());
+		assertEquals(header, BearerTokenError.INVALID_TOKEN.toWWWAuthenticateHeader());
+	}
+
+
+	public void testWWWAuthenticateHeaderWithMutatedScope() {
+
+		Scope scope = new Scope("read");
+
+		BearerTokenError error = BearerTokenError.INSUFFICIENT_SCOPE.setScope(scope);
+
+		assertEquals("Bearer error=\"insufficient_scope\", error_description=\"Insufficient scope\", scope=\"read\"",
+			error.toWWWAuthenticateHeader());
+
+		// Not cached, the scope can change
+		scope.add("write");
+		assertEquals("Bearer error=\"insufficient_scope\", error_description=\"Insufficient scope\", scope=\"read write\"",
+			error.toWWWAuthenticateHeader());
+	}
 }
@@ -0,0 +1,205 @@
+package com.nimbusds.oauth2.sdk.token;
+
+
+import java.net.URI;
+import java.security.SecureRandom;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.nimbusds.oauth2.sdk.AuthorizationCode;
+import com.nimbusds.oauth2.sdk.GeneralException;
+import com.nimbusds.oauth2.sdk.OAuth2Error;
+import com.nimbusds.oauth2.sdk.Scope;
+import com.nimbusds.oauth2.sdk.id.ClientID;
+import com.nimbusds.oauth2.sdk.id.Subject;
+import com.nimbusds.oauth2.sdk.pkce.CodeChallenge;
+import com.nimbusds.oauth2.sdk.pkce.CodeChallengeMethod;
+import junit.framework.TestCase;
+
+
+/**
+ * Tests the self-contained grant codec.
+ */
+public class SelfContainedGrantCodecTest extends TestCase {
+
+
+	private static SecretKey generateKey(final int byteLength) {
+
+		byte[] keyBytes = new byte[byteLength];
+		new SecureRandom().nextBytes(keyBytes);
+		return new SecretKeySpec(keyBytes, "AES");
+	}
+
+
+	private static GrantContext createContext(final Date exp) {
+
+		return new GrantContext(
+			new ClientID("123"),
+			new Subject("alice"),
+			Scope.parse("openid email"),
+			URI.create("https://example.com/cb"),
+			new CodeChallenge("E9Melhoa2OwvFrEMTJguCHaoeK1t8URWbuGJSstw-cM"),
+			CodeChallengeMethod.S256,
+			exp);
+	}
+
+
+	private static void assertContextEquals(final GrantContext expected, final GrantContext actual) {
+
+		assertEquals(expected.getClientID(), actual.getClientID());
+		assertEquals(expected.getSubject(), actual.getSubject());
+		assertEquals(expected.getScope(), actual.getScope());
+		assertEquals(expected.getRedirectionURI(), actual.getRedirectionURI());
+		assertEquals(expected.getCodeChallenge(), actual.getCodeChallenge());
+		assertEquals(expected.getCodeChallengeMethod(), actual.getCodeChallengeMethod());
+		assertEquals(expected.getExpirationTime().getTime() / 1000, actual.getExpirationTime().getTime() / 1000);
+	}
+
+
+	public void testAuthorizationCodeRoundTrip()
+		throws Exception {
+
+		Map<String,SecretKey> keys = new HashMap<>();
+		keys.put("1", generateKey(32));
+
+		SelfContainedGrantCodec codec = new SelfContainedGrantCodec("1", keys);
+		assertEquals("1", codec.getCurrentKeyID());
+		assertEquals(keys, codec.getKeys());
+
+		GrantContext context = createContext(new Date(new Date().getTime() + 60000L));
+
+		AuthorizationCode code = codec.encodeAuthorizationCode(context);
+
+		assertContextEquals(context, codec.decode(code));
+	}
+
+
+	public void testRefreshTokenRoundTrip()
+		throws Exception {
+
+		Map<String,SecretKey> keys = new HashMap<>();
+		keys.put("1", generateKey(64));
+
+		SelfContainedGrantCodec codec = new SelfContainedGrantCodec("1", keys);
+
+		GrantContext context = new GrantContext(new ClientID("123"), null, null, null, null, null, new Date(new Date().getTime() + 60000L));
+
+		RefreshToken refreshToken = codec.encodeRefreshToken(context);
+
+		GrantContext out = codec.decode(refreshToken);
+		assertEquals(new ClientID("123"), out.getClientID());
+		assertNull(out.getSubject());
+		assertNull(out.getScope());
+		assertNull(out.getRedirectionURI());
+		assertNull(out.getCodeChallenge());
+		assertNull(out.getCodeChallengeMethod());
+	}
+
+
+	public void testRejectTypeConfusion()
+		throws Exception {
+
+		Map<String,SecretKey> keys = new HashMap<>();
+		keys.put("1", generateKey(32));
+
+		SelfContainedGrantCodec codec = new SelfContainedGrantCodec("1", keys);
+
+		AuthorizationCode code = codec.encodeAuthorizationCode(createContext(new Date(new Date().getTime() + 60000L)));
+
+		try {
+			codec.decode(new RefreshToken(code.getValue()));
+			fail();
+		} catch (GeneralException e) {
+			assertEquals(OAuth2Error.INVALID_GRANT, e.getErrorObject());
+		}
+	}
+
+
+	public void testRejectExpired()
+		throws Exception {
+
+		Map<String,SecretKey> keys = new HashMap<>();
+		keys.put("1", generateKey(32));
+
+		SelfContainedGrantCodec codec = new SelfContainedGrantCodec("1", keys);
+
+		AuthorizationCode code = codec.encodeAuthorizationCode(createContext(new Date(new Date().getTime() - 60000L)));
+
+		try {
+			codec.decode(code);
+			fail();
+		} catch (GeneralException e) {
+			assertEquals("Expired token", e.getMessage());
+			assertEquals(OAuth2Error.INVALID_GRANT, e.getErrorObject());
+		}
+	}
+
+
+	public void testRejectGarbage() {
+
+		Map<String,SecretKey> keys = new HashMap<>();
+		keys.put("1", generateKey(32));
+
+		SelfContainedGrantCodec codec = new SelfContainedGrantCodec("1", keys);
+
+		try {
+			codec.decode(new AuthorizationCode());
+			fail();
+		} catch (GeneralException e) {
+			assertEquals(OAuth2Error.INVALID_GRANT, e.getErrorObject());
+		}
+	}
+
+
+	public void testKeyRotation()
+		throws Exception {
+
+		SecretKey oldKey = generateKey(32);
+		SecretKey newKey = generateKey(32);
+
+		Map<String,SecretKey> keys = new HashMap<>();
+		keys.put("1", oldKey);
+
+		AuthorizationCode code = new SelfContainedGrantCodec("1", keys)
+			.encodeAuthorizationCode(createContext(new Date(new Date().getTime() + 60000L)));
+
+		keys.put("2", newKey);
+
+		SelfContainedGrantCodec rotatedCodec = new SelfContainedGrantCodec("2", keys);
+		assertEquals(new ClientID("123"), rotatedCodec.decode(code).getClientID());
+
+		// Old key retired
+		keys.remove("1");
+
+		try {
+			new SelfContainedGrantCodec("2", keys).decode(code);
+			fail();
+		} catch (GeneralException e) {
+			assertEquals("Invalid token: Unknown key ID", e.getMessage());
+		}
+	}
+
+
+	public void testRejectIllegalArgs() {
+
+		Map<String,SecretKey> keys = new HashMap<>();
+		keys.put("1", generateKey(16));
+
+		try {
+			new SelfContainedGrantCodec("1", keys);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("Unsupported key length, must be 256, 384 or 512 bits", e.getMessage());
+		}
+
+		try {
+			new SelfContainedGrantCodec("2", keys);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The current key ID must match a configured key", e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package com.nimbusds.oauth2.sdk.util;
+
+
+import junit.framework.TestCase;
+
+
+/**
+ * Tests the bounded cache.
+ */
+public class BoundedCacheTest extends TestCase {
+
+
+	public void testPutGetRemove() {
+
+		BoundedCache<String,String> cache = new BoundedCache<>(100);
+		assertEquals(100, cache.getMaxSize());
+		assertEquals(0, cache.size());
+
+		assertNull(cache.get("a"));
+		assertEquals(0L, cache.getHitCount());
+		assertEquals(1L, cache.getMissCount());
+
+		cache.put("a", "1");
+		assertEquals("1", cache.get("a"));
+		assertEquals(1L, cache.getHitCount());
+		assertEquals(1, cache.size());
+
+		assertEquals("1", cache.remove("a"));
+		assertNull(cache.remove("a"));
+		assertEquals(0, cache.size());
+	}
+
+
+	public void testEviction() {
+
+		BoundedCache<Integer,Integer> cache = new BoundedCache<>(50);
+
+		for (int i=0; i < 1000; i++) {
+			cache.put(i, i);
+		}
+
+		assertTrue(cache.size() <= 50);
+		assertEquals(Integer.valueOf(999), cache.get(999));
+	}
+
+
+	public void testLeastRecentlyUsedEviction() {
+
+		// Single segment
+		BoundedCache<String,String> cache = new BoundedCache<>(1);
+
+		cache.put("a", "1");
+		cache.put("b", "2");
+		assertNull(cache.get("a"));
+		assertEquals("2", cache.get("b"));
+	}
+
+
+	public void testClear() {
+
+		BoundedCache<String,String> cache = new BoundedCache<>(10);
+		cache.put("a", "1");
+		cache.put("b", "2");
+		cache.clear();
+		assertEquals(0, cache.size());
+	}
+
+
+	public void testRejectIllegalArgs() {
+
+		try {
+			new BoundedCache<String,String>(0);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The max cache size must be a positive integer", e.getMessage());
+		}
+
+		try {
+			new BoundedCache<String,String>(1).put("a", null);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The value must not be null", e.getMessage());
+		}
+	}
+}
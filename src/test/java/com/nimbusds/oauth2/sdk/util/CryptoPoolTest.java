@@ -0,0 +1,126 @@
+package com.nimbusds.oauth2.sdk.util;
+
+
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.nimbusds.jose.crypto.bc.BouncyCastleProviderSingleton;
+import junit.framework.TestCase;
+
+
+/**
+ * Tests the per-thread crypto primitive pool.
+ */
+public class CryptoPoolTest extends TestCase {
+
+
+	@Override
+	public void tearDown() {
+
+		CryptoPool.clear();
+	}
+
+
+	public void testMessageDigestReuse()
+		throws Exception {
+
+		MessageDigest md = CryptoPool.getMessageDigest("SHA-256", null);
+		assertEquals("SHA-256", md.getAlgorithm());
+
+		md.update("abc".getBytes(Charset.forName("UTF-8")));
+
+		// Same instance, reset
+		assertSame(md, CryptoPool.getMessageDigest("SHA-256", null));
+
+		byte[] expected = MessageDigest.getInstance("SHA-256").digest("xyz".getBytes(Charset.forName("UTF-8")));
+		assertTrue(Arrays.equals(expected, md.digest("xyz".getBytes(Charset.forName("UTF-8")))));
+
+		assertNotSame(md, CryptoPool.getMessageDigest("SHA-512", null));
+	}
+
+
+	public void testProviderSpecificInstances()
+		throws Exception {
+
+		MessageDigest defaultMD = CryptoPool.getMessageDigest("SHA-256", null);
+		MessageDigest bcMD = CryptoPool.getMessageDigest("SHA-256", BouncyCastleProviderSingleton.getInstance());
+
+		assertNotSame(defaultMD, bcMD);
+		assertEquals(BouncyCastleProviderSingleton.getInstance(), bcMD.getProvider());
+		assertSame(bcMD, CryptoPool.getMessageDigest("SHA-256", BouncyCastleProviderSingleton.getInstance()));
+	}
+
+
+	public void testPerThreadInstances()
+		throws Exception {
+
+		final MessageDigest md = CryptoPool.getMessageDigest("SHA-256", null);
+
+		final AtomicReference<MessageDigest> otherMD = new AtomicReference<>();
+
+		Thread t = new Thread() {
+			public void run() {
+				try {
+					otherMD.set(CryptoPool.getMessageDigest("SHA-256", null));
+				} catch (NoSuchAlgorithmException e) {
+					// ignore
+				}
+			}
+		};
+		t.start();
+		t.join();
+
+		assertNotNull(otherMD.get());
+		assertNotSame(md, otherMD.get());
+	}
+
+
+	public void testMacReuse()
+		throws Exception {
+
+		Mac mac = CryptoPool.getMac("HmacSHA256", null);
+		mac.init(new SecretKeySpec(new byte[32], "HmacSHA256"));
+		mac.update((byte) 1);
+
+		assertSame(mac, CryptoPool.getMac("HmacSHA256", null));
+
+		Mac refMac = Mac.getInstance("HmacSHA256");
+		refMac.init(new SecretKeySpec(new byte[32], "HmacSHA256"));
+		assertTrue(Arrays.equals(refMac.doFinal(), mac.doFinal()));
+	}
+
+
+	public void testCipherReuse()
+		throws Exception {
+
+		Cipher cipher = CryptoPool.getCipher("AES/CBC/PKCS5Padding", null);
+		assertEquals("AES/CBC/PKCS5Padding", cipher.getAlgorithm());
+		assertSame(cipher, CryptoPool.getCipher("AES/CBC/PKCS5Padding", null));
+	}
+
+
+	public void testClear()
+		throws Exception {
+
+		MessageDigest md = CryptoPool.getMessageDigest("SHA-256", null);
+		CryptoPool.clear();
+		assertNotSame(md, CryptoPool.getMessageDigest("SHA-256", null));
+	}
+
+
+	public void testUnsupportedAlgorithm() {
+
+		try {
+			CryptoPool.getMessageDigest("no-such-alg", null);
+			fail();
+		} catch (NoSuchAlgorithmException e) {
+			// ok
+		}
+	}
+}
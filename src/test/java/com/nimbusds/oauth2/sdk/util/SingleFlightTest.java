@@ -0,0 +1,117 @@
+package com.nimbusds.oauth2.sdk.util;
+
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+
+/**
+ * Tests the single flight utility.
+ */
+public class SingleFlightTest extends TestCase {
+
+
+	public void testSequentialCallsExecuteAnew()
+		throws Exception {
+
+		SingleFlight<String,Integer> singleFlight = new SingleFlight<>();
+
+		final AtomicInteger counter = new AtomicInteger();
+
+		Callable<Integer> callable = new Callable<Integer>() {
+			@Override
+			public Integer call() {
+				return counter.incrementAndGet();
+			}
+		};
+
+		assertEquals(Integer.valueOf(1), singleFlight.execute("a", callable));
+		assertEquals(Integer.valueOf(2), singleFlight.execute("a", callable));
+		assertEquals(0, singleFlight.getInFlightCount());
+	}
+
+
+	public void testConcurrentCallsCollapsed()
+		throws Exception {
+
+		final SingleFlight<String,Integer> singleFlight = new SingleFlight<>();
+
+		final AtomicInteger counter = new AtomicInteger();
+
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+
+		final Callable<Integer> callable = new Callable<Integer>() {
+			@Override
+			public Integer call()
+				throws InterruptedException {
+				started.countDown();
+				release.await();
+				return counter.incrementAndGet();
+			}
+		};
+
+		final AtomicInteger otherResult = new AtomicInteger();
+
+		Thread first = new Thread() {
+			public void run() {
+				try {
+					singleFlight.execute("a", callable);
+				} catch (Exception e) {
+					// ignore
+				}
+			}
+		};
+		first.start();
+		started.await();
+
+		assertEquals(1, singleFlight.getInFlightCount());
+
+		Thread second = new Thread() {
+			public void run() {
+				try {
+					otherResult.set(singleFlight.execute("a", callable));
+				} catch (Exception e) {
+					// ignore
+				}
+			}
+		};
+		second.start();
+
+		Thread.sleep(100L);
+		release.countDown();
+
+		first.join();
+		second.join();
+
+		assertEquals(1, counter.get());
+		assertEquals(1, otherResult.get());
+		assertEquals(0, singleFlight.getInFlightCount());
+	}
+
+
+	public void testException()
+		throws Exception {
+
+		SingleFlight<String,Integer> singleFlight = new SingleFlight<>();
+
+		try {
+			singleFlight.execute("a", new Callable<Integer>() {
+				@Override
+				public Integer call() {
+					throw new IllegalStateException("test");
+				}
+			});
+			fail();
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+			assertEquals("test", e.getCause().getMessage());
+		}
+
+		assertEquals(0, singleFlight.getInFlightCount());
+	}
+}
@@ -1092,6 +1092,53 @@ public class AuthenticationRequestTest extends TestCase {
 	}
 
 
+	public void testBuilderCopy()
+		throws Exception {
+
+		AuthenticationRequest original = new AuthenticationRequest.Builder(
+			new ResponseType("code"),
+			new Scope("openid", "email"),
+			new ClientID("123"),
+			new URI("https://client.com/cb"))
+			.state(new State("abc"))
+			.nonce(new Nonce("def"))
+			.maxAge(3600)
+			.loginHint("alice@wonderland.net")
+			.customParameter("x", "100")
+			.endpointURI(new URI("https://c2id.com/login"))
+			.build();
+
+		AuthenticationRequest copy = new AuthenticationRequest.Builder(original).build();
+
+		assertEquals(original.toParameters(), copy.toParameters());
+		assertEquals(original.getEndpointURI(), copy.getEndpointURI());
+
+		AuthenticationRequest modified = new AuthenticationRequest.Builder(original)
+			.responseType(new ResponseType("code", "id_token"))
+			.scope(new Scope("openid", "profile"))
+			.clientID(new ClientID("456"))
+			.redirectionURI(new URI("https://client.com/cb2"))
+			.build();
+
+		assertEquals(new ResponseType("code", "id_token"), modified.getResponseType());
+		assertEquals(new Scope("openid", "profile"), modified.getScope());
+		assertEquals(new ClientID("456"), modified.getClientID());
+		assertEquals(new URI("https://client.com/cb2"), modified.getRedirectionURI());
+		assertEquals(new State("abc"), modified.getState());
+		assertEquals(new Nonce("def"), modified.getNonce());
+		assertEquals(3600, modified.getMaxAge());
+		assertEquals("alice@wonderland.net", modified.getLoginHint());
+		assertEquals("100", modified.getCustomParameter("x"));
+
+		try {
+			new AuthenticationRequest.Builder(original).scope(new Scope("email"));
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The scope must include an \"openid\" value", e.getMessage());
+		}
+	}
+
+
 	public void testBuilderWithWithRequestObject()
 		throws Exception {
 
@@ -0,0 +1,170 @@
+package com.nimbusds.openid.connect.sdk;
+
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+
+import com.nimbusds.langtag.LangTag;
+import com.nimbusds.oauth2.sdk.ResponseType;
+import com.nimbusds.oauth2.sdk.Scope;
+import com.nimbusds.oauth2.sdk.id.Audience;
+import com.nimbusds.oauth2.sdk.id.Issuer;
+import com.nimbusds.oauth2.sdk.id.Subject;
+import com.nimbusds.openid.connect.sdk.claims.ClaimRequirement;
+import com.nimbusds.openid.connect.sdk.claims.IDTokenClaimsSet;
+import com.nimbusds.openid.connect.sdk.claims.UserInfo;
+import junit.framework.TestCase;
+import net.minidev.json.JSONObject;
+
+
+/**
+ * Tests the compiled claims projection.
+ */
+public class ClaimsProjectionTest extends TestCase {
+
+
+	private static UserInfo createProfile()
+		throws Exception {
+
+		UserInfo profile = new UserInfo(new Subject("alice"));
+		profile.setName("Alice Adams");
+		profile.setName("Алиса Адамс", LangTag.parse("bg-BG"));
+		profile.setName("Alicia Adams", LangTag.parse("es"));
+		profile.setGivenName("Alice");
+		profile.setGivenName("Алиса", LangTag.parse("bg-BG"));
+		profile.setGivenName("Alicia", LangTag.parse("es"));
+		profile.setFamilyName("Adams");
+		profile.setClaim("email", "alice@wonderland.net");
+		profile.setClaim("email_verified", true);
+		profile.setClaim("department", "finance");
+		return profile;
+	}
+
+
+	public void testProjectUserInfoFromScope()
+		throws Exception {
+
+		ClaimsRequest claimsRequest = ClaimsRequest.resolve(new ResponseType("code"), Scope.parse("openid email"));
+
+		ClaimsProjection projection = ClaimsProjection.forUserInfo(claimsRequest);
+
+		UserInfo userInfo = projection.project(createProfile());
+
+		assertEquals(new Subject("alice"), userInfo.getSubject());
+		assertEquals("alice@wonderland.net", userInfo.getClaim("email"));
+		assertEquals(true, userInfo.getClaim("email_verified"));
+		assertEquals(3, userInfo.toJSONObject().size());
+	}
+
+
+	public void testProjectWithLangTags()
+		throws Exception {
+
+		ClaimsRequest claimsRequest = new ClaimsRequest();
+		claimsRequest.addUserInfoClaim("name");
+		claimsRequest.addUserInfoClaim("given_name", ClaimRequirement.VOLUNTARY, LangTag.parse("bg-BG"));
+
+		ClaimsProjection projection = ClaimsProjection.forUserInfo(claimsRequest);
+
+		UserInfo userInfo = projection.project(createProfile());
+
+		// All name variants
+		assertEquals("Alice Adams", userInfo.getName());
+		assertEquals("Алиса Адамс", userInfo.getName(LangTag.parse("bg-BG")));
+		assertEquals("Alicia Adams", userInfo.getName(LangTag.parse("es")));
+
+		// Only the requested given name variant
+		assertNull(userInfo.getGivenName());
+		assertEquals("Алиса", userInfo.getGivenName(LangTag.parse("bg-BG")));
+		assertNull(userInfo.getGivenName(LangTag.parse("es")));
+
+		assertNull(userInfo.getFamilyName());
+		assertNull(userInfo.getClaim("email"));
+		assertNull(userInfo.getClaim("department"));
+	}
+
+
+	public void testProjectWithValueConstraints()
+		throws Exception {
+
+		ClaimsRequest claimsRequest = new ClaimsRequest();
+		claimsRequest.addUserInfoClaim("department", ClaimRequirement.ESSENTIAL, null, Arrays.asList("sales", "marketing"));
+		claimsRequest.addUserInfoClaim("family_name", ClaimRequirement.ESSENTIAL, null, "Adams");
+
+		ClaimsProjection projection = ClaimsProjection.forUserInfo(claimsRequest);
+
+		assertTrue(projection.getEssentialClaimNames().contains("department"));
+		assertTrue(projection.getEssentialClaimNames().contains("family_name"));
+		assertEquals(2, projection.getEssentialClaimNames().size());
+
+		UserInfo userInfo = projection.project(createProfile());
+
+		assertNull(userInfo.getClaim("department"));
+		assertEquals("Adams", userInfo.getFamilyName());
+	}
+
+
+	public void testProjectIDToken()
+		throws Exception {
+
+		ClaimsRequest claimsRequest = ClaimsRequest.resolve(new ResponseType("id_token"), Scope.parse("openid profile"));
+
+		ClaimsProjection projection = ClaimsProjection.forIDToken(claimsRequest);
+
+		IDTokenClaimsSet idToken = new IDTokenClaimsSet(
+			new Issuer("https://c2id.com"),
+			new Subject("alice"),
+			Collections.singletonList(new Audience("123")),
+			new Date(),
+			new Date());
+
+		projection.project(createProfile(), idToken);
+
+		assertEquals("https://c2id.com", idToken.getIssuer().getValue());
+		assertEquals("Alice Adams", idToken.getStringClaim("name"));
+		assertEquals("Alicia", idToken.getStringClaim("given_name#es"));
+		assertEquals("Adams", idToken.getStringClaim("family_name"));
+		assertNull(idToken.getClaim("email"));
+		assertNull(idToken.getClaim("department"));
+	}
+
+
+	public void testProjectFrozen()
+		throws Exception {
+
+		UserInfo profile = createProfile();
+		JSONObject address = new JSONObject();
+		address.put("country", "Wonderland");
+		profile.setClaim("address", address);
+		profile.freeze();
+
+		ClaimsRequest claimsRequest = ClaimsRequest.resolve(new ResponseType("code"), Scope.parse("openid address"));
+
+		UserInfo userInfo = ClaimsProjection.forUserInfo(claimsRequest).project(profile);
+
+		assertFalse(userInfo.isFrozen());
+
+		// The nested values of the frozen source aren't shared
+		JSONObject projectedAddress = (JSONObject) userInfo.getClaim("address");
+		assertEquals("Wonderland", projectedAddress.get("country"));
+		projectedAddress.put("country", "Looking-Glass Land");
+		assertEquals("Wonderland", ((JSONObject) profile.getClaim("address")).get("country"));
+		assertEquals(2, userInfo.toJSONObject().size());
+	}
+
+
+	public void testEmpty()
+		throws Exception {
+
+		ClaimsProjection projection = ClaimsProjection.forUserInfo(new ClaimsRequest());
+
+		assertTrue(projection.getClaimNames().isEmpty());
+		assertTrue(projection.getEssentialClaimNames().isEmpty());
+
+		UserInfo userInfo = projection.project(createProfile());
+
+		assertEquals(new Subject("alice"), userInfo.getSubject());
+		assertEquals(1, userInfo.toJSONObject().size());
+	}
+}
@@ -3,6 +3,7 @@ package com.nimbusds.openid.connect.sdk;
 
 import java.net.URI;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
@@ -231,6 +232,60 @@ public class ClaimsRequestTest extends TestCase {
 	}
 	
 	
+	public void testResolveAllScopeCombinations()
+		throws Exception {
+
+		OIDCScopeValue[] scopeValues = {
+			OIDCScopeValue.PROFILE,
+			OIDCScopeValue.EMAIL,
+			OIDCScopeValue.PHONE,
+			OIDCScopeValue.ADDRESS
+		};
+
+		for (int mask=0; mask < 16; mask++) {
+
+			Scope scope = new Scope(OIDCScopeValue.OPENID, new Scope.Value("custom"));
+
+			Set<String> expectedClaimNames = new HashSet<>();
+
+			for (int i=0; i < scopeValues.length; i++) {
+				if ((mask & (1 << i)) != 0) {
+					scope.add(scopeValues[i]);
+					expectedClaimNames.addAll(scopeValues[i].getClaimNames());
+				}
+			}
+
+			ClaimsRequest cr = ClaimsRequest.resolve(ResponseType.parse("code"), scope);
+			assertEquals(expectedClaimNames, cr.getUserInfoClaimNames(false));
+			assertTrue(cr.getIDTokenClaims().isEmpty());
+
+			for (String claimName: expectedClaimNames) {
+				assertTrue(containsVoluntaryClaimsRequestEntry(cr.getUserInfoClaims(), claimName));
+			}
+
+			cr = ClaimsRequest.resolve(ResponseType.parse("id_token"), scope);
+			assertEquals(expectedClaimNames, cr.getIDTokenClaimNames(false));
+			assertTrue(cr.getUserInfoClaims().isEmpty());
+		}
+	}
+
+
+	public void testResolvedClaimsRequestsIndependent()
+		throws Exception {
+
+		Scope scope = Scope.parse("openid email");
+
+		ClaimsRequest cr = ClaimsRequest.resolve(ResponseType.parse("code"), scope);
+		cr.addUserInfoClaim("name");
+		cr.removeUserInfoClaims("email");
+
+		cr = ClaimsRequest.resolve(ResponseType.parse("code"), scope);
+		assertEquals(2, cr.getUserInfoClaims().size());
+		assertTrue(containsVoluntaryClaimsRequestEntry(cr.getUserInfoClaims(), "email"));
+		assertTrue(containsVoluntaryClaimsRequestEntry(cr.getUserInfoClaims(), "email_verified"));
+	}
+
+
 	public void testAdd()
 		throws Exception {
 		
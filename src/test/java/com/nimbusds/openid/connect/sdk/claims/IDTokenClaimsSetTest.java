@@ -6,6 +6,7 @@ import java.security.KeyPair;
 import java.security.KeyPairGenerator;
 import java.security.interfaces.RSAPrivateKey;
 import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.LinkedList;
 import java.util.List;
@@ -20,6 +21,7 @@ import com.nimbusds.oauth2.sdk.id.Issuer;
 import com.nimbusds.oauth2.sdk.id.Subject;
 import com.nimbusds.openid.connect.sdk.Nonce;
 import junit.framework.TestCase;
+import net.minidev.json.JSONArray;
 
 
 /**
@@ -496,4 +498,82 @@ public class IDTokenClaimsSetTest extends TestCase {
 
 		assertNull(claimsSet.getURLClaim("sub"));
 	}
+
+
+	public void testCachedAudience()
+		throws Exception {
+
+		IDTokenClaimsSet claimsSet = new IDTokenClaimsSet(
+			new Issuer("https://c2id.com"),
+			new Subject("alice"),
+			Arrays.asList(new Audience("123"), new Audience("456")),
+			new Date(),
+			new Date());
+
+		List<Audience> aud = claimsSet.getAudience();
+		assertEquals(Arrays.asList(new Audience("123"), new Audience("456")), aud);
+
+		try {
+			aud.add(new Audience("789"));
+			fail();
+		} catch (UnsupportedOperationException e) {
+			// ok
+		}
+
+		// JSON array not cached unless frozen, picks up in-place change
+		((JSONArray) claimsSet.getClaim("aud")).add("789");
+		assertEquals(Arrays.asList(new Audience("123"), new Audience("456"), new Audience("789")), claimsSet.getAudience());
+
+		// Invalidated on update
+		claimsSet.setClaim("aud", "789");
+		assertEquals(new Audience("789").toSingleAudienceList(), claimsSet.getAudience());
+
+		claimsSet.setClaim("aud", Arrays.asList("123", "456"));
+		claimsSet.freeze();
+		assertSame(claimsSet.getAudience(), claimsSet.getAudience());
+
+		// Nested values returned as copies
+		((JSONArray) claimsSet.getClaim("aud")).add("789");
+		assertEquals(Arrays.asList(new Audience("123"), new Audience("456")), claimsSet.getAudience());
+		assertEquals(Arrays.asList("123", "456"), claimsSet.toJWTClaimsSet().getAudience());
+	}
+
+
+	public void testFrozen()
+		throws Exception {
+
+		Date now = new Date(DateUtils.toSecondsSinceEpoch(new Date()) * 1000L);
+
+		IDTokenClaimsSet claimsSet = new IDTokenClaimsSet(
+			new Issuer("https://c2id.com"),
+			new Subject("alice"),
+			new Audience("123").toSingleAudienceList(),
+			now,
+			now);
+
+		assertFalse(claimsSet.isFrozen());
+
+		claimsSet.freeze();
+
+		assertTrue(claimsSet.isFrozen());
+
+		try {
+			claimsSet.setNonce(new Nonce());
+			fail();
+		} catch (IllegalStateException e) {
+			assertEquals("The claims set is frozen", e.getMessage());
+		}
+
+		// Date copies
+		Date exp = claimsSet.getExpirationTime();
+		assertEquals(now, exp);
+		exp.setTime(0L);
+		assertEquals(now, claimsSet.getExpirationTime());
+
+		// JSON object copy
+		claimsSet.toJSONObject().put("nonce", "abc");
+		assertNull(claimsSet.getNonce());
+
+		assertEquals("https://c2id.com", claimsSet.toJWTClaimsSet().getIssuer());
+	}
 }
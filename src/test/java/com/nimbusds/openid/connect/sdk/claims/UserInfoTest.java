@@ -2,7 +2,9 @@ package com.nimbusds.openid.connect.sdk.claims;
 
 
 import java.net.URI;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import javax.mail.internet.InternetAddress;
 
@@ -10,6 +12,7 @@ import com.nimbusds.jose.util.DateUtils;
 import com.nimbusds.langtag.LangTag;
 import com.nimbusds.oauth2.sdk.id.Subject;
 import junit.framework.TestCase;
+import net.minidev.json.JSONObject;
 
 
 /**
@@ -371,4 +374,158 @@ public class UserInfoTest extends TestCase {
 		assertEquals("Alice Wonderland", userInfo.getName());
 		assertEquals("Alice", userInfo.getGivenName());
 	}
+
+
+	public void testLangTaggedEntriesIndexUpdates()
+		throws Exception {
+
+		UserInfo userInfo = new UserInfo(new Subject("alice"));
+		userInfo.setName("Alice Adams");
+		userInfo.setName("Алиса Адамс", LangTag.parse("bg-BG"));
+		userInfo.setGivenName("Alice");
+		userInfo.setClaim("name#invalid-lang-tag-!", "skipped");
+
+		Map<LangTag,String> names = userInfo.getNameEntries();
+		assertEquals("Alice Adams", names.get(null));
+		assertEquals("Алиса Адамс", names.get(LangTag.parse("bg-BG")));
+		assertEquals(2, names.size());
+
+		// Index updated on set
+		userInfo.setName("Alicia Adams", LangTag.parse("es"));
+		names = userInfo.getNameEntries();
+		assertEquals("Alicia Adams", names.get(LangTag.parse("es")));
+		assertEquals(3, names.size());
+
+		// Index updated on remove
+		userInfo.setName(null, LangTag.parse("bg-BG"));
+		names = userInfo.getNameEntries();
+		assertNull(names.get(LangTag.parse("bg-BG")));
+		assertEquals(2, names.size());
+
+		// Index updated on put all
+		Map<String,Object> claims = new HashMap<>();
+		claims.put("name#de", "Alice Adams (de)");
+		userInfo.putAll(claims);
+		assertEquals("Alice Adams (de)", userInfo.getNameEntries().get(LangTag.parse("de")));
+
+		// Index updated on direct JSON object modification
+		userInfo.toJSONObject().put("name#fr", "Alice Adams (fr)");
+		assertEquals("Alice Adams (fr)", userInfo.getNameEntries().get(LangTag.parse("fr")));
+
+		Map<LangTag,String> givenNames = userInfo.getGivenNameEntries();
+		assertEquals("Alice", givenNames.get(null));
+		assertEquals(1, givenNames.size());
+
+		assertTrue(userInfo.getFamilyNameEntries().isEmpty());
+
+		// Indexed once frozen
+		userInfo.freeze();
+		names = userInfo.getNameEntries();
+		assertEquals("Alice Adams", names.get(null));
+		assertEquals("Alicia Adams", names.get(LangTag.parse("es")));
+		assertEquals("Alice Adams (de)", names.get(LangTag.parse("de")));
+		assertEquals("Alice Adams (fr)", names.get(LangTag.parse("fr")));
+		assertEquals(4, names.size());
+		assertEquals(names, userInfo.getNameEntries());
+		assertEquals("Alice", userInfo.getGivenNameEntries().get(null));
+		assertTrue(userInfo.getFamilyNameEntries().isEmpty());
+	}
+
+
+	public void testCachedTypedClaims()
+		throws Exception {
+
+		UserInfo userInfo = new UserInfo(new Subject("alice"));
+		userInfo.setEmail(new InternetAddress("alice@wonderland.net"));
+		userInfo.setPicture(URI.create("https://example.com/alice.png"));
+
+		Address address = new Address();
+		address.setCountry("UK");
+		userInfo.setAddress(address);
+
+		URI picture = userInfo.getPicture();
+		assertSame(picture, userInfo.getPicture());
+
+		// JSON object not cached unless frozen
+		assertEquals("UK", userInfo.getAddress().getCountry());
+		((JSONObject) userInfo.getClaim("address")).put("country", "DE");
+		assertEquals("DE", userInfo.getAddress().getCountry());
+
+		InternetAddress email = userInfo.getEmail();
+		assertEquals("alice@wonderland.net", email.getAddress());
+		email.setAddress("bob@wonderland.net");
+		assertEquals("alice@wonderland.net", userInfo.getEmail().getAddress());
+
+		// Invalidated on update
+		userInfo.setPicture(URI.create("https://example.com/alice-2.png"));
+		assertEquals(URI.create("https://example.com/alice-2.png"), userInfo.getPicture());
+
+		userInfo.setEmail(new InternetAddress("alice@example.com"));
+		assertEquals("alice@example.com", userInfo.getEmail().getAddress());
+
+		// Invalidated on direct JSON object modification
+		userInfo.toJSONObject().put("picture", "https://example.com/alice-3.png");
+		assertEquals(URI.create("https://example.com/alice-3.png"), userInfo.getPicture());
+
+		// Invalid value
+		userInfo.setClaim("website", "not a URI");
+		assertNull(userInfo.getWebsite());
+		assertNull(userInfo.getWebsite());
+	}
+
+
+	public void testFrozen()
+		throws Exception {
+
+		UserInfo userInfo = new UserInfo(new Subject("alice"));
+
+		Address address = new Address();
+		address.setCountry("UK");
+		userInfo.setAddress(address);
+
+		userInfo.freeze();
+
+		Address frozenAddress = userInfo.getAddress();
+		assertTrue(frozenAddress.isFrozen());
+		assertSame(frozenAddress, userInfo.getAddress());
+
+		try {
+			frozenAddress.setCountry("DE");
+			fail();
+		} catch (IllegalStateException e) {
+			assertEquals("The claims set is frozen", e.getMessage());
+		}
+
+		// Deep copy
+		((JSONObject) userInfo.toJSONObject().get("address")).put("country", "DE");
+		assertEquals("UK", userInfo.getAddress().getCountry());
+		assertEquals("UK", ((JSONObject) userInfo.toJSONObject().get("address")).get("country"));
+
+		// Detached from the original address
+		address.setCountry("DE");
+		assertEquals("UK", userInfo.getAddress().getCountry());
+
+		// Nested values returned as copies
+		((JSONObject) userInfo.getClaim("address")).put("country", "DE");
+		userInfo.getClaim("address", JSONObject.class).put("country", "DE");
+		assertEquals("UK", userInfo.getAddress().getCountry());
+		assertEquals("UK", userInfo.getAddressEntries().get(null).getCountry());
+
+		// Nested values not shared by put all
+		UserInfo copy = new UserInfo(new Subject("alice"));
+		copy.putAll(userInfo);
+		copy.getAddress().setCountry("DE");
+		assertEquals("DE", copy.getAddress().getCountry());
+		assertEquals("UK", userInfo.getAddress().getCountry());
+
+		// Claim names only
+		assertEquals(new HashSet<>(Arrays.asList("sub", "address")), userInfo.getClaimNames());
+
+		try {
+			userInfo.getClaimNames().remove("address");
+			fail();
+		} catch (UnsupportedOperationException e) {
+			// ok
+		}
+	}
 }
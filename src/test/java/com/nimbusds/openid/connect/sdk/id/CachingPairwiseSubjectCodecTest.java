@@ -0,0 +1,118 @@
+package com.nimbusds.openid.connect.sdk.id;
+
+
+import java.security.SecureRandom;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+
+import com.nimbusds.jose.crypto.bc.BouncyCastleProviderSingleton;
+import com.nimbusds.oauth2.sdk.id.Subject;
+import junit.framework.TestCase;
+import org.apache.commons.lang3.tuple.Pair;
+
+
+public class CachingPairwiseSubjectCodecTest extends TestCase {
+
+
+	public void testEncodeAndDecode()
+		throws Exception {
+
+		byte[] salt = new byte[16];
+		new SecureRandom().nextBytes(salt);
+
+		KeyGenerator keyGen = KeyGenerator.getInstance("AES");
+		keyGen.init(128);
+		SecretKey aesKey = keyGen.generateKey();
+
+		AESBasedPairwiseSubjectCodec aesCodec = new AESBasedPairwiseSubjectCodec(aesKey, salt);
+
+		CachingPairwiseSubjectCodec codec = new CachingPairwiseSubjectCodec(aesCodec, 100);
+		assertEquals(aesCodec, codec.getCodec());
+		assertEquals(100, codec.getMaxCacheSize());
+		assertEquals(salt, codec.getSalt());
+		assertTrue(codec.supportsDecoding());
+
+		SectorID sectorID = new SectorID("example.com");
+		Subject localSubject = new Subject("alice");
+
+		Subject pairwiseSubject = codec.encode(sectorID, localSubject);
+		assertEquals(0L, codec.getEncodeHitCount());
+		assertEquals(1L, codec.getEncodeMissCount());
+
+		assertEquals(pairwiseSubject, codec.encode(sectorID, localSubject));
+		assertEquals(1L, codec.getEncodeHitCount());
+
+		Pair<SectorID,Subject> out = codec.decode(pairwiseSubject);
+		assertEquals(sectorID, out.getKey());
+		assertEquals(localSubject, out.getValue());
+		assertEquals(1L, codec.getDecodeHitCount());
+		assertEquals(0L, codec.getDecodeMissCount());
+
+		// Decode through the underlying codec
+		codec.clear();
+		out = codec.decode(pairwiseSubject);
+		assertEquals(sectorID, out.getKey());
+		assertEquals(localSubject, out.getValue());
+		assertEquals(1L, codec.getDecodeMissCount());
+
+		// Encoding now cached from decode
+		assertEquals(pairwiseSubject, codec.encode(sectorID, localSubject));
+		assertEquals(2L, codec.getEncodeHitCount());
+	}
+
+
+	public void testHashBasedCodec()
+		throws Exception {
+
+		byte[] salt = new byte[16];
+		new SecureRandom().nextBytes(salt);
+
+		HashBasedPairwiseSubjectCodec hashCodec = new HashBasedPairwiseSubjectCodec(salt);
+
+		CachingPairwiseSubjectCodec codec = new CachingPairwiseSubjectCodec(hashCodec, 100);
+
+		SectorID sectorID = new SectorID("example.com");
+		Subject localSubject = new Subject("alice");
+
+		assertFalse(codec.supportsDecoding());
+
+		Subject pairwiseSubject = codec.encode(sectorID, localSubject);
+		assertEquals(hashCodec.encode(sectorID, localSubject), pairwiseSubject);
+
+		// No reverse mapping, even while the encoding is cached
+		try {
+			codec.decode(pairwiseSubject);
+			fail();
+		} catch (UnsupportedOperationException e) {
+			assertEquals("Pairwise subject decoding is not supported", e.getMessage());
+		}
+
+		assertEquals(0L, codec.getDecodeHitCount());
+		assertEquals(0L, codec.getDecodeMissCount());
+
+		assertFalse(new CachingPairwiseSubjectCodec(codec, 10).supportsDecoding());
+	}
+
+
+	public void testProviderDelegation() {
+
+		HashBasedPairwiseSubjectCodec hashCodec = new HashBasedPairwiseSubjectCodec(new byte[16]);
+		CachingPairwiseSubjectCodec codec = new CachingPairwiseSubjectCodec(hashCodec, 10);
+		assertNull(codec.getProvider());
+
+		codec.setProvider(BouncyCastleProviderSingleton.getInstance());
+		assertEquals(BouncyCastleProviderSingleton.getInstance(), hashCodec.getProvider());
+		assertEquals(BouncyCastleProviderSingleton.getInstance(), codec.getProvider());
+	}
+
+
+	public void testRejectNullCodec() {
+
+		try {
+			new CachingPairwiseSubjectCodec(null, 10);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The pairwise subject codec must not be null", e.getMessage());
+		}
+	}
+}
@@ -2,6 +2,8 @@ package com.nimbusds.openid.connect.sdk.id;
 
 
 import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.List;
 
 import com.nimbusds.jose.crypto.bc.BouncyCastleProviderSingleton;
 import com.nimbusds.jose.util.Base64URL;
@@ -80,6 +82,27 @@ public class HashBasedPairwiseSubjectCodecTest extends TestCase {
 	}
 
 
+	public void testBatchEncode() {
+
+		// Generate salt
+		byte[] salt = new byte[16];
+		new SecureRandom().nextBytes(salt);
+
+		HashBasedPairwiseSubjectCodec codec = new HashBasedPairwiseSubjectCodec(salt);
+
+		SectorID sectorID = new SectorID("example.com");
+		List<Subject> localSubs = Arrays.asList(new Subject("alice"), new Subject("bob"), new Subject("claire"));
+
+		List<Subject> pairwiseSubs = codec.encode(sectorID, localSubs);
+
+		assertEquals(3, pairwiseSubs.size());
+
+		for (int i=0; i < localSubs.size(); i++) {
+			assertEquals(codec.encode(sectorID, localSubs.get(i)), pairwiseSubs.get(i));
+		}
+	}
+
+
 	public void testDecode()
 		throws InvalidPairwiseSubjectException {
 
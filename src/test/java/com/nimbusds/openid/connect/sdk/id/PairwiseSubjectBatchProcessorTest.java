@@ -0,0 +1,167 @@
+package com.nimbusds.openid.connect.sdk.id;
+
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+
+import com.nimbusds.oauth2.sdk.id.Subject;
+import junit.framework.TestCase;
+import org.apache.commons.lang3.tuple.Pair;
+
+
+public class PairwiseSubjectBatchProcessorTest extends TestCase {
+
+
+	private static List<Subject> createLocalSubjects(final int count) {
+
+		List<Subject> localSubs = new ArrayList<>(count);
+		for (int i=0; i < count; i++) {
+			localSubs.add(new Subject("user-" + i));
+		}
+		return localSubs;
+	}
+
+
+	public void testDefaultConstructor() {
+
+		HashBasedPairwiseSubjectCodec codec = new HashBasedPairwiseSubjectCodec(new byte[16]);
+
+		PairwiseSubjectBatchProcessor processor = new PairwiseSubjectBatchProcessor(codec);
+		assertEquals(codec, processor.getCodec());
+		assertEquals(Runtime.getRuntime().availableProcessors(), processor.getParallelism());
+		assertEquals(PairwiseSubjectBatchProcessor.DEFAULT_CHUNK_SIZE, processor.getChunkSize());
+		processor.shutdown();
+	}
+
+
+	public void testEncode()
+		throws Exception {
+
+		byte[] salt = new byte[16];
+		new SecureRandom().nextBytes(salt);
+
+		final HashBasedPairwiseSubjectCodec codec = new HashBasedPairwiseSubjectCodec(salt);
+		final SectorID sectorID = new SectorID("example.com");
+
+		PairwiseSubjectBatchProcessor processor = new PairwiseSubjectBatchProcessor(codec, 4, 7);
+
+		List<Subject> localSubs = createLocalSubjects(1000);
+
+		final Map<Subject,Subject> results = new ConcurrentHashMap<>();
+
+		long count = processor.encode(sectorID, localSubs.iterator(), new PairwiseSubjectBatchProcessor.EncodeHandler() {
+			@Override
+			public void handle(Subject localSub, Subject pairwiseSub) {
+				results.put(localSub, pairwiseSub);
+			}
+		});
+
+		processor.shutdown();
+
+		assertEquals(1000L, count);
+		assertEquals(1000, results.size());
+
+		for (Subject localSub: localSubs) {
+			assertEquals(codec.encode(sectorID, localSub), results.get(localSub));
+		}
+	}
+
+
+	public void testDecode()
+		throws Exception {
+
+		byte[] salt = new byte[16];
+		new SecureRandom().nextBytes(salt);
+
+		KeyGenerator keyGen = KeyGenerator.getInstance("AES");
+		keyGen.init(128);
+		SecretKey aesKey = keyGen.generateKey();
+
+		AESBasedPairwiseSubjectCodec codec = new AESBasedPairwiseSubjectCodec(aesKey, salt);
+		SectorID sectorID = new SectorID("example.com");
+
+		List<Subject> pairwiseSubs = new ArrayList<>(codec.encode(sectorID, createLocalSubjects(100)));
+		pairwiseSubs.add(new Subject("invalid"));
+
+		PairwiseSubjectBatchProcessor processor = new PairwiseSubjectBatchProcessor(codec, 2, 10);
+
+		final Map<Subject,Pair<SectorID,Subject>> results = new ConcurrentHashMap<>();
+		final List<Subject> invalid = new ArrayList<>();
+
+		long count = processor.decode(pairwiseSubs.iterator(), new PairwiseSubjectBatchProcessor.DecodeHandler() {
+			@Override
+			public void handle(Subject pairwiseSub, Pair<SectorID, Subject> decoded) {
+				results.put(pairwiseSub, decoded);
+			}
+
+			@Override
+			public synchronized void handleInvalid(Subject pairwiseSub, InvalidPairwiseSubjectException e) {
+				invalid.add(pairwiseSub);
+			}
+		});
+
+		processor.shutdown();
+
+		assertEquals(101L, count);
+		assertEquals(100, results.size());
+		assertEquals(Arrays.asList(new Subject("invalid")), invalid);
+
+		for (int i=0; i < 100; i++) {
+			Pair<SectorID,Subject> decoded = results.get(pairwiseSubs.get(i));
+			assertEquals(sectorID, decoded.getKey());
+			assertEquals(new Subject("user-" + i), decoded.getValue());
+		}
+	}
+
+
+	public void testHandlerExceptionPropagated()
+		throws Exception {
+
+		PairwiseSubjectBatchProcessor processor = new PairwiseSubjectBatchProcessor(new HashBasedPairwiseSubjectCodec(new byte[16]), 2, 10);
+
+		try {
+			processor.encode(new SectorID("example.com"), createLocalSubjects(100).iterator(), new PairwiseSubjectBatchProcessor.EncodeHandler() {
+				@Override
+				public void handle(Subject localSub, Subject pairwiseSub) {
+					throw new IllegalStateException("test");
+				}
+			});
+			fail();
+		} catch (IllegalStateException e) {
+			assertEquals("test", e.getMessage());
+		}
+
+		processor.shutdown();
+	}
+
+
+	public void testRejectIllegalArgs() {
+
+		try {
+			new PairwiseSubjectBatchProcessor(null, 1, 1);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The pairwise subject codec must not be null", e.getMessage());
+		}
+
+		try {
+			new PairwiseSubjectBatchProcessor(new HashBasedPairwiseSubjectCodec(new byte[16]), 0, 1);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The parallelism must be a positive integer", e.getMessage());
+		}
+
+		try {
+			new PairwiseSubjectBatchProcessor(new HashBasedPairwiseSubjectCodec(new byte[16]), 1, 0);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The chunk size must be a positive integer", e.getMessage());
+		}
+	}
+}
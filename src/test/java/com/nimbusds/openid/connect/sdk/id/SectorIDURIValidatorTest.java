@@ -7,13 +7,18 @@ import java.net.URI;
 import java.net.URL;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.nimbusds.jose.util.Resource;
 import com.nimbusds.jose.util.ResourceRetriever;
 import com.nimbusds.oauth2.sdk.GeneralException;
 import junit.framework.TestCase;
 import net.minidev.json.JSONArray;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
 
 
 public class SectorIDURIValidatorTest extends TestCase {
@@ -179,4 +184,140 @@ public class SectorIDURIValidatorTest extends TestCase {
 			assertEquals("Sector ID URI validation failed: Redirect URI https://yourapp.com/callback is missing from published JSON array at sector ID URI https://example.com/apps.json", e.getMessage());
 		}
 	}
+
+
+	private static ResourceRetriever countingRetriever(final AtomicInteger counter) {
+
+		return new ResourceRetriever() {
+			@Override
+			public Resource retrieveResource(URL url) throws IOException {
+
+				counter.incrementAndGet();
+
+				if (url.getHost().equals("unreachable.com")) {
+					throw new SocketException("Connection refused");
+				}
+
+				JSONArray jsonArray = new JSONArray();
+				jsonArray.add("https://" + url.getHost() + "/callback-1");
+				jsonArray.add("https://" + url.getHost() + "/callback-2");
+				return new Resource(jsonArray.toJSONString(), "application/json");
+			}
+		};
+	}
+
+
+	public void testCachedValidation()
+		throws Exception {
+
+		AtomicInteger counter = new AtomicInteger();
+
+		SectorIDURIValidator v = new SectorIDURIValidator(countingRetriever(counter), 60L, 10);
+
+		assertEquals(60L, v.getCacheTTL());
+
+		URI sectorURI = URI.create("https://example.com/apps.json");
+
+		v.validate(sectorURI, new HashSet<>(Arrays.asList(URI.create("https://example.com/callback-1"))));
+		v.validate(sectorURI, new HashSet<>(Arrays.asList(URI.create("https://example.com/callback-2"))));
+
+		assertEquals(1, counter.get());
+
+		try {
+			v.validate(sectorURI, new HashSet<>(Arrays.asList(URI.create("https://example.com/callback-3"))));
+			fail();
+		} catch (GeneralException e) {
+			assertEquals("Sector ID URI validation failed: Redirect URI https://example.com/callback-3 is missing from published JSON array at sector ID URI https://example.com/apps.json", e.getMessage());
+		}
+
+		assertEquals(1, counter.get());
+
+		v.invalidate(sectorURI);
+
+		v.validate(sectorURI, new HashSet<>(Arrays.asList(URI.create("https://example.com/callback-1"))));
+
+		assertEquals(2, counter.get());
+	}
+
+
+	public void testNoCachingByDefault()
+		throws Exception {
+
+		AtomicInteger counter = new AtomicInteger();
+
+		SectorIDURIValidator v = new SectorIDURIValidator(countingRetriever(counter));
+
+		assertEquals(0L, v.getCacheTTL());
+
+		URI sectorURI = URI.create("https://example.com/apps.json");
+		Set<URI> redirectURIs = new HashSet<>(Arrays.asList(URI.create("https://example.com/callback-1")));
+
+		v.validate(sectorURI, redirectURIs);
+		v.validate(sectorURI, redirectURIs);
+
+		assertEquals(2, counter.get());
+	}
+
+
+	public void testFailedRetrievalNotCached()
+		throws Exception {
+
+		AtomicInteger counter = new AtomicInteger();
+
+		SectorIDURIValidator v = new SectorIDURIValidator(countingRetriever(counter), 60L, 10);
+
+		URI sectorURI = URI.create("https://unreachable.com/apps.json");
+		Set<URI> redirectURIs = new HashSet<>(Arrays.asList(URI.create("https://unreachable.com/callback-1")));
+
+		for (int i=0; i < 2; i++) {
+			try {
+				v.validate(sectorURI, redirectURIs);
+				fail();
+			} catch (GeneralException e) {
+				assertEquals("Couldn't retrieve the sector ID JSON document: Connection refused", e.getMessage());
+			}
+		}
+
+		assertEquals(2, counter.get());
+	}
+
+
+	public void testBulkValidation()
+		throws Exception {
+
+		AtomicInteger counter = new AtomicInteger();
+
+		SectorIDURIValidator v = new SectorIDURIValidator(countingRetriever(counter), 60L, 10);
+
+		Map<String,Pair<URI,Set<URI>>> clients = new LinkedHashMap<>();
+
+		for (int i=0; i < 10; i++) {
+			clients.put("a" + i, new ImmutablePair<URI,Set<URI>>(
+				URI.create("https://a.com/apps.json"),
+				new HashSet<>(Arrays.asList(URI.create("https://a.com/callback-1")))));
+			clients.put("b" + i, new ImmutablePair<URI,Set<URI>>(
+				URI.create("https://b.com/apps.json"),
+				new HashSet<>(Arrays.asList(URI.create("https://b.com/callback-2")))));
+		}
+
+		clients.put("bad", new ImmutablePair<URI,Set<URI>>(
+			URI.create("https://a.com/apps.json"),
+			new HashSet<>(Arrays.asList(URI.create("https://b.com/callback-1")))));
+
+		clients.put("unreachable", new ImmutablePair<URI,Set<URI>>(
+			URI.create("https://unreachable.com/apps.json"),
+			new HashSet<>(Arrays.asList(URI.create("https://unreachable.com/callback-1")))));
+
+		Map<String,GeneralException> failures = v.validate(clients, 4);
+
+		assertEquals(2, failures.size());
+		assertEquals("Sector ID URI validation failed: Redirect URI https://b.com/callback-1 is missing from published JSON array at sector ID URI https://a.com/apps.json", failures.get("bad").getMessage());
+		assertEquals("Couldn't retrieve the sector ID JSON document: Connection refused", failures.get("unreachable").getMessage());
+
+		assertEquals(3, counter.get());
+
+		// Cached
+		assertTrue(v.validate(clients, 4).containsKey("bad"));
+		assertEquals(4, counter.get());
+	}
 }
@@ -4,9 +4,11 @@ package com.nimbusds.openid.connect.sdk.op;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URL;
+import java.security.MessageDigest;
 import java.text.ParseException;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
 
@@ -15,6 +17,7 @@ import com.nimbusds.jose.crypto.MACSigner;
 import com.nimbusds.jose.proc.BadJOSEException;
 import com.nimbusds.jose.proc.JWSKeySelector;
 import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jose.util.Base64URL;
 import com.nimbusds.jwt.*;
 import com.nimbusds.jwt.proc.DefaultJWTProcessor;
 import com.nimbusds.oauth2.sdk.ResponseType;
@@ -283,6 +286,104 @@ public class AuthenticationRequestResolverTest extends TestCase {
 	}
 
 
+	public void testRequestObjectsOnly_plainJWT_typedMerge()
+		throws Exception {
+
+		DefaultJWTProcessor jwtProcessor = new DefaultJWTProcessor() {
+			@Override
+			public JWTClaimsSet process(final PlainJWT plainJWT, final SecurityContext context)
+				throws BadJOSEException, JOSEException {
+				try {
+					return plainJWT.getJWTClaimsSet();
+				} catch (ParseException e) {
+					throw new BadJOSEException(e.getMessage(), e);
+				}
+			}
+		};
+
+		ClaimsRequest claimsRequest = new ClaimsRequest();
+		claimsRequest.addUserInfoClaim("email");
+
+		JWT requestObject = new PlainJWT(new JWTClaimsSet.Builder()
+			.claim("scope", "openid email")
+			.claim("redirect_uri", "https://example.com/cb")
+			.claim("nonce", "abc")
+			.claim("max_age", 3600)
+			.claim("ui_locales", "en bg")
+			.claim("claims", claimsRequest.toJSONObject())
+			.claim("x-custom", "123")
+			.build());
+
+		AuthenticationRequest request = new AuthenticationRequest.Builder(
+			new ResponseType("code"),
+			Scope.parse("openid"),
+			new ClientID("123"),
+			null)
+			.state(new State("xyz"))
+			.requestObject(requestObject)
+			.customParameter("x-original", "456")
+			.build();
+
+		AuthenticationRequestResolver resolver = new AuthenticationRequestResolver(jwtProcessor);
+
+		AuthenticationRequest resolved = resolver.resolve(request, null);
+
+		assertEquals(new ResponseType("code"), resolved.getResponseType());
+		assertEquals(Scope.parse("openid email"), resolved.getScope());
+		assertEquals(new ClientID("123"), resolved.getClientID());
+		assertEquals(URI.create("https://example.com/cb"), resolved.getRedirectionURI());
+		assertEquals(new State("xyz"), resolved.getState());
+		assertEquals("abc", resolved.getNonce().getValue());
+		assertEquals(3600, resolved.getMaxAge());
+		assertEquals("en", resolved.getUILocales().get(0).toString());
+		assertEquals("bg", resolved.getUILocales().get(1).toString());
+		assertTrue(resolved.getClaims().getUserInfoClaimNames(false).contains("email"));
+		assertEquals("123", resolved.getCustomParameters().get("x-custom"));
+		assertEquals("456", resolved.getCustomParameters().get("x-original"));
+		assertNull(resolved.getRequestObject());
+		assertNull(resolved.getRequestURI());
+	}
+
+
+	public void testRequestObjectsOnly_plainJWT_invalidResponseType()
+		throws Exception {
+
+		DefaultJWTProcessor jwtProcessor = new DefaultJWTProcessor() {
+			@Override
+			public JWTClaimsSet process(final PlainJWT plainJWT, final SecurityContext context)
+				throws BadJOSEException, JOSEException {
+				try {
+					return plainJWT.getJWTClaimsSet();
+				} catch (ParseException e) {
+					throw new BadJOSEException(e.getMessage(), e);
+				}
+			}
+		};
+
+		JWT requestObject = new PlainJWT(new JWTClaimsSet.Builder()
+			.claim("response_type", "id_token")
+			.claim("redirect_uri", "https://example.com/cb")
+			.build());
+
+		AuthenticationRequest request = new AuthenticationRequest.Builder(
+			new ResponseType("code"),
+			Scope.parse("openid"),
+			new ClientID("123"),
+			null)
+			.requestObject(requestObject)
+			.build();
+
+		AuthenticationRequestResolver resolver = new AuthenticationRequestResolver(jwtProcessor);
+
+		try {
+			resolver.resolve(request, null);
+			fail();
+		} catch (ResolveException e) {
+			assertEquals("Couldn't create final OpenID authentication request: Missing \"nonce\" parameter: Required in implicit flow", e.getMessage());
+		}
+	}
+
+
 	public void testRequestURI_hmacJWT()
 		throws ResolveException, JOSEException {
 
@@ -465,4 +566,230 @@ public class AuthenticationRequestResolverTest extends TestCase {
 			assertEquals(request.getState(), e.getState());
 		}
 	}
+
+
+	private static DefaultJWTProcessor createHMACProcessor(final Secret clientSecret, final AtomicInteger processCounter) {
+
+		DefaultJWTProcessor jwtProcessor = new DefaultJWTProcessor() {
+			@Override
+			public JWTClaimsSet process(JWT jwt, SecurityContext context)
+				throws BadJOSEException, JOSEException {
+				processCounter.incrementAndGet();
+				return super.process(jwt, context);
+			}
+		};
+		jwtProcessor.setJWSKeySelector(new JWSKeySelector() {
+			@Override
+			public List<SecretKey> selectJWSKeys(JWSHeader header, SecurityContext context) {
+				SecretKey hmacKey = new SecretKeySpec(clientSecret.getValueBytes(), "HmacSha256");
+				return Collections.singletonList(hmacKey);
+			}
+		});
+		return jwtProcessor;
+	}
+
+
+	public void testRequestURI_cached()
+		throws Exception {
+
+		final Secret clientSecret = new Secret();
+
+		final SignedJWT requestObject = new SignedJWT(new JWSHeader(JWSAlgorithm.HS256), new JWTClaimsSet.Builder()
+			.claim("scope", "openid email")
+			.claim("redirect_uri", "https://example.com/cb")
+			.build());
+		requestObject.sign(new MACSigner(clientSecret.getValueBytes()));
+
+		final AtomicInteger fetchCounter = new AtomicInteger();
+
+		ResourceRetriever jwtRetriever = new ResourceRetriever() {
+			@Override
+			public Resource retrieveResource(URL url) throws IOException {
+				fetchCounter.incrementAndGet();
+				return new Resource(requestObject.serialize(), CommonContentTypes.APPLICATION_JWT);
+			}
+		};
+
+		AtomicInteger processCounter = new AtomicInteger();
+
+		AuthenticationRequestResolver resolver = new AuthenticationRequestResolver(createHMACProcessor(clientSecret, processCounter), jwtRetriever, 60L, 100, false);
+
+		assertEquals(60L, resolver.getCacheTTL());
+
+		AuthenticationRequest request = new AuthenticationRequest.Builder(
+			new ResponseType("code"),
+			Scope.parse("openid"),
+			new ClientID("123"),
+			null)
+			.requestURI(URI.create("https://example.com/request.jwt"))
+			.build();
+
+		for (int i=0; i < 3; i++) {
+			AuthenticationRequest resolved = resolver.resolve(request, null);
+			assertEquals(Scope.parse("openid email"), resolved.getScope());
+			assertEquals(URI.create("https://example.com/cb"), resolved.getRedirectionURI());
+		}
+
+		assertEquals(1, fetchCounter.get());
+		assertEquals(3, processCounter.get());
+
+		resolver.clearCache();
+
+		resolver.resolve(request, null);
+
+		assertEquals(2, fetchCounter.get());
+	}
+
+
+	public void testRequestURI_cachedClaims()
+		throws Exception {
+
+		final Secret clientSecret = new Secret();
+
+		final SignedJWT requestObject = new SignedJWT(new JWSHeader(JWSAlgorithm.HS256), new JWTClaimsSet.Builder()
+			.claim("scope", "openid email")
+			.claim("redirect_uri", "https://example.com/cb")
+			.build());
+		requestObject.sign(new MACSigner(clientSecret.getValueBytes()));
+
+		final AtomicInteger fetchCounter = new AtomicInteger();
+
+		ResourceRetriever jwtRetriever = new ResourceRetriever() {
+			@Override
+			public Resource retrieveResource(URL url) throws IOException {
+				fetchCounter.incrementAndGet();
+				return new Resource(requestObject.serialize(), CommonContentTypes.APPLICATION_JWT);
+			}
+		};
+
+		AtomicInteger processCounter = new AtomicInteger();
+
+		AuthenticationRequestResolver resolver = new AuthenticationRequestResolver(createHMACProcessor(clientSecret, processCounter), jwtRetriever, 60L, 100, true);
+
+		URI requestURI = URI.create("https://example.com/request.jwt#Qcb0Orv1zh30vL1MPRsbm-diHiMwcLyZvn1arpZv-Jxf_11jnpEX3Tgfvk");
+
+		AuthenticationRequest request = new AuthenticationRequest.Builder(
+			new ResponseType("code"),
+			Scope.parse("openid"),
+			new ClientID("123"),
+			null)
+			.requestURI(requestURI)
+			.build();
+
+		for (int i=0; i < 3; i++) {
+			AuthenticationRequest resolved = resolver.resolve(request, null);
+			assertEquals(Scope.parse("openid email"), resolved.getScope());
+		}
+
+		assertEquals(1, fetchCounter.get());
+		assertEquals(1, processCounter.get());
+
+		// Processed claims not shared with other clients
+		AuthenticationRequest otherClientRequest = new AuthenticationRequest.Builder(
+			new ResponseType("code"),
+			Scope.parse("openid"),
+			new ClientID("456"),
+			null)
+			.requestURI(requestURI)
+			.build();
+
+		resolver.resolve(otherClientRequest, null);
+
+		assertEquals(1, fetchCounter.get());
+		assertEquals(2, processCounter.get());
+	}
+
+
+	public void testRequestURI_fragmentHashVerified()
+		throws Exception {
+
+		final Secret clientSecret = new Secret();
+
+		final SignedJWT requestObject = new SignedJWT(new JWSHeader(JWSAlgorithm.HS256), new JWTClaimsSet.Builder()
+			.claim("scope", "openid email")
+			.claim("redirect_uri", "https://example.com/cb")
+			.build());
+		requestObject.sign(new MACSigner(clientSecret.getValueBytes()));
+
+		final AtomicInteger fetchCounter = new AtomicInteger();
+
+		ResourceRetriever jwtRetriever = new ResourceRetriever() {
+			@Override
+			public Resource retrieveResource(URL url) throws IOException {
+				fetchCounter.incrementAndGet();
+				return new Resource(requestObject.serialize(), CommonContentTypes.APPLICATION_JWT);
+			}
+		};
+
+		AuthenticationRequestResolver resolver = new AuthenticationRequestResolver(createHMACProcessor(clientSecret, new AtomicInteger()), jwtRetriever, 1L, 100, false);
+
+		Base64URL hash = Base64URL.encode(MessageDigest.getInstance("SHA-256").digest(requestObject.serialize().getBytes("UTF-8")));
+
+		AuthenticationRequest verifiedRequest = new AuthenticationRequest.Builder(
+			new ResponseType("code"),
+			Scope.parse("openid"),
+			new ClientID("123"),
+			null)
+			.requestURI(URI.create("https://example.com/request.jwt#" + hash))
+			.build();
+
+		AuthenticationRequest unverifiedRequest = new AuthenticationRequest.Builder(
+			new ResponseType("code"),
+			Scope.parse("openid"),
+			new ClientID("123"),
+			null)
+			.requestURI(URI.create("https://example.com/request.jwt#Qcb0Orv1zh30vL1MPRsbm-diHiMwcLyZvn1arpZv-Jxf_11jnpEX3Tgfvk"))
+			.build();
+
+		resolver.resolve(verifiedRequest, null);
+		resolver.resolve(unverifiedRequest, null);
+
+		assertEquals(2, fetchCounter.get());
+
+		Thread.sleep(1100L);
+
+		// Matching hash cached until evicted
+		resolver.resolve(verifiedRequest, null);
+		assertEquals(2, fetchCounter.get());
+
+		// Mismatching hash cached for the TTL only
+		resolver.resolve(unverifiedRequest, null);
+		assertEquals(3, fetchCounter.get());
+	}
+
+
+	public void testRequestURI_retrievalFailureNotCached()
+		throws Exception {
+
+		final AtomicInteger fetchCounter = new AtomicInteger();
+
+		ResourceRetriever jwtRetriever = new ResourceRetriever() {
+			@Override
+			public Resource retrieveResource(URL url) throws IOException {
+				fetchCounter.incrementAndGet();
+				throw new IOException("Connection refused");
+			}
+		};
+
+		AuthenticationRequestResolver resolver = new AuthenticationRequestResolver(createHMACProcessor(new Secret(), new AtomicInteger()), jwtRetriever, 60L, 100, true);
+
+		AuthenticationRequest request = new AuthenticationRequest.Builder(
+			new ResponseType("code"),
+			Scope.parse("openid"),
+			new ClientID("123"),
+			URI.create("https://example.com/cb"))
+			.requestURI(URI.create("https://example.com/request.jwt"))
+			.build();
+
+		for (int i=0; i < 2; i++) {
+			try {
+				resolver.resolve(request, null);
+				fail();
+			} catch (ResolveException e) {
+				assertEquals("Couldn't retrieve request_uri: Connection refused", e.getMessage());
+			}
+		}
+
+		assertEquals(2, fetchCounter.get());
+	}
 }
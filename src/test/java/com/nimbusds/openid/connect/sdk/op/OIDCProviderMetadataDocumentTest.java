@@ -0,0 +1,164 @@
+package com.nimbusds.openid.connect.sdk.op;
+
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Date;
+
+import junit.framework.TestCase;
+
+import com.nimbusds.oauth2.sdk.http.CommonContentTypes;
+import com.nimbusds.oauth2.sdk.http.HTTPRequest;
+import com.nimbusds.oauth2.sdk.http.HTTPResponse;
+import com.nimbusds.oauth2.sdk.id.Issuer;
+import com.nimbusds.openid.connect.sdk.SubjectType;
+
+
+/**
+ * Tests the pre-serialised OpenID Provider metadata document.
+ */
+public class OIDCProviderMetadataDocumentTest extends TestCase {
+
+
+	private static final Date LAST_MODIFIED = new Date(1445000000123L);
+
+
+	private static OIDCProviderMetadata createMetadata() {
+
+		OIDCProviderMetadata metadata = new OIDCProviderMetadata(
+			new Issuer("https://c2id.com"),
+			Collections.singletonList(SubjectType.PUBLIC),
+			URI.create("https://c2id.com/jwks.json"));
+		metadata.setAuthorizationEndpointURI(URI.create("https://c2id.com/login"));
+		metadata.setTokenEndpointURI(URI.create("https://c2id.com/token"));
+		return metadata;
+	}
+
+
+	private static HTTPRequest createRequest()
+		throws Exception {
+
+		return new HTTPRequest(HTTPRequest.Method.GET, new URL("https://c2id.com/.well-known/openid-configuration"));
+	}
+
+
+	public void testDocument()
+		throws Exception {
+
+		OIDCProviderMetadata metadata = createMetadata();
+
+		OIDCProviderMetadataDocument document = new OIDCProviderMetadataDocument(metadata, LAST_MODIFIED);
+
+		assertEquals(metadata.toJSONObject().toJSONString(), document.getJSONString());
+		assertEquals("https://c2id.com", OIDCProviderMetadata.parse(document.getJSONString()).getIssuer().getValue());
+
+		byte[] bytes = document.getBytes();
+		assertEquals(document.getJSONString(), new String(bytes, "UTF-8"));
+		assertEquals(bytes.length, document.getContentLength());
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		document.writeTo(out);
+		assertEquals(document.getJSONString(), new String(out.toByteArray(), "UTF-8"));
+
+		assertTrue(document.getETag().startsWith("\""));
+		assertTrue(document.getETag().endsWith("\""));
+
+		assertEquals(1445000000000L, document.getLastModified().getTime());
+		assertEquals("Fri, 16 Oct 2015 12:53:20 GMT", document.getLastModifiedString());
+
+		// Snapshot not affected by later changes
+		metadata.setUserInfoEndpointURI(URI.create("https://c2id.com/userinfo"));
+		assertFalse(document.getJSONString().contains("userinfo_endpoint"));
+	}
+
+
+	public void testETag() {
+
+		OIDCProviderMetadataDocument document = new OIDCProviderMetadataDocument(createMetadata(), LAST_MODIFIED);
+
+		assertEquals(document.getETag(), new OIDCProviderMetadataDocument(createMetadata()).getETag());
+
+		OIDCProviderMetadata modified = createMetadata();
+		modified.setUserInfoEndpointURI(URI.create("https://c2id.com/userinfo"));
+
+		assertFalse(document.getETag().equals(new OIDCProviderMetadataDocument(modified, LAST_MODIFIED).getETag()));
+	}
+
+
+	public void testUnconditionalResponse()
+		throws Exception {
+
+		OIDCProviderMetadataDocument document = new OIDCProviderMetadataDocument(createMetadata(), LAST_MODIFIED);
+
+		HTTPResponse httpResponse = document.toHTTPResponse(createRequest());
+
+		assertEquals(HTTPResponse.SC_OK, httpResponse.getStatusCode());
+		assertEquals(CommonContentTypes.APPLICATION_JSON.toString(), httpResponse.getContentType().toString());
+		assertEquals(document.getETag(), httpResponse.getHeader("ETag"));
+		assertEquals(document.getLastModifiedString(), httpResponse.getHeader("Last-Modified"));
+		assertEquals(document.getJSONString(), httpResponse.getContent());
+		assertEquals("https://c2id.com", OIDCProviderMetadata.parse(httpResponse.getContentAsJSONObject()).getIssuer().getValue());
+	}
+
+
+	public void testIfNoneMatch()
+		throws Exception {
+
+		OIDCProviderMetadataDocument document = new OIDCProviderMetadataDocument(createMetadata(), LAST_MODIFIED);
+
+		HTTPRequest httpRequest = createRequest();
+		httpRequest.setHeader("If-None-Match", document.getETag());
+
+		HTTPResponse httpResponse = document.toHTTPResponse(httpRequest);
+		assertEquals(HTTPResponse.SC_NOT_MODIFIED, httpResponse.getStatusCode());
+		assertEquals(document.getETag(), httpResponse.getHeader("ETag"));
+		assertEquals(document.getLastModifiedString(), httpResponse.getHeader("Last-Modified"));
+		assertNull(httpResponse.getContent());
+
+		assertTrue(document.isNotModified("\"abc\", W/" + document.getETag(), null));
+		assertTrue(document.isNotModified("*", null));
+		assertFalse(document.isNotModified("\"abc\"", null));
+
+		// If-Modified-Since ignored
+		assertFalse(document.isNotModified("\"abc\"", document.getLastModifiedString()));
+
+		httpRequest.setHeader("If-None-Match", "\"abc\"");
+		assertEquals(HTTPResponse.SC_OK, document.toHTTPResponse(httpRequest).getStatusCode());
+	}
+
+
+	public void testIfModifiedSince()
+		throws Exception {
+
+		OIDCProviderMetadataDocument document = new OIDCProviderMetadataDocument(createMetadata(), LAST_MODIFIED);
+
+		HTTPRequest httpRequest = createRequest();
+		httpRequest.setHeader("If-Modified-Since", document.getLastModifiedString());
+		assertEquals(HTTPResponse.SC_NOT_MODIFIED, document.toHTTPResponse(httpRequest).getStatusCode());
+
+		assertTrue(document.isNotModified(null, "Fri, 16 Oct 2015 12:53:21 GMT"));
+		assertFalse(document.isNotModified(null, "Fri, 16 Oct 2015 12:53:19 GMT"));
+		assertFalse(document.isNotModified(null, "invalid date"));
+		assertFalse(document.isNotModified(null, null));
+	}
+
+
+	public void testRejectNullArguments() {
+
+		try {
+			new OIDCProviderMetadataDocument(null);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The OpenID Provider metadata must not be null", e.getMessage());
+		}
+
+		try {
+			new OIDCProviderMetadataDocument(createMetadata(), null);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The last modification time must not be null", e.getMessage());
+		}
+	}
+}
@@ -508,4 +508,33 @@ public class OIDCClientMetadataTest extends TestCase {
 		clientMetadata.setSubjectType(null);
 		assertNull(clientMetadata.resolveSectorID());
 	}
-}
\ No newline at end of file
+
+
+	public void testParseDoesNotModifySource()
+		throws Exception {
+
+		JSONObject o = new JSONObject();
+		o.put("redirect_uris", Arrays.asList("https://example.com/cb"));
+		o.put("client_name#de", "Beispiel");
+		o.put("application_type", "native");
+		o.put("default_max_age", 3600);
+		o.put("post_logout_redirect_uris", Arrays.asList("https://example.com/logout"));
+		o.put("data", "123");
+
+		JSONObject copy = new JSONObject(o);
+
+		OIDCClientMetadata metadata = OIDCClientMetadata.parse(o);
+
+		assertEquals(copy, o);
+
+		assertEquals(Collections.singleton(URI.create("https://example.com/cb")), metadata.getRedirectionURIs());
+		assertEquals("Beispiel", metadata.getName(LangTag.parse("de")));
+		assertEquals(ApplicationType.NATIVE, metadata.getApplicationType());
+		assertEquals(3600, metadata.getDefaultMaxAge());
+		assertEquals(Collections.singleton(URI.create("https://example.com/logout")), metadata.getPostLogoutRedirectionURIs());
+
+		// Only the unregistered member is custom
+		assertEquals("123", metadata.getCustomField("data"));
+		assertEquals(1, metadata.getCustomFields().size());
+	}
+}
@@ -0,0 +1,264 @@
+package com.nimbusds.openid.connect.sdk.rp;
+
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.nimbusds.oauth2.sdk.GeneralException;
+import com.nimbusds.oauth2.sdk.ParseException;
+import com.nimbusds.oauth2.sdk.http.CommonContentTypes;
+import com.nimbusds.oauth2.sdk.http.HTTPRequest;
+import com.nimbusds.oauth2.sdk.http.HTTPResponse;
+import com.nimbusds.oauth2.sdk.id.Issuer;
+import com.nimbusds.openid.connect.sdk.SubjectType;
+import com.nimbusds.openid.connect.sdk.op.OIDCProviderMetadata;
+import junit.framework.TestCase;
+
+
+/**
+ * Tests the OpenID Provider metadata resolver.
+ */
+public class OIDCProviderMetadataResolverTest extends TestCase {
+
+
+	private static final Issuer ISSUER = new Issuer("https://c2id.com");
+
+
+	/**
+	 * Resolver returning canned responses and recording the requests.
+	 */
+	private static class MockResolver extends OIDCProviderMetadataResolver {
+
+
+		private final AtomicInteger requestCount = new AtomicInteger();
+
+
+		private volatile HTTPRequest lastRequest;
+
+
+		private volatile HTTPResponse httpResponse;
+
+
+		private volatile boolean unreachable;
+
+
+		MockResolver(final long ttl, final long maxStale) {
+			super(ttl, maxStale);
+		}
+
+
+		@Override
+		protected HTTPResponse send(final HTTPRequest httpRequest)
+			throws IOException {
+
+			requestCount.incrementAndGet();
+			lastRequest = httpRequest;
+
+			if (unreachable) {
+				throw new IOException("Connection refused");
+			}
+
+			return httpResponse;
+		}
+	}
+
+
+	private static HTTPResponse createMetadataResponse(final Issuer issuer, final String eTag) {
+
+		OIDCProviderMetadata metadata = new OIDCProviderMetadata(
+			issuer,
+			Collections.singletonList(SubjectType.PUBLIC),
+			URI.create(issuer + "/jwks.json"));
+
+		HTTPResponse httpResponse = new HTTPResponse(HTTPResponse.SC_OK);
+		httpResponse.setContentType(CommonContentTypes.APPLICATION_JSON);
+		httpResponse.setContent(metadata.toJSONObject().toJSONString());
+		httpResponse.setHeader("ETag", eTag);
+		httpResponse.setHeader("Last-Modified", "Wed, 21 Oct 2015 07:28:00 GMT");
+		return httpResponse;
+	}
+
+
+	public void testComposeDiscoveryURL()
+		throws Exception {
+
+		assertEquals(new URL("https://c2id.com/.well-known/openid-configuration"),
+			OIDCProviderMetadataResolver.composeDiscoveryURL(new Issuer("https://c2id.com")));
+
+		assertEquals(new URL("https://c2id.com/.well-known/openid-configuration"),
+			OIDCProviderMetadataResolver.composeDiscoveryURL(new Issuer("https://c2id.com/")));
+
+		assertEquals(new URL("https://example.com/tenant/.well-known/openid-configuration"),
+			OIDCProviderMetadataResolver.composeDiscoveryURL(new Issuer("https://example.com/tenant")));
+	}
+
+
+	public void testDefaultConstructor() {
+
+		OIDCProviderMetadataResolver resolver = new OIDCProviderMetadataResolver();
+		assertEquals(OIDCProviderMetadataResolver.DEFAULT_TTL, resolver.getTTL());
+		assertEquals(OIDCProviderMetadataResolver.DEFAULT_MAX_STALE, resolver.getMaxStale());
+		assertNull(resolver.getCachedMetadata(ISSUER));
+	}
+
+
+	public void testResolveAndCache()
+		throws Exception {
+
+		MockResolver resolver = new MockResolver(60L, 0L);
+		resolver.httpResponse = createMetadataResponse(ISSUER, "\"v1\"");
+
+		OIDCProviderMetadata m1 = resolver.resolve(ISSUER);
+		assertEquals(ISSUER, m1.getIssuer());
+		assertEquals("https://c2id.com/.well-known/openid-configuration", resolver.lastRequest.getURL().toString());
+		assertNull(resolver.lastRequest.getHeader("If-None-Match"));
+
+		OIDCProviderMetadata m2 = resolver.resolve(ISSUER);
+		assertSame(m1, m2);
+		assertSame(m1, resolver.getCachedMetadata(ISSUER));
+		assertEquals(1, resolver.requestCount.get());
+		assertEquals(1L, resolver.getHitCount());
+		assertEquals(1L, resolver.getMissCount());
+
+		resolver.invalidate(ISSUER);
+		assertNull(resolver.getCachedMetadata(ISSUER));
+	}
+
+
+	public void testConditionalRefresh()
+		throws Exception {
+
+		MockResolver resolver = new MockResolver(60L, 0L);
+		resolver.httpResponse = createMetadataResponse(ISSUER, "\"v1\"");
+
+		OIDCProviderMetadata m1 = resolver.resolve(ISSUER);
+
+		resolver.httpResponse = new HTTPResponse(HTTPResponse.SC_NOT_MODIFIED);
+
+		assertSame(m1, resolver.refresh(ISSUER));
+		assertEquals("\"v1\"", resolver.lastRequest.getHeader("If-None-Match"));
+		assertEquals("Wed, 21 Oct 2015 07:28:00 GMT", resolver.lastRequest.getHeader("If-Modified-Since"));
+		assertEquals(1L, resolver.getNotModifiedCount());
+
+		// Modified
+		resolver.httpResponse = createMetadataResponse(ISSUER, "\"v2\"");
+		OIDCProviderMetadata m2 = resolver.refresh(ISSUER);
+		assertNotSame(m1, m2);
+
+		resolver.httpResponse = new HTTPResponse(HTTPResponse.SC_NOT_MODIFIED);
+		resolver.refresh(ISSUER);
+		assertEquals("\"v2\"", resolver.lastRequest.getHeader("If-None-Match"));
+	}
+
+
+	public void testRevalidateOnExpiration()
+		throws Exception {
+
+		MockResolver resolver = new MockResolver(1L, 0L);
+		resolver.httpResponse = createMetadataResponse(ISSUER, "\"v1\"");
+
+		OIDCProviderMetadata m1 = resolver.resolve(ISSUER);
+
+		Thread.sleep(1100L);
+
+		resolver.httpResponse = new HTTPResponse(HTTPResponse.SC_NOT_MODIFIED);
+
+		assertSame(m1, resolver.resolve(ISSUER));
+		assertEquals(2, resolver.requestCount.get());
+	}
+
+
+	public void testServeStale()
+		throws Exception {
+
+		MockResolver resolver = new MockResolver(1L, 60L);
+		resolver.httpResponse = createMetadataResponse(ISSUER, "\"v1\"");
+
+		OIDCProviderMetadata m1 = resolver.resolve(ISSUER);
+
+		Thread.sleep(1100L);
+
+		resolver.unreachable = true;
+		assertSame(m1, resolver.resolve(ISSUER));
+
+		resolver.unreachable = false;
+		resolver.httpResponse = new HTTPResponse(HTTPResponse.SC_SERVICE_UNAVAILABLE);
+		assertSame(m1, resolver.resolve(ISSUER));
+
+		assertEquals(2L, resolver.getStaleHitCount());
+	}
+
+
+	public void testNoStale()
+		throws Exception {
+
+		MockResolver resolver = new MockResolver(1L, 0L);
+		resolver.httpResponse = createMetadataResponse(ISSUER, "\"v1\"");
+
+		resolver.resolve(ISSUER);
+
+		Thread.sleep(1100L);
+
+		resolver.unreachable = true;
+
+		try {
+			resolver.resolve(ISSUER);
+			fail();
+		} catch (IOException e) {
+			assertEquals("Connection refused", e.getMessage());
+		}
+	}
+
+
+	public void testUnexpectedStatusCode()
+		throws Exception {
+
+		MockResolver resolver = new MockResolver(60L, 60L);
+		resolver.httpResponse = new HTTPResponse(HTTPResponse.SC_NOT_MODIFIED);
+
+		try {
+			resolver.resolve(ISSUER);
+			fail();
+		} catch (ParseException e) {
+			assertEquals("Unexpected HTTP status code 304, must be [200]", e.getMessage());
+		}
+	}
+
+
+	public void testIssuerMismatch()
+		throws Exception {
+
+		MockResolver resolver = new MockResolver(60L, 0L);
+		resolver.httpResponse = createMetadataResponse(new Issuer("https://evil.com"), null);
+
+		try {
+			resolver.resolve(ISSUER);
+			fail();
+		} catch (GeneralException e) {
+			assertEquals("Issuer mismatch: Expected https://c2id.com, found https://evil.com", e.getMessage());
+		}
+
+		assertNull(resolver.getCachedMetadata(ISSUER));
+	}
+
+
+	public void testRejectIllegalArgs() {
+
+		try {
+			new OIDCProviderMetadataResolver(0L, 0L);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The TTL must be a positive integer", e.getMessage());
+		}
+
+		try {
+			new OIDCProviderMetadataResolver(60L, -1L);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The max stale time must not be negative", e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,180 @@
+package com.nimbusds.openid.connect.sdk.rp;
+
+
+import java.io.IOException;
+import java.net.URI;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.oauth2.sdk.http.CommonContentTypes;
+import com.nimbusds.oauth2.sdk.http.HTTPRequest;
+import com.nimbusds.oauth2.sdk.http.HTTPResponse;
+import com.nimbusds.oauth2.sdk.id.Issuer;
+import com.nimbusds.openid.connect.sdk.SubjectType;
+import com.nimbusds.openid.connect.sdk.op.OIDCProviderMetadata;
+import junit.framework.TestCase;
+
+
+/**
+ * Tests the OpenID Provider prefetcher.
+ */
+public class OIDCProviderPrefetcherTest extends TestCase {
+
+
+	private static final Issuer OP_1 = new Issuer("https://op1.example.com");
+
+
+	private static final Issuer OP_2 = new Issuer("https://op2.example.com");
+
+
+	private static final Issuer OP_DOWN = new Issuer("https://down.example.com");
+
+
+	private static final Issuer OP_NO_JWKS = new Issuer("https://nojwks.example.com");
+
+
+	private static final Issuer OP_SLOW = new Issuer("https://slow.example.com");
+
+
+	/**
+	 * Resolver serving canned metadata.
+	 */
+	private static class MockResolver extends OIDCProviderMetadataResolver {
+
+
+		@Override
+		protected HTTPResponse send(final HTTPRequest httpRequest)
+			throws IOException {
+
+			String host = httpRequest.getURL().getHost();
+
+			if (host.equals("down.example.com")) {
+				throw new IOException("Connection refused");
+			}
+
+			if (host.equals("slow.example.com")) {
+				try {
+					Thread.sleep(5000L);
+				} catch (InterruptedException e) {
+					throw new IOException("Interrupted");
+				}
+			}
+
+			Issuer issuer = new Issuer("https://" + host);
+
+			OIDCProviderMetadata metadata = new OIDCProviderMetadata(
+				issuer,
+				Collections.singletonList(SubjectType.PUBLIC),
+				URI.create(issuer + "/jwks.json"));
+
+			HTTPResponse httpResponse = new HTTPResponse(HTTPResponse.SC_OK);
+			httpResponse.setContentType(CommonContentTypes.APPLICATION_JSON);
+			httpResponse.setContent(metadata.toJSONObject().toJSONString());
+			return httpResponse;
+		}
+	}
+
+
+	/**
+	 * Prefetcher serving a canned JWK set.
+	 */
+	private static class MockPrefetcher extends OIDCProviderPrefetcher {
+
+
+		private final JWKSet jwkSet;
+
+
+		MockPrefetcher(final JWKSet jwkSet) {
+			super(new MockResolver(), 2);
+			this.jwkSet = jwkSet;
+		}
+
+
+		@Override
+		protected HTTPResponse send(final HTTPRequest httpRequest)
+			throws IOException {
+
+			if (httpRequest.getURL().getHost().equals("nojwks.example.com")) {
+				return new HTTPResponse(HTTPResponse.SC_SERVER_ERROR);
+			}
+
+			HTTPResponse httpResponse = new HTTPResponse(HTTPResponse.SC_OK);
+			httpResponse.setContentType(CommonContentTypes.APPLICATION_JSON);
+			httpResponse.setContent(jwkSet.toJSONObject().toJSONString());
+			return httpResponse;
+		}
+	}
+
+
+	private static JWKSet createJWKSet()
+		throws Exception {
+
+		KeyPairGenerator gen = KeyPairGenerator.getInstance("RSA");
+		gen.initialize(1024);
+		RSAPublicKey publicKey = (RSAPublicKey) gen.generateKeyPair().getPublic();
+		return new JWKSet(new RSAKey.Builder(publicKey).keyID("1").build());
+	}
+
+
+	public void testPrefetch()
+		throws Exception {
+
+		JWKSet jwkSet = createJWKSet();
+
+		MockPrefetcher prefetcher = new MockPrefetcher(jwkSet);
+		assertEquals(2, prefetcher.getParallelism());
+
+		Map<Issuer,OIDCProviderPrefetcher.Result> results = prefetcher.prefetch(
+			Arrays.asList(OP_1, OP_2, OP_DOWN, OP_NO_JWKS, OP_SLOW), 1000L);
+
+		assertEquals(Arrays.asList(OP_1, OP_2, OP_DOWN, OP_NO_JWKS, OP_SLOW), Arrays.asList(results.keySet().toArray()));
+
+		OIDCProviderPrefetcher.Result r1 = results.get(OP_1);
+		assertTrue(r1.isReady());
+		assertEquals(OP_1, r1.getIssuer());
+		assertEquals(OP_1, r1.getMetadata().getIssuer());
+		assertEquals("1", r1.getJWKSet().getKeys().get(0).getKeyID());
+		assertNull(r1.getException());
+
+		assertTrue(results.get(OP_2).isReady());
+
+		OIDCProviderPrefetcher.Result rDown = results.get(OP_DOWN);
+		assertEquals(OIDCProviderPrefetcher.Status.METADATA_FAILED, rDown.getStatus());
+		assertEquals("Connection refused", rDown.getException().getMessage());
+
+		OIDCProviderPrefetcher.Result rNoJWKS = results.get(OP_NO_JWKS);
+		assertEquals(OIDCProviderPrefetcher.Status.JWK_SET_FAILED, rNoJWKS.getStatus());
+		assertNotNull(rNoJWKS.getMetadata());
+		assertNull(rNoJWKS.getJWKSet());
+
+		OIDCProviderPrefetcher.Result rSlow = results.get(OP_SLOW);
+		assertEquals(OIDCProviderPrefetcher.Status.TIMED_OUT, rSlow.getStatus());
+		assertFalse(rSlow.isReady());
+
+		// Metadata cached by resolver
+		assertNotNull(prefetcher.getResolver().getCachedMetadata(OP_1));
+	}
+
+
+	public void testRejectIllegalArgs() {
+
+		try {
+			new OIDCProviderPrefetcher(null, 1);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The provider metadata resolver must not be null", e.getMessage());
+		}
+
+		try {
+			new OIDCProviderPrefetcher(new OIDCProviderMetadataResolver(), 0);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The parallelism must be a positive integer", e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,255 @@
+package com.nimbusds.openid.connect.sdk.rp;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URI;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.oauth2.sdk.ParseException;
+import com.nimbusds.oauth2.sdk.http.CommonContentTypes;
+import com.nimbusds.oauth2.sdk.http.HTTPRequest;
+import com.nimbusds.oauth2.sdk.http.HTTPResponse;
+import com.nimbusds.oauth2.sdk.id.Issuer;
+import com.nimbusds.openid.connect.sdk.SubjectType;
+import com.nimbusds.openid.connect.sdk.op.OIDCProviderMetadata;
+import junit.framework.TestCase;
+
+
+/**
+ * Tests the OpenID Provider snapshot store.
+ */
+public class OIDCProviderSnapshotStoreTest extends TestCase {
+
+
+	private static final Issuer OP_1 = new Issuer("https://op1.example.com");
+
+
+	private static final Issuer OP_2 = new Issuer("https://op2.example.com");
+
+
+	private File file;
+
+
+	private JWKSet jwkSet;
+
+
+	@Override
+	public void setUp()
+		throws Exception {
+
+		file = File.createTempFile("op-snapshot", ".bin");
+		file.delete();
+
+		KeyPairGenerator gen = KeyPairGenerator.getInstance("RSA");
+		gen.initialize(1024);
+		KeyPair keyPair = gen.generateKeyPair();
+		jwkSet = new JWKSet(new RSAKey.Builder((RSAPublicKey) keyPair.getPublic())
+			.privateKey((RSAPrivateKey) keyPair.getPrivate())
+			.keyID("1")
+			.build());
+	}
+
+
+	@Override
+	public void tearDown() {
+
+		file.delete();
+	}
+
+
+	private static OIDCProviderMetadata createMetadata(final Issuer issuer) {
+
+		return new OIDCProviderMetadata(
+			issuer,
+			Collections.singletonList(SubjectType.PUBLIC),
+			URI.create(issuer + "/jwks.json"));
+	}
+
+
+	private OIDCProviderPrefetcher.Result createResult(final Issuer issuer) {
+
+		return new OIDCProviderPrefetcher.Result(issuer, OIDCProviderPrefetcher.Status.READY, createMetadata(issuer), jwkSet, null);
+	}
+
+
+	public void testNoSnapshot()
+		throws Exception {
+
+		OIDCProviderSnapshotStore store = new OIDCProviderSnapshotStore(file);
+		assertEquals(file, store.getFile());
+		assertTrue(store.load().isEmpty());
+	}
+
+
+	public void testSaveAndLoad()
+		throws Exception {
+
+		OIDCProviderSnapshotStore store = new OIDCProviderSnapshotStore(file);
+
+		store.save(Arrays.asList(
+			createResult(OP_1),
+			createResult(OP_2),
+			new OIDCProviderPrefetcher.Result(new Issuer("https://down.example.com"), OIDCProviderPrefetcher.Status.METADATA_FAILED, null, null, new IOException())));
+
+		Map<Issuer,OIDCProviderPrefetcher.Result> results = store.load();
+		assertEquals(2, results.size());
+
+		OIDCProviderPrefetcher.Result r1 = results.get(OP_1);
+		assertTrue(r1.isReady());
+		assertEquals(OP_1, r1.getMetadata().getIssuer());
+		assertEquals(URI.create("https://op1.example.com/jwks.json"), r1.getMetadata().getJWKSetURI());
+
+		RSAKey rsaKey = (RSAKey) r1.getJWKSet().getKeyByKeyId("1");
+		assertEquals(((RSAKey) jwkSet.getKeys().get(0)).getModulus(), rsaKey.getModulus());
+		// Public keys only
+		assertFalse(rsaKey.isPrivate());
+
+		assertTrue(results.get(OP_2).isReady());
+	}
+
+
+	public void testLoadInto()
+		throws Exception {
+
+		OIDCProviderSnapshotStore store = new OIDCProviderSnapshotStore(file);
+		store.save(Collections.singletonList(createResult(OP_1)));
+
+		OIDCProviderMetadataResolver resolver = new OIDCProviderMetadataResolver();
+		store.loadInto(resolver);
+
+		assertEquals(OP_1, resolver.resolve(OP_1).getIssuer());
+		assertEquals(1L, resolver.getHitCount());
+	}
+
+
+	public void testChecksumMismatch()
+		throws Exception {
+
+		OIDCProviderSnapshotStore store = new OIDCProviderSnapshotStore(file);
+		store.save(Collections.singletonList(createResult(OP_1)));
+
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.seek(raf.length() - 2);
+			raf.write('x');
+		}
+
+		try {
+			store.load();
+			fail();
+		} catch (ParseException e) {
+			assertEquals("Invalid snapshot: Checksum mismatch", e.getMessage());
+		}
+	}
+
+
+	public void testUnsupportedVersion()
+		throws Exception {
+
+		OIDCProviderSnapshotStore store = new OIDCProviderSnapshotStore(file);
+		store.save(Collections.singletonList(createResult(OP_1)));
+
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.seek(4);
+			raf.writeInt(99);
+		}
+
+		try {
+			store.load();
+			fail();
+		} catch (ParseException e) {
+			assertEquals("Unsupported snapshot version: 99", e.getMessage());
+		}
+	}
+
+
+	public void testTruncated()
+		throws Exception {
+
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.writeInt(0);
+		}
+
+		try {
+			new OIDCProviderSnapshotStore(file).load();
+			fail();
+		} catch (ParseException e) {
+			assertEquals("Invalid snapshot: Truncated header", e.getMessage());
+		}
+	}
+
+
+	public void testRevalidateInBackground()
+		throws Exception {
+
+		OIDCProviderSnapshotStore store = new OIDCProviderSnapshotStore(file);
+		store.save(Arrays.asList(createResult(OP_1), createResult(OP_2)));
+
+		// OP 2 is down
+		OIDCProviderMetadataResolver resolver = new OIDCProviderMetadataResolver() {
+			@Override
+			protected HTTPResponse send(final HTTPRequest httpRequest)
+				throws IOException {
+
+				if (httpRequest.getURL().getHost().equals("op2.example.com")) {
+					throw new IOException("Connection refused");
+				}
+
+				HTTPResponse httpResponse = new HTTPResponse(HTTPResponse.SC_OK);
+				httpResponse.setContentType(CommonContentTypes.APPLICATION_JSON);
+				httpResponse.setContent(createMetadata(OP_1).toJSONObject().toJSONString());
+				return httpResponse;
+			}
+		};
+
+		final JWKSet newJWKSet = new JWKSet(new RSAKey.Builder(((RSAKey) jwkSet.getKeys().get(0)).toRSAPublicKey())
+			.keyID("2")
+			.build());
+
+		OIDCProviderPrefetcher prefetcher = new OIDCProviderPrefetcher(resolver, 2) {
+			@Override
+			protected HTTPResponse send(final HTTPRequest httpRequest)
+				throws IOException {
+
+				HTTPResponse httpResponse = new HTTPResponse(HTTPResponse.SC_OK);
+				httpResponse.setContentType(CommonContentTypes.APPLICATION_JSON);
+				httpResponse.setContent(newJWKSet.toJSONObject().toJSONString());
+				return httpResponse;
+			}
+		};
+
+		store.loadInto(resolver);
+
+		Map<Issuer,OIDCProviderPrefetcher.Result> results = store.revalidateInBackground(prefetcher, Arrays.asList(OP_1, OP_2), 5000L).get();
+
+		assertTrue(results.get(OP_1).isReady());
+		assertEquals("2", results.get(OP_1).getJWKSet().getKeys().get(0).getKeyID());
+
+		// Served stale by resolver
+		assertTrue(results.get(OP_2).isReady());
+
+		Map<Issuer,OIDCProviderPrefetcher.Result> snapshot = store.load();
+		assertEquals(2, snapshot.size());
+		assertEquals("2", snapshot.get(OP_1).getJWKSet().getKeys().get(0).getKeyID());
+	}
+
+
+	public void testRejectNullFile() {
+
+		try {
+			new OIDCProviderSnapshotStore(null);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The snapshot file must not be null", e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,328 @@
+package com.nimbusds.openid.connect.sdk.token;
+
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.PlainJWT;
+import com.nimbusds.oauth2.sdk.AccessTokenResponse;
+import com.nimbusds.oauth2.sdk.GeneralException;
+import com.nimbusds.oauth2.sdk.OAuth2Error;
+import com.nimbusds.oauth2.sdk.RefreshTokenGrant;
+import com.nimbusds.oauth2.sdk.TokenErrorResponse;
+import com.nimbusds.oauth2.sdk.TokenRequest;
+import com.nimbusds.oauth2.sdk.auth.ClientAuthentication;
+import com.nimbusds.oauth2.sdk.auth.ClientSecretBasic;
+import com.nimbusds.oauth2.sdk.auth.Secret;
+import com.nimbusds.oauth2.sdk.http.HTTPResponse;
+import com.nimbusds.oauth2.sdk.id.ClientID;
+import com.nimbusds.oauth2.sdk.id.Subject;
+import com.nimbusds.oauth2.sdk.token.BearerAccessToken;
+import com.nimbusds.oauth2.sdk.token.RefreshToken;
+import com.nimbusds.oauth2.sdk.token.Tokens;
+import com.nimbusds.openid.connect.sdk.OIDCTokenResponse;
+import junit.framework.TestCase;
+
+
+/**
+ * Tests the token renewal scheduler.
+ */
+public class TokenRenewalSchedulerTest extends TestCase {
+
+
+	private static final URI ENDPOINT = URI.create("https://c2id.com/token");
+
+
+	private static final ClientAuthentication CLIENT_AUTH = new ClientSecretBasic(new ClientID("123"), new Secret("secret"));
+
+
+	/**
+	 * Listener recording the outcomes.
+	 */
+	private static class RecordingListener implements TokenRenewalScheduler.Listener {
+
+
+		private final Map<Subject,Tokens> renewed = new ConcurrentHashMap<>();
+
+
+		private final Map<Subject,Exception> failed = new ConcurrentHashMap<>();
+
+
+		@Override
+		public void onRenewal(final Subject subject, final Tokens tokens) {
+			renewed.put(subject, tokens);
+		}
+
+
+		@Override
+		public void onFailure(final Subject subject, final Exception e) {
+			failed.put(subject, e);
+		}
+	}
+
+
+	/**
+	 * Scheduler returning canned responses and counting the requests.
+	 */
+	private static class MockScheduler extends TokenRenewalScheduler {
+
+
+		private final AtomicInteger requestCount = new AtomicInteger();
+
+
+		private volatile HTTPResponse httpResponse;
+
+
+		private volatile boolean unreachable;
+
+
+		private volatile RuntimeException sendException;
+
+
+		private volatile RefreshToken lastRefreshToken;
+
+
+		MockScheduler(final TokenRenewalScheduler.Listener listener) {
+			super(ENDPOINT, CLIENT_AUTH, listener, 10L, 0L, 1L, 2, 50L);
+		}
+
+
+		@Override
+		protected HTTPResponse send(final TokenRequest request)
+			throws IOException {
+
+			requestCount.incrementAndGet();
+			lastRefreshToken = ((RefreshTokenGrant) request.getAuthorizationGrant()).getRefreshToken();
+
+			if (unreachable) {
+				throw new IOException("Connection refused");
+			}
+
+			if (sendException != null) {
+				throw sendException;
+			}
+
+			return httpResponse;
+		}
+	}
+
+
+	private static Tokens createTokens(final long lifetime) {
+
+		return new Tokens(new BearerAccessToken(lifetime, null), new RefreshToken());
+	}
+
+
+	public void testConstructor() {
+
+		TokenRenewalScheduler scheduler = new TokenRenewalScheduler(ENDPOINT, CLIENT_AUTH, new RecordingListener(), 60L, 30L, 10L, 4);
+		assertEquals(ENDPOINT, scheduler.getEndpointURI());
+		assertEquals(CLIENT_AUTH, scheduler.getClientAuthentication());
+		assertEquals(60L, scheduler.getRenewAhead());
+		assertEquals(30L, scheduler.getMaxJitter());
+		assertEquals(10L, scheduler.getRetryDelay());
+		assertEquals(4, scheduler.getMaxConcurrency());
+		assertEquals(0, scheduler.getTrackedCount());
+		assertEquals(0L, scheduler.getRenewalCount());
+		assertEquals(0L, scheduler.getFailureCount());
+		scheduler.shutdown();
+	}
+
+
+	public void testRenew()
+		throws Exception {
+
+		RecordingListener listener = new RecordingListener();
+		MockScheduler scheduler = new MockScheduler(listener);
+
+		BearerAccessToken newAccessToken = new BearerAccessToken(3600L, null);
+		scheduler.httpResponse = new AccessTokenResponse(new Tokens(newAccessToken, null)).toHTTPResponse();
+
+		Subject alice = new Subject("alice");
+		Tokens tokens = createTokens(10L);
+		scheduler.track(alice, tokens);
+
+		// Due now
+		Thread.sleep(300L);
+
+		assertEquals(1, scheduler.requestCount.get());
+		assertEquals(tokens.getRefreshToken(), scheduler.lastRefreshToken);
+
+		Tokens renewed = listener.renewed.get(alice);
+		assertEquals(newAccessToken, renewed.getAccessToken());
+		// Refresh token retained
+		assertEquals(tokens.getRefreshToken(), renewed.getRefreshToken());
+
+		assertEquals(1L, scheduler.getRenewalCount());
+		assertEquals(1, scheduler.getTrackedCount());
+
+		scheduler.shutdown();
+	}
+
+
+	public void testRenewWithIDToken()
+		throws Exception {
+
+		RecordingListener listener = new RecordingListener();
+		MockScheduler scheduler = new MockScheduler(listener);
+
+		PlainJWT idToken = new PlainJWT(new JWTClaimsSet.Builder().subject("alice").build());
+		RefreshToken newRefreshToken = new RefreshToken();
+		scheduler.httpResponse = new OIDCTokenResponse(new OIDCTokens(idToken, new BearerAccessToken(3600L, null), newRefreshToken)).toHTTPResponse();
+
+		Subject alice = new Subject("alice");
+		scheduler.track(alice, createTokens(10L));
+
+		Thread.sleep(300L);
+
+		OIDCTokens renewed = (OIDCTokens) listener.renewed.get(alice);
+		assertEquals(idToken.serialize(), renewed.getIDTokenString());
+		assertEquals(newRefreshToken, renewed.getRefreshToken());
+
+		scheduler.shutdown();
+	}
+
+
+	public void testNotDue()
+		throws Exception {
+
+		RecordingListener listener = new RecordingListener();
+		MockScheduler scheduler = new MockScheduler(listener);
+
+		scheduler.track(new Subject("alice"), createTokens(3600L));
+
+		Thread.sleep(200L);
+
+		assertEquals(0, scheduler.requestCount.get());
+		assertEquals(1, scheduler.getTrackedCount());
+
+		scheduler.untrack(new Subject("alice"));
+		assertEquals(0, scheduler.getTrackedCount());
+
+		scheduler.shutdown();
+	}
+
+
+	public void testErrorResponse()
+		throws Exception {
+
+		RecordingListener listener = new RecordingListener();
+		MockScheduler scheduler = new MockScheduler(listener);
+
+		scheduler.httpResponse = new TokenErrorResponse(OAuth2Error.INVALID_GRANT).toHTTPResponse();
+
+		Subject alice = new Subject("alice");
+		scheduler.track(alice, createTokens(10L));
+
+		Thread.sleep(300L);
+
+		GeneralException e = (GeneralException) listener.failed.get(alice);
+		assertEquals(OAuth2Error.INVALID_GRANT, e.getErrorObject());
+
+		assertEquals(1L, scheduler.getFailureCount());
+		assertEquals(0, scheduler.getTrackedCount());
+
+		scheduler.shutdown();
+	}
+
+
+	public void testRetryAfterIOException()
+		throws Exception {
+
+		RecordingListener listener = new RecordingListener();
+		MockScheduler scheduler = new MockScheduler(listener);
+
+		scheduler.unreachable = true;
+
+		Subject alice = new Subject("alice");
+		scheduler.track(alice, createTokens(10L));
+
+		Thread.sleep(300L);
+
+		assertTrue(listener.failed.get(alice) instanceof IOException);
+		assertEquals(1, scheduler.requestCount.get());
+		assertEquals(1, scheduler.getTrackedCount());
+
+		scheduler.unreachable = false;
+		scheduler.httpResponse = new AccessTokenResponse(createTokens(3600L)).toHTTPResponse();
+
+		// Retry delay 1 second
+		Thread.sleep(1200L);
+
+		assertEquals(2, scheduler.requestCount.get());
+		assertNotNull(listener.renewed.get(alice));
+
+		scheduler.shutdown();
+	}
+
+
+	public void testRetryAfterRuntimeException()
+		throws Exception {
+
+		RecordingListener listener = new RecordingListener();
+		MockScheduler scheduler = new MockScheduler(listener);
+
+		scheduler.sendException = new IllegalStateException("Unexpected");
+
+		Subject alice = new Subject("alice");
+		scheduler.track(alice, createTokens(10L));
+
+		Thread.sleep(300L);
+
+		assertEquals("Unexpected", listener.failed.get(alice).getMessage());
+		assertEquals(1, scheduler.requestCount.get());
+		assertEquals(1L, scheduler.getFailureCount());
+		assertEquals(1, scheduler.getTrackedCount());
+
+		scheduler.sendException = null;
+		scheduler.httpResponse = new AccessTokenResponse(createTokens(3600L)).toHTTPResponse();
+
+		// Retry delay 1 second
+		Thread.sleep(1200L);
+
+		assertEquals(2, scheduler.requestCount.get());
+		assertNotNull(listener.renewed.get(alice));
+
+		scheduler.shutdown();
+	}
+
+
+	public void testRejectIllegalArgs() {
+
+		try {
+			new TokenRenewalScheduler(ENDPOINT, CLIENT_AUTH, new RecordingListener(), 10L, 20L, 10L, 4);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The max jitter must not be negative or exceed the renew-ahead time", e.getMessage());
+		}
+
+		try {
+			new TokenRenewalScheduler(ENDPOINT, CLIENT_AUTH, new RecordingListener(), 10L, 0L, 10L, 0);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The max concurrency must be a positive integer", e.getMessage());
+		}
+
+		TokenRenewalScheduler scheduler = new TokenRenewalScheduler(ENDPOINT, CLIENT_AUTH, new RecordingListener(), 10L, 0L, 10L, 4);
+
+		try {
+			scheduler.track(new Subject("alice"), new Tokens(new BearerAccessToken(3600L, null), null));
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The tokens must include a refresh token", e.getMessage());
+		}
+
+		try {
+			scheduler.track(new Subject("alice"), new Tokens(new BearerAccessToken(), new RefreshToken()));
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The access token lifetime must be specified", e.getMessage());
+		}
+
+		scheduler.shutdown();
+	}
+}